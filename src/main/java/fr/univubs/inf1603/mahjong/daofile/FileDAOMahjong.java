@@ -1,11 +1,20 @@
 package fr.univubs.inf1603.mahjong.daofile;
 
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.FileHeader;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.FileFormatUpgrade;
 import fr.univubs.inf1603.mahjong.daofile.filemanagement.FileHeaderRow;
 import fr.univubs.inf1603.mahjong.daofile.filemanagement.IndexRow;
 import fr.univubs.inf1603.mahjong.daofile.filemanagement.IndexManager;
-import fr.univubs.inf1603.mahjong.daofile.filemanagement.RowUtilities;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.RowsByPointer;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.KeyCodec;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.SecondaryIndex;
 import fr.univubs.inf1603.mahjong.daofile.filemanagement.AbstractRow;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.BloomFilter;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.Compactable;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.Compactor;
 import fr.univubs.inf1603.mahjong.daofile.filemanagement.DAOFileWriter;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.FileVerifier;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.ObjectCache;
 import fr.univubs.inf1603.mahjong.dao.DAOException;
 import fr.univubs.inf1603.mahjong.dao.DAOMahjong;
 import static fr.univubs.inf1603.mahjong.daofile.FileDAOUtilities.checkNotNull;
@@ -17,10 +26,27 @@ import fr.univubs.inf1603.mahjong.daofile.filemanagement.Index;
 import fr.univubs.inf1603.mahjong.engine.persistence.MahjongObservable;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -30,12 +56,50 @@ import java.util.logging.Logger;
  * associé à chaque fichier de données.
  *
  * L'ensemble des tuples des objets <code>T</code> en mémoire sont stockés dans
- * une liste ordonnée suivant le pointeur de tuple
+ * un arbre {@link RowsByPointer} rangé suivant le pointeur de tuple
  * <code>dataRowsSortedByPointer</code>. Cela permet de garder une reference sur
  * les tuples ainsi lorsqu'un objet T change il notifie son tuple et ce dernier
  * notifie le processus qui écrit dans le fichier de données
  * <code>dataWriter</code> et le tuple est mis dans la liste d'attente pour etre
  * ecrit dans le fichier de données.
+ * <br>
+ * La suppression d'un objet <code>T</code> marque son tuple comme supprimé
+ * dans le fichier de données, les pointeurs des autres tuples ne changent pas.
+ * Les tuples supprimés sont chainés dans l'ordre croissant de leur pointeur :
+ * chacun garde le pointeur de l'emplacement libre suivant, l'en-tete garde le
+ * premier emplacement libre et leur nombre. Les emplacements libres sont
+ * retrouvés à l'ouverture en suivant la chaine, sans parcourir les index. Un
+ * nouvel objet est écrit en priorité dans l'un de ces emplacements, ceux qui
+ * restent libres sont récupérés en arrière plan par le compacteur
+ * {@link Compactor}.
+ * <br>
+ * Un DAO peut déclarer des index secondaires {@link SecondaryIndex}
+ * {@link #declareSecondaryIndex(String, KeyCodec, Function)} : une fonction
+ * extrait une clé de chaque objet <code>T</code>, la clé est ajoutée à l'index
+ * lors de la sauvegarde de l'objet et retirée lors de sa suppression. Les
+ * objets sont ensuite retrouvés par égalité ou par intervalle de clés
+ * {@link #findBy(SecondaryIndex, Comparable)} sans parcourir le fichier de
+ * données.
+ * <br>
+ * Un filtre de Bloom {@link BloomFilter} garde les identifiants des objets
+ * sauvegardés : la recherche d'un objet absent du filtre s'arrete sans lire le
+ * fichier d'index. Le filtre est écrit à la fermeture du fichier de données et
+ * relu à l'ouverture suivante, sinon il est reconstruit en arrière plan à
+ * partir des index dès la première recherche. Tant qu'il n'est pas prêt, le
+ * filtre répond "peut etre" : les recherches passent par le fichier d'index.
+ * <br>
+ * Plusieurs objets sont chargés ensemble {@link #findAll(List)} : leurs index
+ * sont résolus en une fois, les tuples sont triés suivant leur pointeur et
+ * les tuples proches sont lus d'une seule lecture.
+ * <br>
+ * Le nombre d'objets gardés en mémoire peut etre borné
+ * {@link #setCacheMaximumSize(int)} : les tuples sont alors rangés dans un
+ * cache {@link ObjectCache} et les moins utiles sont évincés. Un tuple modifié
+ * qui n'est pas encore écrit n'est jamais évincé. Le DAO ne garde qu'une
+ * référence faible sur le tuple d'un objet évincé, qui reste à l'écoute de son
+ * objet : tant que l'objet est utilisé ailleurs, sa modification remet son
+ * tuple en mémoire et elle est écrite, et une recherche renvoie la meme
+ * instance. Le tuple disparait lorsque plus personne ne garde l'objet.
  *
  *
  * <pre>
@@ -57,13 +121,33 @@ import java.util.logging.Logger;
  * @version 1.3
  * @param <T> Objet à persister
  */
-public abstract class FileDAOMahjong<T extends Persistable> extends DAOMahjong<T> implements PropertyChangeListener, MahjongObservable {
+public abstract class FileDAOMahjong<T extends Persistable> extends DAOMahjong<T> implements PropertyChangeListener, MahjongObservable, Compactable {
 
     /**
      * Logging
      */
     private final static Logger LOGGER = Logger.getLogger(FileDAOMahjong.class.getName());
 
+    /**
+     * Nombre maximal d'octets inutiles entre 2 tuples lus d'une seule lecture
+     * lors d'un chargement groupé {@link #findAll(List)}.
+     */
+    static final int MULTI_GET_MAX_GAP = 4 * 1024;
+    /**
+     * Nombre maximal d'octets d'une lecture lors d'un chargement groupé
+     * {@link #findAll(List)}.
+     */
+    static final int MULTI_GET_MAX_READ = 256 * 1024;
+    /**
+     * Taille maximale du cache d'un DAO dont les objets ne sont jamais
+     * évincés.
+     */
+    public static final int NO_CACHE_LIMIT = 0;
+    /**
+     * Taille maximale par défaut du cache des DAO.
+     */
+    private static volatile int defaultCacheMaximumSize = NO_CACHE_LIMIT;
+
     /**
      * Support d'écoute
      */
@@ -74,9 +158,9 @@ public abstract class FileDAOMahjong<T extends Persistable> extends DAOMahjong<T
      */
     private int rowSize;
     /**
-     * Liste des tuples de données en mémoire.
+     * Tuples de données en mémoire rangés suivant le pointeur de tuple.
      */
-    final private List<AbstractRow> dataRowsSortedByPointer;
+    final private RowsByPointer<AbstractRow> dataRowsSortedByPointer;
     /**
      * Tuple de l'en-tete du fichier
      */
@@ -93,6 +177,63 @@ public abstract class FileDAOMahjong<T extends Persistable> extends DAOMahjong<T
      * Gère l'ensemble des index associés aux données
      */
     final protected IndexManager indexManager;
+    /**
+     * Nom du fichier de données.
+     */
+    final private String dataFilename;
+    /**
+     * Index secondaires déclarés par le DAO.
+     */
+    final private List<SecondaryIndexBinding<T, ?>> secondaryIndexes;
+    /**
+     * Filtre des identifiants des objets sauvegardés, <code>null</code> tant
+     * qu'il n'a pas été construit {@link #getBloomFilter()}.
+     */
+    private BloomFilter bloomFilter;
+    /**
+     * Filtre en cours de construction en arrière plan, <code>null</code> si
+     * aucune construction n'est en cours {@link #buildBloomFilter(BloomFilter)}.
+     */
+    private BloomFilter pendingBloomFilter;
+    /**
+     * Nombre de recherches d'objets absents arretées par le filtre.
+     */
+    private final AtomicLong negativeLookupCount;
+    /**
+     * Nombre de recherches d'objets absents que le filtre n'a pas arretées.
+     */
+    private final AtomicLong falsePositiveCount;
+    /**
+     * Cache des tuples de données en mémoire, <code>null</code> si le nombre
+     * d'objets en mémoire n'est pas borné.
+     */
+    private ObjectCache<UUID, DataRow<T>> cache;
+    /**
+     * Nombre de recherches d'objets déjà en mémoire.
+     */
+    private final AtomicLong cacheHitCount;
+    /**
+     * Nombre de recherches d'objets qui ne sont pas dans le cache.
+     */
+    private final AtomicLong cacheMissCount;
+    /**
+     * Nombre d'objets évincés du cache.
+     */
+    private final AtomicLong evictionCount;
+    /**
+     * Tuples évincés du cache rangés suivant l'identifiant de leur objet. Les
+     * références sont faibles : un tuple n'est plus gardé lorsque son objet
+     * n'est plus utilisé.
+     */
+    private final HashMap<UUID, EvictedRowReference<T>> evictedRows;
+    /**
+     * File des références vers les tuples évincés qui ont disparu.
+     */
+    private final ReferenceQueue<DataRow<T>> evictedRowQueue;
+    /**
+     * Remet en mémoire un tuple évincé lorsque son objet est modifié.
+     */
+    private final PropertyChangeListener reattachListener;
     
     
     /**
@@ -118,9 +259,27 @@ public abstract class FileDAOMahjong<T extends Persistable> extends DAOMahjong<T
             LOGGER.log(Level.INFO, msg);
         }
         this.rootDirPath = rootDirPath;
+        this.dataFilename = dataFilename;
         this.rowSize = rowSize;
+        this.secondaryIndexes = new ArrayList<>();
+        this.negativeLookupCount = new AtomicLong();
+        this.falsePositiveCount = new AtomicLong();
+        this.cacheHitCount = new AtomicLong();
+        this.cacheMissCount = new AtomicLong();
+        this.evictionCount = new AtomicLong();
+        this.evictedRows = new HashMap<>();
+        this.evictedRowQueue = new ReferenceQueue<>();
+        this.reattachListener = evt -> {
+            if (AbstractRow.DIRTY_PROPERTY.equals(evt.getPropertyName()) && Boolean.TRUE.equals(evt.getNewValue())) {
+                reattachRow((DataRow<T>) evt.getSource());
+            }
+        };
+        if (defaultCacheMaximumSize != NO_CACHE_LIMIT) {
+            this.cache = new ObjectCache<>(defaultCacheMaximumSize);
+        }
+        FileFormatUpgrade.upgradeDataFile(rootDirPath.resolve(dataFilename + ".data"), rowSize);
         this.indexManager = new IndexManager(rootDirPath.resolve(dataFilename + ".index"), rowSize);
-        this.dataRowsSortedByPointer = new ArrayList<>();
+        this.dataRowsSortedByPointer = new RowsByPointer<>();
         try {
             this.dataWriter = new DAOFileWriter(rootDirPath.resolve(dataFilename + ".data"));
             this.dataWriter.addPropertyChangeListener(this); 
@@ -134,9 +293,184 @@ public abstract class FileDAOMahjong<T extends Persistable> extends DAOMahjong<T
             this.fhr.getData().setRowNumber(this.indexManager.getRowNumber());
             LOGGER.log(Level.INFO, "rowNumber updated -> newRowNumber = {0}\n", this.indexManager.getRowNumber());
         }
+        loadFreeSlots();
+        this.bloomFilter = BloomFilter.load(this.dataWriter.getFilePath(), this.fhr.getGeneration(), this.dataWriter.getFileLenght());
+        this.dataWriter.getPropertyChangeSupport().addPropertyChangeListener(DAOFileWriter.CLOSED_PROPERTY, evt -> writeBloomFilter());
         this.pcs = new PropertyChangeSupport(this);
+        Compactor.getInstance().register(this);
     }
-    
+
+    /**
+     * Retrouve les emplacements libres du fichier de données et les ajoute à
+     * l'en-tete. La chaine des tuples supprimés est suivie à partir du premier
+     * emplacement libre gardé par l'en-tete, seuls les tuples supprimés sont
+     * lus.
+     * <br>
+     * Si la chaine ne correspond pas à l'en-tete (écriture interrompue) ou si
+     * un tuple au delà de la fin du fichier est encore référencé par un index,
+     * les emplacements libres sont recherchés à l'aide des index
+     * {@link #scanFreeSlots()} et chainés à nouveau.
+     *
+     * @throws DAOFileException s'il y'a une erreur lors de la lecture du
+     * fichier de données ou des index.
+     */
+    private void loadFreeSlots() throws DAOFileException {
+        int freeSlotNumber = this.fhr.getLoadedFreeSlotNumber();
+        long endPointer = getNextRowPointer() + (long) freeSlotNumber * rowSize;
+        List<Long> freeSlots = null;
+        try {
+            freeSlots = readFreeSlotChain(freeSlotNumber, endPointer);
+            if (freeSlots != null && hasIndexedRow(endPointer)) {
+                freeSlots = null;
+            }
+        } catch (DAOFileWriterException ex) {
+            throw new DAOFileException(ex.getMessage(), ex);
+        }
+        if (freeSlots != null) {
+            for (long freeSlot : freeSlots) {
+                this.fhr.getData().loadFreeSlot(freeSlot);
+            }
+        } else {
+            LOGGER.log(Level.WARNING, "free data slots chain of ''{0}'' doesn''t match the header -> free slots searched from the indexes",
+                    this.dataWriter.getFilePath());
+            scanFreeSlots();
+        }
+        if (this.fhr.getData().getTombstoneNumber() > 0) {
+            LOGGER.log(Level.INFO, "{0} free data rows found -> fragmentation = {1}\n",
+                    new Object[]{this.fhr.getData().getTombstoneNumber(), this.fhr.getData().getFragmentation()});
+        }
+    }
+
+    /**
+     * Lis la chaine des tuples supprimés du fichier de données.
+     *
+     * @param freeSlotNumber Nombre d'emplacements libres gardé par l'en-tete.
+     * @param endPointer Pointeur de fin du fichier de données.
+     * @return Pointeurs des emplacements libres dans l'ordre croissant ou
+     * <code>null</code> si la chaine n'est pas valide.
+     * @throws DAOFileWriterException s'il y'a une erreur lors de la lecture.
+     */
+    private List<Long> readFreeSlotChain(int freeSlotNumber, long endPointer) throws DAOFileWriterException {
+        List<Long> freeSlots = new ArrayList<>(freeSlotNumber);
+        long previousPointer = FileHeaderRow.FILE_HEADER_ROW_SIZE - rowSize;
+        long pointer = this.fhr.getLoadedFirstFreeSlot();
+        while (pointer != FileHeader.NO_FREE_SLOT) {
+            if (freeSlots.size() == freeSlotNumber || pointer <= previousPointer || pointer + rowSize > endPointer
+                    || (pointer - FileHeaderRow.FILE_HEADER_ROW_SIZE) % rowSize != 0) {
+                return null;
+            }
+            Long nextPointer = this.dataWriter.readFreeSlotLink(pointer);
+            if (nextPointer == null) {
+                return null;
+            }
+            freeSlots.add(pointer);
+            previousPointer = pointer;
+            pointer = nextPointer;
+        }
+        return freeSlots.size() == freeSlotNumber ? freeSlots : null;
+    }
+
+    /**
+     * Renvoie <code>true</code> si un tuple situé au delà du pointeur
+     * <code>endPointer</code> est référencé par un index. Seuls les anciens
+     * emplacements des tuples déplacés par le compacteur y sont attendus.
+     *
+     * @param endPointer Pointeur de fin du fichier de données.
+     * @return <code>true</code> si un tuple au delà de la fin du fichier est
+     * référencé par un index sinon <code>false</code>.
+     * @throws DAOFileWriterException s'il y'a une erreur lors de la lecture du
+     * fichier de données.
+     * @throws DAOFileException s'il y'a une erreur lors de la lecture des
+     * index.
+     */
+    private boolean hasIndexedRow(long endPointer) throws DAOFileWriterException, DAOFileException {
+        long fileLenght = this.dataWriter.getFileLenght();
+        for (long pointer = endPointer; pointer + rowSize <= fileLenght; pointer += rowSize) {
+            UUID dataID = readDataID(pointer);
+            if (dataID != null && this.indexManager.getDataPointer(dataID) == pointer) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Recherche les emplacements libres du fichier de données à l'aide des
+     * index. Tout emplacement de tuple qui n'est référencé par aucun index est
+     * considéré comme libre, il est marqué comme supprimé et chainé. Les index
+     * sont parcourus sans etre copiés, chaque emplacement référencé est noté
+     * dans un tableau de bits.
+     *
+     * @throws DAOFileException s'il y'a une erreur lors de la lecture des
+     * index ou de l'écriture des tuples supprimés.
+     */
+    private void scanFreeSlots() throws DAOFileException {
+        long fileLenght = this.dataWriter.getFileLenght();
+        long endPointer = getNextRowPointer();
+        if (fileLenght > endPointer) {
+            endPointer += ((fileLenght - endPointer) / rowSize) * rowSize;
+        }
+        BitSet usedSlots = new BitSet((int) ((endPointer - FileHeaderRow.FILE_HEADER_ROW_SIZE) / rowSize));
+        this.indexManager.forEachIndex((dataID, dataPointer) -> {
+            if (dataPointer >= FileHeaderRow.FILE_HEADER_ROW_SIZE) {
+                usedSlots.set((int) ((dataPointer - FileHeaderRow.FILE_HEADER_ROW_SIZE) / rowSize));
+            }
+        });
+        try {
+            for (long pointer = FileHeaderRow.FILE_HEADER_ROW_SIZE; pointer < endPointer; pointer += rowSize) {
+                if (!usedSlots.get((int) ((pointer - FileHeaderRow.FILE_HEADER_ROW_SIZE) / rowSize))) {
+                    freeSlot(pointer);
+                }
+            }
+        } catch (DAOFileWriterException ex) {
+            throw new DAOFileException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Marque un emplacement comme supprimé et l'ajoute à la chaine des
+     * emplacements libres : le tuple supprimé est chainé à l'emplacement libre
+     * suivant et l'emplacement libre précédent est chainé au tuple supprimé.
+     *
+     * @param rowPointer Pointeur de l'emplacement libéré.
+     * @return <code>true</code> si l'emplacement a été libéré sinon
+     * <code>false</code>.
+     * @throws DAOFileWriterException s'il y'a une erreur lors de l'écriture.
+     */
+    private boolean freeSlot(long rowPointer) throws DAOFileWriterException {
+        FileHeader header = this.fhr.getData();
+        if (!this.dataWriter.writeTombstone(rowPointer, this.rowSize, header.getNextFreeSlot(rowPointer))) {
+            return false;
+        }
+        long previousSlot = header.getPreviousFreeSlot(rowPointer);
+        if (previousSlot != FileHeader.NO_FREE_SLOT) {
+            this.dataWriter.writeFreeSlotLink(previousSlot, rowPointer);
+        }
+        return header.addFreeSlot(rowPointer);
+    }
+
+    /**
+     * Retire un emplacement de la chaine des emplacements libres : l'emplacement
+     * libre précédent est chainé à l'emplacement libre suivant. Le premier
+     * emplacement libre est retiré sans écriture, l'en-tete garde le suivant.
+     *
+     * @param rowPointer Pointeur de l'emplacement à retirer.
+     * @return <code>true</code> si l'emplacement était libre sinon
+     * <code>false</code>.
+     * @throws DAOFileWriterException s'il y'a une erreur lors de l'écriture.
+     */
+    private boolean takeFreeSlot(long rowPointer) throws DAOFileWriterException {
+        FileHeader header = this.fhr.getData();
+        if (!header.isFreeSlot(rowPointer)) {
+            return false;
+        }
+        long previousSlot = header.getPreviousFreeSlot(rowPointer);
+        if (previousSlot != FileHeader.NO_FREE_SLOT) {
+            this.dataWriter.writeFreeSlotLink(previousSlot, header.getNextFreeSlot(rowPointer));
+        }
+        return header.removeFreeSlot(rowPointer);
+    }
+
     /**
      * Renvoie un tuple de données encapsulant l'objet <code>T</code>.
      *
@@ -159,31 +493,85 @@ public abstract class FileDAOMahjong<T extends Persistable> extends DAOMahjong<T
      */
     protected abstract DataRow<T> getDataRow(long rowPointer) throws DAOFileException;
 
+    /**
+     * Renvoie un tuple encapsulant un objet <code>T</code> lu à partir d'un
+     * tampon d'octets <code>buffer</code> déjà lu dans le fichier de données.
+     *
+     * @param buffer Tampon d'octets positionné au début du tuple.
+     * @param rowPointer Pointeur du tuple.
+     * @return Tuple encapsulant un objet <code>T</code>.
+     * @throws DAOFileException s'il y'a une erreur lors de la lecture du tuple.
+     */
+    protected abstract DataRow<T> getDataRow(ByteBuffer buffer, long rowPointer) throws DAOFileException;
+
     /**
      * Ajoute un tuple encapsulant un objet <code>T</code> à la liste des tuples
      * de données <code>dataRowsSortedByPointer</code>. Ensuite mets le tuple
      * dans la liste d'attente du processus qui écrit dans le fichier de
      * données. Crée un nouvel index associé à l'objet<code>T</code> encapsulé
      * dans le tuple via le gestionnaire d'index. Et incrémente le nombre total
-     * de tuple dans le fichier de données.
+     * de tuple dans le fichier de données. Le tuple est placé dans le premier
+     * emplacement libre du fichier s'il y'en a un, sinon à la fin du fichier.
      *
      * @param data Objet <code>T</code> à persister.
      * @throws DAOException s'il y'a une erreur lors de la sauvegarde.
      */
     @Override
-    final protected void writeToPersistence(T data) throws DAOException {
+    final synchronized protected void writeToPersistence(T data) throws DAOException {
         LOGGER.log(Level.FINE, "start : {0} -> {1}", new Object[]{ data.getClass().getSimpleName(), data.getUUID()});
         try {
-            DataRow<T> dataRow = getDataRow(getNexRowID(), data, getNextRowPointer());
-            Index index = new Index(dataRow.getData().getUUID(), dataRow.getRowPointer());
-            indexManager.addIndex(index);
+            long rowPointer = fhr.getData().getFirstFreeSlot();
+            boolean freeSlot = rowPointer != FileHeader.NO_FREE_SLOT;
+            if (!freeSlot) {
+                rowPointer = getNextRowPointer();
+            }
+            DataRow<T> dataRow = getDataRow(getNexRowID(), data, rowPointer);
+            // si le budget d'octets en attente est épuisé, l'emplacement reste libre
             dataWriter.addRowToMultipleWritingList(dataRow);
+            try {
+                // l'en-tete qui ne chaine plus l'emplacement est écrite après le tuple
+                if (freeSlot) {
+                    takeFreeSlot(rowPointer);
+                }
+                Index index = new Index(dataRow.getData().getUUID(), dataRow.getRowPointer());
+                try {
+                    indexManager.addIndex(index);
+                } catch (DAOFileException ex) {
+                    // le tuple de données sans index est retiré de la liste d'attente
+                    freeSlot(rowPointer);
+                    throw ex;
+                }
+            } catch (DAOFileWriterException ex) {
+                throw new DAOFileException(ex.getMessage(), ex);
+            }
             dataRow.addPropertyChangeListener(dataWriter);
-            RowUtilities.addRowToSortedListByPointer(dataRowsSortedByPointer, dataRow);
+            dataRowsSortedByPointer.put(dataRow);
+            cacheRow(dataRow);
             fhr.getData().incrementRowNumber();
+            if (bloomFilter != null) {
+                bloomFilter.add(data.getUUID());
+                if (bloomFilter.isFull()) {
+                    // reconstruit avec une capacité plus grande lors de la prochaine recherche
+                    bloomFilter = null;
+                }
+            }
+            if (pendingBloomFilter != null) {
+                // l'index vient peut etre d'etre dépassé par la construction
+                pendingBloomFilter.add(data.getUUID());
+            }
+            for (SecondaryIndexBinding<T, ?> binding : secondaryIndexes) {
+                try {
+                    binding.put(data);
+                } catch (DAOFileException ex) {
+                    // l'objet est sauvegardé, l'index est mis à jour lors de la prochaine recherche
+                    binding.synchronizedWithData = false;
+                    LOGGER.log(Level.WARNING, ex.getMessage());
+                }
+            }
         } catch (DAOFileException ex) {
             throw new DAOException(ex.getMessage(), ex);
         }
+        evictRows(Collections.singleton(data.getUUID()));
         LOGGER.log(Level.FINE, "end : {0} -> {1}", new Object[]{ data.getClass().getSimpleName(), data.getUUID()});
     }
 
@@ -199,16 +587,35 @@ public abstract class FileDAOMahjong<T extends Persistable> extends DAOMahjong<T
      * données.
      */
     @Override
-    final protected T loadFromPersistence(UUID dataID) throws DAOException {
+    final synchronized protected T loadFromPersistence(UUID dataID) throws DAOException {
+        cacheMissCount.incrementAndGet();
+        DataRow<T> evictedRow = getEvictedRow(dataID);
+        if (evictedRow != null) {
+            // l'objet évincé est encore utilisé, il ne doit pas etre dupliqué
+            reattachRow(evictedRow);
+            evictRows(Collections.singleton(dataID));
+            return evictedRow.getData();
+        }
         try {
+            BloomFilter filter = getBloomFilter();
+            if (filter != null && !filter.mightContain(dataID)) {
+                negativeLookupCount.incrementAndGet();
+                return null;
+            }
             // on recupère d'abors le tuple d'index correspondant à l'objet encapsuler à l'aide de son identifiant
-            IndexRow indexRow = this.indexManager.getRow(dataID);
-            if (indexRow != null) { // Si le tuple d'index existe 
-                DataRow<T> dataRow = getDataRow(indexRow.getData().getDataPointer());
+            long dataPointer = this.indexManager.getDataPointer(dataID);
+            if (dataPointer == IndexManager.NO_DATA_POINTER) {
+                if (filter != null) {
+                    falsePositiveCount.incrementAndGet();
+                }
+            } else { // Si l'index existe
+                DataRow<T> dataRow = getDataRow(dataPointer);
                 if (dataRow != null) {
                     // on ajoute le tuple chargé à la liste des tuples.
-                    RowUtilities.addRowToSortedListByPointer(this.dataRowsSortedByPointer, dataRow);
+                    this.dataRowsSortedByPointer.put(dataRow);
 //                    dataRow.addPropertyChangeListener(this.dataWriter); // deplacé dans le constructeur du tuple
+                    cacheRow(dataRow);
+                    evictRows(Collections.singleton(dataID));
                     return dataRow.getData();
                 }
             }
@@ -229,20 +636,23 @@ public abstract class FileDAOMahjong<T extends Persistable> extends DAOMahjong<T
     final synchronized protected  List<T> laodAll() throws DAOException {
         List<T> dataList;
         if (getRowNumber() > super.map.size()) {
-            for (IndexRow indexRow : this.indexManager.getRowsSortedByUUID()) {
-                UUID dataID = indexRow.getData().getUUID();
-                if (!super.map.containsKey(dataID)) {
-                    super.find(dataID);
-                }
+            // les objets sont rassemblés avant d'etre évincés du cache
+            try {
+                List<UUID> dataIDs = new ArrayList<>(getRowNumber());
+                this.indexManager.forEachIndex((dataID, dataPointer) -> dataIDs.add(dataID));
+                dataList = findAll(dataIDs);
+            } catch (DAOFileException ex) {
+                throw new DAOException(ex.getMessage(), ex);
             }
+        } else {
+            dataList = new ArrayList<>(super.map.values());
         }
-        dataList = new ArrayList<>(super.map.values());
         return dataList;
     }
 
     /**
-     * Supprime un tuple du fichier de données en tronquant le fichier à la
-     * position du tuple plus des éventuels tuples restants.
+     * Supprime un tuple du fichier de données en le marquant comme supprimé.
+     * Les autres tuples ne sont pas déplacés.
      *
      * @param dataID Identifiant de l'objet encapsulé dans le tuple à retirer.
      * @return <code>true</code> si le tuple a bien été supprimé sinon
@@ -256,17 +666,30 @@ public abstract class FileDAOMahjong<T extends Persistable> extends DAOMahjong<T
 
     private synchronized boolean removeDataRow(IndexRow indexRow) throws DAOFileException {
         if (indexRow != null) {
-            Index index = indexRow.getData();
-            DataRow dataRow = (DataRow) RowUtilities.getRowFromSortedListByPointer(this.dataRowsSortedByPointer, index.getDataPointer());
+            long dataPointer = indexRow.getData().getDataPointer();
+            DataRow dataRow = (DataRow) this.dataRowsSortedByPointer.get(dataPointer);
+            if (dataRow == null) {
+                // l'objet évincé ne doit plus etre écrit dans l'emplacement libéré
+                dataRow = getEvictedRow(indexRow.getData().getUUID());
+            }
             removeRowFromList(dataRow);
-            this.indexManager.removeIndex(indexRow);
-            try {
-                if (this.dataWriter.deleteFromFile((int) index.getDataPointer(), this.rowSize)) {
-                    RowUtilities.updateRowsPointer(this.dataRowsSortedByPointer, index.getDataPointer(), this.rowSize);
-                    return true;
+            if (this.indexManager.removeIndex(indexRow) != null) {
+                this.fhr.getData().decrementRowNumber();
+                for (SecondaryIndexBinding<T, ?> binding : secondaryIndexes) {
+                    try {
+                        binding.index.remove(indexRow.getData().getUUID());
+                    } catch (DAOFileException ex) {
+                        binding.synchronizedWithData = false;
+                        LOGGER.log(Level.WARNING, ex.getMessage());
+                    }
+                }
+                try {
+                    if (freeSlot(dataPointer)) {
+                        return true;
+                    }
+                } catch (DAOFileWriterException ex) {
+                    throw new DAOFileException(ex.getMessage(), ex);
                 }
-            } catch (DAOFileWriterException ex) {
-                throw new DAOFileException(ex.getMessage(), ex);
             }
         }
         return false;
@@ -278,41 +701,712 @@ public abstract class FileDAOMahjong<T extends Persistable> extends DAOMahjong<T
      * @param dataListToDelete Liste des objets <code>T</code> à supprimer.
      * @throws DAOFileException s'il y'a une erreur lors de la suppression.
      */
-    synchronized public void delete(List<T> dataListToDelete) throws DAOFileException { //TODO check
-        List<IndexRow> multipleRemoveList = indexManager.getRowList(dataListToDelete);
-        if (multipleRemoveList != null) {
-            List<IndexRow> singleRemoveList = indexManager.getSingleRemoveList(multipleRemoveList);
-            if (!singleRemoveList.isEmpty()) {
-                for (IndexRow row : singleRemoveList) {
-                    removeDataRow(row);
+    synchronized public void delete(List<T> dataListToDelete) throws DAOFileException {
+        int nbDeletedRows = 0;
+        for (IndexRow indexRow : indexManager.getRowList(dataListToDelete)) {
+            if (removeDataRow(indexRow)) {
+                nbDeletedRows++;
+                LOGGER.log(Level.FINE, " \t -> uuid = {0}", indexRow.getData().getUUID());
+            }
+        }
+        if (nbDeletedRows > 0) {
+            LOGGER.log(Level.INFO, " [OK] {0} {1} successful deleted -> fragmentation : {2}",
+                    new Object[]{nbDeletedRows, dataListToDelete.get(0).getClass().getSimpleName(), fhr.getData().getFragmentation()});
+        }
+    }
+
+    /**
+     * Déclare un index secondaire <code>name</code> sur les objets
+     * <code>T</code>. L'index est gardé dans le fichier
+     * <code>dataFilename.name.sindex</code>. La clé d'un objet est extraite
+     * lors de sa sauvegarde, un objet dont la clé est <code>null</code> n'est
+     * pas indexé.
+     *
+     * @param <K> Type de la clé.
+     * @param name Nom de l'index. NE DOIT PAS ETRE NULL.
+     * @param codec Encodage des clés. NE DOIT PAS ETRE NULL.
+     * @param extractor Fonction qui extrait la clé d'un objet. NE DOIT PAS
+     * ETRE NULLE.
+     * @return Index secondaire déclaré.
+     * @throws DAOFileException s'il y'a une erreur lors de l'ouverture du
+     * fichier d'index secondaire.
+     */
+    protected final <K extends Comparable<? super K>> SecondaryIndex<K> declareSecondaryIndex(String name,
+            KeyCodec<K> codec, Function<? super T, ? extends K> extractor) throws DAOFileException {
+        checkNotNull("FileDAOMahjong.declareSecondaryIndex -> name", name);
+        checkNotNull("FileDAOMahjong.declareSecondaryIndex -> codec", codec);
+        checkNotNull("FileDAOMahjong.declareSecondaryIndex -> extractor", extractor);
+        SecondaryIndex<K> index = new SecondaryIndex<>(
+                rootDirPath.resolve(dataFilename + "." + name + SecondaryIndex.SECONDARY_INDEX_EXTENSION), codec);
+        synchronized (this) {
+            secondaryIndexes.add(new SecondaryIndexBinding<>(index, extractor));
+        }
+        return index;
+    }
+
+    /**
+     * Renvoie les objets <code>T</code> dont la clé est égale à
+     * <code>key</code> dans un index secondaire.
+     *
+     * @param <K> Type de la clé.
+     * @param index Index secondaire déclaré par le DAO.
+     * @param key Clé recherchée. NE DOIT PAS ETRE NULLE.
+     * @return Liste des objets trouvés, vide s'il n'y en a aucun.
+     * @throws DAOException s'il y'a une erreur lors de la recherche.
+     */
+    protected final <K extends Comparable<? super K>> List<T> findBy(SecondaryIndex<K> index, K key) throws DAOException {
+        synchronizeSecondaryIndex(index);
+        try {
+            return findAll(index.find(key));
+        } catch (DAOFileException ex) {
+            throw new DAOException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Renvoie les objets <code>T</code> dont la clé est comprise entre
+     * <code>fromKey</code> et <code>toKey</code> inclus dans un index
+     * secondaire, suivant l'ordre des clés.
+     *
+     * @param <K> Type de la clé.
+     * @param index Index secondaire déclaré par le DAO.
+     * @param fromKey Plus petite clé, <code>null</code> pour ne pas borner.
+     * @param toKey Plus grande clé, <code>null</code> pour ne pas borner.
+     * @return Liste des objets trouvés, vide s'il n'y en a aucun.
+     * @throws DAOException s'il y'a une erreur lors de la recherche.
+     */
+    protected final <K extends Comparable<? super K>> List<T> findRange(SecondaryIndex<K> index, K fromKey, K toKey) throws DAOException {
+        synchronizeSecondaryIndex(index);
+        try {
+            return findAll(index.findRange(fromKey, toKey));
+        } catch (DAOFileException ex) {
+            throw new DAOException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Renvoie les objets <code>T</code> à partir de leurs identifiants. Les
+     * objets qui ne sont pas encore en mémoire sont chargés ensemble
+     * {@link #loadFromPersistence(List)}.
+     *
+     * @param dataIDs Identifiants des objets. NE DOIT PAS ETRE NULL.
+     * @return Liste des objets trouvés dans l'ordre des identifiants, les
+     * objets introuvables sont ignorés.
+     * @throws DAOException s'il y'a une erreur lors du chargement.
+     */
+    public final synchronized List<T> findAll(List<UUID> dataIDs) throws DAOException {
+        checkNotNull("FileDAOMahjong.findAll -> dataIDs", dataIDs);
+        Set<UUID> missingIDs = new LinkedHashSet<>();
+        for (UUID dataID : dataIDs) {
+            if (!super.map.containsKey(dataID)) {
+                missingIDs.add(dataID);
+            } else {
+                recordHit(dataID);
+            }
+        }
+        if (!missingIDs.isEmpty()) {
+            cacheMissCount.addAndGet(missingIDs.size());
+            for (Iterator<UUID> iterator = missingIDs.iterator(); iterator.hasNext();) {
+                DataRow<T> evictedRow = getEvictedRow(iterator.next());
+                if (evictedRow != null) {
+                    reattachRow(evictedRow);
+                    iterator.remove();
                 }
             }
-            if (!multipleRemoveList.isEmpty()) {
-                for (IndexRow indexRow : multipleRemoveList) {
-                    DataRow dataRow = (DataRow) RowUtilities.getRowFromSortedListByPointer(dataRowsSortedByPointer, indexRow.getData().getDataPointer());
-                    removeRowFromList(dataRow);
-                    fhr.getData().decrementRowNumber();
+            super.map.putAll(loadFromPersistence(new ArrayList<>(missingIDs)));
+        }
+        List<T> dataList = new ArrayList<>(dataIDs.size());
+        for (UUID dataID : dataIDs) {
+            T data = super.map.get(dataID);
+            if (data != null) {
+                dataList.add(data);
+            }
+        }
+        evictRows(new HashSet<>(dataIDs));
+        return dataList;
+    }
+
+    /**
+     * Charge ensemble des objets <code>T</code> depuis le fichier de données.
+     * Les pointeurs de données sont résolus en une fois, triés, puis les
+     * tuples séparés de moins de {@link #MULTI_GET_MAX_GAP} octets sont lus
+     * d'une seule lecture d'au plus {@link #MULTI_GET_MAX_READ} octets et
+     * décodés à partir du tampon lu.
+     *
+     * @param dataIDs Identifiants distincts des objets à charger.
+     * @return Objets chargés rangés suivant leur identifiant.
+     * @throws DAOException s'il y'a une erreur lors de la lecture des index
+     * ou du fichier de données.
+     */
+    private Map<UUID, T> loadFromPersistence(List<UUID> dataIDs) throws DAOException {
+        Map<UUID, T> loaded = new HashMap<>();
+        try {
+            BloomFilter filter = getBloomFilter();
+            List<UUID> candidateIDs = new ArrayList<>(dataIDs.size());
+            for (UUID dataID : dataIDs) {
+                if (filter == null || filter.mightContain(dataID)) {
+                    candidateIDs.add(dataID);
+                } else {
+                    negativeLookupCount.incrementAndGet();
+                }
+            }
+            long[] dataPointers = indexManager.getDataPointers(candidateIDs);
+            List<Index> indexes = new ArrayList<>(candidateIDs.size());
+            for (int i = 0; i < dataPointers.length; i++) {
+                if (dataPointers[i] == IndexManager.NO_DATA_POINTER) {
+                    if (filter != null) {
+                        falsePositiveCount.incrementAndGet();
+                    }
+                } else {
+                    indexes.add(new Index(candidateIDs.get(i), dataPointers[i]));
+                }
+            }
+            indexes.sort(Comparator.comparingLong(Index::getDataPointer));
+            int start = 0;
+            while (start < indexes.size()) {
+                long firstPointer = indexes.get(start).getDataPointer();
+                long endPointer = firstPointer + rowSize;
+                int end = start + 1;
+                while (end < indexes.size()) {
+                    long pointer = indexes.get(end).getDataPointer();
+                    if (pointer - endPointer > MULTI_GET_MAX_GAP || pointer + rowSize - firstPointer > MULTI_GET_MAX_READ) {
+                        break;
+                    }
+                    endPointer = pointer + rowSize;
+                    end++;
+                }
+                loadRange(indexes.subList(start, end), firstPointer, (int) (endPointer - firstPointer), loaded);
+                start = end;
+            }
+        } catch (DAOFileException | DAOFileWriterException ex) {
+            throw new DAOException(ex.getMessage(), ex);
+        }
+        return loaded;
+    }
+
+    /**
+     * Lis d'une seule lecture une plage du fichier de données puis décode les
+     * tuples des index <code>indexes</code> qu'elle contient. Un tuple qui ne
+     * peut pas etre décodé est ignoré comme dans
+     * {@link #loadFromPersistence(UUID)}.
+     *
+     * @param indexes Index des tuples à décoder, triés suivant leur pointeur.
+     * @param position Pointeur du début de la plage.
+     * @param lenght Taille de la plage.
+     * @param loaded Objets chargés rangés suivant leur identifiant.
+     * @throws DAOFileWriterException s'il y'a une erreur lors de la lecture.
+     */
+    private void loadRange(List<Index> indexes, long position, int lenght, Map<UUID, T> loaded) throws DAOFileWriterException {
+        ByteBuffer buffer = dataWriter.read(position, lenght);
+        if (buffer == null) {
+            LOGGER.log(Level.WARNING, "no data found at the position {0}", position);
+            return;
+        }
+        try {
+            int start = buffer.position();
+            for (Index index : indexes) {
+                int offset = start + (int) (index.getDataPointer() - position);
+                if (offset + rowSize > buffer.limit()) {
+                    LOGGER.log(Level.WARNING, "no data found at the position {0}", index.getDataPointer());
+                    continue;
                 }
-                indexManager.removeIndex(multipleRemoveList);
-                long startPointer = multipleRemoveList.get(0).getData().getDataPointer();
-                int offset = multipleRemoveList.size() * rowSize;
+                ByteBuffer rowBuffer = buffer.duplicate();
+                rowBuffer.limit(offset + rowSize).position(offset);
                 try {
-                    if (dataWriter.deleteFromFile((int) startPointer, offset)) {
-                        RowUtilities.updateRowsPointer(dataRowsSortedByPointer, startPointer, offset);
-                        LOGGER.log(Level.INFO, " [OK] {0} {1} successful deleted -> startPointer : {2} -- offset : {3}",
-                                new Object[]{multipleRemoveList.size(), dataListToDelete.get(0).getClass().getSimpleName(), startPointer, offset});
-                        StringBuilder sb = new StringBuilder();
-                        sb.append("\t{ \n");
-                        multipleRemoveList.forEach(ir -> {
-                            sb.append(" \t -> uuid = ").append(ir.getData().getUUID()).append("\n");
-                        });
-                        sb.append("\t} ");
-                        LOGGER.log(Level.FINE, sb.toString());
+                    DataRow<T> dataRow = getDataRow(rowBuffer.slice(), index.getDataPointer());
+                    if (!dataRow.getData().getUUID().equals(index.getUUID())) {
+                        LOGGER.log(Level.WARNING, "unexpected data {0} at the position {1}",
+                                new Object[]{dataRow.getData().getUUID(), index.getDataPointer()});
+                        continue;
                     }
-                } catch (DAOFileWriterException ex) {
-                    throw new DAOFileException(ex.getMessage(), ex);
+                    dataRow.addPropertyChangeListener(dataWriter);
+                    dataRowsSortedByPointer.put(dataRow);
+                    cacheRow(dataRow);
+                    loaded.put(index.getUUID(), dataRow.getData());
+                } catch (DAOFileException ex) {
+                    LOGGER.log(Level.WARNING, ex.getMessage());
+                }
+            }
+        } finally {
+            dataWriter.release(buffer);
+        }
+    }
+
+    /**
+     * Met à jour un index secondaire qui ne correspond pas au fichier de
+     * données, par exemple un index déclaré sur un fichier de données déjà
+     * rempli ou un index dont la dernière écriture a été interrompue. Les
+     * objets absents de l'index sont chargés pour en extraire la clé. La
+     * vérification n'est faite qu'une fois.
+     *
+     * @param index Index secondaire déclaré par le DAO.
+     * @throws DAOException s'il y'a une erreur lors de la mise à jour.
+     */
+    protected final synchronized void synchronizeSecondaryIndex(SecondaryIndex<?> index) throws DAOException {
+        SecondaryIndexBinding<T, ?> binding = null;
+        for (SecondaryIndexBinding<T, ?> secondaryIndex : secondaryIndexes) {
+            if (secondaryIndex.index == index) {
+                binding = secondaryIndex;
+            }
+        }
+        if (binding == null) {
+            throw new IllegalArgumentException("FileDAOMahjong.synchronizeSecondaryIndex -> index not declared by this DAO.");
+        }
+        if (binding.synchronizedWithData) {
+            return;
+        }
+        try {
+            if (index.getRowNumber() != getRowNumber()) {
+                // seuls les identifiants absents de l'index secondaire sont gardés
+                List<UUID> missingDataIDs = new ArrayList<>();
+                indexManager.forEachIndex((dataID, dataPointer) -> {
+                    if (index.getRow(dataID) == null) {
+                        missingDataIDs.add(dataID);
+                    }
+                });
+                for (UUID dataID : missingDataIDs) {
+                    T data = super.find(dataID);
+                    if (data != null) {
+                        binding.put(data);
+                    }
+                }
+                for (UUID dataID : index.getDataIDs()) {
+                    if (indexManager.getDataPointer(dataID) == IndexManager.NO_DATA_POINTER) {
+                        index.remove(dataID);
+                    }
+                }
+                LOGGER.log(Level.INFO, "secondary index synchronized -> {0} keys for {1} rows",
+                        new Object[]{index.getRowNumber(), getRowNumber()});
+            }
+            binding.synchronizedWithData = true;
+        } catch (DAOFileException ex) {
+            throw new DAOException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Renvoie le filtre des identifiants des objets sauvegardés. Si le filtre
+     * n'a pas été relu à l'ouverture du fichier ou s'il est plein, sa
+     * construction est lancée en arrière plan {@link #buildBloomFilter(BloomFilter)}
+     * et <code>null</code> est renvoyé jusqu'à ce qu'il soit prêt.
+     *
+     * @return Filtre des identifiants des objets sauvegardés ou
+     * <code>null</code> s'il est en cours de construction.
+     */
+    synchronized private BloomFilter getBloomFilter() {
+        if (bloomFilter == null && pendingBloomFilter == null) {
+            BloomFilter filter = new BloomFilter(2 * indexManager.getRowNumber());
+            pendingBloomFilter = filter;
+            Thread thread = new Thread(() -> buildBloomFilter(filter), "daofile-bloom-" + dataFilename);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return bloomFilter;
+    }
+
+    /**
+     * Construit un filtre à partir des index, en dehors du verrou du DAO. Les
+     * objets sauvegardés pendant la construction sont ajoutés au filtre par
+     * {@link #writeToPersistence(Persistable)}. Le filtre ne remplace le
+     * filtre courant que s'il n'est pas plein.
+     *
+     * @param filter Filtre à construire.
+     */
+    private void buildBloomFilter(BloomFilter filter) {
+        try {
+            indexManager.forEachIndex((dataID, dataPointer) -> filter.add(dataID));
+        } catch (DAOFileException ex) {
+            LOGGER.log(Level.WARNING, "bloom filter of {0} not built -> {1}", new Object[]{dataFilename, ex.getMessage()});
+            synchronized (this) {
+                if (pendingBloomFilter == filter) {
+                    pendingBloomFilter = null;
                 }
             }
+            return;
+        }
+        synchronized (this) {
+            if (pendingBloomFilter == filter) {
+                pendingBloomFilter = null;
+                if (!filter.isFull()) {
+                    bloomFilter = filter;
+                    LOGGER.log(Level.FINE, "bloom filter built -> {0}", bloomFilter);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ecrit le filtre des identifiants à la fermeture du fichier de données.
+     * Rien n'est écrit si des tuples n'ont pas pu etre écrits, le filtre ne
+     * correspondrait pas au fichier.
+     */
+    synchronized private void writeBloomFilter() {
+        if (bloomFilter == null) {
+            return;
+        }
+        if (dataWriter.hasPendingRows() || fhr.isDirty()) {
+            LOGGER.log(Level.WARNING, "bloom filter of {0} not writed -> pending rows", dataWriter.getFilePath());
+            return;
+        }
+        try {
+            bloomFilter.save(dataWriter.getFilePath(), fhr.getGeneration(), Files.size(dataWriter.getFilePath()));
+        } catch (IOException | DAOFileException ex) {
+            LOGGER.log(Level.WARNING, "bloom filter of {0} not writed -> {1}", new Object[]{dataWriter.getFilePath(), ex.getMessage()});
+        }
+    }
+
+    /**
+     * @return Nombre de recherches d'objets absents arretées par le filtre de
+     * Bloom sans lire le fichier d'index.
+     */
+    public long getNegativeLookupCount() {
+        return negativeLookupCount.get();
+    }
+
+    /**
+     * @return Nombre de recherches d'objets absents que le filtre de Bloom n'a
+     * pas arretées (faux positifs et objets supprimés).
+     */
+    public long getFalsePositiveCount() {
+        return falsePositiveCount.get();
+    }
+
+    /**
+     * Renvoie un objet <code>T</code> à partir de son identifiant. Un objet
+     * déjà en mémoire est compté comme une réussite du cache, sinon il est
+     * chargé {@link #loadFromPersistence(UUID)}. Les tuples écrits depuis la
+     * dernière recherche ne sont plus épinglés, le cache est donc aussi réduit
+     * lors d'une réussite.
+     *
+     * @param dataID Identifiant de l'objet.
+     * @return Objet <code>T</code> s'il existe sinon <code>null</code>.
+     * @throws DAOException s'il y'a une erreur lors du chargement.
+     */
+    @Override
+    synchronized public T find(UUID dataID) throws DAOException {
+        if (dataID != null && super.map.containsKey(dataID)) {
+            recordHit(dataID);
+            evictRows(Collections.singleton(dataID));
+        }
+        return super.find(dataID);
+    }
+
+    /**
+     * Compte une réussite du cache et note la lecture de l'objet.
+     *
+     * @param dataID Identifiant de l'objet en mémoire.
+     */
+    private void recordHit(UUID dataID) {
+        cacheHitCount.incrementAndGet();
+        if (cache != null) {
+            cache.get(dataID);
+        }
+    }
+
+    /**
+     * Ajoute un tuple de données au cache s'il est borné.
+     *
+     * @param dataRow Tuple de données en mémoire.
+     */
+    private void cacheRow(DataRow<T> dataRow) {
+        if (cache != null) {
+            cache.put(dataRow.getData().getUUID(), dataRow);
+        }
+    }
+
+    /**
+     * Evince du cache les tuples en trop. Un tuple modifié qui n'est pas
+     * encore écrit est épinglé, ainsi que les tuples des objets de l'opération
+     * en cours qui n'ont pas encore été rendus à l'appelant.
+     *
+     * @param retainedIDs Identifiants des objets de l'opération en cours.
+     */
+    private void evictRows(Collection<UUID> retainedIDs) {
+        if (cache == null) {
+            return;
+        }
+        List<DataRow<T>> evictedRows = cache.evict(dataRow -> dataRow.isDirty()
+                || retainedIDs.contains(dataRow.getData().getUUID()));
+        expungeEvictedRows();
+        for (DataRow<T> dataRow : evictedRows) {
+            UUID dataID = dataRow.getData().getUUID();
+            this.dataRowsSortedByPointer.remove(dataRow);
+            super.map.remove(dataID);
+            dataRow.addPropertyChangeListener(reattachListener);
+            this.evictedRows.put(dataID, new EvictedRowReference<>(dataID, dataRow, evictedRowQueue));
+        }
+        if (!evictedRows.isEmpty()) {
+            evictionCount.addAndGet(evictedRows.size());
+            LOGGER.log(Level.FINE, "{0} data rows evicted -> {1}", new Object[]{evictedRows.size(), cache});
+        }
+    }
+
+    /**
+     * Renvoie le tuple évincé d'un objet encore utilisé.
+     *
+     * @param dataID Identifiant de l'objet.
+     * @return Tuple évincé de l'objet, ou <code>null</code> si l'objet n'a pas
+     * été évincé ou s'il n'est plus utilisé.
+     */
+    synchronized private DataRow<T> getEvictedRow(UUID dataID) {
+        expungeEvictedRows();
+        EvictedRowReference<T> reference = evictedRows.get(dataID);
+        return reference != null ? reference.get() : null;
+    }
+
+    /**
+     * Remet en mémoire le tuple évincé d'un objet : le tuple retrouve sa place
+     * dans la liste des tuples et dans le cache, il est de nouveau déplacé
+     * lors du compactage et retiré lors de la suppression de son objet. Rien
+     * n'est fait si le tuple n'est plus évincé.
+     *
+     * @param dataRow Tuple évincé.
+     */
+    synchronized private void reattachRow(DataRow<T> dataRow) {
+        UUID dataID = dataRow.getData().getUUID();
+        EvictedRowReference<T> reference = evictedRows.get(dataID);
+        if (reference == null || reference.get() != dataRow) {
+            return;
+        }
+        evictedRows.remove(dataID);
+        dataRow.removePropertyChangeListener(reattachListener);
+        this.dataRowsSortedByPointer.put(dataRow);
+        super.map.put(dataID, dataRow.getData());
+        cacheRow(dataRow);
+    }
+
+    /**
+     * Oublie les tuples évincés dont l'objet n'est plus utilisé.
+     */
+    synchronized private void expungeEvictedRows() {
+        EvictedRowReference<T> reference;
+        while ((reference = (EvictedRowReference<T>) evictedRowQueue.poll()) != null) {
+            evictedRows.remove(reference.dataID, reference);
+        }
+    }
+
+    /**
+     * @return Taille maximale du cache ou {@link #NO_CACHE_LIMIT} si le
+     * nombre d'objets en mémoire n'est pas borné.
+     */
+    synchronized public int getCacheMaximumSize() {
+        return cache != null ? cache.getMaximumSize() : NO_CACHE_LIMIT;
+    }
+
+    /**
+     * Borne le nombre d'objets <code>T</code> gardés en mémoire. Les objets
+     * déjà en mémoire sont ajoutés au nouveau cache puis les objets en trop
+     * sont évincés.
+     *
+     * @param maximumSize Nombre maximal d'objets en mémoire, ou
+     * {@link #NO_CACHE_LIMIT} pour ne jamais évincer d'objet. NE DOIT PAS ETRE
+     * NEGATIF.
+     */
+    synchronized public void setCacheMaximumSize(int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("FileDAOMahjong.setCacheMaximumSize -> maximumSize '" + maximumSize + "' must not be negative.");
+        }
+        if (maximumSize == NO_CACHE_LIMIT) {
+            cache = null;
+            return;
+        }
+        cache = new ObjectCache<>(maximumSize);
+        for (AbstractRow row : dataRowsSortedByPointer.toList()) {
+            cacheRow((DataRow<T>) row);
+        }
+        evictRows(Collections.emptySet());
+    }
+
+    /**
+     * Borne la mémoire occupée par les objets <code>T</code> gardés en
+     * mémoire. Les tuples d'un fichier de données ont tous la meme taille, le
+     * poids d'un objet est la taille de son tuple.
+     *
+     * @param maximumWeight Nombre maximal d'octets des tuples en mémoire, ou
+     * {@link #NO_CACHE_LIMIT} pour ne jamais évincer d'objet. NE DOIT PAS ETRE
+     * NEGATIF.
+     */
+    public void setCacheMaximumWeight(long maximumWeight) {
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("FileDAOMahjong.setCacheMaximumWeight -> maximumWeight '" + maximumWeight + "' must not be negative.");
+        }
+        setCacheMaximumSize(maximumWeight == NO_CACHE_LIMIT ? NO_CACHE_LIMIT
+                : (int) Math.min(Integer.MAX_VALUE, Math.max(1, maximumWeight / rowSize)));
+    }
+
+    /**
+     * @return Taille maximale par défaut du cache des DAO.
+     */
+    public static int getDefaultCacheMaximumSize() {
+        return defaultCacheMaximumSize;
+    }
+
+    /**
+     * Modifie la taille maximale par défaut du cache des DAO. Seuls les DAO
+     * créés après l'appel de cette méthode sont concernés.
+     *
+     * @param maximumSize Nouvelle taille maximale par défaut, ou
+     * {@link #NO_CACHE_LIMIT}. NE DOIT PAS ETRE NEGATIF.
+     */
+    public static void setDefaultCacheMaximumSize(int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("FileDAOMahjong.setDefaultCacheMaximumSize -> maximumSize '" + maximumSize + "' must not be negative.");
+        }
+        defaultCacheMaximumSize = maximumSize;
+    }
+
+    /**
+     * @return Nombre de recherches d'objets déjà en mémoire.
+     */
+    public long getCacheHitCount() {
+        return cacheHitCount.get();
+    }
+
+    /**
+     * @return Nombre de recherches d'objets qui n'étaient pas dans le cache,
+     * objets évincés encore utilisés compris.
+     */
+    public long getCacheMissCount() {
+        return cacheMissCount.get();
+    }
+
+    /**
+     * @return Nombre d'objets évincés du cache.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * @return Nombre d'objets <code>T</code> en mémoire.
+     */
+    synchronized public int getCacheSize() {
+        return super.map.size();
+    }
+
+    /**
+     * Vérifie en parallèle les sommes de controle de tous les tuples du
+     * fichier de données et du fichier d'index. Les tuples en attente
+     * d'écriture ne sont pas encore sur le disque et ne sont donc pas
+     * vérifiés.
+     *
+     * @return Rapports de la vérification du fichier de données puis du
+     * fichier d'index.
+     * @throws DAOFileException s'il y'a une erreur lors de la lecture des
+     * fichiers.
+     */
+    public List<FileVerifier.Report> verify() throws DAOFileException {
+        List<FileVerifier.Report> reports = new ArrayList<>();
+        try {
+            reports.add(new FileVerifier(dataWriter.getFilePath(), rowSize).verify());
+        } catch (DAOFileWriterException ex) {
+            throw new DAOFileException(ex.getMessage(), ex);
+        }
+        reports.add(indexManager.verify());
+        return reports;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>
+     * Le fichier de données est compacté si son taux de fragmentation atteint
+     * le seuil de compactage ou s'il contient encore les anciens emplacements
+     * des tuples déplacés lors de la passe précédente.
+     */
+    @Override
+    public boolean needsCompaction() {
+        if (dataWriter.isClosed()) {
+            return false;
+        }
+        return fhr.getData().isFragmented() || dataWriter.getFileLenght() > getNextRowPointer();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>
+     * Un tuple de données est déplacé en copiant ses octets vers un
+     * emplacement libre puis en mettant à jour son index. L'objet du dernier
+     * tuple est retrouvé en lisant l'identifiant au début du tuple, sans
+     * parcourir les index. La passe est
+     * reportée si des tuples de données sont en attente d'écriture. Les
+     * anciens emplacements sont retirés du fichier lorsque les index mis à
+     * jour ont été écrits.
+     */
+    @Override
+    synchronized public int compact(int maxMoves) throws DAOFileException {
+        if (maxMoves <= 0) {
+            throw new IllegalArgumentException("FileDAOMahjong.compact -> maxMoves '" + maxMoves + "' must be greater than 0.");
+        }
+        int nbMovedRows = 0;
+        synchronized (dataWriter) {
+            if (dataWriter.hasPendingRows()) {
+                return 0;
+            }
+            try {
+                long endPointer = getNextRowPointer();
+                if (dataWriter.getFileLenght() > endPointer && !indexManager.hasPendingRows()) {
+                    dataWriter.truncate(endPointer);
+                }
+                if (fhr.getData().getTombstoneNumber() > 0) {
+                    while (nbMovedRows < maxMoves && fhr.getData().getTombstoneNumber() > 0) {
+                        long lastPointer = endPointer - rowSize;
+                        if (!takeFreeSlot(lastPointer)) {
+                            UUID lastDataID = readDataID(lastPointer);
+                            if (lastDataID == null || indexManager.getDataPointer(lastDataID) != lastPointer) {
+                                LOGGER.log(Level.WARNING, "compaction stopped -> no index found for the data pointer {0}", lastPointer);
+                                break;
+                            }
+                            long freePointer = fhr.getData().getFirstFreeSlot();
+                            if (!dataWriter.copy(lastPointer, freePointer, rowSize)) {
+                                LOGGER.log(Level.WARNING, "compaction stopped -> data row {0} could not be copied", lastPointer);
+                                break;
+                            }
+                            takeFreeSlot(freePointer);
+                            indexManager.setDataPointer(lastDataID, freePointer);
+                            AbstractRow dataRow = dataRowsSortedByPointer.get(lastPointer);
+                            if (dataRow != null) {
+                                dataRowsSortedByPointer.move(dataRow, freePointer);
+                            } else {
+                                DataRow<T> evictedRow = getEvictedRow(lastDataID);
+                                if (evictedRow != null) {
+                                    evictedRow.setRowPointer(freePointer, false);
+                                }
+                            }
+                            nbMovedRows++;
+                        }
+                        endPointer = lastPointer;
+                    }
+                }
+                if (nbMovedRows == 0 && dataWriter.getFileLenght() > endPointer && !indexManager.hasPendingRows()) {
+                    dataWriter.truncate(endPointer);
+                }
+            } catch (DAOFileWriterException ex) {
+                throw new DAOFileException(ex.getMessage(), ex);
+            }
+        }
+        LOGGER.log(Level.FINE, "{0} data rows moved -> new fragmentation : {1}", new Object[]{nbMovedRows, fhr.getData().getFragmentation()});
+        return nbMovedRows;
+    }
+
+    /**
+     * Lis dans le fichier de données l'identifiant de l'objet encapsulé dans
+     * le tuple qui commence au pointeur <code>rowPointer</code>. Seul le début
+     * du tuple est lu.
+     *
+     * @param rowPointer Pointeur du tuple.
+     * @return Identifiant de l'objet, ou <code>null</code> si le tuple est
+     * supprimé ou illisible.
+     * @throws DAOFileWriterException s'il y'a une erreur lors de la lecture.
+     */
+    private UUID readDataID(long rowPointer) throws DAOFileWriterException {
+        ByteBuffer buffer = dataWriter.read(rowPointer, DataRow.DATA_ID_PREFIX_SIZE);
+        if (buffer == null) {
+            return null;
+        }
+        try {
+            return DataRow.readDataID(buffer);
+        } finally {
+            dataWriter.release(buffer);
         }
     }
 
@@ -328,12 +1422,16 @@ public abstract class FileDAOMahjong<T extends Persistable> extends DAOMahjong<T
     private void removeRowFromList(DataRow dataRow) {
         if (dataRow != null) {
             dataRow.setDirty(false);
-            this.fhr.getData().decrementRowNumber();
             Persistable data = (Persistable) dataRow.getData();
             data.removePropertyChangeListener(dataRow);
             dataRow.removePropertyChangeListener(this.dataWriter);
+            dataRow.removePropertyChangeListener(reattachListener);
             this.dataRowsSortedByPointer.remove(dataRow);
             super.map.remove(data.getUUID());
+            evictedRows.remove(data.getUUID());
+            if (cache != null) {
+                cache.remove(data.getUUID());
+            }
         }
     }
 
@@ -356,12 +1454,14 @@ public abstract class FileDAOMahjong<T extends Persistable> extends DAOMahjong<T
     }
 
     /**
-     * Renvoie un pointeur de données pour le prochain tuple.
+     * Renvoie le pointeur de fin du fichier de données, où est écrit un
+     * nouveau tuple lorsqu'il n'y a pas d'emplacement libre. Les emplacements
+     * des tuples supprimés sont comptés.
      *
      * @return Pointeur de données pour le prochain tuple.
      */
     private long getNextRowPointer() {
-        return FileHeaderRow.FILE_HEADER_ROW_SIZE + (getRowNumber() * rowSize);
+        return FileHeaderRow.FILE_HEADER_ROW_SIZE + ((long) fhr.getData().getSlotNumber() * rowSize);
     }
     
     /**
@@ -371,4 +1471,73 @@ public abstract class FileDAOMahjong<T extends Persistable> extends DAOMahjong<T
     public PropertyChangeSupport getPropertyChangeSupport() {
         return this.pcs;
     }   
-}
\ No newline at end of file
+
+    /**
+     * Référence faible vers le tuple évincé d'un objet <code>T</code>.
+     *
+     * @param <T> Objet encapsulé dans le tuple.
+     */
+    private static final class EvictedRowReference<T extends Persistable> extends WeakReference<DataRow<T>> {
+
+        /**
+         * Identifiant de l'objet encapsulé dans le tuple.
+         */
+        private final UUID dataID;
+
+        /**
+         * Constructeur avec l'identifiant de l'objet et le tuple évincé.
+         *
+         * @param dataID Identifiant de l'objet.
+         * @param dataRow Tuple évincé.
+         * @param queue File des références qui ont disparu.
+         */
+        EvictedRowReference(UUID dataID, DataRow<T> dataRow, ReferenceQueue<DataRow<T>> queue) {
+            super(dataRow, queue);
+            this.dataID = dataID;
+        }
+    }
+
+    /**
+     * Associe un index secondaire à la fonction qui extrait la clé d'un objet
+     * <code>T</code>.
+     *
+     * @param <T> Objet indexé.
+     * @param <K> Type de la clé.
+     */
+    private static final class SecondaryIndexBinding<T extends Persistable, K extends Comparable<? super K>> {
+
+        /**
+         * Index secondaire.
+         */
+        final SecondaryIndex<K> index;
+        /**
+         * Fonction qui extrait la clé d'un objet.
+         */
+        final Function<? super T, ? extends K> extractor;
+        /**
+         * Vaut <code>true</code> lorsque l'index a été comparé au fichier de
+         * données.
+         */
+        boolean synchronizedWithData;
+
+        SecondaryIndexBinding(SecondaryIndex<K> index, Function<? super T, ? extends K> extractor) {
+            this.index = index;
+            this.extractor = extractor;
+        }
+
+        /**
+         * Ajoute ou met à jour la clé d'un objet.
+         *
+         * @param data Objet indexé.
+         * @throws DAOFileException s'il y'a une erreur lors de l'ajout.
+         */
+        void put(T data) throws DAOFileException {
+            K key = extractor.apply(data);
+            if (key != null) {
+                index.put(data.getUUID(), key);
+            } else {
+                index.remove(data.getUUID());
+            }
+        }
+    }
+}
@@ -7,6 +7,14 @@ import fr.univubs.inf1603.mahjong.engine.game.TileZone;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.BufferPool;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.DAOFileWriter;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.DurabilityPolicy;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.FlushExecutor;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.FlushPolicy;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.StorageMode;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.SyncGroup;
 import fr.univubs.inf1603.mahjong.engine.game.GameTileInterface;
 import fr.univubs.inf1603.mahjong.dao.SapiGameDAO;
 import fr.univubs.inf1603.mahjong.engine.game.Game;
@@ -24,11 +32,16 @@ import java.util.logging.SimpleFormatter;
  * patron de conception singleton. Son instance est obtenue via la méthode
  * statique <code>getInstance()</code> sans paramètre ou avec le chemin du
  * répertoire racine <code>Path</code> comme paramètre.
+ * <br>
+ * Les écritures de tous les fichiers du répertoire racine sont planifiées par
+ * un seul exécuteur {@link FlushExecutor} dont les threads sont des démons. La
+ * fermeture du gestionnaire {@link #close()} écrit les listes d'attente,
+ * force les fichiers sur le disque et arrete les threads d'écriture.
  *
  * @author aliyou
  * @version 1.3
  */
-public class FileDAOManager implements DAOManager {
+public class FileDAOManager implements DAOManager, AutoCloseable {
 
     /**
      * Gestionnaire de DAO
@@ -38,6 +51,15 @@ public class FileDAOManager implements DAOManager {
      * Chemin du repertoire racine
      */
     private final Path rootDir;
+    /**
+     * Exécuteur partagé des écritures des DAO.
+     */
+    private final FlushExecutor flushExecutor;
+    /**
+     * Exécuteur des écritures par défaut avant l'instanciation du
+     * gestionnaire. Il redevient l'exécuteur par défaut à la fermeture.
+     */
+    private final FlushExecutor previousFlushExecutor;
 
     /**
      * Constructeur privé avec le chemin d'accès du repertoire racine
@@ -48,6 +70,10 @@ public class FileDAOManager implements DAOManager {
     private FileDAOManager(Path rootDir) {
         this.rootDir = rootDir;
         setupLogger(rootDir);
+        this.flushExecutor = new FlushExecutor("daofile-flush-" + rootDir.getFileName(),
+                FlushExecutor.threadNumberFromSystemProperty());
+        this.previousFlushExecutor = DAOFileWriter.getDefaultFlushExecutor();
+        DAOFileWriter.setDefaultFlushExecutor(flushExecutor);
     }
 
     private static void setupLogger(Path rootDir) {
@@ -100,6 +126,112 @@ public class FileDAOManager implements DAOManager {
         return daoManager;
     }
 
+    /**
+     * Modifie le mode d'accès aux fichiers <code>StorageMode</code> des DAO.
+     * Cette méthode doit etre appelée avant le premier accès aux DAO, les DAO
+     * déjà instanciés gardent leur mode d'accès.
+     *
+     * @param storageMode Mode d'accès aux fichiers. NE DOIT PAS ETRE NULL.
+     */
+    public void setStorageMode(StorageMode storageMode) {
+        DAOFileWriter.setDefaultStorageMode(storageMode);
+    }
+
+    /**
+     * Modifie la politique d'écriture <code>FlushPolicy</code> des DAO. Cette
+     * méthode doit etre appelée avant le premier accès aux DAO, les DAO déjà
+     * instanciés gardent leur politique d'écriture.
+     *
+     * @param flushPolicy Politique d'écriture. NE DOIT PAS ETRE NULL.
+     */
+    public void setFlushPolicy(FlushPolicy flushPolicy) {
+        DAOFileWriter.setDefaultFlushPolicy(flushPolicy);
+    }
+
+    /**
+     * Modifie la politique de durabilité <code>DurabilityPolicy</code> des
+     * fichiers du répertoire racine. La nouvelle politique s'applique
+     * immédiatement à tous les DAO, y compris ceux déjà instanciés.
+     *
+     * @param durabilityPolicy Politique de durabilité. NE DOIT PAS ETRE NULL.
+     */
+    public void setDurabilityPolicy(DurabilityPolicy durabilityPolicy) {
+        getSyncGroup().setDurabilityPolicy(durabilityPolicy);
+    }
+
+    /**
+     * Renvoie le groupe de synchronisation des fichiers du répertoire racine.
+     * Il donne accès à la politique de durabilité en cours et au nombre de
+     * synchronisations (<code>fsync</code>) éffectuées.
+     *
+     * @return Groupe de synchronisation du répertoire racine.
+     */
+    public SyncGroup getSyncGroup() {
+        return SyncGroup.getInstance(rootDir);
+    }
+
+    /**
+     * Renvoie l'exécuteur <code>FlushExecutor</code> qui planifie les
+     * écritures de tous les fichiers du répertoire racine.
+     *
+     * @return Exécuteur des écritures des DAO.
+     */
+    public FlushExecutor getFlushExecutor() {
+        return flushExecutor;
+    }
+
+    /**
+     * Modifie le nombre de threads d'écriture partagés par les DAO. La
+     * modification s'applique immédiatement.
+     *
+     * @param threadNumber Nombre de threads. DOIT ETRE SUPERIEUR A 0.
+     */
+    public void setFlushThreadNumber(int threadNumber) {
+        flushExecutor.setThreadNumber(threadNumber);
+    }
+
+    /**
+     * Ferme le gestionnaire des DAO. Les listes d'attente de tous les fichiers
+     * sont écrites, les fichiers sont forcés sur le disque et fermés, puis les
+     * threads d'écriture sont arretés. Les DAO obtenus avant la fermeture ne
+     * doivent plus etre utilisés, l'appel suivant de
+     * {@link #getInstance(Path)} crée un nouveau gestionnaire qui relit les
+     * fichiers.
+     *
+     * @throws DAOException si au moins un fichier n'a pas pu etre fermé.
+     */
+    @Override
+    public void close() throws DAOException {
+        synchronized (FileDAOManager.class) {
+            if (daoManager == this) {
+                daoManager = null;
+            }
+            FileSapiGameDAO.resetInstance();
+            FileGameDAO.resetInstance();
+            FileZoneDAO.resetInstance();
+            FileTileDAO.resetInstance();
+            if (DAOFileWriter.getDefaultFlushExecutor() == flushExecutor) {
+                DAOFileWriter.setDefaultFlushExecutor(previousFlushExecutor);
+            }
+        }
+        try {
+            flushExecutor.close();
+        } catch (DAOFileWriterException ex) {
+            throw new DAOException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Renvoie la réserve de tampons d'octets <code>BufferPool</code> partagée
+     * par les DAO pour leurs lectures et leurs écritures. Ses compteurs
+     * indiquent le nombre de tampons alloués.
+     *
+     * @return Réserve de tampons d'octets des DAO.
+     */
+    public BufferPool getBufferPool() {
+        return DAOFileWriter.getDefaultBufferPool();
+    }
+
     /**
      * Renvoie l'instance du DAO fichier qui gère les simple games
      * <code>SimpleGame</code>.
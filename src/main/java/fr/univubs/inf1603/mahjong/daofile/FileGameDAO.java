@@ -90,12 +90,22 @@ public class FileGameDAO extends FileDAOMahjong<Game> {
         }
         return instance;
     }
+
+    /**
+     * Oublie l'instance du DAO qui gère les parties de Mahjong. Appelée lors de la
+     * fermeture du gestionnaire de DAO, le prochain accès relit les fichiers.
+     */
+    static void resetInstance() {
+        instance = null;
+    }
     
     @Override
-    synchronized public void propertyChange(PropertyChangeEvent evt) {
+    public void propertyChange(PropertyChangeEvent evt) {
         if(evt.getPropertyName().equals(FileZoneDAO.ZONE_WRITED_PROPERTY)) {
             System.out.println("* FileGameDAO  -> job done notification received from FileZoneDAO");
-            notify();
+            synchronized (this) {
+                notify();
+            }
             super.getPropertyChangeSupport().firePropertyChange(GAME_WRITED_PROPERTY, false, true);
         }
     }
@@ -122,6 +132,14 @@ public class FileGameDAO extends FileDAOMahjong<Game> {
         return new GameRow(dataWriter, rowPointer);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected DataRow<Game> getDataRow(ByteBuffer buffer, long rowPointer) throws DAOFileException {
+        return new GameRow(buffer, rowPointer);
+    }
+
     /**
      * Supprime une partie de Mahjong {@code Game} du fichier de données.
      * L'esemble des zones {@code TileZone} du plateau de jeu {@code Board} sont
@@ -224,7 +242,7 @@ public class FileGameDAO extends FileDAOMahjong<Game> {
         /**
          * Taille d'un tuple de game.
          */
-        static final int GAME_ROW_SIZE = ROW_HEADER_SIZE + GAME_SIZE;                                // 238
+        static final int GAME_ROW_SIZE = ROW_HEADER_SIZE + GAME_SIZE;                                // 242
 
         /**
          * Constructeur avec un identifiant de tuple {@code rowID}, une partie
@@ -265,6 +283,19 @@ public class FileGameDAO extends FileDAOMahjong<Game> {
 //            }
         }
 
+        /**
+         * Constructeur avec un tampon d'octets <code>buffer</code> et un
+         * pointeur de tuple <code>rowPointer</code>.
+         *
+         * @param buffer Tampon d'octets à partir duquel le tuple est lu.
+         * @param rowPointer Pointeur d'un tuple.
+         * @throws DAOFileException s'il y'a une erreur lors de la lecture d'une
+         * partie de Mahjong {@code Game}.
+         */
+        GameRow(ByteBuffer buffer, long rowPointer) throws DAOFileException {
+            super(buffer, GAME_SIZE, rowPointer);
+        }
+
         /**
          * Change l'état d'un tuple de zone lorsque une nouvelle tuile est
          * rajoutée à la zone.
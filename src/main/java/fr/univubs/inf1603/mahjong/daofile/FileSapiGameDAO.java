@@ -4,10 +4,10 @@ import fr.univubs.inf1603.mahjong.dao.DAOException;
 import fr.univubs.inf1603.mahjong.dao.SapiGameDAO;
 import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
 import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException;
-import fr.univubs.inf1603.mahjong.daofile.filemanagement.AbstractRow;
 import fr.univubs.inf1603.mahjong.daofile.filemanagement.DAOFileWriter;
 import fr.univubs.inf1603.mahjong.daofile.filemanagement.DataRow;
-import fr.univubs.inf1603.mahjong.daofile.filemanagement.FileHeaderRow;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.KeyCodec;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.SecondaryIndex;
 import fr.univubs.inf1603.mahjong.engine.game.MahjongGame;
 import fr.univubs.inf1603.mahjong.sapi.Difficulty;
 import fr.univubs.inf1603.mahjong.sapi.impl.SapiGame;
@@ -15,9 +15,7 @@ import java.beans.PropertyChangeEvent;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.UUID;
 import java.util.logging.Level;
@@ -50,10 +48,9 @@ public class FileSapiGameDAO extends FileDAOMahjong<SapiGame> implements SapiGam
     /*final*/ private static FileGameDAO gameDAO;
 
     /**
-     * Tableau associatif gardant le lien entre les noms de parties et les
-     * identifiants.
+     * Index secondaire des noms de parties.
      */
-    final private HashMap<String, UUID> mapGameNameUUID;
+    final private SecondaryIndex<String> nameIndex;
 
     /**
      * Constructeur privé avec un Chemin d'accès du répertoire racine
@@ -68,7 +65,7 @@ public class FileSapiGameDAO extends FileDAOMahjong<SapiGame> implements SapiGam
         super(rootDirPath, "sapiGame", SapiGameRow.SAPI_GAME_ROW_SIZE);
         FileSapiGameDAO.gameDAO = FileGameDAO.getInstance(super.rootDirPath);
         FileSapiGameDAO.gameDAO.addPropertyChangeListener(this);
-        this.mapGameNameUUID = new HashMap<>();
+        this.nameIndex = declareSecondaryIndex("name", KeyCodec.string(SapiGameRow.NAME_SIZE), SapiGame::getName);
     }
     
     /**
@@ -86,41 +83,21 @@ public class FileSapiGameDAO extends FileDAOMahjong<SapiGame> implements SapiGam
         return instance;
     }
 
+    /**
+     * Oublie l'instance du DAO qui gère les objets {@code SapiGame}. Appelée lors de la
+     * fermeture du gestionnaire de DAO, le prochain accès relit les fichiers.
+     */
+    static void resetInstance() {
+        instance = null;
+    }
+
     @Override
-    synchronized public void propertyChange(PropertyChangeEvent evt) {
+    public void propertyChange(PropertyChangeEvent evt) {
         if(evt.getPropertyName().equals(FileGameDAO.GAME_WRITED_PROPERTY)) {
             System.out.println("* FileSapiGame -> job done notification received from FileGameDAO\n");
-            notify();
-        }
-    }
-
-    /**
-     * Charge tous les noms des parties de Mahjong persistés. Les noms sont
-     * gardés dans un tableau associatif avec les identifiants comme valeur.
-     */
-    private void fillMap() {
-        long rowPointer = FileHeaderRow.FILE_HEADER_ROW_SIZE + AbstractRow.ROW_HEADER_SIZE;
-        int lenght = 16 + 54;
-        LOGGER.log(Level.INFO, " rowNumber : {0} - mapNameUUID size : {1} - lenght : {2} fileSize : {3} \n",
-                new Object[]{getRowNumber(), mapGameNameUUID.size(), lenght, dataWriter.getFileLenght()});
-        if (getRowNumber() > mapGameNameUUID.size()) {
-            for (int i = 0; i < getRowNumber(); i++) {
-                try {
-                    if (dataWriter.getFileLenght() > rowPointer) {
-                        ByteBuffer buffer = dataWriter.read(rowPointer, lenght);
-                        if (buffer != null) {
-                            UUID gameID = new UUID(buffer.getLong(), buffer.getLong());
-                            String gameName = DAOFileWriter.readString(buffer);
-                            mapGameNameUUID.put(gameName, gameID);
-                            LOGGER.log(Level.INFO, "name : {0} -> id : {1}", new Object[]{gameName, gameID});
-                        }
-                    }
-                    rowPointer += SapiGameRow.SAPI_GAME_ROW_SIZE;
-                } catch (DAOFileWriterException ex) {
-                    LOGGER.log(Level.WARNING, ex.getMessage());
-                }
+            synchronized (this) {
+                notify();
             }
-
         }
     }
 
@@ -129,10 +106,6 @@ public class FileSapiGameDAO extends FileDAOMahjong<SapiGame> implements SapiGam
      */
     @Override
     protected DataRow<SapiGame> getDataRow(int rowID, SapiGame data, long pointer) {
-        String gameName = data.getName();
-        if (!mapGameNameUUID.containsKey(gameName)) {
-            mapGameNameUUID.put(gameName, data.getUUID());
-        }
         return new SapiGameRow(rowID, data, pointer);
     }
 
@@ -144,18 +117,21 @@ public class FileSapiGameDAO extends FileDAOMahjong<SapiGame> implements SapiGam
         return new SapiGameRow(dataWriter, pointer);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected DataRow<SapiGame> getDataRow(ByteBuffer buffer, long rowPointer) throws DAOFileException {
+        return new SapiGameRow(buffer, rowPointer);
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public List<String> loadPersistedNames() throws DAOException {
-        fillMap();
-        List<String> names = new ArrayList<>();
-        mapGameNameUUID.keySet().forEach((name) -> {
-            names.add(name);
-        });
-        Collections.sort(names);
-        return names;
+        synchronizeSecondaryIndex(nameIndex);
+        return nameIndex.getKeys();
     }
 
     /**
@@ -163,25 +139,23 @@ public class FileSapiGameDAO extends FileDAOMahjong<SapiGame> implements SapiGam
      */
     @Override
     public List<UUID> loadPersistedUUIDs() throws DAOException {
-        fillMap();
-        List<UUID> result = new ArrayList<>(mapGameNameUUID.values());
+        synchronizeSecondaryIndex(nameIndex);
+        List<UUID> result = nameIndex.getDataIDs();
         Collections.sort(result);
         return result;
     }
 
     /**
      * {@inheritDoc}
+     * <br>
+     * La partie est retrouvée à l'aide de l'index secondaire des noms sans
+     * parcourir le fichier de données.
      */
     @Override
     public SapiGame find(String gameName) throws DAOException {
         FileDAOUtilities.checkNotNull("gameName", gameName);
-        fillMap();
-        if (mapGameNameUUID.containsKey(gameName)) {
-            UUID gameID = mapGameNameUUID.get(gameName);
-            SapiGame result = super.find(gameID);
-            return result;
-        }
-        return null;
+        List<SapiGame> result = findBy(nameIndex, gameName);
+        return result.isEmpty() ? null : result.get(0);
     }
 
     /**
@@ -194,9 +168,6 @@ public class FileSapiGameDAO extends FileDAOMahjong<SapiGame> implements SapiGam
     @Override
     protected void deleteFromPersistence(SapiGame sapiGame) throws DAOException {
         try {
-            if (mapGameNameUUID.containsKey(sapiGame.getName())) {
-                mapGameNameUUID.remove(sapiGame.getName());
-            }
             gameDAO.delete(sapiGame.getUUID());
             if (super.removeDataRow(sapiGame.getUUID())) {
                 LOGGER.log(Level.INFO, "{0} id={1} deleted from persistance",
@@ -255,7 +226,7 @@ public class FileSapiGameDAO extends FileDAOMahjong<SapiGame> implements SapiGam
         /**
          * Taille d'un tuple de {@code SapiGame}.
          */
-        static final int SAPI_GAME_ROW_SIZE = ROW_HEADER_SIZE + SAPI_GAME_SIZE;     // 89
+        static final int SAPI_GAME_ROW_SIZE = ROW_HEADER_SIZE + SAPI_GAME_SIZE;     // 93
 
         /**
          * Constructeur avec un identifiant de tuple <code>rowID</code>, une
@@ -284,6 +255,18 @@ public class FileSapiGameDAO extends FileDAOMahjong<SapiGame> implements SapiGam
             super(writer, SAPI_GAME_SIZE, rowPointer);
         }
 
+        /**
+         * Constructeur avec un tampon d'octets <code>buffer</code> et un
+         * pointeur de tuple <code>rowPointer</code>.
+         *
+         * @param buffer Tampon d'octets à partir duquel le tuple est lu.
+         * @param rowPointer Pointeur d'un tuple.
+         * @throws DAOFileException s'il y'a une erreur lors de la lecture.
+         */
+        SapiGameRow(ByteBuffer buffer, long rowPointer) throws DAOFileException {
+            super(buffer, SAPI_GAME_SIZE, rowPointer);
+        }
+
         /**
          * Renvoie un objet {@code SapiGame} lu à partir d'un tampon d'octets
          * {@code buffer}.
@@ -79,13 +79,23 @@ public class FileTileDAO extends FileDAOMahjong<GameTileInterface> {
         }
         return instance;
     }
+
+    /**
+     * Oublie l'instance du DAO qui gère les tuiles. Appelée lors de la
+     * fermeture du gestionnaire de DAO, le prochain accès relit les fichiers.
+     */
+    static void resetInstance() {
+        instance = null;
+    }
     
     @Override
-    synchronized public void propertyChange(PropertyChangeEvent evt) {
+    public void propertyChange(PropertyChangeEvent evt) {
         if(evt.getPropertyName().equals(DAOFileWriter.DONE_PROPERTY)) {
             System.out.println("\n* FileTileDAO  -> job done notification received from the writer");
 //            LOGGER.log(Level.INFO, " * writer -> job done");
-            notify();
+            synchronized (this) {
+                notify();
+            }
             super.getPropertyChangeSupport().firePropertyChange(TILE_WRITED_PROPERTY, false, true);
         }
     }
@@ -113,6 +123,14 @@ public class FileTileDAO extends FileDAOMahjong<GameTileInterface> {
         return new TileRow(dataWriter, rowPointer);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected DataRow getDataRow(ByteBuffer buffer, long rowPointer) throws DAOFileException {
+        return new TileRow(buffer, rowPointer);
+    }
+
     /**
      * Supprime une tuile <code>GameTileInterface</code> du fichier de données si la
      * tuile n'est reliée à aucune zone <code>TileZone</code>.
@@ -124,7 +142,7 @@ public class FileTileDAO extends FileDAOMahjong<GameTileInterface> {
     protected void deleteFromPersistence(GameTileInterface gameTile) throws DAOException {
         try {
             // on vérifie si la tuile n'est pas reliée à une zone
-            if (tileToZoneLinkManager.getRow(gameTile.getUUID()) == null) {
+            if (tileToZoneLinkManager.findParent(gameTile.getUUID()) == null) {
                 if (super.removeDataRow(gameTile.getUUID())) {
                     LOGGER.log(Level.INFO, " {0} id={1} deleted from persistance",
                             new Object[]{gameTile.getClass().getSimpleName(), gameTile.getUUID()});
@@ -176,7 +194,7 @@ public class FileTileDAO extends FileDAOMahjong<GameTileInterface> {
         /**
          * Taille d'un tuple de tuile.
          */
-        static final int TILE_ROW_SIZE = ROW_HEADER_SIZE + TILE_SIZE;       // 34
+        static final int TILE_ROW_SIZE = ROW_HEADER_SIZE + TILE_SIZE;       // 38
 
         /**
          * Constructeur avec un identifiant de tuple <code>rowID</code>, une
@@ -206,6 +224,19 @@ public class FileTileDAO extends FileDAOMahjong<GameTileInterface> {
             super(writer, TILE_SIZE, rowPointer);
         }
 
+        /**
+         * Constructeur avec un tampon d'octets <code>buffer</code> et un
+         * pointeur de tuple <code>rowPointer</code>.
+         *
+         * @param buffer Tampon d'octets à partir duquel le tuple est lu.
+         * @param rowPointer Pointeur d'un tuple.
+         * @throws DAOFileException s'il y'a une erreur lors de la lecture d'une
+         * tuile <code>GameTile</code>.
+         */
+        TileRow(ByteBuffer buffer, long rowPointer) throws DAOFileException {
+            super(buffer, TILE_SIZE, rowPointer);
+        }
+
         /**
          * Lis une tuile <code>GameTile</code> à partir d'un tampon d'octets
          * <code>buffer</code>.
@@ -70,11 +70,20 @@ public class FileZoneDAO extends FileDAOMahjong<TileZone> {
     }
     
     @Override
-    synchronized public void propertyChange(PropertyChangeEvent evt) {
+    public void propertyChange(PropertyChangeEvent evt) {
         if(evt.getPropertyName().equals(FileTileDAO.TILE_WRITED_PROPERTY)) {
             System.out.println("* FileZoneGame -> job done notification received from FileTileDAO");
-            notify();
+            synchronized (this) {
+                notify();
+            }
             super.getPropertyChangeSupport().firePropertyChange(ZONE_WRITED_PROPERTY, false, true);
+        } else if (evt.getPropertyName().equals(DAOFileWriter.DONE_PROPERTY)) {
+            // un lot de zones est écrit : les tuiles retirées d'une zone et liées à aucune autre sont supprimées
+            try {
+                tileToZoneLinkManager.purgeDetachedChildren();
+            } catch (DAOFileException ex) {
+                LOGGER.log(Level.WARNING, ex.getMessage(), ex);
+            }
         }
     }
     
@@ -92,6 +101,14 @@ public class FileZoneDAO extends FileDAOMahjong<TileZone> {
         }
         return instance;
     }
+
+    /**
+     * Oublie l'instance du DAO qui gère les zones. Appelée lors de la
+     * fermeture du gestionnaire de DAO, le prochain accès relit les fichiers.
+     */
+    static void resetInstance() {
+        instance = null;
+    }
     
     /**
      * @return Le gestionnaire de liens entre les zones et les parties de Mahjong.
@@ -116,6 +133,14 @@ public class FileZoneDAO extends FileDAOMahjong<TileZone> {
         return new ZoneRow(dataWriter, pointer);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected DataRow getDataRow(ByteBuffer buffer, long rowPointer) throws DAOFileException {
+        return new ZoneRow(buffer, rowPointer);
+    }
+
     /**
      * Supprime une zone {@code TileZone} du fichier de données.
      *
@@ -125,7 +150,7 @@ public class FileZoneDAO extends FileDAOMahjong<TileZone> {
     @Override
     protected void deleteFromPersistence(TileZone tileZone) throws DAOException {
         try {
-            if (zoneToGameLinkManager.getRow(tileZone.getUUID()) == null) {
+            if (zoneToGameLinkManager.findParent(tileZone.getUUID()) == null) {
                 // suppression des tuiles qui sont dans la zone
                 tileToZoneLinkManager.removeChildren(tileZone.getTiles());
                 if (super.removeDataRow(tileZone.getUUID())) {
@@ -199,7 +224,7 @@ public class FileZoneDAO extends FileDAOMahjong<TileZone> {
         /**
          * Taille d'un tuple de zone.
          */
-        static final int ZONE_ROW_SIZE = ROW_HEADER_SIZE + ZONE_SIZE;       // 44
+        static final int ZONE_ROW_SIZE = ROW_HEADER_SIZE + ZONE_SIZE;       // 48
 
         /**
          * Constructeur avec l'identifiant d'un tuple <code>rowID</code>, une
@@ -229,6 +254,19 @@ public class FileZoneDAO extends FileDAOMahjong<TileZone> {
             super(writer, ZONE_SIZE, rowPointer);
         }
 
+        /**
+         * Constructeur avec un tampon d'octets <code>buffer</code> et un
+         * pointeur de tuple <code>rowPointer</code>.
+         *
+         * @param buffer Tampon d'octets à partir duquel le tuple est lu.
+         * @param rowPointer Pointeur d'un tuple.
+         * @throws DAOFileException s'il y'a une erreur lors de la lecture d'une
+         * zone <code>TileZone</code>.
+         */
+        ZoneRow(ByteBuffer buffer, long rowPointer) throws DAOFileException {
+            super(buffer, ZONE_SIZE, rowPointer);
+        }
+
         /**
          * Change l'état d'un tuple de zone lorsque une nouvelle tuile est
          * rajoutée à la zone.
@@ -12,6 +12,7 @@ import java.nio.ByteBuffer;
 import java.util.Objects;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.CRC32;
 
 /**
  * La classe abstraite {@code AbstractRow} définit la notion de tuple. Un
@@ -21,14 +22,37 @@ import java.util.logging.Logger;
  * notifie à son tour le processus qui éffectue les opérations d'entrée/sortie
  * sur un fichier. Ce dernier le mets dans sa liste d'attente pour écriture sur
  * disque.
+ * <br>
+ * L'en-tete d'un tuple contient une somme de controle <code>CRC32</code> de
+ * l'identifiant et des données du tuple. Elle est facultative : un tuple écrit
+ * sans somme de controle porte la valeur {@link #NO_CHECKSUM} et n'est pas
+ * vérifié à la lecture. Un tuple dont la somme de controle ne correspond pas
+ * est rejeté avant le décodage de ses données.
+ * <br>
+ * Dans le format d'origine, l'en-tete d'un tuple ne contenait que son
+ * identifiant : ces fichiers sont convertis à l'ouverture par
+ * {@link FileFormatUpgrade}.
  *
  * <pre>
  *
  *    format d'un tuple dans un fichier:
  *
- *         ---------------------------------------
- *         | rowID = x |         data            |
- *         ---------------------------------------
+ *         ----------------------------------------------
+ *         | rowID = x | checksum |         data        |
+ *         ----------------------------------------------
+ *
+ *    format d'un tuple supprimé :
+ *
+ *         ----------------------------------------------
+ *         | rowID = -1 |         inutilisé             |
+ *         ----------------------------------------------
+ *
+ *    format d'un tuple supprimé d'un fichier de données, chainé à
+ *    l'emplacement libre suivant :
+ *
+ *         ----------------------------------------------
+ *         | rowID = -1 | checksum | nextFreeSlot | ... |
+ *         ----------------------------------------------
  * </pre>
  *
  * @author aliyou
@@ -52,7 +76,20 @@ public abstract class AbstractRow<T extends MahjongObservable> implements Mahjon
     /**
      * Taille de l'en-tete d'un tuple.
      */
-    public final static int ROW_HEADER_SIZE = 4;
+    public final static int ROW_HEADER_SIZE = 4 + 4;
+    /**
+     * Somme de controle écrite dans l'en-tete d'un tuple qui n'est pas
+     * controlé.
+     */
+    public final static int NO_CHECKSUM = 0;
+    /**
+     * Position de la somme de controle dans l'en-tete d'un tuple.
+     */
+    final static int CHECKSUM_OFFSET = 4;
+    /**
+     * Identifiant écrit dans l'en-tete d'un tuple supprimé.
+     */
+    public final static int TOMBSTONE_ROW_ID = -1;
     /**
      * Identifiant d'un tuple.
      */
@@ -142,7 +179,11 @@ public abstract class AbstractRow<T extends MahjongObservable> implements Mahjon
                 LOGGER.log(Level.WARNING, message);
                 throw new DAOFileException(message);
             } 
-            read(buffer);
+            try {
+                read(buffer);
+            } finally {
+                writer.release(buffer);
+            }
             this.addPropertyChangeListener(writer);
         } catch (DAOFileWriterException ex) {
             String message = "Row could not be read from the file."
@@ -171,21 +212,44 @@ public abstract class AbstractRow<T extends MahjongObservable> implements Mahjon
     }
 
     /**
-     * Lis un tuple à partir d'un tampon d'octets <code>buffer</code>.
+     * Renvoie <code>true</code> si le tuple qui commence à la position
+     * courante du tampon d'octets <code>buffer</code> est un tuple supprimé
+     * sinon <code>false</code>. La position du tampon n'est pas modifiée.
+     *
+     * @param buffer Tampon d'octets. NE DOIT PAS ETRE NULL.
+     * @return <code>true</code> si le tuple est un tuple supprimé sinon
+     * <code>false</code>.
+     */
+    static boolean isTombstone(ByteBuffer buffer) {
+        return buffer.remaining() >= ROW_HEADER_SIZE
+                && buffer.getInt(buffer.position()) == TOMBSTONE_ROW_ID;
+    }
+
+    /**
+     * Lis un tuple à partir d'un tampon d'octets <code>buffer</code>. La
+     * somme de controle du tuple est vérifiée avant la lecture des données.
      *
      * @param buffer Tampon d'octets
-     * @throws DAOException s'il y'a une erreur lors de la lecture.
+     * @throws DAOException s'il y'a une erreur lors de la lecture ou si la
+     * somme de controle ne correspond pas.
      */
     private void read(ByteBuffer buffer) throws DAOFileException {
         LOGGER.log(Level.FINE, " AbstractRow.read -> pointer = {0}", rowPointer);
         int position = buffer.position();
-        if (buffer.remaining() < getDataSize()) {
+        if (buffer.remaining() < getRowSize()) {
             String message = "Row couldn't be read from the buffer '" + buffer + "'"
                     + "\n\t cause -> Remianing bytes '" + buffer.remaining() + "' is less than ROW_SIZE '" + getRowSize() + "' \n";
             throw new DAOFileException(message);
         }
         try {
             this.rowID = buffer.getInt();
+            int rowChecksum = buffer.getInt();
+            if ((rowChecksum != NO_CHECKSUM || isChecksumRequired())
+                    && rowChecksum != checksum(buffer, position, getRowSize())) {
+                String message = "Row at the pointer '" + rowPointer + "' is corrupted"
+                        + "\n\t cause -> checksum mismatch for the rowID '" + rowID + "'";
+                throw new DAOFileException(message);
+            }
             T dataRead = readData(buffer);
             if (this.data != null) {
                 this.data.removePropertyChangeListener(this);
@@ -200,25 +264,43 @@ public abstract class AbstractRow<T extends MahjongObservable> implements Mahjon
     }
 
     /**
-     * Ecrit un tuple dans un tampon d'octets <code>buffer</code>.
+     * Ecrit un tuple avec sa somme de controle dans un tampon d'octets
+     * <code>buffer</code>.
      *
      * @param buffer Tampon d'octets.
      * @throws DAOFileException s'il y'a une erreur lors de l'écriture.
      */
     int write(ByteBuffer buffer) throws DAOFileException {
+        return write(buffer, true);
+    }
+
+    /**
+     * Ecrit un tuple dans un tampon d'octets <code>buffer</code>.
+     *
+     * @param buffer Tampon d'octets.
+     * @param withChecksum si <code>true</code> la somme de controle du tuple
+     * est calculée sinon {@link #NO_CHECKSUM} est écrit, sauf si le tuple
+     * exige une somme de controle {@link #isChecksumRequired()}.
+     * @throws DAOFileException s'il y'a une erreur lors de l'écriture.
+     */
+    int write(ByteBuffer buffer, boolean withChecksum) throws DAOFileException {
         int startPosition = buffer.position();
         try {
-            if (buffer.remaining() < getDataSize()) {
+            if (buffer.remaining() < getRowSize()) {
             String message = this.getClass().getSimpleName() + " data=" + getData() + " couldn't be writed in the buffer '" + buffer + "'"
                     + "\n\t cause -> Remianing bytes '" + buffer.remaining() + "' is less than ROW_SIZE '"+getRowSize()+"' \n";
                 throw new DAOFileException(message);
             }
             buffer.putInt(rowID);
+            buffer.putInt(NO_CHECKSUM);
             int nbWritedBytes = writeData(buffer);
             if (nbWritedBytes != getDataSize()) {
                 int diff = getDataSize() - nbWritedBytes;
                 buffer.position(buffer.position() + diff);
             }
+            if (withChecksum || isChecksumRequired()) {
+                buffer.putInt(startPosition + CHECKSUM_OFFSET, checksum(buffer, startPosition, getRowSize()));
+            }
             LOGGER.log(Level.FINE, "startPosition : {0}, nbWritedBytes : {1}, endPosition : {2}, rowSize : {3}, dataType : {4}",
                     new Object[]{startPosition, nbWritedBytes, buffer.position(), getRowSize(), this.data.getClass().getSimpleName()});
             dirty = false;
@@ -231,6 +313,55 @@ public abstract class AbstractRow<T extends MahjongObservable> implements Mahjon
         } 
     }
 
+    /**
+     * Renvoie <code>true</code> si le tuple est toujours écrit et lu avec sa
+     * somme de controle, quel que soit le réglage du writer.
+     *
+     * @return <code>false</code> par défaut.
+     */
+    protected boolean isChecksumRequired() {
+        return false;
+    }
+
+    /**
+     * Calcule la somme de controle du tuple de taille <code>rowSize</code>
+     * qui commence à la position <code>position</code> d'un tampon d'octets.
+     * La position du tampon n'est pas modifiée.
+     *
+     * @param buffer Tampon d'octets.
+     * @param position Position du début du tuple.
+     * @param rowSize Taille du tuple.
+     * @return Somme de controle du tuple, jamais égale à {@link #NO_CHECKSUM}.
+     */
+    static int checksum(ByteBuffer buffer, int position, int rowSize) {
+        return checksum(new CRC32(), buffer.duplicate(), position, rowSize);
+    }
+
+    /**
+     * Calcule la somme de controle d'un tuple avec un calculateur
+     * <code>crc</code> et une vue <code>view</code> réutilisables. La somme
+     * couvre l'identifiant et les données du tuple, pas le champ de la somme
+     * elle-meme. La position et la limite de la vue sont modifiées.
+     *
+     * @param crc Calculateur de la somme de controle.
+     * @param view Vue sur le tampon d'octets contenant le tuple.
+     * @param position Position du début du tuple.
+     * @param rowSize Taille du tuple.
+     * @return Somme de controle du tuple, jamais égale à {@link #NO_CHECKSUM}.
+     */
+    static int checksum(CRC32 crc, ByteBuffer view, int position, int rowSize) {
+        crc.reset();
+        view.limit(position + CHECKSUM_OFFSET);
+        view.position(position);
+        crc.update(view);
+        view.limit(position + rowSize);
+        view.position(position + ROW_HEADER_SIZE);
+        crc.update(view);
+        int value = (int) crc.getValue();
+        // NO_CHECKSUM est réservé aux tuples non controlés
+        return value == NO_CHECKSUM ? ~value : value;
+    }
+
     /**
      * Renvoie un objet {@code T} encapsulé lu depuis un tampon d'octet <code>buffer</code>.
      *
@@ -5,37 +5,58 @@ import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
 import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException;
 import fr.univubs.inf1603.mahjong.engine.persistence.Persistable;
 import fr.univubs.inf1603.mahjong.engine.persistence.UniqueIdentifiable;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Cette classe gère un ensemble de tuples encapulant soit un index
  * {@link Index} ou un lien {@link LinkRow.Link}. A l'instanciation tous les
- * tuples sont chargés en mémoire dans 2 listes triées (la première suivant le
- * pointeur de tuple et la seconde suivant l'identifiant <code>UUID</code> des
- * objets <code>T</code> encapsulés dans les tuples). Lors de l'ajout d'un
- * nouvel element, sa position dans la seconde liste est déterminée et il est
- * inséré à cette posiiton. Cela permet de 4 maintenir en permanence cette liste
- * triée. Ainsi un élement est retrtouvé à l'aide de l'algorithme de recherche
- * dichotomique (O(log(n))). Après la suppression d'un tuple, le pointeur des
- * tuples qui suivent est mis à jour.
+ * tuples sont chargés en mémoire dans un arbre {@link RowsByPointer} rangé
+ * suivant le pointeur de tuple et dans un tableau indexé par le numéro d'emplacement du tuple dans le
+ * fichier. Une table de hachage {@link UUIDHashIndex} associe l'identifiant
+ * <code>UUID</code> de l'objet encapsulé au numéro d'emplacement de son tuple.
+ * Ainsi un élement est retrouvé en temps constant (O(1)) et l'ajout d'un
+ * élement ne décale aucun tableau.
+ * <br>
+ * La suppression d'un tuple marque seulement le tuple comme supprimé dans le
+ * fichier {@link AbstractRow#TOMBSTONE_ROW_ID}, le pointeur des autres tuples
+ * ne change pas. L'emplacement libéré est réutilisé par le prochain tuple
+ * ajouté. Les emplacements qui restent libres sont récupérés en arrière plan
+ * par le compacteur {@link Compactor} qui déplace les derniers tuples du
+ * fichier vers ces emplacements puis tronque le fichier.
+ * <br>
+ * A la fermeture du fichier, les tuples sont écrits dans une image
+ * {@link Snapshot} relue d'un seul coup à l'ouverture suivante si le fichier
+ * n'a pas changé depuis.
  *
  * @author aliyou
  * @version 1.3
  * @param <T> Tuple
  */
-public abstract class AbstractRowManager<T extends AbstractRow> {
+public abstract class AbstractRowManager<T extends AbstractRow> implements Compactable {
 
     /**
      * Logging
      */
     private final static Logger LOGGER = Logger.getLogger(AbstractRowManager.class.getName());
 
+    /**
+     * Taille en octets d'un bloc de tuples décodé par une tache lors du
+     * chargement du fichier.
+     */
+    static final int LOAD_CHUNK_SIZE = 1 << 18;
+
     /**
      * Taille d'un tuple <code>T</code>.
      */
@@ -45,14 +66,19 @@ public abstract class AbstractRowManager<T extends AbstractRow> {
      */
     final private FileHeaderRow fhr;
     /**
-     * Liste des tuples <code>T</code> triée suivant le pointeur de tuple.
+     * Tuples <code>T</code> rangés suivant le pointeur de tuple.
+     */
+    final protected RowsByPointer<T> rowsSortedByPointer;
+    /**
+     * Tuples <code>T</code> rangés suivant leur numéro d'emplacement dans le
+     * fichier. Un emplacement libre contient <code>null</code>.
      */
-    final protected List<T> rowsSortedByPointer;
+    final private List<T> rowsBySlot;
     /**
-     * Liste des tuples <code>T</code> triée suivant l'identifiant de l'objet
-     * <code>T</code> encapsulé.
+     * Associe l'identifiant de l'objet <code>T</code> encapsulé au numéro
+     * d'emplacement de son tuple.
      */
-    final private List<T> rowsSortedByUUID;
+    final private UUIDHashIndex slotsByUUID;
     /**
      * Processus qui écrit dans le fichier.
      */
@@ -72,19 +98,26 @@ public abstract class AbstractRowManager<T extends AbstractRow> {
             throw new IllegalArgumentException("AbstractRowManager -> rowSize '" + rowSize + "' must be greater than 0.");
         }
         this.rowSize = rowSize;
-        this.rowsSortedByPointer = new ArrayList<>();
-        this.rowsSortedByUUID = new ArrayList<>();
+        this.rowsSortedByPointer = new RowsByPointer<>();
+        this.rowsBySlot = new ArrayList<>();
+        this.slotsByUUID = new UUIDHashIndex();
         try {
             this.rowWriter = new DAOFileWriter(rowFilePath);
         } catch (DAOFileWriterException ex) {
             throw new DAOFileException(ex.getMessage(), ex);
         }
         this.fhr = rowWriter.loadFileHeader();
-        int nbRows = loadAllRow();
+        ByteBuffer snapshot = Snapshot.read(rowFilePath, fhr.getGeneration(), rowWriter.getFileLenght());
+        int nbRows = snapshot != null ? loadSnapshot(snapshot) : -1;
+        if (nbRows < 0) {
+            nbRows = loadAllRow();
+        }
         if (nbRows != this.fhr.getData().getRowNumber()) {
             this.fhr.getData().setRowNumber(nbRows);
             LOGGER.log(Level.INFO, "rowNumber updated -> newRowNumber = {0}\n", nbRows);
         }
+        rowWriter.getPropertyChangeSupport().addPropertyChangeListener(DAOFileWriter.CLOSED_PROPERTY, evt -> writeSnapshot());
+        Compactor.getInstance().register(this);
     }
 
     /**
@@ -99,16 +132,16 @@ public abstract class AbstractRowManager<T extends AbstractRow> {
      */
     public List<T> getRowList(List<? extends Persistable> dataList) throws DAOFileException {
         FileDAOUtilities.checkNotNull("AbstractRowManager.getRowList -> dataListToDelete", dataList);
-        List<T> rowList = new ArrayList<>();
+        RowsByPointer<T> rowList = new RowsByPointer<>();
         if (!dataList.isEmpty()) {
             for (Persistable data : dataList) {
-                AbstractRow row = getRow(data.getUUID());
+                T row = getRow(data.getUUID());
                 if (row != null) {
-                    RowUtilities.addRowToSortedListByPointer((List<AbstractRow>) rowList, row);
+                    rowList.put(row);
                 }
             }
         }
-        return rowList;
+        return rowList.toList();
     }
 
     /**
@@ -138,39 +171,185 @@ public abstract class AbstractRowManager<T extends AbstractRow> {
     }
 
     /**
-     * Charge l'ensemble des tuples <code>T</code> en mémoire.
+     * Charge l'ensemble des tuples <code>T</code> en mémoire. Le fichier est
+     * découpé en blocs de {@link #LOAD_CHUNK_SIZE} octets décodés en parallèle
+     * dans le <code>ForkJoinPool</code> commun. Chaque bloc renvoie ses tuples
+     * dans l'ordre des pointeurs, les blocs sont donc rangés les uns à la
+     * suite des autres. Les emplacements des tuples
+     * supprimés et des doublons (copie d'un tuple déplacé par le compacteur
+     * avant la troncature du fichier) sont ajoutés à la liste des
+     * emplacements libres de l'en-tete.
      *
      * @return Nombre de tuples chargés
      * @throws DAOFileException s'il y'a une erreur lors du chargement.
      */
     private int loadAllRow() throws DAOFileException {
-        try {
-            int _nbRecords = 0;
-            if (rowWriter.getFileLenght() != 0) {
-                long rowPointer = FileHeaderRow.FILE_HEADER_ROW_SIZE;
-                int lenght = 100 * rowSize;
-                ByteBuffer buffer;
-                try {
-                    while ((buffer = rowWriter.read(rowPointer, lenght)) != null) {
-                        while (buffer.hasRemaining()) {
-                            T row = createRow(buffer, rowPointer);
-                            if (row != null) {
-                                addRowToList(row);
-                                _nbRecords++;
-                                rowPointer += this.rowSize;
-                                LOGGER.log(Level.FINE, "[OK] row loaded : {0}", row);
-                            }
+        int _nbRecords = 0;
+        long fileLenght = rowWriter.getFileLenght();
+        if (fileLenght > FileHeaderRow.FILE_HEADER_ROW_SIZE) {
+            long chunkSize = (long) Math.max(1, LOAD_CHUNK_SIZE / rowSize) * rowSize;
+            List<Future<List<T>>> chunks = new ArrayList<>();
+            for (long pointer = FileHeaderRow.FILE_HEADER_ROW_SIZE; pointer < fileLenght; pointer += chunkSize) {
+                long chunkPointer = pointer;
+                int lenght = (int) Math.min(chunkSize, fileLenght - pointer);
+                chunks.add(ForkJoinPool.commonPool().submit(() -> loadChunk(chunkPointer, lenght)));
+            }
+            long rowPointer = FileHeaderRow.FILE_HEADER_ROW_SIZE;
+            try {
+                for (Future<List<T>> chunk : chunks) {
+                    for (T row : chunk.get()) {
+                        if (row != null && addLoadedRow(row)) {
+                            _nbRecords++;
+                            LOGGER.log(Level.FINE, "[OK] row loaded : {0}", row);
+                        } else {
+                            fhr.getData().loadFreeSlot(rowPointer);
                         }
+                        rowPointer += this.rowSize;
                     }
-                } catch (DAOFileWriterException ex) {
-                    LOGGER.log(Level.SEVERE, ex.getMessage());
-                    throw new DAOFileException(ex.getMessage(), ex);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new DAOFileException("Loading of '" + rowWriter.getFilePath() + "' interrupted", ex);
+            } catch (ExecutionException ex) {
+                LOGGER.log(Level.SEVERE, ex.getCause().getMessage());
+                throw new DAOFileException(ex.getCause().getMessage(), ex.getCause());
+            } finally {
+                for (Future<List<T>> chunk : chunks) {
+                    chunk.cancel(false);
+                }
+            }
+        }
+        LOGGER.log(Level.FINE, "{0} tuples charg\u00e9s.", _nbRecords);
+        return _nbRecords;
+    }
+
+    /**
+     * Décode un bloc de tuples contigus. Un tuple supprimé est représenté par
+     * <code>null</code>, la position d'un tuple dans la liste renvoyée est
+     * donc son rang dans le bloc.
+     *
+     * @param chunkPointer Pointeur du premier tuple du bloc.
+     * @param lenght Taille du bloc.
+     * @return Tuples du bloc dans l'ordre des pointeurs.
+     * @throws DAOFileException s'il y'a une erreur lors de la lecture du bloc.
+     */
+    private List<T> loadChunk(long chunkPointer, int lenght) throws DAOFileException {
+        List<T> rows = new ArrayList<>(lenght / rowSize + 1);
+        ByteBuffer buffer;
+        try {
+            buffer = rowWriter.read(chunkPointer, lenght);
+        } catch (DAOFileWriterException ex) {
+            throw new DAOFileException(ex.getMessage(), ex);
+        }
+        if (buffer == null) {
+            return rows;
+        }
+        try {
+            long rowPointer = chunkPointer;
+            while (buffer.hasRemaining()) {
+                if (AbstractRow.isTombstone(buffer)) {
+                    buffer.position(Math.min(buffer.limit(), buffer.position() + this.rowSize));
+                    rows.add(null);
+                } else {
+                    rows.add(createRow(buffer, rowPointer));
+                }
+                rowPointer += this.rowSize;
+            }
+        } finally {
+            rowWriter.release(buffer);
+        }
+        return rows;
+    }
+
+    /**
+     * Range un tuple chargé dans {@code rowsSortedByPointer} et dans la table
+     * des emplacements.
+     *
+     * @param row Tuple chargé.
+     * @return {@code true} si le tuple a été rangé, {@code false} si c'est un
+     * doublon.
+     */
+    private boolean addLoadedRow(T row) throws DAOFileException {
+        UUID dataID = ((UniqueIdentifiable) row.getData()).getUUID();
+        if (slotsByUUID.get(dataID) != UUIDHashIndex.NOT_FOUND) {
+            return false;
+        }
+        rowsSortedByPointer.put(row);
+        int slot = getSlot(row.getRowPointer());
+        setRowAt(slot, row);
+        slotsByUUID.put(dataID, slot);
+        row.addPropertyChangeListener(rowWriter);
+        return true;
+    }
+
+    /**
+     * Charge les tuples à partir de l'image du fichier : le nombre de tuples
+     * puis, pour chaque tuple dans l'ordre des pointeurs, son numéro
+     * d'emplacement et son contenu. Les emplacements sans tuple sont ajoutés
+     * à la liste des emplacements libres.
+     *
+     * @param snapshot Contenu de l'image.
+     * @return Nombre de tuples chargés ou -1 si l'image n'est pas
+     * utilisable.
+     */
+    private int loadSnapshot(ByteBuffer snapshot) {
+        try {
+            int nbRows = snapshot.getInt();
+            if (nbRows < 0 || snapshot.remaining() != (long) nbRows * (Integer.BYTES + rowSize)) {
+                throw new DAOFileException("invalid snapshot size");
+            }
+            long lastRowPointer = -1;
+            for (int i = 0; i < nbRows; i++) {
+                long rowPointer = FileHeaderRow.FILE_HEADER_ROW_SIZE + (long) snapshot.getInt() * rowSize;
+                int position = snapshot.position();
+                T row = createRow(snapshot, rowPointer);
+                snapshot.position(position + rowSize);
+                if (row == null || rowPointer <= lastRowPointer || !addLoadedRow(row)) {
+                    throw new DAOFileException("invalid row at the pointer '" + rowPointer + "'");
+                }
+                lastRowPointer = rowPointer;
+            }
+            long nbSlots = (rowWriter.getFileLenght() - FileHeaderRow.FILE_HEADER_ROW_SIZE) / rowSize;
+            for (int slot = 0; slot < nbSlots; slot++) {
+                if (slot >= rowsBySlot.size() || rowsBySlot.get(slot) == null) {
+                    fhr.getData().loadFreeSlot(FileHeaderRow.FILE_HEADER_ROW_SIZE + (long) slot * rowSize);
                 }
             }
-            LOGGER.log(Level.FINE, "{0} tuples charg\u00e9s.", _nbRecords);
-            return _nbRecords;
+            LOGGER.log(Level.FINE, "{0} tuples charg\u00e9s depuis l''image.", nbRows);
+            return nbRows;
         } catch (DAOFileException ex) {
-            throw new DAOFileException(ex.getMessage());
+            LOGGER.log(Level.WARNING, "snapshot of {0} ignored -> {1}", new Object[]{rowWriter.getFilePath(), ex.getMessage()});
+            rowsSortedByPointer.forEach(row -> row.removePropertyChangeListener(rowWriter));
+            rowsSortedByPointer.clear();
+            rowsBySlot.clear();
+            slotsByUUID.clear();
+            return -1;
+        }
+    }
+
+    /**
+     * Ecrit l'image des tuples à la fermeture du fichier. Rien n'est écrit si
+     * des tuples n'ont pas pu etre écrits, l'image ne correspondrait pas au
+     * fichier.
+     */
+    synchronized private void writeSnapshot() {
+        if (rowWriter.hasPendingRows() || fhr.isDirty()) {
+            LOGGER.log(Level.WARNING, "snapshot of {0} not writed -> pending rows", rowWriter.getFilePath());
+            return;
+        }
+        try {
+            long fileLenght = Files.size(rowWriter.getFilePath());
+            ByteBuffer payload = ByteBuffer.allocate(Integer.BYTES + rowsSortedByPointer.size() * (Integer.BYTES + rowSize));
+            payload.putInt(rowsSortedByPointer.size());
+            for (T row : rowsSortedByPointer) {
+                payload.putInt(getSlot(row.getRowPointer()));
+                // l'image a sa propre somme de controle
+                row.write(payload, false);
+            }
+            payload.flip();
+            Snapshot.write(rowWriter.getFilePath(), fhr.getGeneration(), fileLenght, payload);
+        } catch (IOException | DAOFileException ex) {
+            LOGGER.log(Level.WARNING, "snapshot of {0} not writed -> {1}", new Object[]{rowWriter.getFilePath(), ex.getMessage()});
         }
     }
 
@@ -197,22 +376,37 @@ public abstract class AbstractRowManager<T extends AbstractRow> {
 
     /**
      * Mets un tuple <code>T</code> dans la liste d'attente du processus qui
-     * écrit dans le fichier et l'ajoute aux listes des tuples.
+     * écrit dans le fichier et l'ajoute aux listes des tuples. Si le fichier
+     * contient un emplacement libre, le tuple y est placé à la place du
+     * pointeur fourni à sa création.
      *
      * @param newRow Tuple <code>T</code> à rajouter.
      * @return {@code true} si le tuple a été ajouté sinon {@code false}.
      * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
      * s'il y'a une erreur lors de l'ajout d'un tuple.
      */
-    protected boolean addRow(T newRow) throws DAOFileException {
-        if (addRowToList(newRow)) {
+    synchronized protected boolean addRow(T newRow) throws DAOFileException {
+        if (getRow(((UniqueIdentifiable) newRow.getData()).getUUID()) != null) {
+            LOGGER.log(Level.FINE, "[NOK] newRow did not added : {0}", newRow);
+            return false;
+        }
+        long freePointer = fhr.getData().pollFreeSlot();
+        if (freePointer != FileHeader.NO_FREE_SLOT) {
+            newRow.setRowPointer(freePointer, false);
+        }
+        try {
             rowWriter.addRowToMultipleWritingList(newRow);
-            fhr.getData().incrementRowNumber();
-            LOGGER.log(Level.FINE, "[OK] newRow added : {0}", newRow);
-            return true;
+        } catch (DAOFileException ex) {
+            // budget d'octets en attente épuisé : l'emplacement reste libre
+            if (freePointer != FileHeader.NO_FREE_SLOT) {
+                fhr.getData().addFreeSlot(freePointer);
+            }
+            throw ex;
         }
-        LOGGER.log(Level.FINE, "[NOK] newRow did not added : {0}", newRow);
-        return false;
+        addRowToList(newRow);
+        fhr.getData().incrementRowNumber();
+        LOGGER.log(Level.FINE, "[OK] newRow added : {0}", newRow);
+        return true;
     }
 
     /**
@@ -231,32 +425,27 @@ public abstract class AbstractRowManager<T extends AbstractRow> {
     }
 
     /**
-     * Supprime un tuple <code>T</code> d'un fichier.
+     * Supprime un tuple <code>T</code> d'un fichier. Le tuple est marqué comme
+     * supprimé dans le fichier, les autres tuples ne sont pas déplacés. Son
+     * emplacement est ajouté à la liste des emplacements libres.
      *
      * @param row Tuple <code>T</code> à supprimer.
      * @return <code>true</code> si le tuple est supprimé sinon
      * <code>false</code>
      * @throws DAOFileException s'il y'a une erreur lors de la suppression.
      */
-    protected boolean removeRow(T row) throws DAOFileException {
-        if (row != null) {
+    synchronized protected boolean removeRow(T row) throws DAOFileException {
+        if (row != null && getRow(((UniqueIdentifiable) row.getData()).getUUID()) == row) {
             removeRowFromList(row);
-            if (rowWriter.getFileLenght() > row.getRowPointer()) {
-                T realRow = createRow(row.getRowPointer());
-                LOGGER.log(Level.FINE, "row to delete : {0}", row);
-                LOGGER.log(Level.FINE, "real row at the position in the file : {0}", realRow.getData());
-                if (((UniqueIdentifiable) realRow.getData()).getUUID().compareTo(((UniqueIdentifiable) row.getData()).getUUID()) == 0) {
-                    int rowPointer = (int) row.getRowPointer();
-                    updateRowsPointer(rowPointer, rowSize);
+            long rowPointer = row.getRowPointer();
+            try {
+                if (rowWriter.writeTombstone(rowPointer, rowSize)) {
+                    fhr.getData().addFreeSlot(rowPointer);
                     LOGGER.log(Level.FINE, "[OK] row removed : {0}", row);
-                    try {
-                        return rowWriter.deleteFromFile(rowPointer, rowSize);
-                    } catch (DAOFileWriterException ex) {
-                        throw new DAOFileException(ex.getMessage(), ex);
-                    }
+                    return true;
                 }
-            } else { // le tuple n'a pas encore été écrit dans le fichier
-                return true;
+            } catch (DAOFileWriterException ex) {
+                throw new DAOFileException(ex.getMessage(), ex);
             }
             LOGGER.log(Level.FINE, "[NOK] row not removed : {0}", row);
         }
@@ -264,17 +453,19 @@ public abstract class AbstractRowManager<T extends AbstractRow> {
     }
 
     /**
-     * Ajoute un tuple aux listes de tuples {@code rowsSortedByPointer} et
-     * {@code rowsSortedByUUID} s'il n'existe pas déjà dans les listes.
+     * Ajoute un tuple aux tuples {@code rowsSortedByPointer} et à
+     * la table des emplacements s'il n'existe pas déjà.
      *
      * @param row Tuple à ajouter.
      * @return {@code true} si le tuple a été ajouté sinon {@code false}.
      */
-    private boolean addRowToList(AbstractRow row) throws DAOFileException {
+    private boolean addRowToList(T row) throws DAOFileException {
         UUID dataID = ((UniqueIdentifiable) row.getData()).getUUID();
         if (getRow(dataID) == null) {
-            RowUtilities.addRowToSortedListByPointer((List<AbstractRow>) rowsSortedByPointer, row);
-            RowUtilities.addRowToSortedListByUUID((List<AbstractRow>) rowsSortedByUUID, row);
+            rowsSortedByPointer.put(row);
+            int slot = getSlot(row.getRowPointer());
+            setRowAt(slot, row);
+            slotsByUUID.put(dataID, slot);
             row.addPropertyChangeListener(rowWriter);
             LOGGER.log(Level.FINE, "[OK] row added to lists : {0}", row);
             return true;
@@ -283,22 +474,6 @@ public abstract class AbstractRowManager<T extends AbstractRow> {
         return false;
     }
 
-    /**
-     * Mets à jour les pointeurs de tuple des tuples à partir de la position
-     * <code>position</code> dans la liste ordonnée suivant le pointeur de tuple
-     * <code>rowsSortedByPointer</code> en enlevant l'offset <code>offset</code>
-     * donné en paramètre.
-     *
-     * @param posisiton Position à partir de laquelle la mise à jour est
-     * commencée.
-     * @param offset L'offset à enlever des pointeurs de tuple.
-     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
-     * s'il y'a une erreur lors de la mis à jour des pointeurs de tuple
-     */
-    protected void updateRowsPointer(long posisiton, int offset) throws DAOFileException {
-        RowUtilities.updateRowsPointer((List<AbstractRow>) rowsSortedByPointer, posisiton, offset);
-    }
-
     /**
      * Passe l'attibut <code>dirty</code> du tuple à {@code  false} pour éviter
      * qu'il soit écrit dans le fichier s'il est dans la liste d'attente du
@@ -313,38 +488,68 @@ public abstract class AbstractRowManager<T extends AbstractRow> {
         row.getData().removePropertyChangeListener(row);
         row.removePropertyChangeListener(rowWriter);
         rowsSortedByPointer.remove(row);
-        rowsSortedByUUID.remove(row);
+        int slot = slotsByUUID.remove(((UniqueIdentifiable) row.getData()).getUUID());
+        if (slot != UUIDHashIndex.NOT_FOUND && rowsBySlot.get(slot) == row) {
+            rowsBySlot.set(slot, null);
+        }
         fhr.getData().decrementRowNumber();
         LOGGER.log(Level.FINE, "[OK] row removed from the list -> new rowNumber={0} \n\t", new Object[]{getRowNumber(), row});
     }
 
     /**
-     * Renvoie un tuple <code>T</code> s'il existe dans la liste des tuples
-     * {@code rowsSortedByUUID} ordonnée suivant l'identifiant {@code UUID} de
-     * l'objet encapsulé sinon <code>null</code>. La recherche du tuple est
-     * basée sur l'algorithme de recherche dichotomique.
+     * Renvoie un tuple <code>T</code> si l'identifiant {@code UUID} de l'objet
+     * encapsulé est dans la table des emplacements sinon <code>null</code>. La
+     * recherche se fait en temps constant.
      *
      * @param dataID Identifiant de l'objet encapsulé dans le tuple.
      * @return Tuple <code>T</code> s'il existe dans la liste des tuples sinon
      * <code>null</code>.
      * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
-     * s'il y'a une erreur lors de récupération de la position du tuple de
-     * l'objet dont l'identifiant est {@code dataID}.
+     * s'il y'a une erreur lors de récupération du tuple de l'objet dont
+     * l'identifiant est {@code dataID}.
      */
     public T getRow(UUID dataID) throws DAOFileException {
-        int position = RowUtilities.getRowPositionFromSortedListByUUID((List<AbstractRow>) rowsSortedByUUID, dataID);
-        if (!rowsSortedByUUID.isEmpty()) {
-            T row = rowsSortedByUUID.get(position);
-            UniqueIdentifiable data = (UniqueIdentifiable) row.getData();
-            if (data.getUUID().compareTo(dataID) == 0) {
-                LOGGER.log(Level.FINE, "[OK] row founded in the list : {0}", row);
-                return row;
-            }
+        FileDAOUtilities.checkNotNull("AbstractRowManager.getRow -> dataID", dataID);
+        int slot = slotsByUUID.get(dataID);
+        if (slot != UUIDHashIndex.NOT_FOUND) {
+            T row = rowsBySlot.get(slot);
+            LOGGER.log(Level.FINE, "[OK] row founded in the list : {0}", row);
+            return row;
         }
         LOGGER.log(Level.FINE, "[NOK] row not founded in the list : id={0}", dataID);
         return null;
     }
 
+    /**
+     * Renvoie le numéro d'emplacement d'un tuple dans le fichier.
+     *
+     * @param rowPointer Pointeur du tuple.
+     * @return Numéro d'emplacement du tuple.
+     * @throws DAOFileException si le pointeur ne correspond pas au début d'un
+     * emplacement.
+     */
+    private int getSlot(long rowPointer) throws DAOFileException {
+        long offset = rowPointer - FileHeaderRow.FILE_HEADER_ROW_SIZE;
+        if (offset < 0 || offset % rowSize != 0) {
+            throw new DAOFileException("AbstractRowManager -> rowPointer '" + rowPointer
+                    + "' is not the start of a row slot (rowSize = " + rowSize + ")");
+        }
+        return (int) (offset / rowSize);
+    }
+
+    /**
+     * Range un tuple à son numéro d'emplacement.
+     *
+     * @param slot Numéro d'emplacement.
+     * @param row Tuple à ranger, <code>null</code> pour libérer l'emplacement.
+     */
+    private void setRowAt(int slot, T row) {
+        while (rowsBySlot.size() <= slot) {
+            rowsBySlot.add(null);
+        }
+        rowsBySlot.set(slot, row);
+    }
+
     /**
      * Renvoie le nombre total de tuples dans un fichier.
      *
@@ -354,6 +559,13 @@ public abstract class AbstractRowManager<T extends AbstractRow> {
         return this.fhr.getData().getRowNumber();
     }
 
+    /**
+     * @return Tuple encapsulant l'en-tete du fichier.
+     */
+    FileHeaderRow getFileHeaderRow() {
+        return this.fhr;
+    }
+
     /**
      * Renvoie le prochain identifiant de tuple.
      *
@@ -364,31 +576,143 @@ public abstract class AbstractRowManager<T extends AbstractRow> {
     }
 
     /**
-     * Renvoie le prochain pointeur de tuple.
+     * Renvoie le pointeur de fin du fichier, où est écrit un nouveau tuple
+     * lorsqu'il n'y a pas d'emplacement libre. Les emplacements des tuples
+     * supprimés sont comptés.
      *
      * @return Prochain pointeur de tuple.
      */
     protected long getNextRowPointer() {
-        return FileHeaderRow.FILE_HEADER_ROW_SIZE + (getRowNumber() * this.rowSize);
+        return FileHeaderRow.FILE_HEADER_ROW_SIZE + ((long) this.fhr.getData().getSlotNumber() * this.rowSize);
+    }
+
+    /**
+     * Renvoie <code>true</code> s'il y'a des tuples en attente d'écriture sinon
+     * <code>false</code>.
+     *
+     * @return <code>true</code> s'il y'a des tuples en attente d'écriture sinon
+     * <code>false</code>.
+     */
+    public boolean hasPendingRows() {
+        return rowWriter.hasPendingRows();
+    }
+
+    /**
+     * Vérifie en parallèle les sommes de controle de tous les tuples du
+     * fichier. Les tuples en attente d'écriture ne sont pas encore sur le
+     * disque et ne sont donc pas vérifiés.
+     *
+     * @return Rapport de la vérification.
+     * @throws DAOFileException s'il y'a une erreur lors de la lecture du
+     * fichier.
+     */
+    public FileVerifier.Report verify() throws DAOFileException {
+        try {
+            return new FileVerifier(rowWriter.getFilePath(), rowSize).verify();
+        } catch (DAOFileWriterException ex) {
+            throw new DAOFileException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Renvoie le taux de fragmentation du fichier.
+     *
+     * @return Taux de fragmentation du fichier.
+     */
+    public double getFragmentation() {
+        return this.fhr.getData().getFragmentation();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>
+     * Le fichier est compacté si son taux de fragmentation atteint le seuil de
+     * compactage ou s'il contient encore les anciens emplacements des tuples
+     * déplacés lors de la passe précédente.
+     */
+    @Override
+    public boolean needsCompaction() {
+        if (rowWriter.isClosed()) {
+            return false;
+        }
+        return this.fhr.getData().isFragmented() || rowWriter.getFileLenght() > getNextRowPointer();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>
+     * La passe est reportée si des tuples sont en attente d'écriture. Les
+     * tuples déplacés sont écrits par le writer à leur nouvel emplacement,
+     * leurs anciens emplacements sont retirés du fichier lors de la passe
+     * suivante.
+     */
+    @Override
+    synchronized public int compact(int maxMoves) throws DAOFileException {
+        if (maxMoves <= 0) {
+            throw new IllegalArgumentException("AbstractRowManager.compact -> maxMoves '" + maxMoves + "' must be greater than 0.");
+        }
+        int nbMovedRows = 0;
+        synchronized (rowWriter) {
+            if (rowWriter.hasPendingRows()) {
+                return 0;
+            }
+            try {
+                long endPointer = getNextRowPointer();
+                if (rowWriter.getFileLenght() > endPointer) {
+                    rowWriter.truncate(endPointer);
+                }
+                while (nbMovedRows < maxMoves && fhr.getData().getTombstoneNumber() > 0) {
+                    long lastPointer = endPointer - rowSize;
+                    if (!fhr.getData().removeFreeSlot(lastPointer)) {
+                        if (rowsSortedByPointer.isEmpty()) {
+                            break;
+                        }
+                        T lastRow = rowsSortedByPointer.last();
+                        if (lastRow.getRowPointer() != lastPointer) {
+                            LOGGER.log(Level.WARNING, "compaction stopped -> last row pointer {0} expected {1}",
+                                    new Object[]{lastRow.getRowPointer(), lastPointer});
+                            break;
+                        }
+                        long freePointer = fhr.getData().pollFreeSlot();
+                        rowsSortedByPointer.remove(lastPointer);
+                        setRowAt(getSlot(lastPointer), null);
+                        lastRow.setRowPointer(freePointer, true);
+                        rowsSortedByPointer.put(lastRow);
+                        int freeSlot = getSlot(freePointer);
+                        setRowAt(freeSlot, lastRow);
+                        slotsByUUID.put(((UniqueIdentifiable) lastRow.getData()).getUUID(), freeSlot);
+                        nbMovedRows++;
+                    }
+                    endPointer = lastPointer;
+                }
+                if (nbMovedRows == 0 && rowWriter.getFileLenght() > endPointer) {
+                    rowWriter.truncate(endPointer);
+                }
+            } catch (DAOFileWriterException ex) {
+                throw new DAOFileException(ex.getMessage(), ex);
+            }
+        }
+        LOGGER.log(Level.FINE, "{0} rows moved -> new fragmentation : {1}", new Object[]{nbMovedRows, getFragmentation()});
+        return nbMovedRows;
     }
 
     /**
-     * Renvoie la liste des tuples <code>T</code> suivant le pointeur de tuple.
+     * Renvoie une copie de la liste des tuples <code>T</code> suivant le
+     * pointeur de tuple.
      *
      * @return Liste des tuples <code>T</code> suivant le pointeur de tuple.
      */
     protected List<T> getRowsSortedByRowPointer() {
-        return rowsSortedByPointer;
+        return rowsSortedByPointer.toList();
     }
 
     /**
-     * Renvoie la liste des tuples <code>T</code> triée suivant l'identifiant
-     * de l'objet <code>T</code> encapsulé.
+     * Renvoie la liste de tous les tuples <code>T</code> en mémoire, triée
+     * suivant le pointeur de tuple. La liste n'est pas modifiable.
      *
-     * @return Liste des tuples <code>T</code> triée suivant l'identifiant de
-     * l'objet <code>T</code> encapsulé.
+     * @return Liste des tuples <code>T</code>.
      */
-    public List<T> getRowsSortedByUUID() {
-        return rowsSortedByUUID;
+    public List<T> getRows() {
+        return Collections.unmodifiableList(rowsSortedByPointer.toList());
     }
 }
@@ -0,0 +1,263 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Cette classe répresente les liens d'un gestionnaire de liens
+ * {@link LinkManager} rangés par parent (format CSR, <i>compressed sparse
+ * row</i>) : les identifiants des parents sont triés, les identifiants des
+ * enfants d'un meme parent sont rangés les uns à la suite des autres et une
+ * table de décalages donne le premier enfant de chaque parent.
+ * <br>
+ * Les enfants d'un parent sont retrouvés par une recherche dichotomique sur
+ * les parents puis une lecture contigue des enfants. Une instance n'est pas
+ * modifiable, les liens ajoutés ou retirés sont fusionnés
+ * {@link #merge(Map)} dans une nouvelle instance.
+ *
+ * <pre>
+ * format d'une table de liens :
+ *   | nbParents | nbLinks | parents (nbParents * 16) | offsets ((nbParents + 1) * 4) | children (nbLinks * 16) |
+ * </pre>
+ *
+ * @author aliyou
+ * @version 1.3
+ */
+final class Adjacency {
+
+    /**
+     * Extension du fichier d'une table de liens.
+     */
+    static final String ADJACENCY_EXTENSION = ".csr";
+
+    /**
+     * Identifiants triés des parents, bits de poids fort puis de poids faible.
+     */
+    private final long[] parents;
+    /**
+     * Position du premier enfant de chaque parent, suivie du nombre de liens.
+     */
+    private final int[] offsets;
+    /**
+     * Identifiants des enfants rangés par parent, bits de poids fort puis de
+     * poids faible.
+     */
+    private final long[] children;
+
+    private Adjacency(long[] parents, int[] offsets, long[] children) {
+        this.parents = parents;
+        this.offsets = offsets;
+        this.children = children;
+    }
+
+    /**
+     * Construit une table de liens à partir des enfants de chaque parent. Un
+     * parent sans enfant n'est pas gardé.
+     *
+     * @param childrenByParent Identifiants des enfants de chaque parent.
+     * @return Table de liens.
+     */
+    static Adjacency build(Map<UUID, ? extends List<UUID>> childrenByParent) {
+        TreeMap<UUID, List<UUID>> sorted = new TreeMap<>();
+        int nbLinks = 0;
+        for (Map.Entry<UUID, ? extends List<UUID>> entry : childrenByParent.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                sorted.put(entry.getKey(), entry.getValue());
+                nbLinks += entry.getValue().size();
+            }
+        }
+        long[] parents = new long[2 * sorted.size()];
+        int[] offsets = new int[sorted.size() + 1];
+        long[] children = new long[2 * nbLinks];
+        int parent = 0;
+        int link = 0;
+        for (Map.Entry<UUID, List<UUID>> entry : sorted.entrySet()) {
+            parents[2 * parent] = entry.getKey().getMostSignificantBits();
+            parents[2 * parent + 1] = entry.getKey().getLeastSignificantBits();
+            offsets[parent++] = link;
+            for (UUID childID : entry.getValue()) {
+                children[2 * link] = childID.getMostSignificantBits();
+                children[2 * link + 1] = childID.getLeastSignificantBits();
+                link++;
+            }
+        }
+        offsets[parent] = link;
+        return new Adjacency(parents, offsets, children);
+    }
+
+    /**
+     * Lis une table de liens à partir d'un tampon d'octets.
+     *
+     * @param buffer Tampon d'octets.
+     * @return Table de liens lue.
+     * @throws DAOFileException si le tampon ne contient pas une table valide.
+     */
+    static Adjacency read(ByteBuffer buffer) throws DAOFileException {
+        if (buffer.remaining() < 2 * Integer.BYTES) {
+            throw new DAOFileException("Adjacency -> invalid size '" + buffer.remaining() + "'");
+        }
+        int nbParents = buffer.getInt();
+        int nbLinks = buffer.getInt();
+        if (nbParents < 0 || nbLinks < nbParents
+                || buffer.remaining() != (long) (nbParents + nbLinks) * 16 + (long) (nbParents + 1) * Integer.BYTES) {
+            throw new DAOFileException("Adjacency -> invalid format : nbParents '" + nbParents + "', nbLinks '" + nbLinks + "'");
+        }
+        long[] parents = new long[2 * nbParents];
+        buffer.asLongBuffer().get(parents);
+        buffer.position(buffer.position() + parents.length * Long.BYTES);
+        int[] offsets = new int[nbParents + 1];
+        buffer.asIntBuffer().get(offsets);
+        buffer.position(buffer.position() + offsets.length * Integer.BYTES);
+        long[] children = new long[2 * nbLinks];
+        buffer.asLongBuffer().get(children);
+        if (offsets[0] != 0 || offsets[nbParents] != nbLinks) {
+            throw new DAOFileException("Adjacency -> invalid offsets");
+        }
+        for (int i = 0; i < nbParents; i++) {
+            if (offsets[i] >= offsets[i + 1]) {
+                throw new DAOFileException("Adjacency -> invalid offset '" + offsets[i + 1] + "' at " + (i + 1));
+            }
+            if (i > 0 && compare(parents, i - 1, parents[2 * i], parents[2 * i + 1]) >= 0) {
+                throw new DAOFileException("Adjacency -> parents not sorted at " + i);
+            }
+        }
+        return new Adjacency(parents, offsets, children);
+    }
+
+    /**
+     * Ecrit la table de liens dans un nouveau tampon d'octets.
+     *
+     * @return Tampon d'octets prêt à etre lu.
+     */
+    ByteBuffer toByteBuffer() {
+        int nbParents = getParentNumber();
+        ByteBuffer buffer = ByteBuffer.allocate(2 * Integer.BYTES + (parents.length + children.length) * Long.BYTES
+                + offsets.length * Integer.BYTES);
+        buffer.putInt(nbParents);
+        buffer.putInt(getLinkNumber());
+        buffer.asLongBuffer().put(parents);
+        buffer.position(buffer.position() + parents.length * Long.BYTES);
+        buffer.asIntBuffer().put(offsets);
+        buffer.position(buffer.position() + offsets.length * Integer.BYTES);
+        buffer.asLongBuffer().put(children);
+        buffer.position(buffer.limit());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Compare l'identifiant d'un parent de la table à un identifiant, dans
+     * l'ordre de {@link UUID#compareTo(UUID)}.
+     */
+    private static int compare(long[] parents, int parent, long msb, long lsb) {
+        int cmp = Long.compare(parents[2 * parent], msb);
+        return cmp != 0 ? cmp : Long.compare(parents[2 * parent + 1], lsb);
+    }
+
+    /**
+     * Renvoie la position d'un parent dans la table.
+     *
+     * @param parentID Identifiant du parent.
+     * @return Position du parent sinon <code>-1</code>.
+     */
+    private int indexOf(UUID parentID) {
+        long msb = parentID.getMostSignificantBits();
+        long lsb = parentID.getLeastSignificantBits();
+        int low = 0;
+        int high = getParentNumber() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int cmp = compare(parents, middle, msb, lsb);
+            if (cmp < 0) {
+                low = middle + 1;
+            } else if (cmp > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Renvoie les identifiants des enfants d'un parent.
+     *
+     * @param parentID Identifiant du parent.
+     * @return Liste non modifiable des identifiants des enfants, vide si le
+     * parent n'a pas d'enfant.
+     */
+    List<UUID> getChildren(UUID parentID) {
+        int parent = indexOf(parentID);
+        if (parent < 0) {
+            return Collections.emptyList();
+        }
+        List<UUID> childrenIDs = new ArrayList<>(offsets[parent + 1] - offsets[parent]);
+        for (int link = offsets[parent]; link < offsets[parent + 1]; link++) {
+            childrenIDs.add(new UUID(children[2 * link], children[2 * link + 1]));
+        }
+        return Collections.unmodifiableList(childrenIDs);
+    }
+
+    /**
+     * Parcourt les parents dans l'ordre de leurs identifiants.
+     *
+     * @param action Action appelée avec l'identifiant de chaque parent et les
+     * identifiants de ses enfants.
+     */
+    void forEach(BiConsumer<UUID, List<UUID>> action) {
+        for (int parent = 0; parent < getParentNumber(); parent++) {
+            UUID parentID = new UUID(parents[2 * parent], parents[2 * parent + 1]);
+            action.accept(parentID, getChildren(parentID));
+        }
+    }
+
+    /**
+     * Renvoie une nouvelle table où les enfants des parents modifiés sont
+     * remplacés. Un parent modifié sans enfant est retiré.
+     *
+     * @param changedParents Nouveaux identifiants des enfants des parents
+     * modifiés.
+     * @return Nouvelle table de liens, ou cette table s'il n'y a aucune
+     * modification.
+     */
+    Adjacency merge(Map<UUID, ? extends List<UUID>> changedParents) {
+        if (changedParents.isEmpty()) {
+            return this;
+        }
+        Map<UUID, List<UUID>> childrenByParent = new TreeMap<>();
+        forEach(childrenByParent::put);
+        childrenByParent.putAll(changedParents);
+        return build(childrenByParent);
+    }
+
+    /**
+     * @return Nombre de parents.
+     */
+    int getParentNumber() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @return Nombre de liens.
+     */
+    int getLinkNumber() {
+        return offsets[offsets.length - 1];
+    }
+
+    /**
+     * Renvoie une description textuelle de la table.
+     *
+     * @return Description textuelle de la table.
+     */
+    @Override
+    public String toString() {
+        return "Adjacency{" + "nbParents=" + getParentNumber() + ", nbLinks=" + getLinkNumber() + '}';
+    }
+}
@@ -0,0 +1,712 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import static fr.univubs.inf1603.mahjong.daofile.FileDAOUtilities.checkNotNull;
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * La classe {@code BPlusTree} associe un identifiant <code>UUID</code> à une
+ * valeur positive de type <code>long</code> dans un arbre B+ rangé sur disque.
+ * La mémoire utilisée ne dépend pas du nombre d'entrées : seules les pages les
+ * plus récemment lues sont gardées dans un cache de taille fixe.
+ * <br>
+ * Le fichier est un fichier de tuples ordinaire dont chaque tuple est une page
+ * de taille fixe {@link #PAGE_SIZE}. L'identifiant du tuple est le numéro de
+ * la page et sa somme de controle couvre toute la page, le fichier peut donc
+ * etre vérifié par {@link FileVerifier}. L'en-tete du fichier contient le
+ * nombre d'entrées de l'arbre. La racine est toujours la page 1 : lorsqu'elle
+ * est découpée, son contenu est recopié dans une nouvelle page.
+ * <br>
+ * Chaque page modifiée est écrite aussitot à sa place dans le fichier, le
+ * cache ne contient donc jamais de page à écrire. Une recherche lit au plus
+ * une page par niveau. Les feuilles sont chainées dans l'ordre des
+ * identifiants. Les pages ne sont pas fusionnées après une suppression : une
+ * feuille vide reste dans l'arbre et sera réutilisée par les ajouts suivants.
+ *
+ * <pre>
+ * format d'une page :
+ *   | numéro | checksum | type | count | next/child0 | entrées ... |
+ *   feuille : entrée = identifiant (16 octets) | valeur (8 octets)
+ *   noeud   : entrée = identifiant (16 octets) | page enfant (4 octets)
+ * </pre>
+ *
+ * @author aliyou
+ * @version 1.3
+ */
+public class BPlusTree {
+
+    /**
+     * Logging
+     */
+    private static final Logger LOGGER = Logger.getLogger(BPlusTree.class.getName());
+
+    /**
+     * Taille d'une page en octets.
+     */
+    public static final int PAGE_SIZE = 4096;
+    /**
+     * Valeur renvoyée lorsqu'un identifiant n'est pas dans l'arbre.
+     */
+    public static final long NOT_FOUND = -1;
+    /**
+     * Nombre de pages gardées par défaut dans le cache.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 256;
+
+    /**
+     * Numéro de la page racine.
+     */
+    private static final int ROOT_PAGE = 1;
+    /**
+     * Numéro de page qui ne désigne aucune page.
+     */
+    private static final int NO_PAGE = 0;
+    /**
+     * Type d'une feuille.
+     */
+    private static final byte LEAF = 1;
+    /**
+     * Type d'un noeud interne.
+     */
+    private static final byte INNER = 2;
+    /**
+     * Position du type dans une page.
+     */
+    private static final int TYPE_OFFSET = AbstractRow.ROW_HEADER_SIZE;
+    /**
+     * Position du nombre d'entrées dans une page.
+     */
+    private static final int COUNT_OFFSET = TYPE_OFFSET + 4;
+    /**
+     * Position de la feuille suivante ou du premier enfant dans une page.
+     */
+    private static final int LINK_OFFSET = COUNT_OFFSET + 4;
+    /**
+     * Position de la première entrée dans une page.
+     */
+    private static final int ENTRIES_OFFSET = LINK_OFFSET + 4;
+    /**
+     * Taille d'une entrée de feuille.
+     */
+    private static final int LEAF_ENTRY_SIZE = 16 + 8;
+    /**
+     * Taille d'une entrée de noeud interne.
+     */
+    private static final int INNER_ENTRY_SIZE = 16 + 4;
+    /**
+     * Nombre maximal d'entrées d'une feuille.
+     */
+    static final int LEAF_CAPACITY = (PAGE_SIZE - ENTRIES_OFFSET) / LEAF_ENTRY_SIZE;
+    /**
+     * Nombre maximal d'entrées d'un noeud interne.
+     */
+    static final int INNER_CAPACITY = (PAGE_SIZE - ENTRIES_OFFSET) / INNER_ENTRY_SIZE;
+
+    /**
+     * Processus qui lit et écrit les pages.
+     */
+    private final DAOFileWriter writer;
+    /**
+     * Tuple encapsulant l'en-tete du fichier.
+     */
+    private final FileHeaderRow fhr;
+    /**
+     * Pages les plus récemment utilisées, dans l'ordre d'accès.
+     */
+    private final LinkedHashMap<Integer, Node> cache;
+    /**
+     * Nombre de pages du fichier.
+     */
+    private int pageNumber;
+    /**
+     * Tampon d'octets réutilisé pour écrire une page.
+     */
+    private final ByteBuffer pageBuffer;
+    /**
+     * Nombre de lectures de pages absentes du cache.
+     */
+    private long pageReadCount;
+    /**
+     * Premier identifiant de la page créée par le dernier découpage.
+     */
+    private long splitMostSigBits, splitLeastSigBits;
+    /**
+     * Page créée par le dernier découpage ou {@link #NO_PAGE}.
+     */
+    private int splitPage;
+
+    /**
+     * Constructeur avec le processus qui lit et écrit le fichier de l'arbre.
+     * Le cache garde {@link #DEFAULT_CACHE_SIZE} pages.
+     *
+     * @param writer Processus du fichier de l'arbre. NE DOIT PAS ETRE NULL.
+     * @throws DAOFileException s'il y'a une erreur lors de la création de la
+     * racine.
+     */
+    public BPlusTree(DAOFileWriter writer) throws DAOFileException {
+        this(writer, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Constructeur avec le processus qui lit et écrit le fichier de l'arbre et
+     * la taille du cache.
+     *
+     * @param writer Processus du fichier de l'arbre. NE DOIT PAS ETRE NULL.
+     * @param cacheSize Nombre maximal de pages gardées en mémoire. DOIT ETRE
+     * SUPERIEUR A 0.
+     * @throws DAOFileException s'il y'a une erreur lors de la création de la
+     * racine.
+     */
+    public BPlusTree(DAOFileWriter writer, int cacheSize) throws DAOFileException {
+        checkNotNull("BPlusTree -> writer", writer);
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("BPlusTree -> cacheSize '" + cacheSize + "' must be greater than 0.");
+        }
+        this.writer = writer;
+        this.fhr = writer.loadFileHeader();
+        this.cache = new LinkedHashMap<Integer, Node>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Node> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        this.pageBuffer = ByteBuffer.allocate(PAGE_SIZE);
+        // le nombre de pages est celui du fichier : une page est écrite dès sa création
+        this.pageNumber = (int) Math.max(0, (writer.getFileLenght() - FileHeaderRow.FILE_HEADER_ROW_SIZE) / PAGE_SIZE);
+        if (pageNumber == 0) {
+            writePage(new Node(allocatePage(), true));
+            setSize(0);
+        }
+        LOGGER.log(Level.FINE, "{0} opened -> {1} pages, {2} entries", new Object[]{writer.getFilePath(), pageNumber, size()});
+    }
+
+    /**
+     * Renvoie la valeur associée à un identifiant.
+     *
+     * @param key Identifiant. NE DOIT PAS ETRE NULL.
+     * @return Valeur associée ou {@link #NOT_FOUND} si l'identifiant n'est pas
+     * dans l'arbre.
+     * @throws DAOFileException s'il y'a une erreur lors de la lecture d'une
+     * page.
+     */
+    synchronized public long get(UUID key) throws DAOFileException {
+        checkNotNull("BPlusTree.get -> key", key);
+        long mostBits = key.getMostSignificantBits();
+        long leastBits = key.getLeastSignificantBits();
+        Node leaf = findLeaf(mostBits, leastBits);
+        int index = leaf.search(mostBits, leastBits);
+        return index >= 0 ? leaf.values[index] : NOT_FOUND;
+    }
+
+    /**
+     * Associe une valeur à un identifiant. L'ancienne valeur est remplacée.
+     *
+     * @param key Identifiant. NE DOIT PAS ETRE NULL.
+     * @param value Valeur. DOIT ETRE POSITIVE.
+     * @return Ancienne valeur ou {@link #NOT_FOUND} si l'identifiant n'était
+     * pas dans l'arbre.
+     * @throws DAOFileException s'il y'a une erreur lors de la lecture ou de
+     * l'écriture d'une page.
+     */
+    synchronized public long put(UUID key, long value) throws DAOFileException {
+        checkNotNull("BPlusTree.put -> key", key);
+        if (value < 0) {
+            throw new IllegalArgumentException("BPlusTree.put -> value '" + value + "' must be positive or zero.");
+        }
+        long mostBits = key.getMostSignificantBits();
+        long leastBits = key.getLeastSignificantBits();
+        Node leaf = findLeaf(mostBits, leastBits);
+        int index = leaf.search(mostBits, leastBits);
+        if (index >= 0) {
+            long oldValue = leaf.values[index];
+            if (oldValue != value) {
+                leaf.values[index] = value;
+                writePage(leaf);
+            }
+            return oldValue;
+        }
+        splitPage = NO_PAGE;
+        insert(loadPage(ROOT_PAGE), mostBits, leastBits, value);
+        if (splitPage != NO_PAGE) {
+            splitRoot();
+        }
+        setSize(size() + 1);
+        return NOT_FOUND;
+    }
+
+    /**
+     * Retire un identifiant de l'arbre.
+     *
+     * @param key Identifiant. NE DOIT PAS ETRE NULL.
+     * @return Valeur retirée ou {@link #NOT_FOUND} si l'identifiant n'était
+     * pas dans l'arbre.
+     * @throws DAOFileException s'il y'a une erreur lors de la lecture ou de
+     * l'écriture d'une page.
+     */
+    synchronized public long remove(UUID key) throws DAOFileException {
+        checkNotNull("BPlusTree.remove -> key", key);
+        long mostBits = key.getMostSignificantBits();
+        long leastBits = key.getLeastSignificantBits();
+        Node leaf = findLeaf(mostBits, leastBits);
+        int index = leaf.search(mostBits, leastBits);
+        if (index < 0) {
+            return NOT_FOUND;
+        }
+        long oldValue = leaf.values[index];
+        leaf.removeAt(index);
+        writePage(leaf);
+        setSize(size() - 1);
+        return oldValue;
+    }
+
+    /**
+     * Parcourt toutes les entrées de l'arbre dans l'ordre des identifiants, en
+     * suivant le chainage des feuilles.
+     *
+     * @param consumer Action appelée pour chaque entrée. NE DOIT PAS ETRE
+     * NULL.
+     * @throws DAOFileException s'il y'a une erreur lors de la lecture d'une
+     * page.
+     */
+    synchronized public void forEach(EntryConsumer consumer) throws DAOFileException {
+        checkNotNull("BPlusTree.forEach -> consumer", consumer);
+        Node node = loadPage(ROOT_PAGE);
+        while (!node.leaf) {
+            node = loadPage(node.children[0]);
+        }
+        while (true) {
+            for (int i = 0; i < node.count; i++) {
+                consumer.accept(new UUID(node.mostSigBits[i], node.leastSigBits[i]), node.values[i]);
+            }
+            if (node.next == NO_PAGE) {
+                break;
+            }
+            node = loadPage(node.next);
+        }
+    }
+
+    /**
+     * @return Nombre d'entrées de l'arbre.
+     */
+    public int size() {
+        return fhr.getData().getRowNumber();
+    }
+
+    /**
+     * @return Nombre de pages du fichier.
+     */
+    synchronized public int getPageNumber() {
+        return pageNumber;
+    }
+
+    /**
+     * @return Nombre de pages gardées dans le cache.
+     */
+    synchronized public int getCachedPageNumber() {
+        return cache.size();
+    }
+
+    /**
+     * @return Nombre de lectures de pages absentes du cache depuis
+     * l'ouverture.
+     */
+    synchronized public long getPageReadCount() {
+        return pageReadCount;
+    }
+
+    /**
+     * @return Processus qui lit et écrit les pages.
+     */
+    public DAOFileWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * Renvoie la feuille qui contient ou doit contenir un identifiant.
+     *
+     * @return Feuille de l'identifiant.
+     */
+    private Node findLeaf(long mostBits, long leastBits) throws DAOFileException {
+        Node node = loadPage(ROOT_PAGE);
+        while (!node.leaf) {
+            node = loadPage(node.children[node.childIndex(mostBits, leastBits)]);
+        }
+        return node;
+    }
+
+    /**
+     * Insère un identifiant absent dans le sous-arbre d'un noeud. Si le noeud
+     * est découpé, la nouvelle page et son premier identifiant sont rangés
+     * dans {@link #splitPage}, {@link #splitMostSigBits} et
+     * {@link #splitLeastSigBits}.
+     */
+    private void insert(Node node, long mostBits, long leastBits, long value) throws DAOFileException {
+        if (node.leaf) {
+            int index = -node.search(mostBits, leastBits) - 1;
+            node.insertAt(index, mostBits, leastBits, value, NO_PAGE);
+            if (node.count > LEAF_CAPACITY) {
+                split(node);
+            } else {
+                writePage(node);
+            }
+            return;
+        }
+        int childIndex = node.childIndex(mostBits, leastBits);
+        insert(loadPage(node.children[childIndex]), mostBits, leastBits, value);
+        if (splitPage == NO_PAGE) {
+            return;
+        }
+        int newPage = splitPage;
+        splitPage = NO_PAGE;
+        node.insertAt(childIndex, splitMostSigBits, splitLeastSigBits, 0, newPage);
+        if (node.count > INNER_CAPACITY) {
+            split(node);
+        } else {
+            writePage(node);
+        }
+    }
+
+    /**
+     * Découpe un noeud plein en deux. La seconde moitié est écrite dans une
+     * nouvelle page. Pour un noeud interne, l'identifiant du milieu remonte
+     * dans le parent et n'est pas gardé.
+     *
+     * @param node Noeud à découper.
+     */
+    private void split(Node node) throws DAOFileException {
+        Node right = new Node(allocatePage(), node.leaf);
+        int middle = node.count / 2;
+        if (node.leaf) {
+            right.copyFrom(node, middle, node.count - middle);
+            right.next = node.next;
+            node.next = right.page;
+            node.count = middle;
+            splitMostSigBits = right.mostSigBits[0];
+            splitLeastSigBits = right.leastSigBits[0];
+        } else {
+            splitMostSigBits = node.mostSigBits[middle];
+            splitLeastSigBits = node.leastSigBits[middle];
+            right.copyFrom(node, middle + 1, node.count - middle - 1);
+            node.count = middle;
+        }
+        writePage(right);
+        writePage(node);
+        splitPage = right.page;
+    }
+
+    /**
+     * Fait grandir l'arbre d'un niveau après le découpage de la racine. Le
+     * contenu de la racine est recopié dans une nouvelle page et la racine
+     * devient un noeud interne à deux enfants.
+     */
+    private void splitRoot() throws DAOFileException {
+        Node root = loadPage(ROOT_PAGE);
+        Node left = new Node(allocatePage(), root.leaf);
+        left.copyFrom(root, 0, root.count);
+        left.next = root.next;
+        if (!root.leaf) {
+            left.children[0] = root.children[0];
+        }
+        writePage(left);
+        Node newRoot = new Node(ROOT_PAGE, false);
+        newRoot.children[0] = left.page;
+        newRoot.insertAt(0, splitMostSigBits, splitLeastSigBits, 0, splitPage);
+        splitPage = NO_PAGE;
+        writePage(newRoot);
+        LOGGER.log(Level.FINE, "{0} -> new root level, {1} pages", new Object[]{writer.getFilePath(), pageNumber});
+    }
+
+    /**
+     * @return Numéro d'une nouvelle page à la fin du fichier.
+     */
+    private int allocatePage() {
+        return ++pageNumber;
+    }
+
+    /**
+     * Modifie le nombre d'entrées de l'en-tete, écrit par le writer.
+     */
+    private void setSize(int size) throws DAOFileException {
+        fhr.getData().setRowNumber(size);
+    }
+
+    /**
+     * @return Pointeur d'une page dans le fichier.
+     */
+    private static long getPagePointer(int page) {
+        return FileHeaderRow.FILE_HEADER_ROW_SIZE + (long) (page - 1) * PAGE_SIZE;
+    }
+
+    /**
+     * Renvoie une page depuis le cache ou la lit dans le fichier.
+     *
+     * @param page Numéro de la page.
+     * @return Noeud de la page.
+     * @throws DAOFileException si la page ne peut pas etre lue ou si sa somme
+     * de controle est incorrecte.
+     */
+    private Node loadPage(int page) throws DAOFileException {
+        Node node = cache.get(page);
+        if (node != null) {
+            return node;
+        }
+        long pagePointer = getPagePointer(page);
+        try {
+            ByteBuffer buffer = writer.read(pagePointer, PAGE_SIZE);
+            if (buffer == null || buffer.remaining() < PAGE_SIZE) {
+                if (buffer != null) {
+                    writer.release(buffer);
+                }
+                throw new DAOFileException("BPlusTree -> page " + page + " not found in " + writer.getFilePath());
+            }
+            try {
+                int start = buffer.position();
+                int checksum = buffer.getInt(start + AbstractRow.CHECKSUM_OFFSET);
+                if (buffer.getInt(start) != page
+                        || (checksum != AbstractRow.NO_CHECKSUM && checksum != AbstractRow.checksum(buffer, start, PAGE_SIZE))) {
+                    throw new DAOFileException("BPlusTree -> page " + page + " of " + writer.getFilePath() + " is corrupted");
+                }
+                node = new Node(page, buffer.get(start + TYPE_OFFSET) == LEAF);
+                node.read(buffer, start);
+            } finally {
+                writer.release(buffer);
+            }
+        } catch (DAOFileWriterException ex) {
+            throw new DAOFileException(ex.getMessage(), ex);
+        }
+        pageReadCount++;
+        cache.put(page, node);
+        return node;
+    }
+
+    /**
+     * Ecrit une page à sa place dans le fichier et la garde dans le cache.
+     *
+     * @param node Noeud de la page.
+     * @throws DAOFileException s'il y'a une erreur lors de l'écriture.
+     */
+    private void writePage(Node node) throws DAOFileException {
+        pageBuffer.clear();
+        node.write(pageBuffer);
+        pageBuffer.putInt(AbstractRow.CHECKSUM_OFFSET, AbstractRow.checksum(pageBuffer, 0, PAGE_SIZE));
+        pageBuffer.position(PAGE_SIZE);
+        try {
+            if (writer.write(getPagePointer(node.page), pageBuffer) != PAGE_SIZE) {
+                throw new DAOFileException("BPlusTree -> page " + node.page + " couldn't be writed in " + writer.getFilePath());
+            }
+        } catch (DAOFileWriterException ex) {
+            throw new DAOFileException(ex.getMessage(), ex);
+        }
+        cache.put(node.page, node);
+    }
+
+    /**
+     * Action appelée pour chaque entrée de l'arbre.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+
+        /**
+         * @param key Identifiant de l'entrée.
+         * @param value Valeur de l'entrée.
+         * @throws DAOFileException si l'action échoue, le parcours est alors
+         * interrompu.
+         */
+        void accept(UUID key, long value) throws DAOFileException;
+    }
+
+    /**
+     * Cette classe répresente une page de l'arbre en mémoire. Les tableaux ont
+     * une case de plus que la capacité de la page : un noeud est d'abord
+     * rempli puis découpé.
+     */
+    private static class Node {
+
+        /**
+         * Numéro de la page.
+         */
+        final int page;
+        /**
+         * Indique si la page est une feuille.
+         */
+        final boolean leaf;
+        /**
+         * Nombre d'entrées.
+         */
+        int count;
+        /**
+         * Bits de poids fort et de poids faible des identifiants.
+         */
+        final long[] mostSigBits, leastSigBits;
+        /**
+         * Valeurs d'une feuille.
+         */
+        final long[] values;
+        /**
+         * Enfants d'un noeud interne, un de plus que d'identifiants.
+         */
+        final int[] children;
+        /**
+         * Feuille suivante ou {@link #NO_PAGE}.
+         */
+        int next;
+
+        Node(int page, boolean leaf) {
+            this.page = page;
+            this.leaf = leaf;
+            int capacity = (leaf ? LEAF_CAPACITY : INNER_CAPACITY) + 1;
+            this.mostSigBits = new long[capacity];
+            this.leastSigBits = new long[capacity];
+            this.values = leaf ? new long[capacity] : null;
+            this.children = leaf ? null : new int[capacity + 1];
+            this.next = NO_PAGE;
+        }
+
+        /**
+         * Recherche un identifiant par dichotomie.
+         *
+         * @return Position de l'identifiant ou <code>-(position d'insertion) - 1</code>.
+         */
+        int search(long mostBits, long leastBits) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int comparison = compare(mostSigBits[middle], leastSigBits[middle], mostBits, leastBits);
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else if (comparison > 0) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+        /**
+         * Renvoie la position de l'enfant d'un noeud interne dont le
+         * sous-arbre contient un identifiant : le nombre d'identifiants
+         * inférieurs ou égaux.
+         */
+        int childIndex(long mostBits, long leastBits) {
+            int index = search(mostBits, leastBits);
+            return index >= 0 ? index + 1 : -index - 1;
+        }
+
+        /**
+         * Insère une entrée. Dans un noeud interne, l'enfant est placé à droite
+         * de l'identifiant.
+         */
+        void insertAt(int index, long mostBits, long leastBits, long value, int child) {
+            int nbMoved = count - index;
+            System.arraycopy(mostSigBits, index, mostSigBits, index + 1, nbMoved);
+            System.arraycopy(leastSigBits, index, leastSigBits, index + 1, nbMoved);
+            mostSigBits[index] = mostBits;
+            leastSigBits[index] = leastBits;
+            if (leaf) {
+                System.arraycopy(values, index, values, index + 1, nbMoved);
+                values[index] = value;
+            } else {
+                System.arraycopy(children, index + 1, children, index + 2, nbMoved);
+                children[index + 1] = child;
+            }
+            count++;
+        }
+
+        /**
+         * Retire l'entrée d'une feuille.
+         */
+        void removeAt(int index) {
+            int nbMoved = count - index - 1;
+            System.arraycopy(mostSigBits, index + 1, mostSigBits, index, nbMoved);
+            System.arraycopy(leastSigBits, index + 1, leastSigBits, index, nbMoved);
+            System.arraycopy(values, index + 1, values, index, nbMoved);
+            count--;
+        }
+
+        /**
+         * Copie <code>lenght</code> entrées d'un autre noeud à partir de la
+         * position <code>from</code>. Pour un noeud interne, les enfants à
+         * droite des identifiants copiés sont copiés, et l'enfant à gauche
+         * du premier identifiant devient le premier enfant.
+         */
+        void copyFrom(Node node, int from, int lenght) {
+            System.arraycopy(node.mostSigBits, from, mostSigBits, 0, lenght);
+            System.arraycopy(node.leastSigBits, from, leastSigBits, 0, lenght);
+            if (leaf) {
+                System.arraycopy(node.values, from, values, 0, lenght);
+            } else {
+                System.arraycopy(node.children, from, children, 0, lenght + 1);
+            }
+            count = lenght;
+        }
+
+        /**
+         * Lis le contenu d'une page à partir de la position <code>start</code>.
+         */
+        void read(ByteBuffer buffer, int start) throws DAOFileException {
+            count = buffer.getInt(start + COUNT_OFFSET);
+            if (count < 0 || count > mostSigBits.length - 1) {
+                throw new DAOFileException("BPlusTree -> page " + page + " has an invalid entry count '" + count + "'");
+            }
+            int position = start + ENTRIES_OFFSET;
+            if (leaf) {
+                next = buffer.getInt(start + LINK_OFFSET);
+                for (int i = 0; i < count; i++, position += LEAF_ENTRY_SIZE) {
+                    mostSigBits[i] = buffer.getLong(position);
+                    leastSigBits[i] = buffer.getLong(position + 8);
+                    values[i] = buffer.getLong(position + 16);
+                }
+            } else {
+                children[0] = buffer.getInt(start + LINK_OFFSET);
+                for (int i = 0; i < count; i++, position += INNER_ENTRY_SIZE) {
+                    mostSigBits[i] = buffer.getLong(position);
+                    leastSigBits[i] = buffer.getLong(position + 8);
+                    children[i + 1] = buffer.getInt(position + 16);
+                }
+            }
+        }
+
+        /**
+         * Ecrit le contenu de la page au début d'un tampon vide de la taille
+         * d'une page. La somme de controle n'est pas calculée.
+         */
+        void write(ByteBuffer buffer) {
+            buffer.putInt(0, page);
+            buffer.putInt(AbstractRow.CHECKSUM_OFFSET, AbstractRow.NO_CHECKSUM);
+            buffer.put(TYPE_OFFSET, leaf ? LEAF : INNER);
+            buffer.putInt(COUNT_OFFSET, count);
+            buffer.putInt(LINK_OFFSET, leaf ? next : children[0]);
+            int position = ENTRIES_OFFSET;
+            for (int i = 0; i < count; i++) {
+                buffer.putLong(position, mostSigBits[i]);
+                buffer.putLong(position + 8, leastSigBits[i]);
+                if (leaf) {
+                    buffer.putLong(position + 16, values[i]);
+                    position += LEAF_ENTRY_SIZE;
+                } else {
+                    buffer.putInt(position + 16, children[i + 1]);
+                    position += INNER_ENTRY_SIZE;
+                }
+            }
+            while (position < PAGE_SIZE) {
+                buffer.put(position++, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Compare deux identifiants dans l'ordre de {@link UUID#compareTo(UUID)}.
+     */
+    private static int compare(long mostBits1, long leastBits1, long mostBits2, long leastBits2) {
+        int comparison = Long.compare(mostBits1, mostBits2);
+        return comparison != 0 ? comparison : Long.compare(leastBits1, leastBits2);
+    }
+}
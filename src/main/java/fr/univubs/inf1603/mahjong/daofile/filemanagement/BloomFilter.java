@@ -0,0 +1,258 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import static fr.univubs.inf1603.mahjong.daofile.FileDAOUtilities.checkNotNull;
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cette classe répresente un filtre de Bloom sur les identifiants des objets
+ * d'un fichier de données. Un filtre répond sans lire le fichier d'index si un
+ * identifiant est absent : {@link #mightContain(UUID)} ne renvoie jamais
+ * <code>false</code> pour un identifiant ajouté, mais peut renvoyer
+ * <code>true</code> pour un identifiant absent (faux positif, environ 1% des
+ * cas tant que le filtre n'est pas plein).
+ * <br>
+ * Un identifiant ne peut pas etre retiré d'un filtre, les objets supprimés
+ * restent donc des faux positifs jusqu'à la reconstruction du filtre.
+ * <br>
+ * Le filtre est écrit à la fermeture du fichier de données dans un fichier
+ * voisin <code>.bloom</code> {@link #save(Path, long, long)} et relu à
+ * l'ouverture suivante {@link #load(Path, long, long)}, avec les memes
+ * garanties qu'une image {@link Snapshot}.
+ *
+ * <pre>
+ * format d'un filtre :
+ *   | capacity | count | nbWords | bits (nbWords * 8) |
+ * </pre>
+ *
+ * @author aliyou
+ * @version 1.3
+ */
+public class BloomFilter {
+
+    /**
+     * Logging
+     */
+    private final static Logger LOGGER = Logger.getLogger(BloomFilter.class.getName());
+
+    /**
+     * Extension du fichier d'un filtre.
+     */
+    public static final String BLOOM_EXTENSION = ".bloom";
+    /**
+     * Capacité minimale d'un filtre.
+     */
+    public static final int MIN_CAPACITY = 1024;
+    /**
+     * Nombre de bits par identifiant, environ 1% de faux positifs.
+     */
+    private static final int BITS_PER_ELEMENT = 10;
+    /**
+     * Nombre de fonctions de hachage.
+     */
+    private static final int NB_HASHES = 7;
+
+    /**
+     * Nombre d'identifiants prévus.
+     */
+    private final int capacity;
+    /**
+     * Tableau de bits.
+     */
+    private final long[] bits;
+    /**
+     * Nombre d'identifiants ajoutés.
+     */
+    private int count;
+
+    /**
+     * Constructeur avec le nombre d'identifiants prévus.
+     *
+     * @param capacity Nombre d'identifiants prévus. Une capacité inférieure à
+     * {@link #MIN_CAPACITY} est remplacée par {@link #MIN_CAPACITY}.
+     */
+    public BloomFilter(int capacity) {
+        this.capacity = Math.max(MIN_CAPACITY, capacity);
+        this.bits = new long[getNbWords(this.capacity)];
+        this.count = 0;
+    }
+
+    /**
+     * Constructeur avec un tampon d'octets <code>buffer</code>.
+     *
+     * @param buffer Tampon d'octets à partir duquel le filtre est lu.
+     * @throws DAOFileException si le tampon ne contient pas un filtre valide.
+     */
+    private BloomFilter(ByteBuffer buffer) throws DAOFileException {
+        if (buffer.remaining() < 3 * Integer.BYTES) {
+            throw new DAOFileException("BloomFilter -> invalid size '" + buffer.remaining() + "'");
+        }
+        this.capacity = buffer.getInt();
+        this.count = buffer.getInt();
+        int nbWords = buffer.getInt();
+        if (capacity < MIN_CAPACITY || count < 0 || nbWords != getNbWords(capacity)
+                || buffer.remaining() != nbWords * Long.BYTES) {
+            throw new DAOFileException("BloomFilter -> invalid format : capacity '" + capacity
+                    + "', count '" + count + "', nbWords '" + nbWords + "'");
+        }
+        this.bits = new long[nbWords];
+        buffer.asLongBuffer().get(bits);
+    }
+
+    /**
+     * Renvoie le nombre de mots de 64 bits d'un filtre.
+     *
+     * @param capacity Nombre d'identifiants prévus.
+     * @return Nombre de mots de 64 bits.
+     */
+    private static int getNbWords(int capacity) {
+        return (int) (((long) capacity * BITS_PER_ELEMENT + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    /**
+     * Ajoute un identifiant au filtre.
+     *
+     * @param dataID Identifiant à ajouter. NE DOIT PAS ETRE NULL.
+     */
+    synchronized public void add(UUID dataID) {
+        checkNotNull("BloomFilter.add -> dataID", dataID);
+        long h1 = mix(dataID.getMostSignificantBits() ^ Long.rotateLeft(dataID.getLeastSignificantBits(), 32));
+        long h2 = mix(dataID.getLeastSignificantBits() + 0x9E3779B97F4A7C15L) | 1;
+        long nbBits = (long) bits.length * Long.SIZE;
+        for (int i = 0; i < NB_HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, nbBits);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        count++;
+    }
+
+    /**
+     * Indique si un identifiant a pu etre ajouté au filtre.
+     *
+     * @param dataID Identifiant recherché. NE DOIT PAS ETRE NULL.
+     * @return <code>false</code> si l'identifiant n'a jamais été ajouté,
+     * <code>true</code> s'il a probablement été ajouté.
+     */
+    synchronized public boolean mightContain(UUID dataID) {
+        checkNotNull("BloomFilter.mightContain -> dataID", dataID);
+        long h1 = mix(dataID.getMostSignificantBits() ^ Long.rotateLeft(dataID.getLeastSignificantBits(), 32));
+        long h2 = mix(dataID.getLeastSignificantBits() + 0x9E3779B97F4A7C15L) | 1;
+        long nbBits = (long) bits.length * Long.SIZE;
+        for (int i = 0; i < NB_HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, nbBits);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Mélange les bits d'un entier long (finaliseur de MurmurHash3).
+     *
+     * @param h Entier à mélanger.
+     * @return Entier mélangé.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * @return Nombre d'identifiants prévus.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return Nombre d'identifiants ajoutés.
+     */
+    synchronized public int getCount() {
+        return count;
+    }
+
+    /**
+     * Indique si le filtre est plein. Au delà de sa capacité, le taux de faux
+     * positifs d'un filtre augmente rapidement, il doit etre reconstruit avec
+     * une capacité plus grande.
+     *
+     * @return <code>true</code> si le filtre est plein sinon
+     * <code>false</code>.
+     */
+    synchronized public boolean isFull() {
+        return count >= capacity;
+    }
+
+    /**
+     * Ecrit le filtre dans le fichier voisin <code>.bloom</code> d'un fichier
+     * de données.
+     *
+     * @param filePath Chemin d'accès du fichier de données.
+     * @param generation Génération de l'en-tete du fichier de données.
+     * @param fileLenght Taille du fichier de données.
+     * @throws DAOFileException s'il y'a une erreur lors de l'écriture.
+     */
+    synchronized public void save(Path filePath, long generation, long fileLenght) throws DAOFileException {
+        ByteBuffer payload = ByteBuffer.allocate(3 * Integer.BYTES + bits.length * Long.BYTES);
+        payload.putInt(capacity);
+        payload.putInt(count);
+        payload.putInt(bits.length);
+        payload.asLongBuffer().put(bits);
+        payload.position(payload.limit());
+        payload.flip();
+        Snapshot.write(filePath, BLOOM_EXTENSION, generation, fileLenght, payload);
+    }
+
+    /**
+     * Lis puis supprime le filtre écrit dans le fichier voisin
+     * <code>.bloom</code> d'un fichier de données. Le filtre est ignoré si le
+     * fichier de données a changé depuis son écriture.
+     *
+     * @param filePath Chemin d'accès du fichier de données.
+     * @param generation Génération de l'en-tete du fichier de données.
+     * @param fileLenght Taille du fichier de données.
+     * @return Filtre lu ou <code>null</code> s'il n'y a pas de filtre
+     * utilisable.
+     */
+    public static BloomFilter load(Path filePath, long generation, long fileLenght) {
+        ByteBuffer payload = Snapshot.read(filePath, BLOOM_EXTENSION, generation, fileLenght);
+        if (payload == null) {
+            return null;
+        }
+        try {
+            return new BloomFilter(payload);
+        } catch (DAOFileException ex) {
+            LOGGER.log(Level.WARNING, "bloom filter of {0} ignored -> {1}", new Object[]{filePath, ex.getMessage()});
+            return null;
+        }
+    }
+
+    /**
+     * Supprime le filtre écrit dans le fichier voisin <code>.bloom</code> d'un
+     * fichier de données.
+     *
+     * @param filePath Chemin d'accès du fichier de données.
+     */
+    public static void delete(Path filePath) {
+        Snapshot.delete(filePath, BLOOM_EXTENSION);
+    }
+
+    /**
+     * Renvoie une description textuelle du filtre.
+     *
+     * @return Description textuelle du filtre.
+     */
+    @Override
+    public String toString() {
+        return "BloomFilter{" + "capacity=" + capacity + ", count=" + getCount() + ", bits=" + bits.length * Long.SIZE + '}';
+    }
+}
@@ -0,0 +1,234 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * La classe {@code BufferPool} est une réserve de tampons d'octets directs
+ * <code>ByteBuffer</code> réutilisables. Elle sert les lectures, les
+ * écritures et le décodage des tuples des writers {@link DAOFileWriter}.
+ * <br>
+ * Les tampons sont rangés par classes de taille : une classe par puissance de
+ * 2 entre {@link #MIN_CLASS_SIZE} et {@link #MAX_CLASS_SIZE} octets. Une
+ * demande est servie par un tampon libre de la plus petite classe qui la
+ * contient, un nouveau tampon n'est alloué que si la classe est vide. Une
+ * demande plus grande que {@link #MAX_CLASS_SIZE} est servie par un tampon
+ * alloué pour l'occasion qui n'est pas gardé dans la réserve.
+ * <br>
+ * Un tampon obtenu par {@link #acquire(int)} doit etre rendu par
+ * {@link #release(ByteBuffer)} et ne doit plus etre utilisé après. Les
+ * tampons qui n'ont pas été alloués par la réserve (tampons sur le tas par
+ * exemple) sont ignorés par {@link #release(ByteBuffer)}.
+ *
+ * @author aliyou
+ * @version 1.3
+ */
+public class BufferPool {
+
+    /**
+     * Logging
+     */
+    private static final Logger LOGGER = Logger.getLogger(BufferPool.class.getName());
+
+    /**
+     * Taille de la plus petite classe de tampons.
+     */
+    public static final int MIN_CLASS_SIZE = 1 << 6;
+    /**
+     * Taille de la plus grande classe de tampons.
+     */
+    public static final int MAX_CLASS_SIZE = 1 << 20;
+    /**
+     * Nombre d'octets libres gardés au plus par classe de tampons.
+     */
+    private static final int MAX_RETAINED_BYTES_PER_CLASS = 4 << 20;
+    /**
+     * Octets nuls utilisés pour remettre à zéro un tampon réutilisé.
+     */
+    private static final byte[] ZEROS = new byte[4096];
+
+    /**
+     * Tampons libres indexés par classe de taille.
+     */
+    private final ArrayDeque<ByteBuffer>[] freeBuffers;
+    /**
+     * Tampons alloués par la réserve. La valeur indique si le tampon est libre.
+     */
+    private final Map<ByteBuffer, Boolean> ownedBuffers;
+    /**
+     * Nombre de tampons alloués.
+     */
+    private final AtomicLong allocationCount;
+    /**
+     * Nombre d'octets alloués.
+     */
+    private final AtomicLong allocatedBytes;
+    /**
+     * Nombre de demandes de tampons.
+     */
+    private final AtomicLong acquireCount;
+
+    /**
+     * Constructeur vide.
+     */
+    @SuppressWarnings("unchecked")
+    public BufferPool() {
+        int nbClasses = Integer.numberOfTrailingZeros(MAX_CLASS_SIZE) - Integer.numberOfTrailingZeros(MIN_CLASS_SIZE) + 1;
+        this.freeBuffers = new ArrayDeque[nbClasses];
+        for (int i = 0; i < nbClasses; i++) {
+            this.freeBuffers[i] = new ArrayDeque<>();
+        }
+        this.ownedBuffers = new IdentityHashMap<>();
+        this.allocationCount = new AtomicLong();
+        this.allocatedBytes = new AtomicLong();
+        this.acquireCount = new AtomicLong();
+    }
+
+    /**
+     * Renvoie un tampon d'octets remis à zéro dont la limite est
+     * <code>size</code>.
+     *
+     * @param size Nombre d'octets du tampon. DOIT ETRE POSITIF.
+     * @return Tampon d'octets prêt à etre rempli.
+     */
+    public ByteBuffer acquire(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("BufferPool.acquire -> size '" + size + "' must be positive or zero.");
+        }
+        acquireCount.incrementAndGet();
+        ByteBuffer buffer = null;
+        if (size <= MAX_CLASS_SIZE) {
+            int classIndex = getClassIndex(size);
+            synchronized (this) {
+                buffer = freeBuffers[classIndex].pollFirst();
+                if (buffer != null) {
+                    ownedBuffers.put(buffer, Boolean.FALSE);
+                }
+            }
+            if (buffer == null) {
+                buffer = allocate(MIN_CLASS_SIZE << classIndex);
+                synchronized (this) {
+                    ownedBuffers.put(buffer, Boolean.FALSE);
+                }
+            } else {
+                clear(buffer);
+            }
+        } else {
+            buffer = allocate(size);
+        }
+        buffer.clear();
+        buffer.limit(size);
+        return buffer;
+    }
+
+    /**
+     * Rend un tampon d'octets <code>buffer</code> à la réserve.
+     *
+     * @param buffer Tampon à rendre. Ignoré s'il est <code>null</code> ou s'il
+     * n'a pas été alloué par la réserve.
+     * @return <code>true</code> si le tampon a été rendu à la réserve sinon
+     * <code>false</code>.
+     */
+    public boolean release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return false;
+        }
+        synchronized (this) {
+            Boolean free = ownedBuffers.get(buffer);
+            if (free == null) {
+                return false;
+            }
+            if (free) {
+                LOGGER.log(Level.WARNING, "buffer released twice -> {0}", buffer);
+                return false;
+            }
+            ArrayDeque<ByteBuffer> classBuffers = freeBuffers[getClassIndex(buffer.capacity())];
+            if ((classBuffers.size() + 1) * (long) buffer.capacity() > MAX_RETAINED_BYTES_PER_CLASS
+                    && !classBuffers.isEmpty()) {
+                ownedBuffers.remove(buffer);
+                return false;
+            }
+            ownedBuffers.put(buffer, Boolean.TRUE);
+            classBuffers.addFirst(buffer);
+            return true;
+        }
+    }
+
+    /**
+     * Renvoie l'index de la plus petite classe de tampons qui contient
+     * <code>size</code> octets.
+     *
+     * @param size Nombre d'octets.
+     * @return Index d'une classe de tampons.
+     */
+    private static int getClassIndex(int size) {
+        if (size <= MIN_CLASS_SIZE) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - Integer.numberOfTrailingZeros(MIN_CLASS_SIZE);
+    }
+
+    /**
+     * Alloue un nouveau tampon direct de <code>capacity</code> octets.
+     *
+     * @param capacity Capacité du tampon.
+     * @return Nouveau tampon.
+     */
+    private ByteBuffer allocate(int capacity) {
+        allocationCount.incrementAndGet();
+        allocatedBytes.addAndGet(capacity);
+        LOGGER.log(Level.FINE, "buffer allocated -> {0} bytes", capacity);
+        return ByteBuffer.allocateDirect(capacity);
+    }
+
+    /**
+     * Remet à zéro tous les octets d'un tampon réutilisé. Les tuples ne
+     * remplissent pas forcément tout leur emplacement, les octets d'un ancien
+     * contenu ne doivent pas se retrouver dans le fichier.
+     *
+     * @param buffer Tampon à remettre à zéro.
+     */
+    private static void clear(ByteBuffer buffer) {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            buffer.put(ZEROS, 0, Math.min(ZEROS.length, buffer.remaining()));
+        }
+    }
+
+    /**
+     * @return Nombre de tampons alloués par la réserve depuis sa création.
+     */
+    public long getAllocationCount() {
+        return allocationCount.get();
+    }
+
+    /**
+     * @return Nombre d'octets alloués par la réserve depuis sa création.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    /**
+     * @return Nombre de demandes de tampons servies par la réserve.
+     */
+    public long getAcquireCount() {
+        return acquireCount.get();
+    }
+
+    /**
+     * @return Nombre de tampons libres dans la réserve.
+     */
+    public synchronized int getFreeBufferNumber() {
+        int nbFreeBuffers = 0;
+        for (ArrayDeque<ByteBuffer> classBuffers : freeBuffers) {
+            nbFreeBuffers += classBuffers.size();
+        }
+        return nbFreeBuffers;
+    }
+}
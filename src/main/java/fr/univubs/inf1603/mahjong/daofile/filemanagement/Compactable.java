@@ -0,0 +1,34 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+
+/**
+ * Cette interface définit un fichier de tuples dont les emplacements des tuples
+ * supprimés peuvent etre récupérés par le compacteur {@link Compactor}.
+ *
+ * @author aliyou
+ * @version 1.3
+ */
+public interface Compactable {
+
+    /**
+     * Renvoie <code>true</code> si le fichier doit etre compacté sinon
+     * <code>false</code>.
+     *
+     * @return <code>true</code> si le fichier doit etre compacté sinon
+     * <code>false</code>.
+     */
+    boolean needsCompaction();
+
+    /**
+     * Compacte le fichier en déplaçant au plus <code>maxMoves</code> tuples de
+     * la fin du fichier vers les emplacements des tuples supprimés. Les
+     * emplacements libérés en fin de fichier sont retirés du fichier.
+     *
+     * @param maxMoves Nombre maximal de tuples déplacés. DOIT ETRE SUPERIEUR A
+     * 0.
+     * @return Nombre de tuples déplacés.
+     * @throws DAOFileException s'il y'a une erreur lors du compactage.
+     */
+    int compact(int maxMoves) throws DAOFileException;
+}
@@ -0,0 +1,125 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import static fr.univubs.inf1603.mahjong.daofile.FileDAOUtilities.checkNotNull;
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * La classe {@code Compactor} récupère en arrière plan les emplacements des
+ * tuples supprimés des fichiers {@link Compactable}. Elle utilise le patron de
+ * conception singleton.
+ * <br>
+ * Le compactage se fait par passes éspacées de {@link #COMPACTION_PERIOD}
+ * secondes. A chaque passe, seuls les fichiers dont le taux de fragmentation
+ * atteint le seuil {@link FileHeader#getFragmentationThreshold()} sont
+ * compactés et au plus {@link #COMPACTION_BATCH_SIZE} tuples sont déplacés
+ * par fichier. Le compactage ne monopolise donc pas les fichiers.
+ * <br>
+ * Le compacteur garde une référence faible sur les fichiers enregistrés.
+ *
+ * @author aliyou
+ * @version 1.3
+ */
+public class Compactor {
+
+    /**
+     * Logging
+     */
+    private final static Logger LOGGER = Logger.getLogger(Compactor.class.getName());
+
+    /**
+     * Temps d'attente (en séconde) entre deux passes de compactage.
+     */
+    public static final int COMPACTION_PERIOD = 2;
+    /**
+     * Nombre maximal de tuples déplacés par fichier lors d'une passe.
+     */
+    public static final int COMPACTION_BATCH_SIZE = 64;
+
+    /**
+     * Compacteur
+     */
+    private static Compactor compactor = null;
+
+    /**
+     * Fichiers enregistrés.
+     */
+    private final List<WeakReference<Compactable>> compactables;
+    /**
+     * Planifie les passes de compactage.
+     */
+    private final ScheduledExecutorService scheduledExecutorService;
+
+    /**
+     * Constructeur privé.
+     */
+    private Compactor() {
+        this.compactables = new CopyOnWriteArrayList<>();
+        this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "daofile-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduledExecutorService.scheduleWithFixedDelay(() -> {
+            try {
+                runPass();
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
+            }
+        }, COMPACTION_PERIOD, COMPACTION_PERIOD, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Renvoie l'instance du compacteur.
+     *
+     * @return L'instance du compacteur.
+     */
+    synchronized public static Compactor getInstance() {
+        if (compactor == null) {
+            compactor = new Compactor();
+        }
+        return compactor;
+    }
+
+    /**
+     * Enregistre un fichier à compacter.
+     *
+     * @param compactable Fichier à compacter. NE DOIT PAS ETRE NULL.
+     */
+    public void register(Compactable compactable) {
+        checkNotNull("Compactor.register -> compactable", compactable);
+        compactables.add(new WeakReference<>(compactable));
+    }
+
+    /**
+     * Effectue une passe de compactage sur les fichiers enregistrés.
+     *
+     * @return Nombre total de tuples déplacés.
+     */
+    public int runPass() {
+        int nbMovedRows = 0;
+        for (WeakReference<Compactable> reference : compactables) {
+            Compactable compactable = reference.get();
+            if (compactable == null) {
+                compactables.remove(reference);
+            } else if (compactable.needsCompaction()) {
+                try {
+                    nbMovedRows += compactable.compact(COMPACTION_BATCH_SIZE);
+                } catch (DAOFileException ex) {
+                    LOGGER.log(Level.WARNING, ex.getMessage(), ex);
+                }
+            }
+        }
+        if (nbMovedRows > 0) {
+            LOGGER.log(Level.FINE, "compaction pass -> {0} rows moved", nbMovedRows);
+        }
+        return nbMovedRows;
+    }
+}
@@ -8,17 +8,19 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -28,11 +30,38 @@ import java.util.logging.Logger;
  * d'un fichier. Elle fournit également des méthodes statiques qui permettent
  * d'écrire ou de lire des objets tels que <code>UUID</code>,
  * <code>String</code> dans un tampon de d'octets <code>ByteBuffer</code>.
+ * <br>
+ * Le writer ouvre un seul canal <code>FileChannel</code> sur le fichier à
+ * l'instanciation et le garde ouvert jusqu'à l'appel de {@link #close()}. Les
+ * lectures sont positionnelles et ne prennent pas le verrou du writer, elles
+ * peuvent donc etre éffectuées en parallèle avec les écritures.
+ * <br>
+ * En mode {@link StorageMode#MAPPED}, les lectures sont servies depuis une
+ * projection en mémoire du fichier {@link FileMapping}. Les octets sont copiés
+ * de la projection dans un tampon de la réserve, sans appel système, afin
+ * qu'une troncature du fichier ne retire pas des pages encore lues par
+ * l'appelant. La projection est refaite
+ * par blocs de {@link #MAPPING_CHUNK_SIZE} octets lorsque le fichier grandit,
+ * les octets ajoutés entre temps sont lus depuis le canal.
+ * <br>
+ * Les tuples mis en attente sont écrits suivant la politique d'écriture
+ * {@link FlushPolicy} du writer : le délai d'écriture est borné, un lot trop
+ * gros est écrit immédiatement et les appelants qui dépassent le budget
+ * d'octets en attente écrivent eux-memes les listes d'attente ou reçoivent
+ * une exception. Les écritures
+ * sont planifiées par un exécuteur {@link FlushExecutor} partagé par tous les
+ * writers d'un gestionnaire de DAO.
+ * <br>
+ * La durabilité des écritures dépend de la politique
+ * {@link DurabilityPolicy} du groupe de synchronisation {@link SyncGroup} du
+ * répertoire du fichier : aucune synchronisation, une synchronisation par lot
+ * d'écriture partagée par les writers du répertoire, ou une synchronisation
+ * après chaque écriture.
  *
  * @author aliyou
  * @version 1.3
  */
-public class DAOFileWriter implements MahjongObservable, PropertyChangeListener {
+public class DAOFileWriter implements MahjongObservable, PropertyChangeListener, AutoCloseable {
 
     /**
      * Logging
@@ -43,6 +72,11 @@ public class DAOFileWriter implements MahjongObservable, PropertyChangeListener
      * 
      */
     public static final String DONE_PROPERTY = "done";
+    /**
+     * Propriété notifiée une fois le fichier fermé, après l'écriture des
+     * listes d'attente.
+     */
+    public static final String CLOSED_PROPERTY = "closed";
     
     /**
      * Support d'écoute
@@ -53,33 +87,129 @@ public class DAOFileWriter implements MahjongObservable, PropertyChangeListener
      * Temps d'attente (en séconde) avant d'écrire dans un fichier.
      */
     private static final int WRITING_TIMER = 1;
+    /**
+     * Taille d'une région projetée en mémoire en mode
+     * {@link StorageMode#MAPPED}.
+     */
+    static final int MAPPING_REGION_SIZE = 1 << 28;
+    /**
+     * Nombre d'octets dont le fichier doit grandir avant que la projection en
+     * mémoire ne soit refaite.
+     */
+    static final int MAPPING_CHUNK_SIZE = 1 << 20;
+    /**
+     * Taille du pointeur de l'emplacement libre suivant gardé par un tuple
+     * supprimé chainé {@link #writeTombstone(long, int, long)}.
+     */
+    public static final int FREE_SLOT_LINK_SIZE = 8;
+    /**
+     * Mode d'accès par défaut des writers.
+     */
+    private static volatile StorageMode defaultStorageMode = StorageMode.fromSystemProperty();
+    /**
+     * Politique d'écriture par défaut des writers.
+     */
+    private static volatile FlushPolicy defaultFlushPolicy = FlushPolicy.DEFAULT;
+    /**
+     * Réserve de tampons d'octets par défaut des writers.
+     */
+    private static volatile BufferPool defaultBufferPool = new BufferPool();
+    /**
+     * Exécuteur des écritures par défaut des writers.
+     */
+    private static volatile FlushExecutor defaultFlushExecutor = new FlushExecutor("daofile-flush", 1);
+    /**
+     * Indique si les writers calculent par défaut la somme de controle des
+     * tuples qu'ils écrivent.
+     */
+    private static volatile boolean defaultRowChecksum = true;
+    /**
+     * Taille des blocs d'octets déplacés par {@link #deleteFromFile(int, int)}.
+     */
+    private static final int MOVING_BLOCK_SIZE = 1 << 16;
     /**
      * Chemin d'accès d'un fichier.
      */
     private final Path filePath;
+    /**
+     * Canal ouvert sur le fichier pendant toute la durée de vie du writer.
+     */
+    private final FileChannel fileChannel;
+    /**
+     * Mode d'accès au fichier.
+     */
+    private final StorageMode storageMode;
+    /**
+     * Projection en mémoire du fichier. <code>null</code> en mode
+     * {@link StorageMode#CHANNEL}.
+     */
+    private final FileMapping fileMapping;
+    /**
+     * Groupe de synchronisation du répertoire du fichier.
+     */
+    private final SyncGroup syncGroup;
+    /**
+     * Nombre de synchronisations (<code>fsync</code>) du fichier.
+     */
+    private final AtomicLong syncCount;
+    /**
+     * Nombre d'écritures positionnelles éffectuées dans le fichier.
+     */
+    private final AtomicLong writeCount;
+    /**
+     * Nombre de lectures éffectuées dans le fichier.
+     */
+    private final AtomicLong readCount;
+    /**
+     * Réserve des tampons d'octets utilisés pour les lectures et les écritures.
+     */
+    private final BufferPool bufferPool;
+    /**
+     * Indique si la somme de controle des tuples écrits est calculée.
+     */
+    private final boolean rowChecksum;
 
     /**
-     * Liste de tuples qui sont écrits d'un seul coup (liste de tuples ordonnés
-     * suivant le pointeur de tuple).
+     * Liste de tuples qui sont écrits d'un seul coup (tuples rangés suivant le
+     * pointeur de tuple).
      */
-    private List<AbstractRow> multipleWritingList;
+    private RowsByPointer<AbstractRow> multipleWritingList;
     /**
-     * Liste de tuples qui sont écrits un à un (liste de tuples désordonnés
-     * suivant le pointeur de tuple).
+     * Liste de tuples qui sont écrits un à un (tuples rangés suivant le
+     * pointeur de tuple).
      */
-    private List<AbstractRow> singleWritingList;
+    private RowsByPointer<AbstractRow> singleWritingList;
 
     /**
-     * Planifie une tâche à executer après un certain delai.
+     * Exécuteur partagé qui planifie les écritures des listes d'attente.
+     */
+    private final FlushExecutor flushExecutor;
+    /**
+     * Indique si le writer est en cours de fermeture ou fermé. Plus aucune
+     * écriture n'est planifiée.
      */
-    private ScheduledExecutorService scheduledExecutorService = Executors.newScheduledThreadPool(1);
+    private boolean closing = false;
     /**
      * Résultat de la planification d'une tâche.
      */
     private ScheduledFuture scheduledFuture = null;
+    /**
+     * Politique d'écriture du writer.
+     */
+    private volatile FlushPolicy flushPolicy = defaultFlushPolicy;
+    /**
+     * Nombre d'octets en attente d'écriture dans les listes d'attente.
+     */
+    private long pendingBytes = 0;
+    /**
+     * Instant (en nanosecondes) de la mise en attente du plus ancien tuple
+     * pas encore écrit. <code>-1</code> si les listes d'attente sont vides.
+     */
+    private long firstPendingTime = -1;
 
     /**
-     * Constructeur avec un chemin de fichier {@code filePath}.
+     * Constructeur avec un chemin de fichier {@code filePath}. Le writer
+     * utilise le mode d'accès par défaut {@link #getDefaultStorageMode()}.
      *
      * @param filePath Chemin d'accès d'un fichier. NE DOIT PAS ETRE NULL.
      * @throws
@@ -87,19 +217,44 @@ public class DAOFileWriter implements MahjongObservable, PropertyChangeListener
      * y'a une erreur lors de l'instanciation.
      */
     public DAOFileWriter(Path filePath) throws DAOFileWriterException {
+        this(filePath, defaultStorageMode);
+    }
+
+    /**
+     * Constructeur avec un chemin de fichier {@code filePath} et un mode
+     * d'accès {@code storageMode}.
+     *
+     * @param filePath Chemin d'accès d'un fichier. NE DOIT PAS ETRE NULL.
+     * @param storageMode Mode d'accès au fichier. NE DOIT PAS ETRE NULL.
+     * @throws
+     * fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException s'il
+     * y'a une erreur lors de l'instanciation.
+     */
+    public DAOFileWriter(Path filePath, StorageMode storageMode) throws DAOFileWriterException {
         try {
             checkNotNull("filePath", filePath);
+            checkNotNull("storageMode", storageMode);
             Path dir = filePath.getParent();
             if (!dir.toFile().exists()) {
                 dir.toFile().mkdirs();
             }
             this.filePath = filePath;
-            if (!this.filePath.toFile().exists()) {
-                this.filePath.toFile().createNewFile();
-            }
-            this.multipleWritingList = new ArrayList<>();
-            this.singleWritingList = new ArrayList<>();
+            this.fileChannel = FileChannel.open(this.filePath, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.storageMode = storageMode;
+            this.fileMapping = storageMode == StorageMode.MAPPED
+                    ? new FileMapping(fileChannel, MAPPING_REGION_SIZE) : null;
+            this.syncGroup = SyncGroup.getInstance(dir);
+            this.syncCount = new AtomicLong();
+            this.writeCount = new AtomicLong();
+            this.readCount = new AtomicLong();
+            this.bufferPool = defaultBufferPool;
+            this.rowChecksum = defaultRowChecksum;
+            this.flushExecutor = defaultFlushExecutor;
+            this.multipleWritingList = new RowsByPointer<>();
+            this.singleWritingList = new RowsByPointer<>();
             this.pcs = new PropertyChangeSupport(this);
+            this.flushExecutor.register(this);
         } catch (IOException ex) {
             LOGGER.log(Level.SEVERE, "IO error : ", ex);
             throw new DAOFileWriterException("IO error : ", ex);
@@ -113,34 +268,239 @@ public class DAOFileWriter implements MahjongObservable, PropertyChangeListener
      * d'en-tete de fichier <code>FileHeaderRow</code>.
      *
      * @return Tuple d'en-tete de fichier <code>FileHeader</code>.
+     * @throws DAOFileException si le fichier a été écrit dans un autre format
+     * {@link FileHeaderRow#FORMAT_VERSION} : il n'est pas écrasé par une
+     * nouvelle en-tete.
      */
-    public FileHeaderRow loadFileHeader() {
-        FileHeaderRow fhr;
-        try {
-            fhr = new FileHeaderRow(this);
-            LOGGER.log(Level.INFO, "{0} successfully loaded from the file -> {1}",
-                    new Object[]{fhr.getData(), this.filePath});
-        } catch (DAOFileException dfe) {
+    public FileHeaderRow loadFileHeader() throws DAOFileException {
+        FileHeaderRow fhr = FileHeaderRow.load(this);
+        if (fhr != null) {
+            LOGGER.log(Level.INFO, "{0} successfully loaded from the file -> {1} (generation {2})",
+                    new Object[]{fhr.getData(), this.filePath, fhr.getGeneration()});
+        } else {
             fhr = new FileHeaderRow(new FileHeader(0, 0));
             try {
                 addRowToSingleWritingList(fhr);
-            } catch (DAOFileException dfe1) {
-                LOGGER.log(Level.WARNING, dfe1.getMessage(), dfe1);
+            } catch (DAOFileException dfe) {
+                LOGGER.log(Level.WARNING, dfe.getMessage(), dfe);
             }
             LOGGER.log(Level.INFO, "New file header has been created."
-                    + "\n\t cause -> File header could not be loaded from the file -> {0}"
-                    + "\n\t\t cause -> {1}", new Object[]{this.filePath, dfe.getMessage()});
+                    + "\n\t cause -> No valid file header found in the file -> {0}", this.filePath);
         }
         fhr.addPropertyChangeListener(this);
         return fhr;
     }
 
+    /**
+     * @return Mode d'accès par défaut des writers.
+     */
+    public static StorageMode getDefaultStorageMode() {
+        return defaultStorageMode;
+    }
+
+    /**
+     * Modifie le mode d'accès par défaut des writers. Seuls les writers créés
+     * après l'appel de cette méthode sont concernés.
+     *
+     * @param storageMode Nouveau mode d'accès par défaut. NE DOIT PAS ETRE
+     * NULL.
+     */
+    public static void setDefaultStorageMode(StorageMode storageMode) {
+        checkNotNull("DAOFileWriter.setDefaultStorageMode -> storageMode", storageMode);
+        defaultStorageMode = storageMode;
+    }
+
+    /**
+     * @return Politique d'écriture par défaut des writers.
+     */
+    public static FlushPolicy getDefaultFlushPolicy() {
+        return defaultFlushPolicy;
+    }
+
+    /**
+     * Modifie la politique d'écriture par défaut des writers. Seuls les
+     * writers créés après l'appel de cette méthode sont concernés.
+     *
+     * @param flushPolicy Nouvelle politique d'écriture par défaut. NE DOIT PAS
+     * ETRE NULL.
+     */
+    public static void setDefaultFlushPolicy(FlushPolicy flushPolicy) {
+        checkNotNull("DAOFileWriter.setDefaultFlushPolicy -> flushPolicy", flushPolicy);
+        defaultFlushPolicy = flushPolicy;
+    }
+
+    /**
+     * @return Réserve de tampons d'octets par défaut des writers.
+     */
+    public static BufferPool getDefaultBufferPool() {
+        return defaultBufferPool;
+    }
+
+    /**
+     * Modifie la réserve de tampons d'octets par défaut des writers. Seuls les
+     * writers créés après l'appel de cette méthode sont concernés.
+     *
+     * @param bufferPool Nouvelle réserve par défaut. NE DOIT PAS ETRE NULL.
+     */
+    public static void setDefaultBufferPool(BufferPool bufferPool) {
+        checkNotNull("DAOFileWriter.setDefaultBufferPool -> bufferPool", bufferPool);
+        defaultBufferPool = bufferPool;
+    }
+
+    /**
+     * @return Exécuteur des écritures par défaut des writers.
+     */
+    public static FlushExecutor getDefaultFlushExecutor() {
+        return defaultFlushExecutor;
+    }
+
+    /**
+     * Modifie l'exécuteur des écritures par défaut des writers. Seuls les
+     * writers créés après l'appel de cette méthode sont concernés.
+     *
+     * @param flushExecutor Nouvel exécuteur par défaut. NE DOIT PAS ETRE NULL.
+     */
+    public static void setDefaultFlushExecutor(FlushExecutor flushExecutor) {
+        checkNotNull("DAOFileWriter.setDefaultFlushExecutor -> flushExecutor", flushExecutor);
+        defaultFlushExecutor = flushExecutor;
+    }
+
+    /**
+     * @return <code>true</code> si les writers calculent par défaut la somme
+     * de controle des tuples sinon <code>false</code>.
+     */
+    public static boolean isDefaultRowChecksum() {
+        return defaultRowChecksum;
+    }
+
+    /**
+     * Active ou désactive par défaut le calcul de la somme de controle des
+     * tuples écrits. Seuls les writers créés après l'appel de cette méthode
+     * sont concernés. Les tuples écrits sans somme de controle restent
+     * lisibles, ils ne sont simplement pas vérifiés.
+     *
+     * @param rowChecksum si <code>true</code> la somme de controle est
+     * calculée.
+     */
+    public static void setDefaultRowChecksum(boolean rowChecksum) {
+        defaultRowChecksum = rowChecksum;
+    }
+
+    /**
+     * @return <code>true</code> si le writer calcule la somme de controle des
+     * tuples qu'il écrit sinon <code>false</code>.
+     */
+    public boolean isRowChecksum() {
+        return rowChecksum;
+    }
+
+    /**
+     * @return Exécuteur qui planifie les écritures du writer.
+     */
+    public FlushExecutor getFlushExecutor() {
+        return flushExecutor;
+    }
+
+    /**
+     * @return Réserve des tampons d'octets du writer.
+     */
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Rend à la réserve du writer un tampon d'octets renvoyé par
+     * {@link #read(long, int)}. Le tampon ne doit plus etre utilisé après
+     * l'appel de cette méthode.
+     *
+     * @param buffer Tampon à rendre. Ignoré s'il est <code>null</code> ou s'il
+     * ne provient pas de la réserve.
+     */
+    public void release(ByteBuffer buffer) {
+        bufferPool.release(buffer);
+    }
+
+    /**
+     * @return Politique d'écriture du writer.
+     */
+    public FlushPolicy getFlushPolicy() {
+        return flushPolicy;
+    }
+
+    /**
+     * Modifie la politique d'écriture du writer. La nouvelle politique
+     * s'applique au prochain ajout d'un tuple dans les listes d'attente.
+     *
+     * @param flushPolicy Nouvelle politique d'écriture. NE DOIT PAS ETRE NULL.
+     */
+    synchronized public void setFlushPolicy(FlushPolicy flushPolicy) {
+        checkNotNull("DAOFileWriter.setFlushPolicy -> flushPolicy", flushPolicy);
+        this.flushPolicy = flushPolicy;
+    }
+
+    /**
+     * @return Nombre d'octets en attente d'écriture.
+     */
+    synchronized public long getPendingBytes() {
+        return pendingBytes;
+    }
+
+    /**
+     * @return Chemin d'accès du fichier.
+     */
+    public Path getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * @return Mode d'accès au fichier.
+     */
+    public StorageMode getStorageMode() {
+        return storageMode;
+    }
+
+    /**
+     * @return Groupe de synchronisation du répertoire du fichier.
+     */
+    public SyncGroup getSyncGroup() {
+        return syncGroup;
+    }
+
+    /**
+     * @return Politique de durabilité du writer.
+     */
+    public DurabilityPolicy getDurabilityPolicy() {
+        return syncGroup.getDurabilityPolicy();
+    }
+
+    /**
+     * @return Nombre de synchronisations (<code>fsync</code>) du fichier.
+     */
+    public long getSyncCount() {
+        return syncCount.get();
+    }
+
+    /**
+     * @return Nombre d'écritures positionnelles éffectuées dans le fichier.
+     */
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    /**
+     * @return Nombre de lectures {@link #read(long, int)} éffectuées dans le
+     * fichier.
+     */
+    public long getReadCount() {
+        return readCount.get();
+    }
+
     /**
      * @return La taille du fichier.
      */
     public long getFileLenght() {
-        try (RandomAccessFile raf = new RandomAccessFile(this.filePath.toFile(), "rw")) {
-            return raf.length();
+        try {
+            return fileChannel.size();
         } catch (IOException ex) {
             String message = "Couldn't get the lenght of the file '" + this.filePath + "'"
                     + "\n\t cause -> IO error occurs : " + ex.getMessage();
@@ -154,6 +514,12 @@ public class DAOFileWriter implements MahjongObservable, PropertyChangeListener
      * <code>lenght</code> octets lus depuis un fichier à partir de la position
      * <code>position</code>. Et renvoie un tampon d'octets
      * <code>ByteBuffer</code> contenant les données.
+     * <br>
+     * La lecture est positionnelle : elle ne modifie pas la position du canal
+     * et ne prend pas le verrou du writer. Le tampon renvoyé provient de la
+     * réserve de tampons du writer, en mode {@link StorageMode#MAPPED} il est
+     * rempli par une copie de la projection du fichier. Il doit etre rendu par
+     * {@link #release(ByteBuffer)} une fois les données lues.
      *
      * @param position Position à partir de laquelle la lecture est commencée. -
      * DOIT ETRE POSITIF - NE DOIT PAS ETRE SUPERIEUR A LA TAILLE DU FICHIER.
@@ -164,27 +530,62 @@ public class DAOFileWriter implements MahjongObservable, PropertyChangeListener
      * fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException s'il
      * y'a une erreur lors de la lecture d'un fichier de données.
      */
-    synchronized public ByteBuffer read(long position, int lenght) throws DAOFileWriterException {
+    public ByteBuffer read(long position, int lenght) throws DAOFileWriterException {
         if (position < 0) {
             throw new IllegalArgumentException("DAOFileWriter.read ->  position '" + position + "' must be positive or zero");
         }
         if (lenght < 0) {
             throw new IllegalArgumentException("DAOFileWriter.read -> lenght '" + lenght + "' must be greater than zero.");
         }
-        try (RandomAccessFile raf = new RandomAccessFile(filePath.toFile(), "r")) {
-            if (position > raf.length()) {
+        readCount.incrementAndGet();
+        if (fileMapping != null) {
+            ByteBuffer buffer = bufferPool.acquire(lenght);
+            if (fileMapping.read(position, buffer)) {
+                buffer.flip();
+                return buffer;
+            }
+            bufferPool.release(buffer);
+        }
+        try {
+            long fileSize = fileChannel.size();
+            if (position > fileSize) {
                 throw new DAOFileWriterException("Couldn't read '" + lenght + "' bytes at the position '"
                         + position + "' from the file '" + filePath + "'"
-                        + "\n\t\t cause -> position '" + position + "' is greater than file size '" + getFileLenght() + "'");
+                        + "\n\t\t cause -> position '" + position + "' is greater than file size '" + fileSize + "'");
             }
-            FileChannel fileChannel = raf.getChannel();
-            fileChannel.position(position);
-            ByteBuffer buffer = ByteBuffer.allocate(lenght);
-            if (fileChannel.read(buffer) != -1) {
-                buffer.flip();
-                return buffer;
+            if (fileMapping != null) {
+                if (fileSize - fileMapping.getMappedSize() >= MAPPING_CHUNK_SIZE) {
+                    fileMapping.remap(fileSize);
+                }
+                if (position == fileSize && lenght > 0) {
+                    return null;
+                }
+                ByteBuffer buffer = bufferPool.acquire((int) Math.min(lenght, fileSize - position));
+                if (fileMapping.read(position, buffer)) {
+                    buffer.flip();
+                    return buffer;
+                }
+                bufferPool.release(buffer);
             }
-            return null;
+            ByteBuffer buffer = bufferPool.acquire(lenght);
+            try {
+                int nbReadBytes = 0;
+                while (buffer.hasRemaining()) {
+                    nbReadBytes = fileChannel.read(buffer, position + buffer.position());
+                    if (nbReadBytes == -1) {
+                        break;
+                    }
+                }
+                if (nbReadBytes == -1 && buffer.position() == 0) {
+                    bufferPool.release(buffer);
+                    return null;
+                }
+            } catch (IOException ex) {
+                bufferPool.release(buffer);
+                throw ex;
+            }
+            buffer.flip();
+            return buffer;
         } catch (IOException ex) {
             String message = "Couldn't read '" + lenght + "' bytes at the position '" + position + "' from the file '" + filePath + "'"
                     + "\n\t\t cause -> IO error occurs : " + ex.getMessage();
@@ -209,14 +610,15 @@ public class DAOFileWriter implements MahjongObservable, PropertyChangeListener
     synchronized public int write(long position, ByteBuffer buffer) throws DAOFileWriterException {
         checkNotNull("DAOFileWriter.write -> buffer", buffer);
         if (position >= 0) {
-            try (RandomAccessFile file = new RandomAccessFile(filePath.toFile(), "rw")) {
-                FileChannel fileChannel = file.getChannel();
+            try {
                 buffer.flip();
-                fileChannel.position(position);
+                int nbWritedBytes = 0;
                 while (buffer.hasRemaining()) {
-                    fileChannel.write(buffer);
+                    nbWritedBytes += fileChannel.write(buffer, position + nbWritedBytes);
                 }
-                return (int) (buffer.position() - position);
+                writeCount.incrementAndGet();
+                written();
+                return nbWritedBytes;
             } catch (IOException ex) {
                 String message = " Couldn't write the buffer '" + buffer + "' at the position '" + position + "' "
                         + " \n\t cause -> IO error occurs : " + ex.getMessage();
@@ -229,63 +631,162 @@ public class DAOFileWriter implements MahjongObservable, PropertyChangeListener
 
     /**
      * Ce thread répresente le processus qui écrit dans un fichier. Il écrit
-     * tous les tuples présents dans les deux listes d'attentes
-     * <code>multipleWritingList</code> et <code>msingleWritingList</code>
-     * <br>S'il y'a des tuples dans la liste <code>multipleWritingList</code> et
-     * que les pointeurs de ces tuples sont bien dans l'ordre et se suivent, il
-     * initialise un tampon d'octets <code>ByteBuffer</code> avec une taille
-     * correspondant à la somme des tailles des tuples dans la liste
-     * <code>multipleWritingList</code> puis ce tampon est passé à chaque tuple
-     * présent dans la liste <code>multipleWritingList</code> qui va s'y écrire.
-     * Enfin le tampon est écrit dans le fichier.
+     * tous les tuples modifiés présents dans les deux listes d'attentes
+     * <code>multipleWritingList</code> et <code>singleWritingList</code>.
+     * <br>
+     * Les tuples modifiés des deux listes sont triés suivant leur pointeur puis
+     * regroupés en étendues : une étendue est une suite de tuples dont chacun
+     * commence là où le précédent se termine. Chaque étendue est écrite dans
+     * un seul tampon d'octets <code>ByteBuffer</code> par une seule écriture
+     * positionnelle. Un tuple non modifié coupe l'étendue, son emplacement
+     * dans le fichier n'est pas touché. L'en-tete du fichier est écrite en
+     * dernier, dans son emplacement {@link FileHeaderRow}.
+     * <br>
+     * Les listes d'attente sont traitées sous le verrou du writer. En
+     * politique {@link DurabilityPolicy#GROUP}, le lot est validé par le groupe
+     * de synchronisation avant la notification.
      */
     Runnable writeToDisk = () -> {
+        Runnable completion = writeWritingLists();
+        // la validation de groupe et la notification se font en dehors du verrou du writer
+        if (completion != null) {
+            completion.run();
+        }
+    };
+
+    /**
+     * Ecrit les tuples modifiés des deux listes d'attente sous le verrou du
+     * writer et vide les listes.
+     *
+     * @return Validation de groupe et notification du lot à exécuter en dehors
+     * du verrou du writer ou <code>null</code> si rien n'a été écrit.
+     */
+    synchronized private Runnable writeWritingLists() {
         boolean notify = false; // indique s'il faut notifier ou pas. Pas besoin de notifier l'écrite d'une en-tete
+        boolean commit = false; // indique si le lot contient au moins une écriture
+        List<AbstractRow> dirtyRows = getDirtyRows();
+        List<AbstractRow> headerRows = new ArrayList<>(1);
+        for (Iterator<AbstractRow> iterator = dirtyRows.iterator(); iterator.hasNext();) {
+            AbstractRow row = iterator.next();
+            if (row instanceof FileHeaderRow) {
+                headerRows.add(row);
+                iterator.remove();
+            }
+        }
+        multipleWritingList.clear();
+        singleWritingList.clear();
+        pendingBytes = 0;
+        firstPendingTime = -1;
+        int first = 0;
+        while (first < dirtyRows.size()) {
+            int last = first;
+            long end = dirtyRows.get(first).getRowPointer() + dirtyRows.get(first).getRowSize();
+            while (last + 1 < dirtyRows.size() && dirtyRows.get(last + 1).getRowPointer() == end) {
+                last++;
+                end += dirtyRows.get(last).getRowSize();
+            }
+            int nbWritedRows = writeExtent(dirtyRows.subList(first, last + 1));
+            if (nbWritedRows > 0) {
+                commit = true;
+                notify = true; // les en-tetes sont à part, l'étendue contient au moins un tuple
+            }
+            first += Math.max(nbWritedRows, 1);
+        }
+        // l'en-tete est écrite après les tuples qu'elle décrit
+        for (AbstractRow headerRow : headerRows) {
+            if (writeExtent(Collections.singletonList(headerRow)) > 0) {
+                commit = true;
+            }
+        }
+        if (!commit) {
+            return null;
+        }
+        boolean groupCommit = getDurabilityPolicy() == DurabilityPolicy.GROUP;
+        boolean notifyDone = notify;
+        return () -> {
+            if (groupCommit) {
+                getSyncGroup().commit();
+            }
+            if (notifyDone) {
+                done();
+            }
+        };
+    }
+
+    /**
+     * Renvoie les tuples modifiés des deux listes d'attente triés suivant leur
+     * pointeur de tuple actuel. Lorsque plusieurs tuples ont le meme pointeur,
+     * seul le premier est gardé.
+     *
+     * @return Liste triée des tuples à écrire.
+     */
+    private List<AbstractRow> getDirtyRows() {
+        List<AbstractRow> dirtyRows = new ArrayList<>(multipleWritingList.size() + singleWritingList.size());
+        for (AbstractRow row : multipleWritingList) {
+            if (row.isDirty()) {
+                dirtyRows.add(row);
+            }
+        }
+        for (AbstractRow row : singleWritingList) {
+            if (row.isDirty()) {
+                dirtyRows.add(row);
+            }
+        }
+        dirtyRows.sort(Comparator.comparingLong(AbstractRow::getRowPointer));
+        Iterator<AbstractRow> iterator = dirtyRows.iterator();
+        long previousPointer = -1;
+        while (iterator.hasNext()) {
+            AbstractRow row = iterator.next();
+            if (row.getRowPointer() == previousPointer) {
+                LOGGER.log(Level.FINE, "duplicate row ignored -> {0}", row);
+                iterator.remove();
+            }
+            previousPointer = row.getRowPointer();
+        }
+        return dirtyRows;
+    }
+
+    /**
+     * Ecrit une étendue de tuples contigus <code>extent</code> par une seule
+     * écriture positionnelle. Si un tuple ne peut pas etre écrit dans le
+     * tampon, seuls les tuples qui le précèdent sont écrits.
+     *
+     * @param extent Tuples contigus triés suivant leur pointeur.
+     * @return Nombre de tuples écrits à partir du début de l'étendue.
+     */
+    private int writeExtent(List<AbstractRow> extent) {
+        AbstractRow firstRow = extent.get(0);
+        int lenght = 0;
+        for (AbstractRow row : extent) {
+            lenght += row.getRowSize();
+        }
+        ByteBuffer buffer = bufferPool.acquire(lenght);
+        int nbRows = 0;
         try {
-            if (!multipleWritingList.isEmpty()) {
-                AbstractRow firstRow = multipleWritingList.get(0);
-                ByteBuffer buffer = ByteBuffer.allocate(multipleWritingList.size() * firstRow.getRowSize());
-                long offset = firstRow.getRowPointer() + firstRow.getRowSize();
-                for (AbstractRow row : multipleWritingList) {
-                    if (offset - row.getRowPointer() == firstRow.getRowSize()) {
-                        if (row.isDirty()) {
-                            row.write(buffer);
-                        }
-                        offset += firstRow.getRowSize();
-                    } else {
-                        addRowToSingleWritingList(row);
-                    }
-                }
-                if (write(firstRow.getRowPointer(), buffer) != -1) {
-                    LOGGER.log(Level.INFO, " Multiple writing list writed on disk -> {0} {1}, buff : {2}",
-                            new Object[]{multipleWritingList.size(), firstRow.getClass().getSimpleName(), buffer});
+            for (AbstractRow row : extent) {
+                try {
+                    row.write(buffer, rowChecksum);
+                    nbRows++;
+                } catch (DAOFileException ex) {
+                    LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
+                    break;
                 }
-                multipleWritingList.clear();
-                notify = true; // on notifie lorsqu'un ensemble de tuples est écrit 
             }
-
-            if (!singleWritingList.isEmpty()) {
-                for (AbstractRow row : singleWritingList) {
-                    ByteBuffer buffer = ByteBuffer.allocate(row.getRowSize());
-                    if (row.isDirty()) {
-                        row.write(buffer);
-                        if (!(row instanceof FileHeaderRow)) {
-                            notify = true; // on notifie si le seul tuple écrit n'est pas une en-tete de tuple 
-                        }
-                        if (write(row.getRowPointer(), buffer) != -1) {
-                            LOGGER.log(Level.INFO, " Single writng list writed on disk -> {0}", row.getClass().getSimpleName());
-                        }
+            if (nbRows > 0) {
+                try {
+                    if (write(firstRow.getRowPointer(), buffer) != -1) {
+                        LOGGER.log(Level.INFO, " Extent writed on disk -> {0} rows at {1}, buff : {2}",
+                                new Object[]{nbRows, firstRow.getRowPointer(), buffer});
                     }
+                } catch (DAOFileWriterException ex) {
+                    LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
                 }
-                singleWritingList.clear();
-            }
-            if (notify) {
-                done();
             }
-        } catch (DAOFileWriterException | DAOFileException e) {
-            LOGGER.log(Level.SEVERE, e.getMessage(), e);
+        } finally {
+            bufferPool.release(buffer);
         }
-    };
+        return nbRows;
+    }
 
     protected void done() {
         pcs.firePropertyChange(DONE_PROPERTY, false, true);
@@ -294,13 +795,24 @@ public class DAOFileWriter implements MahjongObservable, PropertyChangeListener
     /**
      * Ajoute un tuple <code>row</code> à la liste de tuples dont le contenu est
      * écrit d'un seul coup dans un fichier <code>multipleWritingList</code>.
+     * <br>
+     * Si l'ajout du tuple dépasse le budget d'octets en attente de la
+     * politique d'écriture {@link FlushPolicy}, les listes d'attente sont
+     * écrites immédiatement par l'appelant ou l'appelant reçoit une exception
+     * suivant le mode
+     * {@link FlushPolicy.Backpressure}.
      *
      * @param row Tuple à ajouter. NE DOIT PAS ETRE NULL.
      * @return {@code true} si le tuple a été ajouté sinon {@code false}
      * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
-     * s'il y'a une erreur lors d el'ajout du tuple.
+     * s'il y'a une erreur lors d el'ajout du tuple ou si le budget d'octets en
+     * attente est épuisé en mode {@link FlushPolicy.Backpressure#FAIL_FAST}.
      */
-    public boolean addRowToMultipleWritingList(AbstractRow row) throws DAOFileException {
+    synchronized public boolean addRowToMultipleWritingList(AbstractRow row) throws DAOFileException {
+        checkNotNull("DAOFileWriter.addRowToMultipleWritingList -> row", row);
+        if (!multipleWritingList.contains(row)) {
+            awaitDirtyBytesBudget(row.getRowSize());
+        }
         return add(multipleWritingList, row);
     }
 
@@ -318,26 +830,122 @@ public class DAOFileWriter implements MahjongObservable, PropertyChangeListener
     }
 
     /**
-     * Ajoute un tuple <code>row</code> à une liste de tuples triée suivant le
-     * pointeur de tuple <code>rowPointer</code>.
+     * Range un tuple <code>row</code> dans une liste d'attente suivant son
+     * pointeur de tuple <code>rowPointer</code>. Un tuple plus ancien rangé au
+     * meme pointeur est remplacé.
      *
-     * @param sortedListByPointer Liste trié à laquelle le tuple est ajouté.
+     * @param rowsByPointer Liste d'attente dans laquelle le tuple est rangé.
      * @param row Tuple à ajouter. NE DOIT PAS ETRE NULL.
      */
-    synchronized private boolean add(List<AbstractRow> sortedListByPointer, AbstractRow row) throws DAOFileException {
-        checkNotNull("DAOFileWriter.add -> sortedListByPointer", sortedListByPointer);
+    synchronized private boolean add(RowsByPointer<AbstractRow> rowsByPointer, AbstractRow row) throws DAOFileException {
+        checkNotNull("DAOFileWriter.add -> rowsByPointer", rowsByPointer);
         checkNotNull("DAOFileWriter.add -> row", row);
-        if (!sortedListByPointer.contains(row)) {
-            RowUtilities.addRowToSortedListByPointer(sortedListByPointer, row);
-            if (scheduledFuture != null) {
-                scheduledFuture.cancel(true);
+        if (!rowsByPointer.contains(row)) {
+            AbstractRow previousRow = rowsByPointer.put(row);
+            if (firstPendingTime == -1) {
+                firstPendingTime = System.nanoTime();
             }
-            scheduledFuture = scheduledExecutorService.schedule(writeToDisk, WRITING_TIMER, TimeUnit.SECONDS);
+            if (previousRow == null) {
+                pendingBytes += row.getRowSize();
+            } else {
+                LOGGER.log(Level.FINE, "row replaced in the writing list -> {0}", previousRow);
+            }
+            scheduleWriting();
             return true;
         }
         return false;
     }
 
+    /**
+     * Renvoie <code>true</code> si plus aucune écriture ne peut etre planifiée
+     * : le writer est en cours de fermeture ou son exécuteur est fermé.
+     *
+     * @return <code>true</code> si plus aucune écriture ne peut etre planifiée
+     * sinon <code>false</code>.
+     */
+    synchronized private boolean isClosing() {
+        return closing || flushExecutor.isShutdown();
+    }
+
+    /**
+     * @return <code>true</code> si le writer est fermé sinon
+     * <code>false</code>.
+     */
+    public boolean isClosed() {
+        return !fileChannel.isOpen();
+    }
+
+    /**
+     * Planifie l'écriture des listes d'attente {@code WRITING_TIMER} après le
+     * dernier ajout. L'écriture est avancée pour respecter le délai maximal
+     * de la politique d'écriture, et est immédiate si les listes d'attente
+     * atteignent la taille maximale d'un lot.
+     */
+    synchronized private void scheduleWriting() {
+        if (scheduledFuture != null) {
+            // sans interruption : un canal interrompu pendant une écriture est fermé
+            scheduledFuture.cancel(false);
+        }
+        if (!isClosing()) { // pas de planification pendant la fermeture
+            FlushPolicy policy = flushPolicy;
+            long delay = TimeUnit.SECONDS.toMillis(WRITING_TIMER);
+            if (firstPendingTime != -1) {
+                long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstPendingTime);
+                delay = Math.min(delay, policy.getMaxDelay() - waited);
+            }
+            if (multipleWritingList.size() + singleWritingList.size() >= policy.getMaxBatchRows()
+                    || pendingBytes >= policy.getMaxBatchBytes()) {
+                delay = 0;
+            }
+            scheduledFuture = flushExecutor.schedule(writeToDisk, delay);
+        }
+    }
+
+    /**
+     * Attend que l'ajout de <code>size</code> octets aux listes d'attente
+     * respecte le budget d'octets en attente de la politique d'écriture. Un
+     * tuple plus grand que le budget est accepté lorsque les listes d'attente
+     * sont vides.
+     * <br>
+     * En mode {@link FlushPolicy.Backpressure#BLOCK}, l'appelant écrit
+     * lui-meme les listes d'attente au lieu d'attendre l'exécuteur : un tuple
+     * écrit par un thread de l'exécuteur peut en ajouter d'autres (les liens
+     * d'une zone ajoutent ses tuiles) et l'écriture attendue serait planifiée
+     * sur ce meme thread, ou derrière une notification qui attend le verrou
+     * du DAO tenu par l'appelant. La validation de groupe et la notification
+     * du lot sont confiées à l'exécuteur, en dehors des verrous de l'appelant.
+     *
+     * @param size Nombre d'octets à ajouter.
+     * @throws DAOFileException si le budget est épuisé en mode
+     * {@link FlushPolicy.Backpressure#FAIL_FAST}.
+     */
+    synchronized private void awaitDirtyBytesBudget(int size) throws DAOFileException {
+        FlushPolicy policy = flushPolicy;
+        if (pendingBytes == 0 || pendingBytes + size <= policy.getDirtyBytesBudget()) {
+            return;
+        }
+        if (scheduledFuture != null) {
+            scheduledFuture.cancel(false);
+        }
+        if (isClosing()) {
+            return;
+        }
+        if (policy.getBackpressure() == FlushPolicy.Backpressure.FAIL_FAST) {
+            scheduledFuture = flushExecutor.schedule(writeToDisk, 0);
+            String message = "Row couldn't be added to the writing list of the file '" + filePath + "'"
+                    + "\n\t cause -> dirty bytes '" + pendingBytes + "' + '" + size
+                    + "' exceed the budget '" + policy.getDirtyBytesBudget() + "'";
+            LOGGER.log(Level.WARNING, message);
+            throw new DAOFileException(message);
+        }
+        LOGGER.log(Level.FINE, "dirty bytes budget exhausted -> writing {0} bytes inline", pendingBytes);
+        scheduledFuture = null;
+        Runnable completion = writeWritingLists();
+        if (completion != null && flushExecutor.schedule(completion, 0) == null) {
+            completion.run(); // exécuteur fermé
+        }
+    }
+
     /**
      *
      * @param evt Evenement
@@ -356,6 +964,238 @@ public class DAOFileWriter implements MahjongObservable, PropertyChangeListener
         }
     }
 
+    /**
+     * Renvoie <code>true</code> s'il y'a des tuples, autres que l'en-tete du
+     * fichier, en attente d'écriture sinon <code>false</code>.
+     *
+     * @return <code>true</code> s'il y'a des tuples en attente d'écriture sinon
+     * <code>false</code>.
+     */
+    synchronized public boolean hasPendingRows() {
+        if (!multipleWritingList.isEmpty()) {
+            return true;
+        }
+        for (AbstractRow row : singleWritingList) {
+            if (!(row instanceof FileHeaderRow) && row.isDirty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Marque le tuple de taille <code>rowSize</code> situé à la position
+     * <code>rowPointer</code> comme supprimé. Le tuple est retiré des listes
+     * d'attente s'il n'a pas encore été écrit puis l'identifiant
+     * {@link AbstractRow#TOMBSTONE_ROW_ID} est écrit dans son en-tete. Les
+     * autres tuples du fichier ne sont pas déplacés.
+     *
+     * @param rowPointer Pointeur du tuple à supprimer. DOIT ETRE SUPERIEUR OU
+     * EGAL A LA TAILLE DE L'EN-TETE DU FICHIER.
+     * @param rowSize Taille du tuple. DOIT ETRE SUPERIEUR A LA TAILLE DE
+     * L'EN-TETE D'UN TUPLE.
+     * @return <code>true</code> si le tuple a été marqué comme supprimé sinon
+     * <code>false</code>.
+     * @throws
+     * fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException s'il
+     * y'a une erreur lors de l'écriture.
+     */
+    synchronized public boolean writeTombstone(long rowPointer, int rowSize) throws DAOFileWriterException {
+        if (rowSize < AbstractRow.ROW_HEADER_SIZE) {
+            throw new IllegalArgumentException("DAOFileWriter.writeTombstone -> rowSize '" + rowSize
+                    + "' must be greater or equal to '" + AbstractRow.ROW_HEADER_SIZE + "'.");
+        }
+        return writeTombstone(rowPointer, rowSize, false, FileHeader.NO_FREE_SLOT);
+    }
+
+    /**
+     * Marque le tuple de taille <code>rowSize</code> situé à la position
+     * <code>rowPointer</code> comme supprimé et le chaine à l'emplacement libre
+     * suivant <code>nextFreeSlot</code>. Le pointeur de l'emplacement suivant
+     * est écrit juste après l'en-tete du tuple.
+     *
+     * <pre>
+     *    format d'un tuple supprimé chainé :
+     *         ----------------------------------------------------------
+     *         | rowID = -1 | checksum | nextFreeSlot |    inutilisé    |
+     *         ----------------------------------------------------------
+     * </pre>
+     *
+     * @param rowPointer Pointeur du tuple à supprimer. DOIT ETRE SUPERIEUR OU
+     * EGAL A LA TAILLE DE L'EN-TETE DU FICHIER.
+     * @param rowSize Taille du tuple. DOIT ETRE SUPERIEUR A LA TAILLE DE
+     * L'EN-TETE D'UN TUPLE PLUS {@link #FREE_SLOT_LINK_SIZE}.
+     * @param nextFreeSlot Pointeur de l'emplacement libre suivant ou
+     * {@link FileHeader#NO_FREE_SLOT}.
+     * @return <code>true</code> si le tuple a été marqué comme supprimé sinon
+     * <code>false</code>.
+     * @throws
+     * fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException s'il
+     * y'a une erreur lors de l'écriture.
+     */
+    synchronized public boolean writeTombstone(long rowPointer, int rowSize, long nextFreeSlot) throws DAOFileWriterException {
+        if (rowSize < AbstractRow.ROW_HEADER_SIZE + FREE_SLOT_LINK_SIZE) {
+            throw new IllegalArgumentException("DAOFileWriter.writeTombstone -> rowSize '" + rowSize
+                    + "' must be greater or equal to '" + (AbstractRow.ROW_HEADER_SIZE + FREE_SLOT_LINK_SIZE) + "'.");
+        }
+        return writeTombstone(rowPointer, rowSize, true, nextFreeSlot);
+    }
+
+    private boolean writeTombstone(long rowPointer, int rowSize, boolean linked, long nextFreeSlot) throws DAOFileWriterException {
+        if (rowPointer < FileHeaderRow.FILE_HEADER_ROW_SIZE) {
+            throw new IllegalArgumentException("DAOFileWriter.writeTombstone -> rowPointer '" + rowPointer
+                    + "' must be greater or equal to '" + FileHeaderRow.FILE_HEADER_ROW_SIZE + "'.");
+        }
+        try {
+            removeFromWritingList(multipleWritingList, rowPointer);
+            removeFromWritingList(singleWritingList, rowPointer);
+        } catch (DAOFileException ex) {
+            throw new DAOFileWriterException(ex.getMessage(), ex);
+        }
+        ByteBuffer buffer = bufferPool.acquire(rowSize);
+        boolean result;
+        try {
+            buffer.putInt(AbstractRow.TOMBSTONE_ROW_ID);
+            if (linked) {
+                buffer.putLong(AbstractRow.ROW_HEADER_SIZE, nextFreeSlot);
+            }
+            buffer.position(rowSize);
+            result = write(rowPointer, buffer) == rowSize;
+        } finally {
+            bufferPool.release(buffer);
+        }
+        LOGGER.log(Level.FINE, "tombstone writed -> pointer : {0}, rowSize : {1}", new Object[]{rowPointer, rowSize});
+        return result;
+    }
+
+    /**
+     * Change l'emplacement libre suivant d'un tuple supprimé chainé
+     * {@link #writeTombstone(long, int, long)}. Seul le pointeur de
+     * l'emplacement suivant est écrit.
+     *
+     * @param rowPointer Pointeur du tuple supprimé. DOIT ETRE SUPERIEUR OU
+     * EGAL A LA TAILLE DE L'EN-TETE DU FICHIER.
+     * @param nextFreeSlot Pointeur de l'emplacement libre suivant ou
+     * {@link FileHeader#NO_FREE_SLOT}.
+     * @return <code>true</code> si le pointeur a été écrit sinon
+     * <code>false</code>.
+     * @throws
+     * fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException s'il
+     * y'a une erreur lors de l'écriture.
+     */
+    synchronized public boolean writeFreeSlotLink(long rowPointer, long nextFreeSlot) throws DAOFileWriterException {
+        if (rowPointer < FileHeaderRow.FILE_HEADER_ROW_SIZE) {
+            throw new IllegalArgumentException("DAOFileWriter.writeFreeSlotLink -> rowPointer '" + rowPointer
+                    + "' must be greater or equal to '" + FileHeaderRow.FILE_HEADER_ROW_SIZE + "'.");
+        }
+        ByteBuffer buffer = bufferPool.acquire(FREE_SLOT_LINK_SIZE);
+        try {
+            buffer.putLong(nextFreeSlot);
+            return write(rowPointer + AbstractRow.ROW_HEADER_SIZE, buffer) == FREE_SLOT_LINK_SIZE;
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * Lis l'emplacement libre suivant d'un tuple supprimé chainé
+     * {@link #writeTombstone(long, int, long)}.
+     *
+     * @param rowPointer Pointeur du tuple supprimé.
+     * @return Pointeur de l'emplacement libre suivant,
+     * {@link FileHeader#NO_FREE_SLOT} pour le dernier emplacement de la chaine
+     * ou <code>null</code> si le tuple n'est pas un tuple supprimé.
+     * @throws
+     * fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException s'il
+     * y'a une erreur lors de la lecture.
+     */
+    public Long readFreeSlotLink(long rowPointer) throws DAOFileWriterException {
+        ByteBuffer buffer = read(rowPointer, AbstractRow.ROW_HEADER_SIZE + FREE_SLOT_LINK_SIZE);
+        if (buffer == null) {
+            return null;
+        }
+        try {
+            if (buffer.remaining() < AbstractRow.ROW_HEADER_SIZE + FREE_SLOT_LINK_SIZE
+                    || buffer.getInt(buffer.position()) != AbstractRow.TOMBSTONE_ROW_ID) {
+                return null;
+            }
+            return buffer.getLong(buffer.position() + AbstractRow.ROW_HEADER_SIZE);
+        } finally {
+            release(buffer);
+        }
+    }
+
+    /**
+     * Retire d'une liste d'attente le tuple dont le pointeur est
+     * <code>rowPointer</code>. Un tuple déplacé depuis son ajout n'est pas
+     * retiré.
+     *
+     * @param rowsByPointer Liste d'attente rangée suivant le pointeur de tuple.
+     * @param rowPointer Pointeur du tuple à retirer.
+     */
+    private void removeFromWritingList(RowsByPointer<AbstractRow> rowsByPointer, long rowPointer) throws DAOFileException {
+        AbstractRow row = rowsByPointer.get(rowPointer);
+        if (row != null && row.getRowPointer() == rowPointer) {
+            rowsByPointer.remove(rowPointer);
+            pendingBytes = Math.max(0, pendingBytes - row.getRowSize());
+        }
+    }
+
+    /**
+     * Copie <code>lenght</code> octets du fichier de la position
+     * <code>source</code> vers la position <code>destination</code>.
+     *
+     * @param source Position des octets à copier.
+     * @param destination Position à laquelle les octets sont copiés.
+     * @param lenght Nombre d'octets à copier.
+     * @return <code>true</code> si les octets ont été copiés sinon
+     * <code>false</code>.
+     * @throws
+     * fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException s'il
+     * y'a une erreur lors de la copie.
+     */
+    synchronized public boolean copy(long source, long destination, int lenght) throws DAOFileWriterException {
+        ByteBuffer buffer = read(source, lenght);
+        try {
+            if (buffer == null || buffer.remaining() != lenght) {
+                return false;
+            }
+            // le tampon lu est écrit tel quel, write() le retourne avant l'écriture
+            buffer.position(buffer.limit());
+            return write(destination, buffer) == lenght;
+        } finally {
+            release(buffer);
+        }
+    }
+
+    /**
+     * Tronque le fichier à la taille <code>size</code>.
+     *
+     * @param size Nouvelle taille du fichier. DOIT ETRE POSITIVE.
+     * @throws
+     * fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException s'il
+     * y'a une erreur lors de la troncature.
+     */
+    synchronized public void truncate(long size) throws DAOFileWriterException {
+        if (size < 0) {
+            throw new IllegalArgumentException("DAOFileWriter.truncate -> size '" + size + "' must be positive or zero.");
+        }
+        try {
+            if (fileMapping != null) {
+                fileMapping.truncate(size);
+            } else {
+                fileChannel.truncate(size);
+            }
+            written();
+            LOGGER.log(Level.FINE, "file truncated -> {0} : {1}", new Object[]{filePath, size});
+        } catch (IOException ex) {
+            String message = "Couldn't truncate the file '" + filePath + "' to '" + size + "' bytes"
+                    + "\n\t cause -> IO error occurs : " + ex.getMessage();
+            LOGGER.log(Level.WARNING, message);
+            throw new DAOFileWriterException(message, ex);
+        }
+    }
+
     /**
      * Supprime d'un fichier <code>offset</code> octets à partir de la position
      * <code>position</code>.
@@ -382,25 +1222,41 @@ public class DAOFileWriter implements MahjongObservable, PropertyChangeListener
         }
         LOGGER.log(Level.FINE, "position={0}, size={1}", new Object[]{position, offset});
         boolean result = false;
-        try (RandomAccessFile raf = new RandomAccessFile(filePath.toFile(), "rw")) {
-            FileChannel fileChannel = raf.getChannel();
+        try {
             int fileSize = (int) fileChannel.size();
             if (fileSize > position) {
                 int nextPosition = position + offset;
                 int nbRemaingBytes = fileSize - nextPosition;
                 nbRemaingBytes = nbRemaingBytes < 0 ? 0 : nbRemaingBytes;
                 LOGGER.log(Level.FINE, "nextPosition={0}, nbRemaingBytes={1}", new Object[]{nextPosition, nbRemaingBytes});
-                ByteBuffer remainingBytes = ByteBuffer.allocate(nbRemaingBytes);
-                fileChannel.position(nextPosition);
-                if (fileChannel.read(remainingBytes) > 0) {
-                    remainingBytes.flip();
-
-                    fileChannel.position(position);
-                    while (remainingBytes.hasRemaining()) {
-                        fileChannel.write(remainingBytes);
+                // les octets restants sont déplacés par blocs, la destination précède toujours la source
+                ByteBuffer block = bufferPool.acquire(Math.min(MOVING_BLOCK_SIZE, Math.max(nbRemaingBytes, 1)));
+                try {
+                    long readPosition = nextPosition;
+                    long writePosition = position;
+                    long endPosition = (long) nextPosition + nbRemaingBytes;
+                    while (readPosition < endPosition) {
+                        block.clear();
+                        block.limit((int) Math.min(block.capacity(), endPosition - readPosition));
+                        int nbReadBytes = fileChannel.read(block, readPosition);
+                        if (nbReadBytes <= 0) {
+                            break;
+                        }
+                        readPosition += nbReadBytes;
+                        block.flip();
+                        while (block.hasRemaining()) {
+                            writePosition += fileChannel.write(block, writePosition);
+                        }
                     }
+                } finally {
+                    bufferPool.release(block);
                 }
-                fileChannel.truncate(position + nbRemaingBytes);
+                if (fileMapping != null) {
+                    fileMapping.truncate(position + nbRemaingBytes);
+                } else {
+                    fileChannel.truncate(position + nbRemaingBytes);
+                }
+                written();
                 result = true;
             }
             LOGGER.log(Level.FINE, "fileSize : {0} -> {1}\n", new Object[]{fileSize, fileChannel.size()});
@@ -412,6 +1268,116 @@ public class DAOFileWriter implements MahjongObservable, PropertyChangeListener
         return result;
     }
 
+    /**
+     * Applique la politique de durabilité après une modification du fichier :
+     * le fichier est synchronisé immédiatement en politique
+     * {@link DurabilityPolicy#ALWAYS} ou signalé au groupe de synchronisation
+     * en politique {@link DurabilityPolicy#GROUP}.
+     */
+    private void written() {
+        switch (getDurabilityPolicy()) {
+            case ALWAYS:
+                force();
+                break;
+            case GROUP:
+                syncGroup.markUnsynced(this);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Force l'écriture sur le disque des modifications du fichier.
+     *
+     * @return <code>true</code> si le fichier a été synchronisé sinon
+     * <code>false</code>.
+     */
+    boolean force() {
+        try {
+            fileChannel.force(false);
+            syncCount.incrementAndGet();
+            syncGroup.incrementSyncCount();
+            return true;
+        } catch (IOException ex) {
+            String message = "Couldn't sync the file '" + filePath + "'"
+                    + "\n\t cause -> IO error occurs : " + ex.getMessage();
+            LOGGER.log(Level.WARNING, message);
+            return false;
+        }
+    }
+
+    /**
+     * Ecrit les tuples encore présents dans les listes d'attente, arrete la
+     * tâche d'écriture planifiée puis ferme le canal ouvert sur le fichier.
+     * Sauf en politique {@link DurabilityPolicy#NONE}, le fichier est
+     * synchronisé avant d'etre fermé.
+     * Après l'appel de cette méthode le writer ne peut plus etre utilisé.
+     *
+     * @throws
+     * fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException s'il
+     * y'a une erreur lors de la fermeture du fichier.
+     */
+    @Override
+    public void close() throws DAOFileWriterException {
+        close(getDurabilityPolicy() != DurabilityPolicy.NONE);
+    }
+
+    /**
+     * Ecrit les tuples encore présents dans les listes d'attente, retire le
+     * writer de son exécuteur puis ferme le canal ouvert sur le fichier. Le
+     * fichier est synchronisé avant d'etre fermé si <code>force</code> vaut
+     * <code>true</code>.
+     *
+     * @param force Indique si le fichier doit etre synchronisé.
+     * @throws DAOFileWriterException s'il y'a une erreur lors de la fermeture
+     * du fichier.
+     */
+    void close(boolean force) throws DAOFileWriterException {
+        if (closeChannel(force)) {
+            // hors du verrou du writer : les écoutes prennent celui de leur gestionnaire
+            pcs.firePropertyChange(CLOSED_PROPERTY, false, true);
+        }
+    }
+
+    /**
+     * Ecrit les listes d'attente et ferme le canal ouvert sur le fichier.
+     *
+     * @param force Indique si le fichier doit etre synchronisé.
+     * @return <code>true</code> si le fichier vient d'etre fermé,
+     * <code>false</code> s'il l'était déjà.
+     * @throws DAOFileWriterException s'il y'a une erreur lors de la fermeture
+     * du fichier.
+     */
+    synchronized private boolean closeChannel(boolean force) throws DAOFileWriterException {
+        if (!fileChannel.isOpen()) {
+            return false;
+        }
+        closing = true;
+        if (scheduledFuture != null) {
+            scheduledFuture.cancel(false);
+        }
+        writeToDisk.run();
+        flushExecutor.unregister(this);
+        syncGroup.remove(this);
+        if (force) {
+            force();
+        }
+        if (fileMapping != null) {
+            fileMapping.close();
+        }
+        try {
+            fileChannel.close();
+            LOGGER.log(Level.FINE, "file closed -> {0}", filePath);
+            return true;
+        } catch (IOException ex) {
+            String message = "Couldn't close the file '" + filePath + "'"
+                    + "\n\t cause -> IO error occurs : " + ex.getMessage();
+            LOGGER.log(Level.WARNING, message);
+            throw new DAOFileWriterException(message, ex);
+        }
+    }
+
     /**
      * Ecrit un identifiant <code>uuidToWrite</code> à la position courante d'un
      * tampon d'octets <code>buffer</code>.
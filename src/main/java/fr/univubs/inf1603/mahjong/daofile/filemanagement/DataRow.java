@@ -2,6 +2,8 @@ package fr.univubs.inf1603.mahjong.daofile.filemanagement;
 
 import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
 import fr.univubs.inf1603.mahjong.engine.persistence.Persistable;
+import java.nio.ByteBuffer;
+import java.util.UUID;
 
 /**
  * Cette classe répresente un tuple de données. Un tuple de données est un tuple
@@ -14,6 +16,12 @@ import fr.univubs.inf1603.mahjong.engine.persistence.Persistable;
  */
 public abstract class DataRow<T extends Persistable> extends AbstractRow<T> {
 
+    /**
+     * Nombre d'octets au début d'un tuple de données qui suffisent à lire
+     * l'identifiant de l'objet encapsulé {@link #readDataID(ByteBuffer)}.
+     */
+    public static final int DATA_ID_PREFIX_SIZE = ROW_HEADER_SIZE + 16;
+
     /**
      * Indique si le tuple a déjà été écrit dans un fichier de données.
      */
@@ -35,6 +43,14 @@ public abstract class DataRow<T extends Persistable> extends AbstractRow<T> {
         this.writedInFile = true;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected DataRow(ByteBuffer buffer, int dataSize, long rowPointer) throws DAOFileException {
+        super(buffer, dataSize, rowPointer);
+        this.writedInFile = true;
+    }
+
     /**
      * Indique si un tuple a déjà été écrit dans un fichier de données.
      *
@@ -48,4 +64,24 @@ public abstract class DataRow<T extends Persistable> extends AbstractRow<T> {
     protected void setWritedInFile(boolean writedInFile) {
         this.writedInFile = writedInFile;
     }
+
+    /**
+     * Lis l'identifiant de l'objet encapsulé dans le tuple de données qui
+     * commence à la position courante du tampon <code>buffer</code>, sans
+     * décoder le reste du tuple. Les données d'un tuple de données commencent
+     * toujours par l'identifiant de l'objet. La position du tampon n'est pas
+     * modifiée.
+     *
+     * @param buffer Tampon d'octets d'au moins {@link #DATA_ID_PREFIX_SIZE}
+     * octets. NE DOIT PAS ETRE NULL.
+     * @return Identifiant de l'objet, ou <code>null</code> si le tuple est
+     * supprimé ou si le tampon est trop court.
+     */
+    public static UUID readDataID(ByteBuffer buffer) {
+        if (buffer.remaining() < DATA_ID_PREFIX_SIZE || isTombstone(buffer)) {
+            return null;
+        }
+        int position = buffer.position() + ROW_HEADER_SIZE;
+        return new UUID(buffer.getLong(position), buffer.getLong(position + 8));
+    }
 }
@@ -0,0 +1,54 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+/**
+ * Enumération des politiques de durabilité des écritures d'un writer
+ * {@link DAOFileWriter}. La politique est partagée par tous les writers d'un
+ * meme répertoire {@link SyncGroup}.
+ *
+ * @author aliyou
+ * @version 1.3
+ */
+public enum DurabilityPolicy {
+
+    /**
+     * Les écritures ne sont jamais forcées sur le disque, elles restent dans
+     * le cache du système d'exploitation jusqu'à ce qu'il les écrive.
+     */
+    NONE,
+    /**
+     * Les fichiers modifiés d'un meme répertoire sont forcés sur le disque une
+     * seule fois par lot d'écriture. Les lots des writers qui se terminent
+     * pendant qu'une synchronisation est en cours sont regroupés dans la
+     * synchronisation suivante.
+     */
+    GROUP,
+    /**
+     * Chaque écriture est forcée sur le disque avant de rendre la main.
+     */
+    ALWAYS;
+
+    /**
+     * Nom de la propriété système qui définit la politique de durabilité par
+     * défaut.
+     */
+    public static final String DURABILITY_POLICY_PROPERTY = "mahjong.daofile.durability";
+
+    /**
+     * Renvoie la politique de durabilité définie par la propriété système
+     * {@link #DURABILITY_POLICY_PROPERTY} ou {@link #NONE} si la propriété
+     * n'est pas définie ou n'est pas valide.
+     *
+     * @return Politique de durabilité par défaut.
+     */
+    static DurabilityPolicy fromSystemProperty() {
+        String value = System.getProperty(DURABILITY_POLICY_PROPERTY);
+        if (value != null) {
+            for (DurabilityPolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(value.trim())) {
+                    return policy;
+                }
+            }
+        }
+        return NONE;
+    }
+}
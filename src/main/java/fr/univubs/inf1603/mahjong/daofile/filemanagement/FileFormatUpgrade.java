@@ -0,0 +1,339 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import static fr.univubs.inf1603.mahjong.daofile.FileDAOUtilities.checkNotNull;
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cette classe convertit à l'ouverture les fichiers écrits dans le format
+ * d'origine (version 1) vers le format {@link FileHeaderRow#FORMAT_VERSION}.
+ * <br>
+ * Dans le format d'origine, l'en-tete du fichier tient dans un seul tuple
+ * sans nombre magique et l'en-tete d'un tuple ne contient que son
+ * identifiant. Les tuples sont contigus : un tuple supprimé est retiré du
+ * fichier.
+ *
+ * <pre>
+ * format d'origine :
+ *   | rowID = 0 | rowNumber | lastRowID |      --{@literal >} en-tete
+ *   | rowID = x |         data          |      --{@literal >} tuple
+ * </pre>
+ *
+ * Le fichier converti est écrit à coté du fichier d'origine, dans un fichier
+ * <code>.upgrade</code>, puis renommé à sa place. Une conversion interrompue
+ * laisse donc le fichier d'origine intact et elle est reprise à l'ouverture
+ * suivante. L'en-tete convertie est écrite dans le premier emplacement
+ * d'en-tete, avec la génération 1. Les tuples gardent leur identifiant et
+ * leur ordre, leur somme de controle est calculée suivant
+ * {@link DAOFileWriter#isDefaultRowChecksum()}.
+ *
+ * @author aliyou
+ * @version 1.3
+ */
+public final class FileFormatUpgrade {
+
+    /**
+     * Logging
+     */
+    private static final Logger LOGGER = Logger.getLogger(FileFormatUpgrade.class.getName());
+
+    /**
+     * Taille de l'en-tete d'un tuple dans le format d'origine : son
+     * identifiant.
+     */
+    static final int BASELINE_ROW_HEADER_SIZE = 4;
+    /**
+     * Taille du tuple d'en-tete d'un fichier dans le format d'origine :
+     * identifiant, nombre de tuples et identifiant du dernier tuple.
+     */
+    static final int BASELINE_FILE_HEADER_ROW_SIZE = BASELINE_ROW_HEADER_SIZE + 4 + 4;
+    /**
+     * Taille d'un lien dans le format d'origine : identifiants de l'enfant et
+     * du parent, sans position.
+     */
+    static final int BASELINE_LINK_SIZE = 16 + 16;
+    /**
+     * Extension du fichier temporaire d'une conversion.
+     */
+    static final String UPGRADE_EXTENSION = ".upgrade";
+    /**
+     * Nombre de tuples convertis par bloc.
+     */
+    private static final int BLOCK_ROW_NUMBER = 1024;
+
+    private FileFormatUpgrade() {
+    }
+
+    /**
+     * Convertit les données d'un tuple du format d'origine vers le format
+     * courant.
+     */
+    @FunctionalInterface
+    interface RowConverter {
+
+        /**
+         * Copie et convertit les données d'un tuple.
+         *
+         * @param rowID Identifiant du tuple.
+         * @param baselineData Données du tuple dans le format d'origine, entre
+         * la position et la limite du tampon.
+         * @param data Tampon dans lequel les données converties sont écrites.
+         * @throws DAOFileException si les données ne peuvent pas etre
+         * converties.
+         */
+        void convert(int rowID, ByteBuffer baselineData, ByteBuffer data) throws DAOFileException;
+    }
+
+    /**
+     * Convertit un fichier de données <code>.data</code> écrit dans le format
+     * d'origine. Les données des tuples sont recopiées telles quelles.
+     *
+     * @param dataFilePath Chemin d'accès du fichier de données. NE DOIT PAS
+     * ETRE NULL.
+     * @param dataRowSize Taille d'un tuple de données dans le format courant.
+     * @return <code>true</code> si le fichier a été converti sinon
+     * <code>false</code>.
+     * @throws DAOFileException s'il y'a une erreur lors de la conversion.
+     */
+    public static boolean upgradeDataFile(Path dataFilePath, int dataRowSize) throws DAOFileException {
+        int dataSize = dataRowSize - AbstractRow.ROW_HEADER_SIZE;
+        return upgrade(dataFilePath, dataSize, dataSize, (rowID, baselineData, data) -> data.put(baselineData));
+    }
+
+    /**
+     * Convertit un fichier d'index <code>.index</code> écrit dans le format
+     * d'origine. Le pointeur de chaque index est recalculé : dans le format
+     * d'origine comme dans le format courant, le tuple de données de rang
+     * <code>k</code> suit l'en-tete et les <code>k</code> tuples précédents.
+     *
+     * @param indexFilePath Chemin d'accès du fichier d'index. NE DOIT PAS
+     * ETRE NULL.
+     * @param dataRowSize Taille d'un tuple de données dans le format courant.
+     * @return <code>true</code> si le fichier a été converti sinon
+     * <code>false</code>.
+     * @throws DAOFileException s'il y'a une erreur lors de la conversion ou si
+     * un index ne pointe pas sur un tuple de données.
+     */
+    static boolean upgradeIndexFile(Path indexFilePath, int dataRowSize) throws DAOFileException {
+        int baselineDataRowSize = dataRowSize - AbstractRow.ROW_HEADER_SIZE + BASELINE_ROW_HEADER_SIZE;
+        return upgrade(indexFilePath, IndexRow.INDEX_SIZE, IndexRow.INDEX_SIZE, (rowID, baselineData, data) -> {
+            long mostSigBits = baselineData.getLong();
+            long leastSigBits = baselineData.getLong();
+            long baselinePointer = baselineData.getLong();
+            long offset = baselinePointer - BASELINE_FILE_HEADER_ROW_SIZE;
+            if (offset < 0 || offset % baselineDataRowSize != 0) {
+                throw new DAOFileException("Index row '" + rowID + "' of '" + indexFilePath
+                        + "' has an invalid data pointer '" + baselinePointer + "'");
+            }
+            data.putLong(mostSigBits);
+            data.putLong(leastSigBits);
+            data.putLong(FileHeaderRow.FILE_HEADER_ROW_SIZE + (offset / baselineDataRowSize) * dataRowSize);
+        });
+    }
+
+    /**
+     * Convertit un fichier de liens <code>.link</code> écrit dans le format
+     * d'origine. Les enfants d'un parent y étaient relus dans l'ordre du
+     * fichier : chaque lien reçoit comme position son rang parmi les liens de
+     * son parent, dans cet ordre, multiplié par {@link LinkManager#POSITION_STEP}. Un enfant détaché {@link LinkManager#NO_PARENT}
+     * a la position 0.
+     *
+     * @param linkFilePath Chemin d'accès du fichier de liens. NE DOIT PAS ETRE
+     * NULL.
+     * @return <code>true</code> si le fichier a été converti sinon
+     * <code>false</code>.
+     * @throws DAOFileException s'il y'a une erreur lors de la conversion.
+     */
+    static boolean upgradeLinkFile(Path linkFilePath) throws DAOFileException {
+        Map<UUID, Integer> childNumbers = new HashMap<>();
+        return upgrade(linkFilePath, BASELINE_LINK_SIZE, LinkRow.LINK_SIZE, (rowID, baselineData, data) -> {
+            int start = baselineData.position();
+            UUID parentID = new UUID(baselineData.getLong(start + 16), baselineData.getLong(start + 24));
+            data.put(baselineData);
+            int rank = LinkManager.NO_PARENT.equals(parentID) ? 0 : childNumbers.merge(parentID, 1, Integer::sum) - 1;
+            data.putInt(rank * LinkManager.POSITION_STEP);
+        });
+    }
+
+    /**
+     * Renvoie la taille d'un tuple dans le format d'origine d'un fichier dont
+     * les tuples font <code>rowSize</code> octets dans le format courant. Seuls
+     * les liens ont changé de taille, les autres tuples n'ont perdu que leur
+     * somme de controle.
+     *
+     * @param filePath Chemin d'accès du fichier.
+     * @param rowSize Taille d'un tuple dans le format courant.
+     * @return Taille d'un tuple dans le format d'origine.
+     */
+    static int getBaselineRowSize(Path filePath, int rowSize) {
+        if (rowSize == LinkRow.LINK_ROW_SIZE && filePath.getFileName().toString().endsWith(".link")) {
+            return BASELINE_ROW_HEADER_SIZE + BASELINE_LINK_SIZE;
+        }
+        return rowSize - AbstractRow.ROW_HEADER_SIZE + BASELINE_ROW_HEADER_SIZE;
+    }
+
+    /**
+     * Renvoie <code>true</code> si le début d'un fichier est celui d'un
+     * fichier écrit dans le format d'origine : le premier tuple est une
+     * en-tete d'identifiant 0 sans nombre magique et la taille du fichier
+     * correspond à un nombre entier de tuples.
+     *
+     * @param head Premiers octets du fichier, au plus
+     * {@link FileHeaderRow#FILE_HEADER_ROW_SIZE}, à partir de la position 0 du
+     * tampon.
+     * @param fileSize Taille du fichier.
+     * @param baselineRowSize Taille d'un tuple dans le format d'origine.
+     * @return <code>true</code> si le fichier est dans le format d'origine
+     * sinon <code>false</code>.
+     */
+    static boolean isBaselineFormat(ByteBuffer head, long fileSize, int baselineRowSize) {
+        if (fileSize < BASELINE_FILE_HEADER_ROW_SIZE || head.limit() < BASELINE_FILE_HEADER_ROW_SIZE || head.getInt(0) != 0) {
+            return false;
+        }
+        for (int slot = 0; slot < FileHeaderRow.HEADER_SLOT_NUMBER; slot++) {
+            int magicPosition = slot * FileHeaderRow.HEADER_SLOT_SIZE + AbstractRow.ROW_HEADER_SIZE;
+            if (head.limit() >= magicPosition + 4 && head.getInt(magicPosition) == FileHeaderRow.MAGIC) {
+                return false;
+            }
+        }
+        return (fileSize - BASELINE_FILE_HEADER_ROW_SIZE) % baselineRowSize == 0;
+    }
+
+    /**
+     * Convertit un fichier écrit dans le format d'origine. Un fichier vide,
+     * absent ou déjà dans le format courant n'est pas modifié.
+     *
+     * @param filePath Chemin d'accès du fichier. NE DOIT PAS ETRE NULL.
+     * @param baselineDataSize Taille des données d'un tuple dans le format
+     * d'origine.
+     * @param dataSize Taille des données d'un tuple dans le format courant.
+     * @param converter Convertisseur des données des tuples. NE DOIT PAS ETRE
+     * NULL.
+     * @return <code>true</code> si le fichier a été converti sinon
+     * <code>false</code>.
+     * @throws DAOFileException s'il y'a une erreur lors de la conversion, le
+     * fichier d'origine n'est alors pas modifié.
+     */
+    static boolean upgrade(Path filePath, int baselineDataSize, int dataSize, RowConverter converter) throws DAOFileException {
+        checkNotNull("FileFormatUpgrade -> filePath", filePath);
+        checkNotNull("FileFormatUpgrade -> converter", converter);
+        if (!Files.isRegularFile(filePath)) {
+            return false;
+        }
+        int baselineRowSize = BASELINE_ROW_HEADER_SIZE + baselineDataSize;
+        int rowSize = AbstractRow.ROW_HEADER_SIZE + dataSize;
+        Path upgradePath = filePath.resolveSibling(filePath.getFileName() + UPGRADE_EXTENSION);
+        try {
+            int rowNumber;
+            try (FileChannel source = FileChannel.open(filePath, StandardOpenOption.READ)) {
+                long fileSize = source.size();
+                ByteBuffer head = ByteBuffer.allocate((int) Math.min(fileSize, FileHeaderRow.FILE_HEADER_ROW_SIZE));
+                readFully(source, head, 0);
+                if (!isBaselineFormat(head, fileSize, baselineRowSize)) {
+                    return false;
+                }
+                rowNumber = (int) ((fileSize - BASELINE_FILE_HEADER_ROW_SIZE) / baselineRowSize);
+                int lastRowID = head.getInt(8);
+                try (FileChannel target = FileChannel.open(upgradePath, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    lastRowID = Math.max(lastRowID, copyRows(filePath, source, target, rowNumber, baselineRowSize, rowSize, converter));
+                    FileHeaderRow fhr = new FileHeaderRow(new FileHeader(rowNumber, lastRowID));
+                    ByteBuffer header = ByteBuffer.allocate(FileHeaderRow.FILE_HEADER_ROW_SIZE);
+                    fhr.write(header, true);
+                    header.clear();
+                    writeFully(target, header, 0);
+                    target.force(true);
+                }
+            }
+            Files.move(upgradePath, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.log(Level.INFO, "{0} upgraded to the format version {1} -> {2} rows",
+                    new Object[]{filePath, FileHeaderRow.FORMAT_VERSION, rowNumber});
+            return true;
+        } catch (IOException | DAOFileException ex) {
+            try {
+                Files.deleteIfExists(upgradePath);
+            } catch (IOException ignored) {
+            }
+            String message = "File '" + filePath + "' couldn't be upgraded to the format version '" + FileHeaderRow.FORMAT_VERSION + "'"
+                    + "\n\t cause -> " + ex.getMessage();
+            LOGGER.log(Level.SEVERE, message);
+            throw new DAOFileException(message, ex);
+        }
+    }
+
+    /**
+     * Recopie bloc par bloc les tuples d'un fichier dans le format d'origine
+     * vers le fichier converti, après la zone d'en-tete.
+     *
+     * @return Plus grand identifiant de tuple lu.
+     * @throws DAOFileException si un tuple n'a pas un identifiant valide ou ne
+     * peut pas etre converti.
+     */
+    private static int copyRows(Path filePath, FileChannel source, FileChannel target, int rowNumber,
+            int baselineRowSize, int rowSize, RowConverter converter) throws IOException, DAOFileException {
+        boolean withChecksum = DAOFileWriter.isDefaultRowChecksum();
+        ByteBuffer in = ByteBuffer.allocate(BLOCK_ROW_NUMBER * baselineRowSize);
+        ByteBuffer out = ByteBuffer.allocate(BLOCK_ROW_NUMBER * rowSize);
+        int maxRowID = 0;
+        for (int first = 0; first < rowNumber; first += BLOCK_ROW_NUMBER) {
+            int blockRowNumber = Math.min(BLOCK_ROW_NUMBER, rowNumber - first);
+            in.clear().limit(blockRowNumber * baselineRowSize);
+            readFully(source, in, BASELINE_FILE_HEADER_ROW_SIZE + (long) first * baselineRowSize);
+            out.clear();
+            for (int i = 0; i < blockRowNumber; i++) {
+                int baselinePosition = i * baselineRowSize;
+                int position = i * rowSize;
+                in.limit(baselinePosition + baselineRowSize).position(baselinePosition + BASELINE_ROW_HEADER_SIZE);
+                int rowID = in.getInt(baselinePosition);
+                if (rowID <= 0) {
+                    throw new DAOFileException("invalid rowID '" + rowID + "' at the position '"
+                            + (BASELINE_FILE_HEADER_ROW_SIZE + (long) (first + i) * baselineRowSize) + "' of '" + filePath + "'");
+                }
+                maxRowID = Math.max(maxRowID, rowID);
+                out.limit(position + rowSize).position(position + AbstractRow.ROW_HEADER_SIZE);
+                converter.convert(rowID, in, out);
+                out.putInt(position, rowID);
+                out.putInt(position + AbstractRow.CHECKSUM_OFFSET, withChecksum
+                        ? AbstractRow.checksum(out, position, rowSize) : AbstractRow.NO_CHECKSUM);
+            }
+            out.limit(blockRowNumber * rowSize).position(0);
+            writeFully(target, out, FileHeaderRow.FILE_HEADER_ROW_SIZE + (long) first * rowSize);
+        }
+        return maxRowID;
+    }
+
+    /**
+     * Lis les octets d'un fichier à partir de la position
+     * <code>position</code> jusqu'à remplir le tampon d'octets.
+     */
+    private static void readFully(FileChannel fileChannel, ByteBuffer buffer, long position) throws IOException {
+        int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            if (fileChannel.read(buffer, position + buffer.position() - start) < 0) {
+                throw new IOException("end of file reached at the position " + (position + buffer.position() - start));
+            }
+        }
+    }
+
+    /**
+     * Ecrit tous les octets restants d'un tampon à partir de la position
+     * <code>position</code> du fichier.
+     */
+    private static void writeFully(FileChannel fileChannel, ByteBuffer buffer, long position) throws IOException {
+        int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            fileChannel.write(buffer, position + buffer.position() - start);
+        }
+    }
+}
@@ -4,6 +4,7 @@ package fr.univubs.inf1603.mahjong.daofile.filemanagement;
 import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
 import fr.univubs.inf1603.mahjong.engine.persistence.MahjongObservable;
 import java.beans.PropertyChangeSupport;
+import java.util.TreeSet;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -11,6 +12,28 @@ import java.util.logging.Logger;
  * Cette classe répresente une en-tete de fichier. Elle est composée du nombre
  * total de tuples dans un fichier et le prochain identifiant de tuple d'un
  * fichier.
+ * <br>
+ * L'en-tete garde également la liste des emplacements libres du fichier
+ * (tuples marqués comme supprimés dont l'emplacement n'a pas encore été
+ * réutilisé ou récupéré). Les nouveaux tuples sont écrits en priorité dans ces
+ * emplacements {@link #pollFreeSlot()}. Seuls le premier emplacement libre
+ * {@link #getFirstFreeSlot()} et le nombre d'emplacements libres sont écrits
+ * dans l'en-tete : un fichier de données chaine ses tuples supprimés
+ * {@link AbstractRow#TOMBSTONE_ROW_ID} dans l'ordre croissant des pointeurs et
+ * retrouve ses emplacements libres en suivant la chaine, les autres fichiers
+ * les retrouvent en parcourant leurs tuples. Cette liste permet
+ * de connaitre le taux de fragmentation d'un fichier
+ * {@link #getFragmentation()} et de déclencher son compactage lorsque ce taux
+ * dépasse le seuil {@link #getFragmentationThreshold()}.
+ * <br>
+ * Un fichier d'index en mode {@link IndexMode#LAZY} commence par une suite de
+ * tuples triés suivant l'identifiant de l'objet indexé. L'en-tete garde le
+ * nombre de tuples de cette suite {@link #getSortedRowNumber()}, il est nul
+ * pour les autres fichiers.
+ * <br>
+ * Les modifications sont notifiées en dehors du verrou de l'en-tete : un
+ * écouteur (le writer du fichier) peut tenir son propre verrou en lisant
+ * l'en-tete.
  * 
  * @author aliyou
  * @version 1.3
@@ -18,7 +41,26 @@ import java.util.logging.Logger;
 public class FileHeader implements MahjongObservable {
 
     public static final String ROW_NUMBER_PROPERTY = "rowNumber",
-                               LAST_ROW_ID_PROPERTY = "lastRowID";
+                               LAST_ROW_ID_PROPERTY = "lastRowID",
+                               TOMBSTONE_NUMBER_PROPERTY = "tombstoneNumber",
+                               SORTED_ROW_NUMBER_PROPERTY = "sortedRowNumber";
+
+    /**
+     * Seuil de fragmentation par défaut à partir duquel un fichier est
+     * compacté.
+     */
+    public static final double DEFAULT_FRAGMENTATION_THRESHOLD = 0.25;
+
+    /**
+     * Valeur renvoyée par {@link #pollFreeSlot()} lorsqu'il n'y a pas
+     * d'emplacement libre.
+     */
+    public static final long NO_FREE_SLOT = -1;
+
+    /**
+     * Seuil de fragmentation à partir duquel un fichier est compacté.
+     */
+    private static volatile double fragmentationThreshold = DEFAULT_FRAGMENTATION_THRESHOLD;
     
     /**
      * Logging
@@ -38,6 +80,15 @@ public class FileHeader implements MahjongObservable {
      * Identifiant du dernier tuple d'un fichier
      */
     private int lastRowID;
+    /**
+     * Nombre de tuples triés au début du fichier.
+     */
+    private int sortedRowNumber;
+    /**
+     * Pointeurs des emplacements libres (tuples supprimés dont l'emplacement
+     * n'a pas encore été réutilisé ou récupéré), triés par ordre croissant.
+     */
+    private final TreeSet<Long> freeSlots;
 
     /**
      * Constructeur avec le nombre total de tuples <code>rowNumber</code> et un
@@ -47,11 +98,46 @@ public class FileHeader implements MahjongObservable {
      * @param lastRowID Identifiant du dernier tuple d'un fichier.
      */
     public FileHeader(int rowNumber, int lastRowID) {
+        this(rowNumber, lastRowID, 0);
+    }
+
+    /**
+     * Constructeur avec le nombre total de tuples <code>rowNumber</code>, un
+     * identifiant du dernier tuple <code>lastRowID</code> et le nombre de
+     * tuples triés au début du fichier <code>sortedRowNumber</code>.
+     *
+     * @param rowNumber Nombre total de tuples dans un fichier.
+     * @param lastRowID Identifiant du dernier tuple d'un fichier.
+     * @param sortedRowNumber Nombre de tuples triés au début du fichier.
+     */
+    public FileHeader(int rowNumber, int lastRowID, int sortedRowNumber) {
         this.rowNumber = rowNumber;
         this.lastRowID = lastRowID;
+        this.sortedRowNumber = sortedRowNumber;
+        this.freeSlots = new TreeSet<>();
         this.pcs = new PropertyChangeSupport(this);
     }
 
+    /**
+     * @return Seuil de fragmentation à partir duquel un fichier est compacté.
+     */
+    public static double getFragmentationThreshold() {
+        return fragmentationThreshold;
+    }
+
+    /**
+     * Modifie le seuil de fragmentation à partir duquel un fichier est
+     * compacté.
+     *
+     * @param threshold Nouveau seuil. DOIT ETRE COMPRIS ENTRE 0 ET 1.
+     */
+    public static void setFragmentationThreshold(double threshold) {
+        if (threshold < 0 || threshold > 1) {
+            throw new IllegalArgumentException("FileHeader.setFragmentationThreshold -> threshold '" + threshold + "' must be between 0 and 1.");
+        }
+        fragmentationThreshold = threshold;
+    }
+
     /**
      * @return Nombre total de tuples dans un fichier.
      */
@@ -66,21 +152,21 @@ public class FileHeader implements MahjongObservable {
      * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
      * si la nouvelle valeur du nombre total de tuples dans un fichier est négative.
      */
-    synchronized public void setRowNumber(int rowNumber) throws DAOFileException {
+    public void setRowNumber(int rowNumber) throws DAOFileException {
         if(rowNumber < 0) {
             String message = "rowNumber didin't chnged."
                     + "\n\t cause -> newRowNumber '"+rowNumber+"' is less than 0.";
             throw new DAOFileException(message);
         }
-        if (this.rowNumber != rowNumber) {
-            int oldValue = this.rowNumber;
-            int newValue = rowNumber;
+        int oldValue;
+        synchronized (this) {
+            oldValue = this.rowNumber;
             this.rowNumber = rowNumber;
             if (rowNumber == 0) {
                 lastRowID = 0;
             }
-            this.pcs.firePropertyChange(ROW_NUMBER_PROPERTY, oldValue, newValue);
         }
+        this.pcs.firePropertyChange(ROW_NUMBER_PROPERTY, oldValue, rowNumber);
     }
     
     /**
@@ -90,48 +176,241 @@ public class FileHeader implements MahjongObservable {
         return this.lastRowID;
     }
     
-    synchronized private void setLastRowID(int lastRowID) {
-        if(this.lastRowID != lastRowID) {
-            int oldValue = this.lastRowID;
-            int newValue = lastRowID;
-            this.lastRowID = lastRowID;
-            this.pcs.firePropertyChange(LAST_ROW_ID_PROPERTY, oldValue, newValue);
+    
+    /**
+     * @return Nombre de tuples triés au début du fichier.
+     */
+    synchronized public int getSortedRowNumber() {
+        return this.sortedRowNumber;
+    }
+
+    /**
+     * Modifie le nombre de tuples triés au début du fichier.
+     *
+     * @param sortedRowNumber Nouvelle valeur. DOIT ETRE POSITIVE.
+     */
+    public void setSortedRowNumber(int sortedRowNumber) {
+        if (sortedRowNumber < 0) {
+            throw new IllegalArgumentException("FileHeader.setSortedRowNumber -> sortedRowNumber '" + sortedRowNumber + "' must be positive or zero.");
         }
+        int oldValue;
+        synchronized (this) {
+            oldValue = this.sortedRowNumber;
+            this.sortedRowNumber = sortedRowNumber;
+        }
+        this.pcs.firePropertyChange(SORTED_ROW_NUMBER_PROPERTY, oldValue, sortedRowNumber);
     }
-    
+
     /**
      * Renvoie le prochain identifiant de tuple.
      * Incremente la valeur de l'identifiant du dernier tuple d'un fichier {@code lastRowID}.
      *
      * @return Prochain identifiant de tuple.
      */
-    synchronized public int getNextRowID() {
-        setLastRowID(getLastRowID() + 1);
-        return getLastRowID();
+    public int getNextRowID() {
+        int nextRowID;
+        synchronized (this) {
+            nextRowID = ++this.lastRowID;
+        }
+        this.pcs.firePropertyChange(LAST_ROW_ID_PROPERTY, nextRowID - 1, nextRowID);
+        return nextRowID;
     }
 
     /**
      * Incrémente la valeur du nombre total de tuple dans le fichier
      */
-    synchronized public void incrementRowNumber() {
-        try {
-            setRowNumber(getRowNumber() + 1);
-        } catch (DAOFileException ex) { // should never come.
-            LOGGER.log(Level.WARNING, ex.getMessage());
+    public void incrementRowNumber() {
+        int newValue;
+        synchronized (this) {
+            newValue = ++this.rowNumber;
         }
+        this.pcs.firePropertyChange(ROW_NUMBER_PROPERTY, newValue - 1, newValue);
     }
 
     /**
      * Décrémente la valeur du nombre total de tuple dans le fichier
      */
-    synchronized public void decrementRowNumber() {
-        if(getRowNumber() > 0) {
-            try {
-                setRowNumber(getRowNumber() - 1);
-            } catch (DAOFileException ex) { // should never come.
-                LOGGER.log(Level.WARNING, ex.getMessage());
+    public void decrementRowNumber() {
+        int newValue;
+        synchronized (this) {
+            if (this.rowNumber == 0) {
+                return;
+            }
+            newValue = --this.rowNumber;
+            if (newValue == 0) {
+                lastRowID = 0;
+            }
+        }
+        this.pcs.firePropertyChange(ROW_NUMBER_PROPERTY, newValue + 1, newValue);
+    }
+
+    /**
+     * @return Nombre de tuples supprimés dont l'emplacement n'a pas encore été
+     * récupéré.
+     */
+    synchronized public int getTombstoneNumber() {
+        return this.freeSlots.size();
+    }
+
+    /**
+     * Ajoute un emplacement libre à la liste des emplacements libres.
+     *
+     * @param rowPointer Pointeur de l'emplacement libéré. DOIT ETRE SUPERIEUR
+     * OU EGAL A LA TAILLE DE L'EN-TETE.
+     * @return <code>true</code> si l'emplacement a été ajouté sinon
+     * <code>false</code>.
+     */
+    public boolean addFreeSlot(long rowPointer) {
+        if (rowPointer < FileHeaderRow.FILE_HEADER_ROW_SIZE) {
+            LOGGER.log(Level.WARNING, "free slot not added -> rowPointer '{0}' is less than the header size.", rowPointer);
+            return false;
+        }
+        int newValue;
+        synchronized (this) {
+            if (!this.freeSlots.add(rowPointer)) {
+                return false;
+            }
+            newValue = this.freeSlots.size();
+        }
+        this.pcs.firePropertyChange(TOMBSTONE_NUMBER_PROPERTY, newValue - 1, newValue);
+        return true;
+    }
+
+    /**
+     * Ajoute un emplacement libre retrouvé au chargement du fichier. Aucune
+     * notification n'est envoyée : l'emplacement était déjà libre dans le
+     * fichier, l'en-tete n'a pas à etre réécrite.
+     *
+     * @param rowPointer Pointeur de l'emplacement libre. DOIT ETRE SUPERIEUR
+     * OU EGAL A LA TAILLE DE L'EN-TETE.
+     * @return <code>true</code> si l'emplacement a été ajouté sinon
+     * <code>false</code>.
+     */
+    synchronized public boolean loadFreeSlot(long rowPointer) {
+        if (rowPointer < FileHeaderRow.FILE_HEADER_ROW_SIZE) {
+            LOGGER.log(Level.WARNING, "free slot not loaded -> rowPointer '{0}' is less than the header size.", rowPointer);
+            return false;
+        }
+        return this.freeSlots.add(rowPointer);
+    }
+
+    /**
+     * Retire un emplacement de la liste des emplacements libres.
+     *
+     * @param rowPointer Pointeur de l'emplacement à retirer.
+     * @return <code>true</code> si l'emplacement était libre sinon
+     * <code>false</code>.
+     */
+    public boolean removeFreeSlot(long rowPointer) {
+        int newValue;
+        synchronized (this) {
+            if (!this.freeSlots.remove(rowPointer)) {
+                return false;
             }
+            newValue = this.freeSlots.size();
         }
+        this.pcs.firePropertyChange(TOMBSTONE_NUMBER_PROPERTY, newValue + 1, newValue);
+        return true;
+    }
+
+    /**
+     * Retire et renvoie le premier emplacement libre du fichier (celui dont le
+     * pointeur est le plus petit).
+     *
+     * @return Pointeur du premier emplacement libre ou {@link #NO_FREE_SLOT}
+     * s'il n'y a pas d'emplacement libre.
+     */
+    public long pollFreeSlot() {
+        long rowPointer;
+        int newValue;
+        synchronized (this) {
+            if (this.freeSlots.isEmpty()) {
+                return NO_FREE_SLOT;
+            }
+            rowPointer = this.freeSlots.pollFirst();
+            newValue = this.freeSlots.size();
+        }
+        this.pcs.firePropertyChange(TOMBSTONE_NUMBER_PROPERTY, newValue + 1, newValue);
+        return rowPointer;
+    }
+
+    /**
+     * @return Pointeur du premier emplacement libre du fichier ou
+     * {@link #NO_FREE_SLOT} s'il n'y a pas d'emplacement libre.
+     */
+    synchronized public long getFirstFreeSlot() {
+        return this.freeSlots.isEmpty() ? NO_FREE_SLOT : this.freeSlots.first();
+    }
+
+    /**
+     * Renvoie le premier emplacement libre situé après l'emplacement
+     * {@code rowPointer}.
+     *
+     * @param rowPointer Pointeur d'un emplacement.
+     * @return Pointeur de l'emplacement libre suivant ou {@link #NO_FREE_SLOT}
+     * s'il n'y en a pas.
+     */
+    synchronized public long getNextFreeSlot(long rowPointer) {
+        Long nextSlot = this.freeSlots.higher(rowPointer);
+        return nextSlot != null ? nextSlot : NO_FREE_SLOT;
+    }
+
+    /**
+     * Renvoie le dernier emplacement libre situé avant l'emplacement
+     * {@code rowPointer}.
+     *
+     * @param rowPointer Pointeur d'un emplacement.
+     * @return Pointeur de l'emplacement libre précédent ou
+     * {@link #NO_FREE_SLOT} s'il n'y en a pas.
+     */
+    synchronized public long getPreviousFreeSlot(long rowPointer) {
+        Long previousSlot = this.freeSlots.lower(rowPointer);
+        return previousSlot != null ? previousSlot : NO_FREE_SLOT;
+    }
+
+    /**
+     * Renvoie <code>true</code> si l'emplacement {@code rowPointer} est libre
+     * sinon <code>false</code>.
+     *
+     * @param rowPointer Pointeur d'un emplacement.
+     * @return <code>true</code> si l'emplacement est libre sinon
+     * <code>false</code>.
+     */
+    synchronized public boolean isFreeSlot(long rowPointer) {
+        return this.freeSlots.contains(rowPointer);
+    }
+
+    /**
+     * Renvoie le nombre d'emplacements de tuple d'un fichier. Correspond au
+     * nombre de tuples plus le nombre de tuples supprimés.
+     *
+     * @return Nombre d'emplacements de tuple d'un fichier.
+     */
+    synchronized public int getSlotNumber() {
+        return this.rowNumber + this.freeSlots.size();
+    }
+
+    /**
+     * Renvoie le taux de fragmentation d'un fichier. Correspond à la part des
+     * emplacements occupés par des tuples supprimés.
+     *
+     * @return Taux de fragmentation compris entre 0 et 1.
+     */
+    synchronized public double getFragmentation() {
+        int slotNumber = getSlotNumber();
+        return slotNumber == 0 ? 0 : (double) this.freeSlots.size() / slotNumber;
+    }
+
+    /**
+     * Renvoie <code>true</code> si le taux de fragmentation du fichier atteint
+     * le seuil de compactage {@link #getFragmentationThreshold()} sinon
+     * <code>false</code>.
+     *
+     * @return <code>true</code> si le fichier doit etre compacté sinon
+     * <code>false</code>.
+     */
+    synchronized public boolean isFragmented() {
+        return !this.freeSlots.isEmpty() && getFragmentation() >= fragmentationThreshold;
     }
 
     /**
@@ -149,7 +428,7 @@ public class FileHeader implements MahjongObservable {
      */
     @Override
     public String toString() {
-        return "FileHeader {" + "rowNumber=" + rowNumber + ", lastRowID=" + lastRowID + '}';
+        return "FileHeader {" + "rowNumber=" + rowNumber + ", lastRowID=" + lastRowID + ", sortedRowNumber=" + sortedRowNumber + ", freeSlots=" + freeSlots.size() + '}';
     }
 
     @Override
@@ -157,6 +436,7 @@ public class FileHeader implements MahjongObservable {
         int hash = 7;
         hash = 79 * hash + this.rowNumber;
         hash = 79 * hash + this.lastRowID;
+        hash = 79 * hash + this.sortedRowNumber;
         return hash;
     }
 
@@ -175,6 +455,9 @@ public class FileHeader implements MahjongObservable {
         if (this.rowNumber != other.rowNumber) {
             return false;
         }
-        return this.lastRowID == other.lastRowID;
+        if (this.lastRowID != other.lastRowID) {
+            return false;
+        }
+        return this.sortedRowNumber == other.sortedRowNumber;
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package fr.univubs.inf1603.mahjong.daofile.filemanagement;
 
 import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException;
 import java.beans.PropertyChangeEvent;
 import java.nio.ByteBuffer;
 import java.util.logging.Level;
@@ -8,6 +9,34 @@ import java.util.logging.Logger;
 
 /**
  * Cette classe répresente un conteneur qui encapsule une en-tete de fichier.
+ * <br>
+ * L'en-tete n'est jamais réécrite sur place : la zone d'en-tete du fichier
+ * contient deux emplacements {@link #HEADER_SLOT_SIZE} utilisés en
+ * alternance. Chaque écriture porte un numéro de génération croissant et la
+ * somme de controle du tuple, toujours calculée pour l'en-tete
+ * {@link #isChecksumRequired()}. A l'ouverture, l'en-tete valide de
+ * plus grande génération est chargée {@link #load(DAOFileWriter)}. Une
+ * écriture interrompue ne peut donc corrompre que l'emplacement en cours
+ * d'écriture, l'autre contient toujours l'en-tete précédente.
+ * <br>
+ * Chaque emplacement commence par un nombre magique {@link #MAGIC} et la
+ * version du format des fichiers {@link #FORMAT_VERSION}. Un fichier écrit
+ * dans le format d'origine est converti avant son ouverture
+ * {@link FileFormatUpgrade}, un fichier écrit dans un format inconnu est
+ * refusé avec une erreur explicite au lieu d'etre relu de travers puis
+ * écrasé.
+ * <br>
+ * L'en-tete garde aussi le nombre d'emplacements libres du fichier et le
+ * pointeur du premier d'entre eux. Les valeurs lues au chargement
+ * {@link #getLoadedFreeSlotNumber()} {@link #getLoadedFirstFreeSlot()}
+ * permettent au fichier de données de retrouver ses emplacements libres sans
+ * parcourir ses index.
+ *
+ * <pre>
+ * format de la zone d'en-tete :
+ *   | rowID = 0 | checksum | magic | version | generation | rowNumber | lastRowID | sortedRowNumber | freeSlotNumber | firstFreeSlot |   --{@literal >} emplacement 0
+ *   | rowID = 0 | checksum | magic | version | generation | rowNumber | lastRowID | sortedRowNumber | freeSlotNumber | firstFreeSlot |   --{@literal >} emplacement 1
+ * </pre>
  *
  * @author aliyou
  * @version 1.3
@@ -20,42 +49,207 @@ public class FileHeaderRow extends AbstractRow<FileHeader> {
     private static final Logger LOGGER = Logger.getLogger(FileHeaderRow.class.getName());
 
     /**
-     * Taille d'une en-tete de fichier en octet
+     * Nombre magique d'une en-tete de fichier ("MJDF").
+     */
+    public static final int MAGIC = 0x4D4A4446;
+    /**
+     * Version du format des fichiers. La version 1 est le format d'origine,
+     * sans emplacements d'en-tete ni somme de controle des tuples : ses
+     * fichiers sont convertis à l'ouverture par {@link FileFormatUpgrade}.
+     */
+    public static final int FORMAT_VERSION = 2;
+    /**
+     * Taille d'une en-tete de fichier en octet : nombre magique, version du
+     * format, génération, nombre de tuples, identifiant du dernier tuple,
+     * nombre de tuples triés, nombre d'emplacements libres et pointeur du
+     * premier emplacement libre.
+     */
+    private static final int FILE_HEADER_SIZE = 4 + 4 + 8 + 4 + 4 + 4 + 4 + 8;
+    /**
+     * Taille d'un emplacement d'en-tete, c'est la taille du tuple d'en-tete.
+     */
+    public static final int HEADER_SLOT_SIZE = ROW_HEADER_SIZE + FILE_HEADER_SIZE;
+    /**
+     * Nombre d'emplacements d'en-tete.
+     */
+    public static final int HEADER_SLOT_NUMBER = 2;
+    /**
+     * Taille de la zone d'en-tete d'un fichier. Les tuples du fichier
+     * commencent après cette zone.
      */
-    private static final int FILE_HEADER_SIZE = 8;
+    public static final int FILE_HEADER_ROW_SIZE = HEADER_SLOT_NUMBER * HEADER_SLOT_SIZE;
 
     /**
-     * Taille d'un tuple d'en-tete de fichier
+     * Génération de l'en-tete. Elle est incrémentée à chaque nouvelle
+     * écriture et détermine l'emplacement utilisé.
+     * <br>
+     * Pas de valeur initiale : le champ est renseigné par
+     * {@link #readData(ByteBuffer)} pendant la construction.
+     */
+    private long generation;
+    /**
+     * Nombre d'emplacements libres lu dans l'emplacement d'en-tete.
+     */
+    private int loadedFreeSlotNumber;
+    /**
+     * Pointeur du premier emplacement libre lu dans l'emplacement d'en-tete.
      */
-    public static final int FILE_HEADER_ROW_SIZE = ROW_HEADER_SIZE + FILE_HEADER_SIZE;
+    private long loadedFirstFreeSlot;
 
     /**
      * Constructeur avec une en-tete de fichier {@code FileHeader}.
      * L'identifiant d'un tuple encapsulant une en-tete est toujours égal à 0.
+     * La nouvelle en-tete est de génération 1 et est écrite dans le premier
+     * emplacement.
      *
      * @param data En-tete d'un fichier.
-     * @throws DAOFileException s'il y'a une erruer lors de la lecture de
-     * l'en-tete.
      */
     FileHeaderRow(FileHeader data) {
-        super(0, data, FILE_HEADER_SIZE, 0);
+        super(0, data, FILE_HEADER_SIZE, getSlotPointer(1));
+        this.generation = 1;
+        this.loadedFreeSlotNumber = 0;
+        this.loadedFirstFreeSlot = FileHeader.NO_FREE_SLOT;
     }
 
     /**
-     * Constructeur avec un processus qui éffectue des opérations
-     * d'entrée/sortie sur un fichier <code>writer</code>.
+     * Constructeur avec un tampon d'octets <code>buffer</code> et le pointeur
+     * d'un emplacement d'en-tete <code>rowPointer</code>.
+     *
+     * @param buffer Tampon d'octets contenant l'emplacement.
+     * @param rowPointer Pointeur de l'emplacement.
+     * @throws DAOFileException si l'emplacement ne contient pas une en-tete
+     * valide.
+     */
+    private FileHeaderRow(ByteBuffer buffer, long rowPointer) throws DAOFileException {
+        super(buffer, FILE_HEADER_SIZE, rowPointer);
+        if (geRowID() != 0) {
+            throw new DAOFileException("FileHeader slot at '" + rowPointer + "' has an invalid rowID '" + geRowID() + "'");
+        }
+    }
+
+    /**
+     * Charge l'en-tete d'un fichier. Les deux emplacements d'en-tete sont lus
+     * et l'en-tete valide de plus grande génération est renvoyée.
      *
      * @param writer Processus qui éffectue des opérations d'entrée/sortie sur
-     * un fichier
-     * @throws DAOFileException s'il y'a une erruer lors de la lecture de
-     * l'en-tete.
+     * un fichier. NE DOIT PAS ETRE NULL.
+     * @return Tuple d'en-tete le plus récent ou <code>null</code> si aucun
+     * emplacement ne contient une en-tete valide.
+     * @throws DAOFileException si le fichier a été écrit dans un autre format
+     * que {@link #FORMAT_VERSION}.
+     */
+    static FileHeaderRow load(DAOFileWriter writer) throws DAOFileException {
+        ByteBuffer buffer;
+        try {
+            buffer = writer.read(0, FILE_HEADER_ROW_SIZE);
+        } catch (DAOFileWriterException ex) {
+            throw new DAOFileException(ex.getMessage(), ex);
+        }
+        if (buffer == null) {
+            return null; // fichier vide
+        }
+        FileHeaderRow newestRow = null;
+        String formatError = null;
+        try {
+            int start = buffer.position();
+            for (int slot = 0; slot < HEADER_SLOT_NUMBER; slot++) {
+                int slotPosition = start + slot * HEADER_SLOT_SIZE;
+                if (buffer.limit() - slotPosition < HEADER_SLOT_SIZE || isBlank(buffer, slotPosition, HEADER_SLOT_SIZE)) {
+                    continue; // emplacement jamais écrit
+                }
+                int magic = buffer.getInt(slotPosition + ROW_HEADER_SIZE);
+                int version = buffer.getInt(slotPosition + ROW_HEADER_SIZE + 4);
+                if (magic != MAGIC) {
+                    formatError = "no FileHeader magic number, the file was written in a previous format";
+                    continue;
+                }
+                if (version != FORMAT_VERSION) {
+                    formatError = "unsupported format version '" + version + "', expected '" + FORMAT_VERSION + "'";
+                    continue;
+                }
+                buffer.position(slotPosition);
+                try {
+                    FileHeaderRow row = new FileHeaderRow(buffer, slot * HEADER_SLOT_SIZE);
+                    if (newestRow == null || row.generation > newestRow.generation) {
+                        newestRow = row;
+                    }
+                } catch (DAOFileException ex) {
+                    LOGGER.log(Level.WARNING, "invalid FileHeader slot {0} -> {1}", new Object[]{slot, ex.getMessage()});
+                }
+            }
+        } finally {
+            writer.release(buffer);
+        }
+        if (newestRow == null && formatError != null) {
+            String message = "FileHeader couldn't be loaded from the file '" + writer.getFilePath() + "'"
+                    + "\n\t cause -> " + formatError;
+            LOGGER.log(Level.SEVERE, message);
+            throw new DAOFileException(message);
+        }
+        return newestRow;
+    }
+
+    /**
+     * Renvoie <code>true</code> si une suite d'octets d'un tampon ne contient
+     * que des zéros.
      */
-    FileHeaderRow(DAOFileWriter writer) throws DAOFileException {
-        super(writer, FILE_HEADER_SIZE, 0);
+    private static boolean isBlank(ByteBuffer buffer, int position, int lenght) {
+        for (int i = position; i < position + lenght; i++) {
+            if (buffer.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Renvoie le pointeur de l'emplacement d'en-tete d'une génération.
+     *
+     * @param generation Génération d'une en-tete. DOIT ETRE SUPERIEUR A 0.
+     * @return Pointeur de l'emplacement.
+     */
+    static long getSlotPointer(long generation) {
+        return ((generation - 1) % HEADER_SLOT_NUMBER) * HEADER_SLOT_SIZE;
+    }
+
+    /**
+     * @return Génération de l'en-tete.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return Nombre d'emplacements libres du fichier lu au chargement de
+     * l'en-tete, 0 pour une nouvelle en-tete.
+     */
+    public int getLoadedFreeSlotNumber() {
+        return loadedFreeSlotNumber;
+    }
+
+    /**
+     * @return Pointeur du premier emplacement libre du fichier lu au
+     * chargement de l'en-tete ou {@link FileHeader#NO_FREE_SLOT}.
+     */
+    public long getLoadedFirstFreeSlot() {
+        return loadedFirstFreeSlot;
+    }
+
+    /**
+     * L'en-tete est toujours écrite et lue avec sa somme de controle, c'est
+     * elle qui permet d'écarter un emplacement écrit à moitié.
+     *
+     * @return <code>true</code>
+     */
+    @Override
+    protected boolean isChecksumRequired() {
+        return true;
     }
 
     /**
      * Change l'état d'un tuple lorsque l'état de l'objet encapsulé change.
+     * Si la dernière version de l'en-tete a déjà été écrite, la modification
+     * donne une nouvelle génération écrite dans l'autre emplacement.
      *
      * @param evt Evenement
      */
@@ -63,7 +257,13 @@ public class FileHeaderRow extends AbstractRow<FileHeader> {
     public void propertyChange(PropertyChangeEvent evt) {
         String propertyName = evt.getPropertyName();
         if (propertyName.equals(FileHeader.ROW_NUMBER_PROPERTY)
-                || propertyName.equals(FileHeader.LAST_ROW_ID_PROPERTY)) {
+                || propertyName.equals(FileHeader.LAST_ROW_ID_PROPERTY)
+                || propertyName.equals(FileHeader.SORTED_ROW_NUMBER_PROPERTY)
+                || propertyName.equals(FileHeader.TOMBSTONE_NUMBER_PROPERTY)) {
+            if (!isDirty()) {
+                generation++;
+                setRowPointer(getSlotPointer(generation), false);
+            }
             setDirty(false);
             setDirty(true);
         }
@@ -78,19 +278,43 @@ public class FileHeaderRow extends AbstractRow<FileHeader> {
      * @return Tuple d'en-tete de fichier <code>FileHeader</code> lu.
      * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException si
      * le nombre d'octets restant dans le tampon d'octets est inférieur à la
-     * taille de l'en-tete de fichier.
+     * taille de l'en-tete de fichier ou si la génération n'est pas valide.
      */
     @Override
     protected FileHeader readData(ByteBuffer buffer) throws DAOFileException {
-        if (buffer.remaining() < FILE_HEADER_SIZE - 1) {
+        if (buffer.remaining() < FILE_HEADER_SIZE) {
             String message = "FileHader can't be read from the buffer '" + buffer + "'"
                     + "\n\t cause -> remaining bytes '" + buffer.remaining() + "' is less than FileHeader size '" + FILE_HEADER_SIZE + "'";
             LOGGER.log(Level.SEVERE, message);
             throw new DAOFileException(message);
         }
+        int magic = buffer.getInt();
+        int version = buffer.getInt();
+        if (magic != MAGIC || version != FORMAT_VERSION) {
+            String message = "FileHeader can't be read from the buffer '" + buffer + "'"
+                    + "\n\t cause -> unsupported format (magic '" + Integer.toHexString(magic) + "', version '" + version + "')";
+            throw new DAOFileException(message);
+        }
+        long rowGeneration = buffer.getLong();
         int rowNumber = buffer.getInt();
         int rowLastID = buffer.getInt();
-        FileHeader data = new FileHeader(rowNumber, rowLastID);
+        int sortedRowNumber = buffer.getInt();
+        int freeSlotNumber = buffer.getInt();
+        long firstFreeSlot = buffer.getLong();
+        if (rowGeneration <= 0) {
+            String message = "FileHeader can't be read from the buffer '" + buffer + "'"
+                    + "\n\t cause -> invalid generation '" + rowGeneration + "'";
+            throw new DAOFileException(message);
+        }
+        if (freeSlotNumber < 0 || (freeSlotNumber == 0) != (firstFreeSlot == FileHeader.NO_FREE_SLOT)) {
+            String message = "FileHeader can't be read from the buffer '" + buffer + "'"
+                    + "\n\t cause -> invalid free slots (number '" + freeSlotNumber + "', first '" + firstFreeSlot + "')";
+            throw new DAOFileException(message);
+        }
+        this.generation = rowGeneration;
+        this.loadedFreeSlotNumber = freeSlotNumber;
+        this.loadedFirstFreeSlot = firstFreeSlot;
+        FileHeader data = new FileHeader(rowNumber, rowLastID, sortedRowNumber);
         return data;
     }
 
@@ -111,8 +335,14 @@ public class FileHeaderRow extends AbstractRow<FileHeader> {
             throw new DAOFileException(message);
         }
         int startPosition = buffer.position();
+        buffer.putInt(MAGIC);
+        buffer.putInt(FORMAT_VERSION);
+        buffer.putLong(generation);
         buffer.putInt(getData().getRowNumber());
         buffer.putInt(getData().getLastRowID());
+        buffer.putInt(getData().getSortedRowNumber());
+        buffer.putInt(getData().getTombstoneNumber());
+        buffer.putLong(getData().getFirstFreeSlot());
         return buffer.position() - startPosition;
     }
 }
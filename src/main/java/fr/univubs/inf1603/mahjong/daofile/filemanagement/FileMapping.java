@@ -0,0 +1,171 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Cette classe répresente la projection en mémoire d'un fichier. Le fichier
+ * est découpé en régions de taille fixe, chacune projetée par un
+ * <code>MappedByteBuffer</code> en lecture seule. Seule la dernière région est
+ * projetée à nouveau lorsque le fichier grandit.
+ * <br>
+ * Les lectures copient les octets de la projection dans le tampon de
+ * l'appelant : aucun appel système n'est fait, et aucune vue sur la projection
+ * ne survit à une troncature du fichier.
+ *
+ * @author aliyou
+ * @version 1.3
+ */
+class FileMapping {
+
+    /**
+     * Canal du fichier projeté.
+     */
+    private final FileChannel fileChannel;
+    /**
+     * Taille d'une région en octets.
+     */
+    private final int regionSize;
+    /**
+     * Régions projetées en mémoire.
+     */
+    private MappedByteBuffer[] regions;
+    /**
+     * Nombre d'octets du fichier couverts par la projection.
+     */
+    private volatile long mappedSize;
+    /**
+     * Protège les régions pendant une nouvelle projection ou une troncature du
+     * fichier. Les lectures se font en parallèle.
+     */
+    private final ReentrantReadWriteLock lock;
+
+    /**
+     * Constructeur avec le canal d'un fichier <code>fileChannel</code> et la
+     * taille d'une région <code>regionSize</code>. Le fichier est projeté
+     * entièrement.
+     *
+     * @param fileChannel Canal du fichier à projeter. NE DOIT PAS ETRE NULL.
+     * @param regionSize Taille d'une région. DOIT ETRE SUPERIEUR A 0.
+     * @throws IOException s'il y'a une erreur lors de la projection.
+     */
+    FileMapping(FileChannel fileChannel, int regionSize) throws IOException {
+        if (regionSize <= 0) {
+            throw new IllegalArgumentException("FileMapping -> regionSize '" + regionSize + "' must be greater than 0.");
+        }
+        this.fileChannel = fileChannel;
+        this.regionSize = regionSize;
+        this.regions = new MappedByteBuffer[0];
+        this.mappedSize = 0;
+        this.lock = new ReentrantReadWriteLock();
+        remap(fileChannel.size());
+    }
+
+    /**
+     * @return Nombre d'octets du fichier couverts par la projection.
+     */
+    long getMappedSize() {
+        return mappedSize;
+    }
+
+    /**
+     * Copie dans un tampon <code>buffer</code> les octets de la projection à
+     * partir de la position <code>position</code>, jusqu'à la limite du
+     * tampon. La copie est faite sous le verrou de lecture : aucune vue sur la
+     * projection ne sort de cette classe, une troncature ne peut donc pas
+     * retirer des pages en cours de lecture.
+     *
+     * @param position Position du premier octet.
+     * @param buffer Tampon à remplir. NE DOIT PAS ETRE NULL.
+     * @return <code>true</code> si la zone demandée est entièrement projetée
+     * et a été copiée sinon <code>false</code>, le tampon n'est alors pas
+     * modifié.
+     */
+    boolean read(long position, ByteBuffer buffer) {
+        lock.readLock().lock();
+        try {
+            if (position < 0 || position + buffer.remaining() > mappedSize) {
+                return false;
+            }
+            long current = position;
+            while (buffer.hasRemaining()) {
+                int index = (int) (current / regionSize);
+                int offset = (int) (current % regionSize);
+                int nbBytes = Math.min(buffer.remaining(), regionSize - offset);
+                ByteBuffer view = regions[index].duplicate();
+                view.limit(offset + nbBytes);
+                view.position(offset);
+                buffer.put(view);
+                current += nbBytes;
+            }
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Projette à nouveau le fichier jusqu'à la taille <code>size</code>. Les
+     * régions complètes déjà projetées sont conservées.
+     *
+     * @param size Nouvelle taille de la projection.
+     * @throws IOException s'il y'a une erreur lors de la projection.
+     */
+    void remap(long size) throws IOException {
+        lock.writeLock().lock();
+        try {
+            remapLocked(size);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Tronque le fichier à la taille <code>size</code> puis le projette à
+     * nouveau. Aucune lecture n'a lieu pendant la troncature.
+     *
+     * @param size Nouvelle taille du fichier.
+     * @throws IOException s'il y'a une erreur lors de la troncature.
+     */
+    void truncate(long size) throws IOException {
+        lock.writeLock().lock();
+        try {
+            fileChannel.truncate(size);
+            remapLocked(size);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Libère les régions projetées.
+     */
+    void close() {
+        lock.writeLock().lock();
+        try {
+            regions = new MappedByteBuffer[0];
+            mappedSize = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remapLocked(long size) throws IOException {
+        int nbRegions = (int) ((size + regionSize - 1) / regionSize);
+        MappedByteBuffer[] newRegions = new MappedByteBuffer[nbRegions];
+        for (int i = 0; i < nbRegions; i++) {
+            long start = (long) i * regionSize;
+            long regionLenght = Math.min(regionSize, size - start);
+            if (i < regions.length && regions[i].capacity() == regionLenght) {
+                newRegions[i] = regions[i];
+            } else {
+                newRegions[i] = fileChannel.map(FileChannel.MapMode.READ_ONLY, start, regionLenght);
+            }
+        }
+        regions = newRegions;
+        mappedSize = size;
+    }
+}
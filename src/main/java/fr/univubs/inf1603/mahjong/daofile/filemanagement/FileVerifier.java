@@ -0,0 +1,485 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import static fr.univubs.inf1603.mahjong.daofile.FileDAOUtilities.checkNotNull;
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * La classe {@code FileVerifier} vérifie les sommes de controle de tous les
+ * tuples d'un fichier <code>.data</code>, <code>.index</code>,
+ * <code>.link</code> ou <code>.btree</code> et renvoie les pointeurs des
+ * tuples corrompus.
+ * <br>
+ * Le fichier est découpé en blocs de tuples entiers qui sont lus et vérifiés
+ * en parallèle par des lectures positionnelles, sans passer par un writer.
+ * Les tuples supprimés et les tuples écrits sans somme de controle sont
+ * comptés mais ne peuvent pas etre vérifiés.
+ * <br>
+ * Un fichier encore dans le format d'origine, qui n'a pas été converti
+ * {@link FileFormatUpgrade}, est vérifié dans ce format : ses tuples n'ont pas
+ * de somme de controle, seuls leurs identifiants et la taille du fichier sont
+ * controlés. Le fichier doit etre vérifié
+ * lorsqu'aucun writer ne l'écrit, sinon un tuple en cours d'écriture peut etre
+ * signalé comme corrompu.
+ *
+ * <pre>
+ * usage : java fr.univubs.inf1603.mahjong.daofile.filemanagement.FileVerifier fichier [rowSize] [threads]
+ * </pre>
+ *
+ * @author aliyou
+ * @version 1.3
+ */
+public class FileVerifier {
+
+    /**
+     * Logging
+     */
+    private static final Logger LOGGER = Logger.getLogger(FileVerifier.class.getName());
+
+    /**
+     * Taille maximale (en octet) d'un bloc de tuples lu par une tâche de
+     * vérification.
+     */
+    static final int CHUNK_SIZE = BufferPool.MAX_CLASS_SIZE;
+
+    /**
+     * Chemin d'accès du fichier à vérifier.
+     */
+    private final Path filePath;
+    /**
+     * Taille d'un tuple du fichier.
+     */
+    private final int rowSize;
+    /**
+     * Nombre de threads de vérification.
+     */
+    private final int threadNumber;
+
+    /**
+     * Constructeur avec le chemin d'un fichier <code>filePath</code> et la
+     * taille de ses tuples <code>rowSize</code>. Le fichier est vérifié avec
+     * autant de threads que de processeurs disponibles.
+     *
+     * @param filePath Chemin d'accès du fichier. NE DOIT PAS ETRE NULL.
+     * @param rowSize Taille d'un tuple. DOIT ETRE SUPERIEUR A LA TAILLE DE
+     * L'EN-TETE D'UN TUPLE.
+     */
+    public FileVerifier(Path filePath, int rowSize) {
+        this(filePath, rowSize, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructeur avec le chemin d'un fichier <code>filePath</code>, la
+     * taille de ses tuples <code>rowSize</code> et un nombre de threads
+     * <code>threadNumber</code>.
+     *
+     * @param filePath Chemin d'accès du fichier. NE DOIT PAS ETRE NULL.
+     * @param rowSize Taille d'un tuple. DOIT ETRE SUPERIEUR A LA TAILLE DE
+     * L'EN-TETE D'UN TUPLE.
+     * @param threadNumber Nombre de threads de vérification. DOIT ETRE
+     * SUPERIEUR A 0.
+     */
+    public FileVerifier(Path filePath, int rowSize, int threadNumber) {
+        checkNotNull("FileVerifier -> filePath", filePath);
+        if (rowSize <= AbstractRow.ROW_HEADER_SIZE) {
+            throw new IllegalArgumentException("FileVerifier -> rowSize '" + rowSize
+                    + "' must be greater than '" + AbstractRow.ROW_HEADER_SIZE + "'.");
+        }
+        if (threadNumber <= 0) {
+            throw new IllegalArgumentException("FileVerifier -> threadNumber '" + threadNumber + "' must be greater than 0.");
+        }
+        this.filePath = filePath;
+        this.rowSize = rowSize;
+        this.threadNumber = threadNumber;
+    }
+
+    /**
+     * Renvoie la taille des tuples d'un fichier d'index (<code>.index</code>),
+     * de liens (<code>.link</code>) ou d'arbre B+ (<code>.btree</code>, un
+     * tuple par page). La taille des tuples d'un fichier de données dépend de
+     * son DAO.
+     *
+     * @param filePath Chemin d'accès du fichier. NE DOIT PAS ETRE NULL.
+     * @return Taille d'un tuple du fichier.
+     */
+    public static int getRowSize(Path filePath) {
+        checkNotNull("FileVerifier.getRowSize -> filePath", filePath);
+        String fileName = filePath.getFileName().toString();
+        if (fileName.endsWith(".index")) {
+            return IndexRow.INDEX_ROW_SIZE;
+        }
+        if (fileName.endsWith(".link")) {
+            return LinkRow.LINK_ROW_SIZE;
+        }
+        if (fileName.endsWith(".btree")) {
+            return BPlusTree.PAGE_SIZE;
+        }
+        throw new IllegalArgumentException("FileVerifier -> the row size of '" + fileName + "' must be given.");
+    }
+
+    /**
+     * Vérifie l'en-tete et tous les tuples du fichier.
+     *
+     * @return Rapport de la vérification.
+     * @throws DAOFileWriterException s'il y'a une erreur lors de la lecture du
+     * fichier.
+     */
+    public Report verify() throws DAOFileWriterException {
+        long startTime = System.nanoTime();
+        try (FileChannel fileChannel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long fileSize = fileChannel.size();
+            Report report = new Report(filePath);
+            ByteBuffer head = ByteBuffer.allocate((int) Math.min(fileSize, FileHeaderRow.FILE_HEADER_ROW_SIZE));
+            readFully(fileChannel, head, 0);
+            report.headerValid = verifyHeader(head);
+            long startPointer = FileHeaderRow.FILE_HEADER_ROW_SIZE;
+            int fileRowSize = rowSize;
+            int baselineRowSize = FileFormatUpgrade.getBaselineRowSize(filePath, rowSize);
+            if (!report.headerValid && FileFormatUpgrade.isBaselineFormat(head, fileSize, baselineRowSize)) {
+                report.baselineFormat = true;
+                report.headerValid = true;
+                startPointer = FileFormatUpgrade.BASELINE_FILE_HEADER_ROW_SIZE;
+                fileRowSize = baselineRowSize;
+            }
+            int chunkRowSize = fileRowSize;
+            boolean baselineFormat = report.baselineFormat;
+            long endPointer = startPointer;
+            if (fileSize > startPointer) {
+                endPointer += ((fileSize - startPointer) / fileRowSize) * fileRowSize;
+            }
+            if (fileSize > endPointer) {
+                // dernier tuple tronqué
+                report.corruptedRowPointers.add(endPointer);
+            }
+            long chunkSize = (long) Math.max(1, CHUNK_SIZE / fileRowSize) * fileRowSize;
+            ExecutorService executor = Executors.newFixedThreadPool(threadNumber, newThreadFactory());
+            try {
+                List<Future<Report>> futures = new ArrayList<>();
+                for (long pointer = startPointer; pointer < endPointer; pointer += chunkSize) {
+                    long chunkPointer = pointer;
+                    int lenght = (int) Math.min(chunkSize, endPointer - pointer);
+                    futures.add(executor.submit(() -> baselineFormat
+                            ? verifyBaselineChunk(fileChannel, chunkPointer, lenght, chunkRowSize)
+                            : verifyChunk(fileChannel, chunkPointer, lenght)));
+                }
+                for (Future<Report> future : futures) {
+                    report.add(future.get());
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new DAOFileWriterException("Verification of '" + filePath + "' interrupted", ex);
+            } catch (ExecutionException ex) {
+                throw new DAOFileWriterException("Verification of '" + filePath + "' failed : " + ex.getCause().getMessage(), ex.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+            long elapsedTime = (System.nanoTime() - startTime) / 1_000_000;
+            LOGGER.log(Level.INFO, "{0} verified in {1} ms -> {2}", new Object[]{filePath, elapsedTime, report});
+            return report;
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "IO error : ", ex);
+            throw new DAOFileWriterException("IO error : ", ex);
+        }
+    }
+
+    /**
+     * Renvoie <code>true</code> si au moins un emplacement de l'en-tete du
+     * fichier est valide et dans le format {@link FileHeaderRow#FORMAT_VERSION}.
+     *
+     * @param buffer Premiers octets du fichier, au plus
+     * {@link FileHeaderRow#FILE_HEADER_ROW_SIZE}.
+     * @return <code>true</code> si l'en-tete est valide sinon
+     * <code>false</code>.
+     */
+    private static boolean verifyHeader(ByteBuffer buffer) {
+        int lenght = buffer.limit();
+        CRC32 crc = new CRC32();
+        ByteBuffer view = buffer.duplicate();
+        for (int slotPosition = 0; slotPosition + FileHeaderRow.HEADER_SLOT_SIZE <= lenght; slotPosition += FileHeaderRow.HEADER_SLOT_SIZE) {
+            if (buffer.getInt(slotPosition) == 0
+                    && buffer.getInt(slotPosition + AbstractRow.ROW_HEADER_SIZE) == FileHeaderRow.MAGIC
+                    && buffer.getInt(slotPosition + AbstractRow.ROW_HEADER_SIZE + 4) == FileHeaderRow.FORMAT_VERSION
+                    && buffer.getInt(slotPosition + 4) == AbstractRow.checksum(crc, view, slotPosition, FileHeaderRow.HEADER_SLOT_SIZE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Vérifie un bloc de tuples contigus.
+     *
+     * @param fileChannel Canal de lecture du fichier.
+     * @param chunkPointer Pointeur du premier tuple du bloc.
+     * @param lenght Taille du bloc, multiple de la taille d'un tuple.
+     * @return Rapport partiel de la vérification du bloc.
+     * @throws IOException s'il y'a une erreur lors de la lecture.
+     */
+    private Report verifyChunk(FileChannel fileChannel, long chunkPointer, int lenght) throws IOException {
+        BufferPool bufferPool = DAOFileWriter.getDefaultBufferPool();
+        ByteBuffer buffer = bufferPool.acquire(lenght);
+        try {
+            readFully(fileChannel, buffer, chunkPointer);
+            Report report = new Report(filePath);
+            CRC32 crc = new CRC32();
+            ByteBuffer view = buffer.duplicate();
+            for (int position = 0; position < lenght; position += rowSize) {
+                int rowID = buffer.getInt(position);
+                int rowChecksum = buffer.getInt(position + 4);
+                if (rowID == AbstractRow.TOMBSTONE_ROW_ID) {
+                    report.tombstoneNumber++;
+                } else if (rowID < AbstractRow.TOMBSTONE_ROW_ID) {
+                    report.corruptedRowPointers.add(chunkPointer + position);
+                } else if (rowChecksum == AbstractRow.NO_CHECKSUM) {
+                    report.uncheckedRowNumber++;
+                } else if (rowChecksum == AbstractRow.checksum(crc, view, position, rowSize)) {
+                    report.checkedRowNumber++;
+                } else {
+                    report.corruptedRowPointers.add(chunkPointer + position);
+                }
+            }
+            return report;
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * Vérifie un bloc de tuples contigus d'un fichier dans le format
+     * d'origine. Ces tuples n'ont pas de somme de controle et ne sont jamais
+     * supprimés sur place : un tuple est corrompu si son identifiant n'est pas
+     * strictement positif.
+     *
+     * @param fileChannel Canal de lecture du fichier.
+     * @param chunkPointer Pointeur du premier tuple du bloc.
+     * @param lenght Taille du bloc, multiple de la taille d'un tuple.
+     * @param baselineRowSize Taille d'un tuple dans le format d'origine.
+     * @return Rapport partiel de la vérification du bloc.
+     * @throws IOException s'il y'a une erreur lors de la lecture.
+     */
+    private Report verifyBaselineChunk(FileChannel fileChannel, long chunkPointer, int lenght, int baselineRowSize) throws IOException {
+        BufferPool bufferPool = DAOFileWriter.getDefaultBufferPool();
+        ByteBuffer buffer = bufferPool.acquire(lenght);
+        try {
+            readFully(fileChannel, buffer, chunkPointer);
+            Report report = new Report(filePath);
+            for (int position = 0; position < lenght; position += baselineRowSize) {
+                if (buffer.getInt(position) > 0) {
+                    report.uncheckedRowNumber++;
+                } else {
+                    report.corruptedRowPointers.add(chunkPointer + position);
+                }
+            }
+            return report;
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * Lis les octets du fichier à partir de la position <code>position</code>
+     * jusqu'à remplir le tampon d'octets.
+     *
+     * @param fileChannel Canal de lecture du fichier.
+     * @param buffer Tampon d'octets à remplir.
+     * @param position Position de la lecture dans le fichier.
+     * @throws IOException s'il y'a une erreur lors de la lecture ou si la fin
+     * du fichier est atteinte.
+     */
+    private static void readFully(FileChannel fileChannel, ByteBuffer buffer, long position) throws IOException {
+        int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            int nbReadBytes = fileChannel.read(buffer, position + buffer.position() - start);
+            if (nbReadBytes < 0) {
+                throw new IOException("end of file reached at the position " + (position + buffer.position() - start));
+            }
+        }
+    }
+
+    /**
+     * @return Fabrique des threads de vérification, ce sont des démons.
+     */
+    private static ThreadFactory newThreadFactory() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "daofile-verify-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Vérifie un fichier depuis la ligne de commande. Le code de sortie est
+     * <code>1</code> si le fichier est corrompu.
+     *
+     * @param args chemin du fichier, taille d'un tuple (facultative pour les
+     * fichiers <code>.index</code> et <code>.link</code>) et nombre de threads
+     * (facultatif).
+     * @throws DAOFileWriterException s'il y'a une erreur lors de la lecture du
+     * fichier.
+     */
+    public static void main(String[] args) throws DAOFileWriterException {
+        if (args.length < 1) {
+            System.err.println("usage : FileVerifier file [rowSize] [threads]");
+            System.exit(2);
+        }
+        Path filePath = Paths.get(args[0]);
+        int rowSize = args.length > 1 ? Integer.parseInt(args[1]) : getRowSize(filePath);
+        int threadNumber = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        Report report = new FileVerifier(filePath, rowSize, threadNumber).verify();
+        System.out.println(report);
+        for (long rowPointer : report.getCorruptedRowPointers()) {
+            System.out.println("corrupted row at " + rowPointer);
+        }
+        if (!report.isValid()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * La classe {@code Report} répresente le résultat de la vérification d'un
+     * fichier.
+     */
+    public static class Report {
+
+        /**
+         * Chemin d'accès du fichier vérifié.
+         */
+        private final Path filePath;
+        /**
+         * Indique si l'en-tete du fichier est valide.
+         */
+        private boolean headerValid = true;
+        /**
+         * Indique si le fichier est encore dans le format d'origine.
+         */
+        private boolean baselineFormat = false;
+        /**
+         * Nombre de tuples dont la somme de controle est correcte.
+         */
+        private long checkedRowNumber = 0;
+        /**
+         * Nombre de tuples écrits sans somme de controle.
+         */
+        private long uncheckedRowNumber = 0;
+        /**
+         * Nombre de tuples supprimés.
+         */
+        private long tombstoneNumber = 0;
+        /**
+         * Pointeurs des tuples corrompus.
+         */
+        private final SortedSet<Long> corruptedRowPointers;
+
+        /**
+         * Constructeur avec le chemin du fichier vérifié.
+         *
+         * @param filePath Chemin d'accès du fichier vérifié.
+         */
+        private Report(Path filePath) {
+            this.filePath = filePath;
+            this.corruptedRowPointers = new TreeSet<>();
+        }
+
+        /**
+         * Ajoute le rapport partiel d'un bloc de tuples.
+         *
+         * @param chunkReport Rapport partiel.
+         */
+        private void add(Report chunkReport) {
+            checkedRowNumber += chunkReport.checkedRowNumber;
+            uncheckedRowNumber += chunkReport.uncheckedRowNumber;
+            tombstoneNumber += chunkReport.tombstoneNumber;
+            corruptedRowPointers.addAll(chunkReport.corruptedRowPointers);
+        }
+
+        /**
+         * @return Chemin d'accès du fichier vérifié.
+         */
+        public Path getFilePath() {
+            return filePath;
+        }
+
+        /**
+         * @return <code>true</code> si au moins un emplacement de l'en-tete
+         * est valide sinon <code>false</code>.
+         */
+        public boolean isHeaderValid() {
+            return headerValid;
+        }
+
+        /**
+         * @return <code>true</code> si le fichier est encore dans le format
+         * d'origine et doit etre converti {@link FileFormatUpgrade} sinon
+         * <code>false</code>.
+         */
+        public boolean isBaselineFormat() {
+            return baselineFormat;
+        }
+
+        /**
+         * @return Nombre de tuples dont la somme de controle est correcte.
+         */
+        public long getCheckedRowNumber() {
+            return checkedRowNumber;
+        }
+
+        /**
+         * @return Nombre de tuples écrits sans somme de controle.
+         */
+        public long getUncheckedRowNumber() {
+            return uncheckedRowNumber;
+        }
+
+        /**
+         * @return Nombre de tuples supprimés.
+         */
+        public long getTombstoneNumber() {
+            return tombstoneNumber;
+        }
+
+        /**
+         * @return Pointeurs des tuples corrompus, triés par ordre croissant.
+         */
+        public SortedSet<Long> getCorruptedRowPointers() {
+            return Collections.unmodifiableSortedSet(corruptedRowPointers);
+        }
+
+        /**
+         * @return <code>true</code> si l'en-tete est valide et qu'aucun tuple
+         * n'est corrompu sinon <code>false</code>.
+         */
+        public boolean isValid() {
+            return headerValid && corruptedRowPointers.isEmpty();
+        }
+
+        /**
+         * @return Description textuelle du rapport.
+         */
+        @Override
+        public String toString() {
+            return "Report {" + "file=" + filePath + ", headerValid=" + headerValid + ", baselineFormat=" + baselineFormat
+                    + ", checkedRows=" + checkedRowNumber + ", uncheckedRows=" + uncheckedRowNumber
+                    + ", tombstones=" + tombstoneNumber + ", corruptedRows=" + corruptedRowPointers.size() + '}';
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import static fr.univubs.inf1603.mahjong.daofile.FileDAOUtilities.checkNotNull;
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * La classe {@code FlushExecutor} planifie les écritures des listes d'attente
+ * d'un ensemble de writers {@link DAOFileWriter}. Tous les writers d'un
+ * gestionnaire de DAO partagent le meme exécuteur et donc les memes threads,
+ * quel que soit le nombre de fichiers ouverts.
+ * <br>
+ * Les threads de l'exécuteur sont des démons, ils n'empechent pas l'arret de
+ * la JVM. La fermeture de l'exécuteur {@link #close()} écrit les listes
+ * d'attente de tous ses writers, force leurs fichiers sur le disque, les
+ * ferme puis arrete les threads.
+ *
+ * @author aliyou
+ * @version 1.3
+ */
+public class FlushExecutor implements AutoCloseable {
+
+    /**
+     * Logging
+     */
+    private static final Logger LOGGER = Logger.getLogger(FlushExecutor.class.getName());
+
+    /**
+     * Nom de la propriété système qui définit le nombre de threads d'écriture
+     * par défaut.
+     */
+    public static final String FLUSH_THREADS_PROPERTY = "mahjong.daofile.flush.threads";
+    /**
+     * Temps d'attente maximal (en séconde) de l'arret des threads lors de la
+     * fermeture.
+     */
+    private static final int TERMINATION_TIMEOUT = 5;
+
+    /**
+     * Nom de l'exécuteur, préfixe du nom de ses threads.
+     */
+    private final String name;
+    /**
+     * Planifie les écritures des listes d'attente.
+     */
+    private final ScheduledThreadPoolExecutor scheduledExecutor;
+    /**
+     * Writers qui utilisent l'exécuteur. Les writers abandonnés sans etre
+     * fermés ne sont pas retenus.
+     */
+    private final Set<DAOFileWriter> writers;
+
+    /**
+     * Constructeur avec un nom <code>name</code> et un nombre de threads
+     * <code>threadNumber</code>.
+     *
+     * @param name Nom de l'exécuteur. NE DOIT PAS ETRE NULL.
+     * @param threadNumber Nombre de threads d'écriture. DOIT ETRE SUPERIEUR A
+     * 0.
+     */
+    public FlushExecutor(String name, int threadNumber) {
+        checkNotNull("FlushExecutor -> name", name);
+        checkThreadNumber(threadNumber);
+        this.name = name;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.scheduledExecutor = new ScheduledThreadPoolExecutor(threadNumber, runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // chaque ajout replanifie l'écriture, les tâches annulées ne doivent pas s'accumuler
+        this.scheduledExecutor.setRemoveOnCancelPolicy(true);
+        // les writers sont vidés par close(), les tâches en attente sont abandonnées
+        this.scheduledExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.writers = Collections.newSetFromMap(new WeakHashMap<>());
+    }
+
+    /**
+     * Renvoie le nombre de threads d'écriture défini par la propriété système
+     * {@link #FLUSH_THREADS_PROPERTY} ou <code>1</code> si la propriété n'est
+     * pas définie ou n'est pas valide.
+     *
+     * @return Nombre de threads d'écriture par défaut.
+     */
+    public static int threadNumberFromSystemProperty() {
+        String value = System.getProperty(FLUSH_THREADS_PROPERTY);
+        if (value != null) {
+            try {
+                int threadNumber = Integer.parseInt(value.trim());
+                if (threadNumber > 0) {
+                    return threadNumber;
+                }
+            } catch (NumberFormatException ex) {
+                LOGGER.log(Level.WARNING, "invalid value of {0} : {1}", new Object[]{FLUSH_THREADS_PROPERTY, value});
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Vérifie qu'un nombre de threads est valide.
+     *
+     * @param threadNumber Nombre de threads à vérifier.
+     */
+    private static void checkThreadNumber(int threadNumber) {
+        if (threadNumber <= 0) {
+            throw new IllegalArgumentException("FlushExecutor -> threadNumber '" + threadNumber + "' must be greater than 0.");
+        }
+    }
+
+    /**
+     * @return Nom de l'exécuteur.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Nombre de threads d'écriture.
+     */
+    public int getThreadNumber() {
+        return scheduledExecutor.getCorePoolSize();
+    }
+
+    /**
+     * Modifie le nombre de threads d'écriture. La modification s'applique
+     * immédiatement.
+     *
+     * @param threadNumber Nouveau nombre de threads. DOIT ETRE SUPERIEUR A 0.
+     */
+    public void setThreadNumber(int threadNumber) {
+        checkThreadNumber(threadNumber);
+        scheduledExecutor.setCorePoolSize(threadNumber);
+    }
+
+    /**
+     * @return Nombre de threads d'écriture démarrés.
+     */
+    public int getStartedThreadNumber() {
+        return scheduledExecutor.getPoolSize();
+    }
+
+    /**
+     * @return <code>true</code> si l'exécuteur a été fermé sinon
+     * <code>false</code>.
+     */
+    public boolean isShutdown() {
+        return scheduledExecutor.isShutdown();
+    }
+
+    /**
+     * Planifie l'execution d'une tâche d'écriture après <code>delay</code>
+     * millisecondes.
+     *
+     * @param task Tâche à executer.
+     * @param delay Délai (en millisecondes) avant l'execution.
+     * @return Résultat de la planification ou <code>null</code> si
+     * l'exécuteur est fermé.
+     */
+    ScheduledFuture<?> schedule(Runnable task, long delay) {
+        if (scheduledExecutor.isShutdown()) {
+            return null;
+        }
+        try {
+            return scheduledExecutor.schedule(task, Math.max(delay, 0), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            // fermeture concurrente
+            return null;
+        }
+    }
+
+    /**
+     * Enregistre un writer qui utilise l'exécuteur.
+     *
+     * @param writer Writer à enregistrer.
+     */
+    void register(DAOFileWriter writer) {
+        synchronized (writers) {
+            writers.add(writer);
+        }
+    }
+
+    /**
+     * Retire un writer de l'exécuteur. Cette méthode est appelée lors de la
+     * fermeture du writer.
+     *
+     * @param writer Writer à retirer.
+     */
+    void unregister(DAOFileWriter writer) {
+        synchronized (writers) {
+            writers.remove(writer);
+        }
+    }
+
+    /**
+     * @return Nombre de writers ouverts qui utilisent l'exécuteur.
+     */
+    public int getWriterNumber() {
+        synchronized (writers) {
+            return writers.size();
+        }
+    }
+
+    /**
+     * Ecrit les listes d'attente de tous les writers de l'exécuteur, force
+     * leurs fichiers sur le disque et les ferme, puis arrete les threads
+     * d'écriture. Tous les writers sont fermés meme si l'un d'eux échoue.
+     * <br>
+     * L'écriture d'un tuple peut ajouter des tuples à un autre writer (les
+     * liens d'une zone ajoutent ses tuiles) : les listes d'attente sont écrites
+     * jusqu'à ce qu'aucun writer n'ait de tuple en attente avant la fermeture
+     * du premier writer, quel que soit l'ordre des writers.
+     *
+     * @throws DAOFileWriterException si au moins un writer n'a pas pu etre
+     * fermé.
+     */
+    @Override
+    public void close() throws DAOFileWriterException {
+        List<DAOFileWriter> openWriters;
+        synchronized (writers) {
+            openWriters = new ArrayList<>(writers);
+        }
+        boolean pending = true;
+        while (pending) {
+            pending = false;
+            for (DAOFileWriter writer : openWriters) {
+                if (writer.hasPendingRows()) {
+                    writer.writeToDisk.run();
+                    pending = true;
+                }
+            }
+        }
+        DAOFileWriterException failure = null;
+        for (DAOFileWriter writer : openWriters) {
+            try {
+                writer.close(true);
+            } catch (DAOFileWriterException ex) {
+                LOGGER.log(Level.WARNING, ex.getMessage(), ex);
+                if (failure == null) {
+                    failure = ex;
+                }
+            }
+        }
+        scheduledExecutor.shutdown();
+        try {
+            if (!scheduledExecutor.awaitTermination(TERMINATION_TIMEOUT, TimeUnit.SECONDS)) {
+                LOGGER.log(Level.WARNING, "flush threads of {0} still running after {1} seconds",
+                        new Object[]{name, TERMINATION_TIMEOUT});
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.log(Level.INFO, "flush executor closed -> {0} : {1} writers closed", new Object[]{name, openWriters.size()});
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
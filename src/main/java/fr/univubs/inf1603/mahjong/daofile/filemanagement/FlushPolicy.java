@@ -0,0 +1,154 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+/**
+ * La classe {@code FlushPolicy} définit quand un writer {@link DAOFileWriter}
+ * écrit ses listes d'attente dans son fichier et comment il réagit lorsque
+ * trop d'octets sont en attente d'écriture.
+ * <br>
+ * Le writer écrit ses listes d'attente {@code WRITING_TIMER} après le dernier
+ * ajout, mais jamais plus de {@link #getMaxDelay()} millisecondes après le
+ * premier tuple mis en attente. Il les écrit immédiatement dès qu'elles
+ * atteignent {@link #getMaxBatchRows()} tuples ou
+ * {@link #getMaxBatchBytes()} octets. Lorsque l'ajout d'un nouveau tuple
+ * dépasserait le budget {@link #getDirtyBytesBudget()}, l'appelant est bloqué
+ * jusqu'à l'écriture des listes d'attente ou reçoit une exception suivant le
+ * mode {@link Backpressure}.
+ *
+ * @author aliyou
+ * @version 1.3
+ */
+public final class FlushPolicy {
+
+    /**
+     * Enumération des comportements d'un writer lorsque le budget d'octets en
+     * attente d'écriture est épuisé.
+     */
+    public enum Backpressure {
+        /**
+         * L'appelant est bloqué le temps d'écrire lui-meme les listes
+         * d'attente dans le fichier.
+         */
+        BLOCK,
+        /**
+         * L'ajout échoue immédiatement avec une exception.
+         */
+        FAIL_FAST
+    }
+
+    /**
+     * Politique d'écriture par défaut : 5 secondes de délai maximal, lots de
+     * 10000 tuples ou 4 Mo, budget de 64 Mo en attente et blocage des
+     * appelants.
+     */
+    public static final FlushPolicy DEFAULT = new FlushPolicy(5000, 10000, 4 << 20, 64 << 20, Backpressure.BLOCK);
+
+    /**
+     * Délai maximal (en millisecondes) entre la mise en attente d'un tuple et
+     * son écriture.
+     */
+    private final long maxDelay;
+    /**
+     * Nombre de tuples en attente à partir duquel les listes sont écrites
+     * immédiatement.
+     */
+    private final int maxBatchRows;
+    /**
+     * Nombre d'octets en attente à partir duquel les listes sont écrites
+     * immédiatement.
+     */
+    private final long maxBatchBytes;
+    /**
+     * Nombre maximal d'octets en attente d'écriture.
+     */
+    private final long dirtyBytesBudget;
+    /**
+     * Comportement lorsque le budget est épuisé.
+     */
+    private final Backpressure backpressure;
+
+    /**
+     * Constructeur avec toutes les limites d'une politique d'écriture.
+     *
+     * @param maxDelay Délai maximal (en millisecondes) avant l'écriture d'un
+     * tuple mis en attente. DOIT ETRE SUPERIEUR A 0.
+     * @param maxBatchRows Nombre de tuples d'un lot. DOIT ETRE SUPERIEUR A 0.
+     * @param maxBatchBytes Nombre d'octets d'un lot. DOIT ETRE SUPERIEUR A 0.
+     * @param dirtyBytesBudget Nombre maximal d'octets en attente. DOIT ETRE
+     * SUPERIEUR OU EGAL A <code>maxBatchBytes</code>.
+     * @param backpressure Comportement lorsque le budget est épuisé. NE DOIT
+     * PAS ETRE NULL.
+     */
+    public FlushPolicy(long maxDelay, int maxBatchRows, long maxBatchBytes, long dirtyBytesBudget, Backpressure backpressure) {
+        if (maxDelay <= 0) {
+            throw new IllegalArgumentException("FlushPolicy -> maxDelay '" + maxDelay + "' must be greater than 0.");
+        }
+        if (maxBatchRows <= 0) {
+            throw new IllegalArgumentException("FlushPolicy -> maxBatchRows '" + maxBatchRows + "' must be greater than 0.");
+        }
+        if (maxBatchBytes <= 0) {
+            throw new IllegalArgumentException("FlushPolicy -> maxBatchBytes '" + maxBatchBytes + "' must be greater than 0.");
+        }
+        if (dirtyBytesBudget < maxBatchBytes) {
+            throw new IllegalArgumentException("FlushPolicy -> dirtyBytesBudget '" + dirtyBytesBudget
+                    + "' must be greater or equal to maxBatchBytes '" + maxBatchBytes + "'.");
+        }
+        if (backpressure == null) {
+            throw new IllegalArgumentException("FlushPolicy -> backpressure must not be null.");
+        }
+        this.maxDelay = maxDelay;
+        this.maxBatchRows = maxBatchRows;
+        this.maxBatchBytes = maxBatchBytes;
+        this.dirtyBytesBudget = dirtyBytesBudget;
+        this.backpressure = backpressure;
+    }
+
+    /**
+     * @return Délai maximal (en millisecondes) entre la mise en attente d'un
+     * tuple et son écriture.
+     */
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    /**
+     * @return Nombre de tuples en attente à partir duquel les listes sont
+     * écrites immédiatement.
+     */
+    public int getMaxBatchRows() {
+        return maxBatchRows;
+    }
+
+    /**
+     * @return Nombre d'octets en attente à partir duquel les listes sont
+     * écrites immédiatement.
+     */
+    public long getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    /**
+     * @return Nombre maximal d'octets en attente d'écriture.
+     */
+    public long getDirtyBytesBudget() {
+        return dirtyBytesBudget;
+    }
+
+    /**
+     * @return Comportement lorsque le budget est épuisé.
+     */
+    public Backpressure getBackpressure() {
+        return backpressure;
+    }
+
+    /**
+     * Renvoie une description textuelle d'une politique d'écriture.
+     *
+     * @return Description textuelle d'une politique d'écriture.
+     */
+    @Override
+    public String toString() {
+        return "FlushPolicy {" + "maxDelay=" + maxDelay + ", maxBatchRows=" + maxBatchRows
+                + ", maxBatchBytes=" + maxBatchBytes + ", dirtyBytesBudget=" + dirtyBytesBudget
+                + ", backpressure=" + backpressure + '}';
+    }
+}
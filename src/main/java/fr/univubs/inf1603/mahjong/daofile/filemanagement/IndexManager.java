@@ -1,10 +1,24 @@
 package fr.univubs.inf1603.mahjong.daofile.filemanagement;
 
+import fr.univubs.inf1603.mahjong.daofile.FileDAOUtilities;
 import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
 import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException;
+import fr.univubs.inf1603.mahjong.engine.persistence.Persistable;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -13,7 +27,44 @@ import java.util.logging.Logger;
  * Cette classe gère l'ensemble des index {@link Index} liés à un objet à
  * persister. Un index est répresenté par l'identifiant <code>UUID</code> d'un
  * objet et un pointeur qui pointe vers le tuple contenant l'objet. Chaque index
- * est encapsulé dans un tuple d'index <code>IndexRow</code>.
+ * est écrit dans le fichier dans un tuple d'index <code>IndexRow</code>.
+ * <br>
+ * En mémoire, les index ne sont pas gardés sous forme d'objets : ils sont
+ * rangés par numéro d'emplacement dans des tableaux de types primitifs (les
+ * deux moitiés de l'identifiant, le pointeur de données et l'identifiant du
+ * tuple). Une table {@link UUIDHashIndex} associe l'identifiant au numéro
+ * d'emplacement. Un index occupe ainsi une soixantaine d'octets au lieu de
+ * plusieurs centaines pour un tuple, son index et leurs supports d'écoute.
+ * <br>
+ * Les objets <code>Index</code> et <code>IndexRow</code> ne sont créés qu'à
+ * la demande {@link #getRow(UUID)} {@link #getIndexes()} : ce sont des copies,
+ * les modifier ne change pas l'index, il faut passer par
+ * {@link #setDataPointer(UUID, long)}. Un index modifié est copié dans un
+ * tuple en attente d'écriture. Tant que ce tuple n'est pas écrit, les
+ * modifications suivantes du meme emplacement le mettent à jour au lieu d'en
+ * créer un autre.
+ * <br>
+ * En mode {@link IndexMode#EAGER}, les tableaux sont écrits dans une image
+ * {@link Snapshot} à la fermeture du fichier. A l'ouverture suivante, ils
+ * sont relus d'un seul coup si le fichier n'a pas changé depuis, sans lire
+ * les tuples.
+ * <br>
+ * En mode {@link IndexMode#LAZY}, le fichier commence par une suite de
+ * {@link FileHeader#getSortedRowNumber()} tuples triés suivant l'identifiant.
+ * Ces tuples ne sont pas chargés : ils sont recherchés par dichotomie dans une
+ * projection en mémoire du fichier {@link StorageMode#MAPPED}. Un tuple
+ * supprimé de cette suite garde son identifiant, la dichotomie reste donc
+ * possible. Seuls les index ajoutés à la fin du fichier depuis le dernier tri
+ * sont gardés dans les tableaux. Lorsqu'ils sont plus de
+ * {@link #MAX_UNSORTED_ROWS}, le compacteur fusionne les deux parties dans un
+ * nouveau fichier trié {@link #compact(int)}.
+ * <br>
+ * En mode {@link IndexMode#BTREE}, les index sont rangés dans un arbre B+
+ * {@link BPlusTree} du fichier <code>.btree</code> voisin du fichier d'index.
+ * Aucun index n'est gardé en mémoire en dehors du cache de pages de l'arbre.
+ * A la première ouverture, les index du fichier <code>.index</code> sont
+ * importés dans l'arbre. Les tuples renvoyés n'ont pas d'identifiant (0) et
+ * leur pointeur est le pointeur de données.
  *
  * <pre>
  * format d'un fichier d'index :
@@ -30,99 +81,603 @@ import java.util.logging.Logger;
  *        ---------------------------------------------
  * </pre>
  *
- * @see AbstractRowManager
  * @author aliyou
  * @version 1.3
  */
-public class IndexManager extends AbstractRowManager<IndexRow> {
+public class IndexManager implements Compactable {
 
     /**
      * Logging
      */
     private final static Logger LOGGER = Logger.getLogger(IndexManager.class.getName());
 
+    /**
+     * Pointeur de données renvoyé lorsqu'un identifiant n'a pas d'index.
+     */
+    public static final long NO_DATA_POINTER = -1;
+    /**
+     * Nombre maximal d'index non triés en mode {@link IndexMode#LAZY} avant
+     * que le fichier soit trié à nouveau. C'est le nombre maximal d'index
+     * chargés à l'ouverture.
+     */
+    public static final int MAX_UNSORTED_ROWS = 4096;
+    /**
+     * Nombre initial d'emplacements des tableaux.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+    /**
+     * Nombre minimal de tuples en attente avant que les tuples déjà écrits
+     * soient retirés de la table des tuples en attente.
+     */
+    private static final int MIN_PRUNE_THRESHOLD = 64;
+    /**
+     * Nombre de tuples lus ou écrits à la fois lors du chargement et de la
+     * fusion.
+     */
+    private static final int BLOCK_ROW_NUMBER = 100;
+    /**
+     * Taille d'un emplacement dans l'image des tableaux : identifiant du
+     * tuple, deux moitiés de l'identifiant et pointeur de données.
+     */
+    private static final int SNAPSHOT_SLOT_SIZE = Integer.BYTES + 3 * Long.BYTES;
+
+    /**
+     * Mode de chargement utilisé par défaut par les nouveaux gestionnaires
+     * d'index. Il peut etre défini par la propriété système
+     * {@link IndexMode#INDEX_MODE_PROPERTY}.
+     */
+    private static volatile IndexMode defaultIndexMode = IndexMode.fromSystemProperty();
+
+    /**
+     * Taille d'un tuple d'index.
+     */
+    final private int rowSize;
     /**
      * Taille d'un tuple de données.
      */
     private final int dataRowSize;
+    /**
+     * Chemin d'accès du fichier d'index.
+     */
+    final private Path indexFilePath;
+    /**
+     * Arbre des index en mode {@link IndexMode#BTREE}, sinon
+     * <code>null</code>.
+     */
+    final private BPlusTree tree;
+    /**
+     * Mode de chargement du fichier d'index.
+     */
+    final private IndexMode indexMode;
+    /**
+     * Tuple encapsulant l'en-tete du fichier d'index. Remplacé lors de la
+     * fusion d'un fichier {@link IndexMode#LAZY}, <code>null</code> en mode
+     * {@link IndexMode#BTREE}.
+     */
+    private FileHeaderRow fhr;
+    /**
+     * Processus qui écrit dans le fichier d'index. Remplacé lors de la fusion
+     * d'un fichier {@link IndexMode#LAZY}.
+     */
+    private volatile DAOFileWriter rowWriter;
+    /**
+     * Associe l'identifiant de l'objet indexé au numéro d'emplacement de son
+     * index.
+     */
+    final private UUIDHashIndex slotsByUUID;
+    /**
+     * Nombre d'emplacements triés au début du fichier, toujours nul en mode
+     * {@link IndexMode#EAGER}. Les tableaux commencent à cet emplacement.
+     */
+    private int sortedRowNumber;
+    /**
+     * Nombre d'emplacements du fichier, tuples en attente compris. Utilisé en
+     * mode {@link IndexMode#LAZY} où les emplacements libres ne sont pas
+     * réutilisés.
+     */
+    private int slotNumber;
+    /**
+     * Bits de poids fort des identifiants, par numéro d'emplacement.
+     */
+    private long[] mostSigBits;
+    /**
+     * Bits de poids faible des identifiants, par numéro d'emplacement.
+     */
+    private long[] leastSigBits;
+    /**
+     * Pointeurs de données, par numéro d'emplacement.
+     */
+    private long[] dataPointers;
+    /**
+     * Identifiants des tuples d'index, par numéro d'emplacement. Un
+     * emplacement libre contient 0, l'identifiant de l'en-tete.
+     */
+    private int[] rowIDs;
+    /**
+     * Tuples d'index en attente d'écriture, par numéro d'emplacement. Un
+     * tuple déjà écrit n'est plus modifié (<code>dirty</code> à
+     * <code>false</code>), il est retiré lors du prochain nettoyage.
+     */
+    final private Map<Integer, IndexRow> pendingRows;
+    /**
+     * Nombre de tuples en attente à partir duquel les tuples déjà écrits sont
+     * retirés de la table.
+     */
+    private int pruneThreshold;
 
     /**
-     * Constructeur avec le chemin d'accès du fichier d'index.
+     * Constructeur avec le chemin d'accès du fichier d'index. Le fichier est
+     * chargé suivant le mode par défaut {@link #getDefaultIndexMode()}.
      *
      * @param indexFilePath Chemin d'accès du fichier d'index
      * @param dataRowSize Taille d'un tuple de données.
      * @throws DAOFileException s'il y'a une erreur lors de l'instanciation.
      */
     public IndexManager(Path indexFilePath, int dataRowSize) throws DAOFileException {
-        super(indexFilePath, IndexRow.INDEX_ROW_SIZE);
+        this(indexFilePath, dataRowSize, defaultIndexMode);
+    }
+
+    /**
+     * Constructeur avec le chemin d'accès du fichier d'index et son mode de
+     * chargement.
+     *
+     * @param indexFilePath Chemin d'accès du fichier d'index
+     * @param dataRowSize Taille d'un tuple de données.
+     * @param indexMode Mode de chargement du fichier. NE DOIT PAS ETRE NULL.
+     * @throws DAOFileException s'il y'a une erreur lors de l'instanciation.
+     */
+    public IndexManager(Path indexFilePath, int dataRowSize, IndexMode indexMode) throws DAOFileException {
+        FileDAOUtilities.checkNotNull("IndexManager -> indexFilePath", indexFilePath);
+        FileDAOUtilities.checkNotNull("IndexManager -> indexMode", indexMode);
 //        System.out.println(" -> IndexManager [dataRowSize=" + dataRowSize + "]");
+        FileFormatUpgrade.upgradeIndexFile(indexFilePath, dataRowSize);
+        this.rowSize = IndexRow.INDEX_ROW_SIZE;
         this.dataRowSize = dataRowSize;
+        this.indexFilePath = indexFilePath;
+        this.indexMode = indexMode;
+        this.slotsByUUID = new UUIDHashIndex();
+        this.pendingRows = new HashMap<>();
+        clearArrays();
+        if (indexMode == IndexMode.BTREE) {
+            try {
+                this.rowWriter = new DAOFileWriter(getTreeFilePath(indexFilePath));
+            } catch (DAOFileWriterException ex) {
+                throw new DAOFileException(ex.getMessage(), ex);
+            }
+            this.tree = new BPlusTree(rowWriter);
+            if (tree.size() == 0) {
+                importIndexFile();
+            }
+            Compactor.getInstance().register(this);
+            return;
+        }
+        this.tree = null;
+        openWriter();
+        if (indexMode == IndexMode.LAZY) {
+            Snapshot.delete(indexFilePath);
+            this.sortedRowNumber = this.fhr.getData().getSortedRowNumber();
+            long fileSlotNumber = Math.max(0, (rowWriter.getFileLenght() - FileHeaderRow.FILE_HEADER_ROW_SIZE) / rowSize);
+            if (sortedRowNumber > fileSlotNumber) {
+                LOGGER.log(Level.WARNING, "sorted rows {0} not found in {1} -> all rows are loaded", new Object[]{sortedRowNumber, indexFilePath});
+                this.sortedRowNumber = 0;
+            }
+            this.slotNumber = (int) fileSlotNumber;
+            int nbRows = loadRows(getRowPointer(sortedRowNumber));
+            LOGGER.log(Level.FINE, "{0} sorted rows, {1} unsorted rows loaded", new Object[]{sortedRowNumber, nbRows});
+        } else {
+            ByteBuffer snapshot = Snapshot.read(indexFilePath, fhr.getGeneration(), rowWriter.getFileLenght());
+            // les emplacements libres sont réutilisés, le fichier n'est plus trié
+            this.fhr.getData().setSortedRowNumber(0);
+            int nbRows = snapshot != null ? loadSnapshot(snapshot) : -1;
+            if (nbRows < 0) {
+                nbRows = loadRows(FileHeaderRow.FILE_HEADER_ROW_SIZE);
+            }
+            if (nbRows != this.fhr.getData().getRowNumber()) {
+                this.fhr.getData().setRowNumber(nbRows);
+                LOGGER.log(Level.INFO, "rowNumber updated -> newRowNumber = {0}\n", nbRows);
+            }
+            rowWriter.getPropertyChangeSupport().addPropertyChangeListener(DAOFileWriter.CLOSED_PROPERTY, evt -> writeSnapshot());
+        }
+        Compactor.getInstance().register(this);
     }
 
     /**
-     * {@inheritDoc}
+     * @return Mode de chargement utilisé par défaut par les nouveaux
+     * gestionnaires d'index.
      */
-    @Override
-    protected IndexRow createRow(ByteBuffer buffer, long rowPointer) throws DAOFileException {
-        return new IndexRow(buffer, rowPointer);
+    public static IndexMode getDefaultIndexMode() {
+        return defaultIndexMode;
     }
-    
+
     /**
-     * {@inheritDoc}
+     * Modifie le mode de chargement utilisé par défaut par les nouveaux
+     * gestionnaires d'index.
+     *
+     * @param indexMode Nouveau mode par défaut. NE DOIT PAS ETRE NULL.
      */
-    @Override
-    protected IndexRow createRow(long rowPointer) throws DAOFileException {
-        return new IndexRow(rowWriter, rowPointer);
+    public static void setDefaultIndexMode(IndexMode indexMode) {
+        FileDAOUtilities.checkNotNull("IndexManager.setDefaultIndexMode -> indexMode", indexMode);
+        defaultIndexMode = indexMode;
     }
 
     /**
-     * Ajoute un Index à la liste des index.
+     * Renvoie le chemin d'accès du fichier de l'arbre B+ d'un fichier d'index :
+     * l'extension <code>.index</code> est remplacée par <code>.btree</code>.
+     *
+     * @param indexFilePath Chemin d'accès du fichier d'index.
+     * @return Chemin d'accès du fichier de l'arbre.
+     */
+    static Path getTreeFilePath(Path indexFilePath) {
+        String fileName = indexFilePath.getFileName().toString();
+        if (fileName.endsWith(".index")) {
+            fileName = fileName.substring(0, fileName.length() - ".index".length());
+        }
+        return indexFilePath.resolveSibling(fileName + ".btree");
+    }
+
+    /**
+     * Importe dans l'arbre B+ les index d'un fichier d'index existant. Les
+     * tuples sont lus bloc par bloc, le fichier d'index n'est pas modifié.
+     *
+     * @throws DAOFileException s'il y'a une erreur lors de la lecture du
+     * fichier d'index ou de l'écriture de l'arbre.
+     */
+    private void importIndexFile() throws DAOFileException {
+        if (!Files.exists(indexFilePath)) {
+            return;
+        }
+        int nbRows = 0;
+        try {
+            DAOFileWriter indexWriter = new DAOFileWriter(indexFilePath);
+            try {
+                long rowPointer = FileHeaderRow.FILE_HEADER_ROW_SIZE;
+                ByteBuffer buffer;
+                while (indexWriter.getFileLenght() > rowPointer
+                        && (buffer = indexWriter.read(rowPointer, BLOCK_ROW_NUMBER * rowSize)) != null) {
+                    try {
+                        while (buffer.remaining() >= rowSize) {
+                            if (AbstractRow.isTombstone(buffer)) {
+                                buffer.position(buffer.position() + rowSize);
+                            } else {
+                                Index index = createRow(buffer, rowPointer).getData();
+                                if (tree.put(index.getUUID(), index.getDataPointer()) == BPlusTree.NOT_FOUND) {
+                                    nbRows++;
+                                }
+                            }
+                            rowPointer += rowSize;
+                        }
+                    } finally {
+                        indexWriter.release(buffer);
+                    }
+                }
+            } finally {
+                indexWriter.close();
+            }
+        } catch (DAOFileWriterException ex) {
+            throw new DAOFileException(ex.getMessage(), ex);
+        }
+        if (nbRows > 0) {
+            LOGGER.log(Level.INFO, "{0} index imported from {1} into {2}",
+                    new Object[]{nbRows, indexFilePath, rowWriter.getFilePath()});
+        }
+    }
+
+    /**
+     * Ouvre le writer du fichier d'index et charge son en-tete. En mode
+     * {@link IndexMode#LAZY}, le fichier est projeté en mémoire.
+     *
+     * @throws DAOFileException s'il y'a une erreur lors de l'ouverture.
+     */
+    private void openWriter() throws DAOFileException {
+        try {
+            this.rowWriter = indexMode == IndexMode.LAZY
+                    ? new DAOFileWriter(indexFilePath, StorageMode.MAPPED) : new DAOFileWriter(indexFilePath);
+        } catch (DAOFileWriterException ex) {
+            throw new DAOFileException(ex.getMessage(), ex);
+        }
+        this.fhr = rowWriter.loadFileHeader();
+    }
+
+    /**
+     * Alloue des tableaux vides.
+     */
+    private void clearArrays() {
+        this.mostSigBits = new long[INITIAL_CAPACITY];
+        this.leastSigBits = new long[INITIAL_CAPACITY];
+        this.dataPointers = new long[INITIAL_CAPACITY];
+        this.rowIDs = new int[INITIAL_CAPACITY];
+        this.pruneThreshold = MIN_PRUNE_THRESHOLD;
+    }
+
+    /**
+     * Charge en mémoire les index du fichier à partir du pointeur
+     * <code>rowPointer</code>. Les tuples sont lus bloc par bloc, seuls leurs
+     * champs sont gardés. En mode {@link IndexMode#EAGER}, les emplacements des
+     * tuples supprimés et des doublons (copie d'un tuple déplacé par le
+     * compacteur avant la troncature du fichier) sont ajoutés à la liste des
+     * emplacements libres de l'en-tete.
+     *
+     * @param rowPointer Pointeur du premier tuple à charger.
+     * @return Nombre d'index chargés
+     * @throws DAOFileException s'il y'a une erreur lors du chargement.
+     */
+    private int loadRows(long rowPointer) throws DAOFileException {
+        int _nbRecords = 0;
+        if (rowWriter.getFileLenght() > rowPointer) {
+            boolean freeSlots = indexMode == IndexMode.EAGER;
+            ByteBuffer buffer;
+            try {
+                while ((buffer = rowWriter.read(rowPointer, BLOCK_ROW_NUMBER * rowSize)) != null) {
+                    try {
+                        while (buffer.hasRemaining()) {
+                            if (AbstractRow.isTombstone(buffer)) {
+                                buffer.position(Math.min(buffer.limit(), buffer.position() + this.rowSize));
+                                if (freeSlots) {
+                                    fhr.getData().loadFreeSlot(rowPointer);
+                                }
+                                rowPointer += this.rowSize;
+                                continue;
+                            }
+                            IndexRow row = createRow(buffer, rowPointer);
+                            Index index = row.getData();
+                            if (slotsByUUID.get(index.getUUID()) == UUIDHashIndex.NOT_FOUND) {
+                                setIndexAt(getSlot(rowPointer), row.geRowID(), index.getUUID(), index.getDataPointer());
+                                _nbRecords++;
+                                LOGGER.log(Level.FINE, "[OK] index loaded : {0}", row);
+                            } else if (freeSlots) {
+                                fhr.getData().loadFreeSlot(rowPointer);
+                            }
+                            rowPointer += this.rowSize;
+                        }
+                    } finally {
+                        // le tampon est rendu à la réserve, le bloc suivant le réutilise
+                        rowWriter.release(buffer);
+                    }
+                }
+            } catch (DAOFileWriterException ex) {
+                LOGGER.log(Level.SEVERE, ex.getMessage());
+                throw new DAOFileException(ex.getMessage(), ex);
+            }
+        }
+        LOGGER.log(Level.FINE, "{0} index chargés.", _nbRecords);
+        return _nbRecords;
+    }
+
+    /**
+     * Charge les tableaux à partir de l'image du fichier d'index : quatre
+     * tableaux de {@code nbSlots} cases (identifiants des tuples, moitiés des
+     * identifiants, pointeurs de données) précédés de {@code nbSlots}. Les
+     * emplacements sans tuple sont ajoutés à la liste des emplacements libres.
+     *
+     * @param snapshot Contenu de l'image.
+     * @return Nombre d'index chargés ou -1 si l'image n'a pas la bonne
+     * taille.
+     */
+    private int loadSnapshot(ByteBuffer snapshot) {
+        int nbSlots = snapshot.getInt();
+        if (nbSlots < 0 || snapshot.remaining() != (long) nbSlots * SNAPSHOT_SLOT_SIZE) {
+            LOGGER.log(Level.WARNING, "snapshot of {0} ignored -> invalid size", indexFilePath);
+            return -1;
+        }
+        int capacity = Math.max(INITIAL_CAPACITY, nbSlots);
+        this.rowIDs = new int[capacity];
+        this.mostSigBits = new long[capacity];
+        this.leastSigBits = new long[capacity];
+        this.dataPointers = new long[capacity];
+        snapshot.asIntBuffer().get(rowIDs, 0, nbSlots);
+        snapshot.position(snapshot.position() + nbSlots * Integer.BYTES);
+        LongBuffer longs = snapshot.asLongBuffer();
+        longs.get(mostSigBits, 0, nbSlots);
+        longs.get(leastSigBits, 0, nbSlots);
+        longs.get(dataPointers, 0, nbSlots);
+        int _nbRecords = 0;
+        for (int slot = 0; slot < nbSlots; slot++) {
+            if (rowIDs[slot] != 0) {
+                slotsByUUID.put(mostSigBits[slot], leastSigBits[slot], slot);
+                _nbRecords++;
+            } else {
+                fhr.getData().loadFreeSlot(getRowPointer(slot));
+            }
+        }
+        LOGGER.log(Level.FINE, "{0} index chargés depuis l''image.", _nbRecords);
+        return _nbRecords;
+    }
+
+    /**
+     * Ecrit l'image des tableaux à la fermeture du fichier d'index. Rien
+     * n'est écrit si des tuples n'ont pas pu etre écrits, l'image ne
+     * correspondrait pas au fichier.
+     */
+    synchronized private void writeSnapshot() {
+        if (rowWriter.hasPendingRows() || fhr.isDirty()) {
+            LOGGER.log(Level.WARNING, "snapshot of {0} not writed -> pending rows", indexFilePath);
+            return;
+        }
+        try {
+            long fileLenght = Files.size(indexFilePath);
+            int nbSlots = (int) Math.max(0, (fileLenght - FileHeaderRow.FILE_HEADER_ROW_SIZE) / rowSize);
+            int nbArraySlots = Math.min(nbSlots, rowIDs.length);
+            ByteBuffer payload = ByteBuffer.allocate(Integer.BYTES + nbSlots * SNAPSHOT_SLOT_SIZE);
+            payload.putInt(nbSlots);
+            payload.asIntBuffer().put(rowIDs, 0, nbArraySlots);
+            payload.position(payload.position() + nbSlots * Integer.BYTES);
+            LongBuffer longs = payload.asLongBuffer();
+            longs.put(mostSigBits, 0, nbArraySlots);
+            longs.position(nbSlots);
+            longs.put(leastSigBits, 0, nbArraySlots);
+            longs.position(2 * nbSlots);
+            longs.put(dataPointers, 0, nbArraySlots);
+            payload.rewind();
+            Snapshot.write(indexFilePath, fhr.getGeneration(), fileLenght, payload);
+        } catch (IOException | DAOFileException ex) {
+            LOGGER.log(Level.WARNING, "snapshot of {0} not writed -> {1}", new Object[]{indexFilePath, ex.getMessage()});
+        }
+    }
+
+    /**
+     * Lis un tuple d'index à partir d'un tampon d'octet.
+     *
+     * @param buffer Tampon d'octet.
+     * @param rowPointer Pointeur de tuple.
+     * @return Le tuple d'index lu.
+     * @throws DAOFileException S'il y'a une erreur lors de la lecture du tuple.
+     */
+    protected IndexRow createRow(ByteBuffer buffer, long rowPointer) throws DAOFileException {
+        return new IndexRow(buffer, rowPointer);
+    }
+
+    /**
+     * Ajoute un Index à la liste des index. En mode {@link IndexMode#EAGER},
+     * l'index est placé dans le premier emplacement libre du fichier s'il y'en
+     * a un sinon à la fin du fichier. En mode {@link IndexMode#LAZY}, il est
+     * toujours placé à la fin du fichier.
      *
      * @param index Index à rajouter.
      * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException s'il y'a une erreur lors de la création du tuple d'index.
      */
-    public void addIndex(Index index) throws DAOFileException {
-        IndexRow newIndexRow = new IndexRow(getNextRowID(), index, super.getNextRowPointer());
-        if(!super.addRow(newIndexRow)) {
+    synchronized public void addIndex(Index index) throws DAOFileException {
+        FileDAOUtilities.checkNotNull("IndexManager.addIndex -> index", index);
+        if (tree != null) {
+            if (tree.get(index.getUUID()) != BPlusTree.NOT_FOUND) {
+                LOGGER.log(Level.WARNING, "index not added : {0} \n\t cause -> It exists already", index);
+            } else {
+                tree.put(index.getUUID(), index.getDataPointer());
+            }
+            return;
+        }
+        if (findSlot(index.getUUID()) != UUIDHashIndex.NOT_FOUND) {
             LOGGER.log(Level.WARNING, "index not added : {0} \n\t cause -> It exists already", index);
+            return;
+        }
+        long rowPointer = indexMode == IndexMode.EAGER ? fhr.getData().pollFreeSlot() : FileHeader.NO_FREE_SLOT;
+        boolean freeSlot = rowPointer != FileHeader.NO_FREE_SLOT;
+        if (!freeSlot) {
+            rowPointer = getNextRowPointer();
+        }
+        int rowID = getNextRowID();
+        IndexRow newIndexRow = new IndexRow(rowID, new Index(index.getUUID(), index.getDataPointer()), rowPointer);
+        int slot = getSlot(rowPointer);
+        synchronized (rowWriter) {
+            try {
+                rowWriter.addRowToMultipleWritingList(newIndexRow);
+            } catch (DAOFileException ex) {
+                // budget d'octets en attente épuisé : l'emplacement reste libre
+                if (freeSlot) {
+                    fhr.getData().addFreeSlot(rowPointer);
+                }
+                throw ex;
+            }
+            newIndexRow.addPropertyChangeListener(rowWriter);
+            pendingRows.put(slot, newIndexRow);
         }
+        setIndexAt(slot, rowID, index.getUUID(), index.getDataPointer());
+        if (indexMode == IndexMode.LAZY) {
+            slotNumber++;
+        }
+        fhr.getData().incrementRowNumber();
+        LOGGER.log(Level.FINE, "[OK] index added : {0}", newIndexRow);
     }
 
     /**
-     * Supprime un tuple tuple d'index encapsulant l'index d'identifiant
-     * <code>dataID</code> d'un fichier d'index. Et mets à jour les pointeurs
-     * des tuples d'index et les pointeurs de données qui suivent le tuple
-     * d'index à retirer.
+     * Supprime l'index d'identifiant <code>dataID</code> d'un fichier d'index.
+     * Le tuple d'index est marqué comme supprimé, les pointeurs des autres
+     * tuples d'index et les pointeurs de données ne changent pas.
      *
      * @param dataID Identifiant de l'index du tuple d'index à supprimer.
      * @return L'index supprimé.
      * @throws DAOFileException s'il y'a une erreur lors de la suppression.
      */
-    public Index removeIndex(UUID dataID) throws DAOFileException {
-        IndexRow indexRowToDelete = super.getRow(dataID);
-        LOGGER.log(Level.FINE, "[OK] index deleted -> dataID = {0}, rowSize = {1}, rowNumber = {2}",
-                new Object[]{indexRowToDelete.getData().getUUID(), rowSize, getRowNumber()});
-        return removeIndex(indexRowToDelete);
+    synchronized public Index removeIndex(UUID dataID) throws DAOFileException {
+        FileDAOUtilities.checkNotNull("IndexManager.removeIndex -> dataID", dataID);
+        if (tree != null) {
+            long dataPointer = tree.remove(dataID);
+            return dataPointer == BPlusTree.NOT_FOUND ? null : new Index(dataID, dataPointer);
+        }
+        int slot = findSlot(dataID);
+        if (slot == UUIDHashIndex.NOT_FOUND) {
+            return null;
+        }
+        Index removedIndex = new Index(dataID, getDataPointerAt(slot));
+        long rowPointer = getRowPointer(slot);
+        synchronized (rowWriter) {
+            // le tuple en attente ne doit plus etre écrit
+            IndexRow pendingRow = pendingRows.remove(slot);
+            if (pendingRow != null) {
+                pendingRow.removePropertyChangeListener(rowWriter);
+                pendingRow.setDirty(false);
+            }
+        }
+        fhr.getData().decrementRowNumber();
+        try {
+            boolean removed;
+            if (slot < sortedRowNumber) {
+                removed = writeSortedTombstone(rowPointer);
+            } else {
+                slotsByUUID.remove(dataID);
+                clearIndexAt(slot);
+                removed = rowWriter.writeTombstone(rowPointer, rowSize);
+                if (removed && indexMode == IndexMode.EAGER) {
+                    fhr.getData().addFreeSlot(rowPointer);
+                }
+            }
+            if (removed) {
+                LOGGER.log(Level.FINE, "[OK] index deleted -> dataID = {0}, rowSize = {1}, rowNumber = {2}\n",
+                        new Object[]{dataID, rowSize, getRowNumber()});
+                return removedIndex;
+            }
+        } catch (DAOFileWriterException ex) {
+            throw new DAOFileException(ex.getMessage(), ex);
+        }
+        LOGGER.log(Level.FINE, "[NOK] index not deleted : {0}", removedIndex);
+        return null;
+    }
+
+    /**
+     * Marque comme supprimé un tuple de la suite triée. Seul l'identifiant du
+     * tuple est remplacé, l'identifiant de l'objet reste à sa place pour la
+     * recherche par dichotomie.
+     *
+     * @param rowPointer Pointeur du tuple.
+     * @return <code>true</code> si le tuple a été marqué comme supprimé.
+     * @throws DAOFileWriterException s'il y'a une erreur lors de l'écriture.
+     */
+    private boolean writeSortedTombstone(long rowPointer) throws DAOFileWriterException {
+        ByteBuffer row = ByteBuffer.allocate(rowSize);
+        ByteBuffer buffer = rowWriter.read(rowPointer, rowSize);
+        if (buffer == null) {
+            return false;
+        }
+        try {
+            row.put(buffer);
+        } finally {
+            rowWriter.release(buffer);
+        }
+        row.putInt(0, AbstractRow.TOMBSTONE_ROW_ID);
+        row.putInt(4, AbstractRow.NO_CHECKSUM);
+        return rowWriter.write(rowPointer, row) == rowSize;
     }
 
     /**
      * Supprime un tuple tuple d'index <code>indexRowToDelete</code> d'un
-     * fichier d'index. Et mets à jour les pointeurs des tuples d'index et les
-     * pointeurs de données qui suivent le tuple d'index à retirer.
+     * fichier d'index. Le tuple n'est supprimé que s'il est toujours à
+     * l'emplacement indiqué par son pointeur. Le tuple d'index est marqué
+     * comme supprimé, les pointeurs des autres tuples d'index et les pointeurs
+     * de données ne changent pas.
      *
      * @param indexRowToDelete Tuple d'index à supprimer.
      * @return L'index supprimé
      * @throws DAOFileException s'il y'a une erreur lors de la suppression.
      */
-    public Index removeIndex(IndexRow indexRowToDelete) throws DAOFileException {
+    synchronized public Index removeIndex(IndexRow indexRowToDelete) throws DAOFileException {
         if (indexRowToDelete != null) {
-            if (super.removeRow(indexRowToDelete)) {
-                long rowPpointer = indexRowToDelete.getRowPointer();
-                long dataPointer = indexRowToDelete.getData().getDataPointer();
-                updateDataRowsPointer(rowPpointer, dataPointer, dataRowSize);
-                LOGGER.log(Level.FINE, "[OK] index deleted -> dataID = {0}, rowSize = {1}, rowNumber = {2}\n",
-                        new Object[]{indexRowToDelete.getData().getUUID(), rowSize, getRowNumber()});
-                return indexRowToDelete.getData();
+            UUID dataID = indexRowToDelete.getData().getUUID();
+            if (tree != null) {
+                // le pointeur d'un tuple de l'arbre est le pointeur de données
+                return tree.get(dataID) == indexRowToDelete.getRowPointer() ? removeIndex(dataID) : null;
+            }
+            int slot = findSlot(dataID);
+            if (slot != UUIDHashIndex.NOT_FOUND && getRowPointer(slot) == indexRowToDelete.getRowPointer()) {
+                return removeIndex(dataID);
             }
         }
         return null;
@@ -130,85 +685,795 @@ public class IndexManager extends AbstractRowManager<IndexRow> {
 
     /**
      * Supprime un ensemble de tuple d'index <code>indexRowsToDelete</code> d'un
-     * fichier d'index. Et mets à jour les pointeurs des tuples d'index et les
-     * pointeurs de données qui suivent le dernier tuple d'index de la liste.
+     * fichier d'index.
      *
      * @param indexRowsSortedByPointerToDelete Liste des tuples d'index à supprimer.
      * @throws DAOFileException s'il y'a une erreur lors de la suppression.
      */
     public void removeIndex(List<IndexRow> indexRowsSortedByPointerToDelete) throws DAOFileException {
-        if (!indexRowsSortedByPointerToDelete.isEmpty()) {
-            IndexRow firstIndexRow = indexRowsSortedByPointerToDelete.get(0);
-            long startPointer = firstIndexRow.getRowPointer();
-            long dataPointer = firstIndexRow.getData().getDataPointer();
-            indexRowsSortedByPointerToDelete.forEach((indexRow) -> {
-                super.removeRowFromList(indexRow);
-            });
-            updateDataRowsPointer(startPointer, dataPointer, indexRowsSortedByPointerToDelete.size() * this.dataRowSize);
-            int offset = indexRowsSortedByPointerToDelete.size() * super.rowSize;
+        for (IndexRow indexRow : indexRowsSortedByPointerToDelete) {
+            removeIndex(indexRow);
+        }
+    }
+
+    /**
+     * Renvoie le pointeur de données de l'objet d'identifiant
+     * <code>dataID</code>. La recherche se fait en temps constant, ou en temps
+     * logarithmique dans la suite triée d'un fichier {@link IndexMode#LAZY}, et
+     * ne crée aucun objet.
+     *
+     * @param dataID Identifiant de l'objet indexé. NE DOIT PAS ETRE NULL.
+     * @return Pointeur de données ou {@link #NO_DATA_POINTER} si l'objet n'a
+     * pas d'index.
+     * @throws DAOFileException s'il y'a une erreur lors de la lecture du
+     * fichier d'index.
+     */
+    synchronized public long getDataPointer(UUID dataID) throws DAOFileException {
+        FileDAOUtilities.checkNotNull("IndexManager.getDataPointer -> dataID", dataID);
+        if (tree != null) {
+            return tree.get(dataID);
+        }
+        int slot = findSlot(dataID);
+        return slot == UUIDHashIndex.NOT_FOUND ? NO_DATA_POINTER : getDataPointerAt(slot);
+    }
+
+    /**
+     * Renvoie les pointeurs de données d'un ensemble d'objets en une seule
+     * prise du verrou du gestionnaire.
+     *
+     * @param dataIDs Identifiants des objets indexés. NE DOIT PAS ETRE NULL.
+     * @return Pointeurs de données dans l'ordre des identifiants,
+     * {@link #NO_DATA_POINTER} pour un objet qui n'a pas d'index.
+     * @throws DAOFileException s'il y'a une erreur lors de la lecture du
+     * fichier d'index.
+     */
+    synchronized public long[] getDataPointers(List<UUID> dataIDs) throws DAOFileException {
+        FileDAOUtilities.checkNotNull("IndexManager.getDataPointers -> dataIDs", dataIDs);
+        long[] dataPointers = new long[dataIDs.size()];
+        for (int i = 0; i < dataPointers.length; i++) {
+            dataPointers[i] = getDataPointer(dataIDs.get(i));
+        }
+        return dataPointers;
+    }
+
+    /**
+     * Modifie le pointeur de données de l'objet d'identifiant
+     * <code>dataID</code>. Le tuple d'index est mis en attente d'écriture.
+     *
+     * @param dataID Identifiant de l'objet indexé. NE DOIT PAS ETRE NULL.
+     * @param dataPointer Nouveau pointeur de données. DOIT ETRE POSITIF.
+     * @return <code>true</code> si l'index existe sinon <code>false</code>.
+     * @throws DAOFileException s'il y'a une erreur lors de la mise en attente
+     * du tuple d'index.
+     */
+    synchronized public boolean setDataPointer(UUID dataID, long dataPointer) throws DAOFileException {
+        FileDAOUtilities.checkNotNull("IndexManager.setDataPointer -> dataID", dataID);
+        if (dataPointer < 0) {
+            throw new IllegalArgumentException("IndexManager.setDataPointer -> dataPointer '" + dataPointer + "' must be greater or equal to 0.");
+        }
+        if (tree != null) {
+            if (tree.get(dataID) == BPlusTree.NOT_FOUND) {
+                return false;
+            }
+            tree.put(dataID, dataPointer);
+            return true;
+        }
+        int slot = findSlot(dataID);
+        if (slot == UUIDHashIndex.NOT_FOUND) {
+            return false;
+        }
+        if (getDataPointerAt(slot) != dataPointer) {
+            if (slot >= sortedRowNumber) {
+                dataPointers[slot - sortedRowNumber] = dataPointer;
+            }
+            markDirty(slot, dataPointer);
+        }
+        return true;
+    }
+
+    /**
+     * Renvoie une copie du tuple d'index de l'objet d'identifiant
+     * <code>dataID</code>. Modifier la copie ne modifie pas l'index.
+     *
+     * @param dataID Identifiant de l'objet indexé. NE DOIT PAS ETRE NULL.
+     * @return Copie du tuple d'index ou <code>null</code> si l'objet n'a pas
+     * d'index.
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * s'il y'a une erreur lors de la création du tuple.
+     */
+    synchronized public IndexRow getRow(UUID dataID) throws DAOFileException {
+        FileDAOUtilities.checkNotNull("IndexManager.getRow -> dataID", dataID);
+        if (tree != null) {
+            long dataPointer = tree.get(dataID);
+            return dataPointer == BPlusTree.NOT_FOUND ? null : createTreeRow(dataID, dataPointer);
+        }
+        int slot = findSlot(dataID);
+        if (slot == UUIDHashIndex.NOT_FOUND) {
+            LOGGER.log(Level.FINE, "[NOK] index not founded : id={0}", dataID);
+            return null;
+        }
+        return materialize(slot);
+    }
+
+    /**
+     * Renvoie les copies des tuples d'index des objets de la liste
+     * {@code dataList}, triées suivant le pointeur de tuple.
+     *
+     * @param dataList Liste des objets Persistables.
+     * @return Liste des copies des tuples d'index.
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * s'il y'a une erreur lors de la création d'un tuple.
+     */
+    synchronized public List<IndexRow> getRowList(List<? extends Persistable> dataList) throws DAOFileException {
+        FileDAOUtilities.checkNotNull("IndexManager.getRowList -> dataList", dataList);
+        List<IndexRow> rowList = new ArrayList<>();
+        for (Persistable data : dataList) {
+            if (tree != null) {
+                long dataPointer = tree.get(data.getUUID());
+                if (dataPointer != BPlusTree.NOT_FOUND) {
+                    rowList.add(createTreeRow(data.getUUID(), dataPointer));
+                }
+                continue;
+            }
+            int slot = findSlot(data.getUUID());
+            if (slot != UUIDHashIndex.NOT_FOUND) {
+                rowList.add(materialize(slot));
+            }
+        }
+        rowList.sort(Comparator.comparingLong(AbstractRow::getRowPointer));
+        return rowList;
+    }
+
+    /**
+     * Renvoie les copies de tous les index, dans l'ordre des emplacements du
+     * fichier d'index. La suite triée d'un fichier {@link IndexMode#LAZY} est
+     * lue entièrement. Pour parcourir les index sans les garder en mémoire,
+     * il faut utiliser {@link #forEachIndex(BPlusTree.EntryConsumer)}.
+     *
+     * @return Liste des copies des index.
+     * @throws DAOFileException s'il y'a une erreur lors de la lecture du
+     * fichier d'index.
+     */
+    synchronized public List<Index> getIndexes() throws DAOFileException {
+        List<Index> indexes = new ArrayList<>(getRowNumber());
+        forEachIndex((dataID, dataPointer) -> indexes.add(new Index(dataID, dataPointer)));
+        return indexes;
+    }
+
+    /**
+     * Parcourt tous les index sans les copier, dans l'ordre des emplacements
+     * du fichier d'index (dans l'ordre des identifiants en mode
+     * {@link IndexMode#BTREE}). La suite triée d'un fichier
+     * {@link IndexMode#LAZY} est lue par blocs de {@link #BLOCK_ROW_NUMBER}
+     * tuples, la mémoire utilisée ne dépend donc pas du nombre d'index.
+     * <br>
+     * L'action est appelée sous le verrou du gestionnaire, elle ne doit pas
+     * attendre un autre thread qui modifie les index.
+     *
+     * @param consumer Action appelée avec l'identifiant et le pointeur de
+     * données de chaque index. NE DOIT PAS ETRE NULL.
+     * @throws DAOFileException s'il y'a une erreur lors de la lecture du
+     * fichier d'index ou si l'action échoue.
+     */
+    synchronized public void forEachIndex(BPlusTree.EntryConsumer consumer) throws DAOFileException {
+        FileDAOUtilities.checkNotNull("IndexManager.forEachIndex -> consumer", consumer);
+        if (tree != null) {
+            tree.forEach(consumer);
+            return;
+        }
+        if (sortedRowNumber > 0) {
+            int slot = 0;
             try {
-                if (super.rowWriter.deleteFromFile((int) startPointer, offset)) {
-                    super.updateRowsPointer(startPointer, offset);
+                while (slot < sortedRowNumber) {
+                    int nbRows = Math.min(BLOCK_ROW_NUMBER, sortedRowNumber - slot);
+                    ByteBuffer buffer = rowWriter.read(getRowPointer(slot), nbRows * rowSize);
+                    if (buffer == null) {
+                        throw new DAOFileException("IndexManager.forEachIndex -> sorted row " + slot + " not found in " + indexFilePath);
+                    }
+                    try {
+                        int start = buffer.position();
+                        for (int i = 0; i < nbRows && (i + 1) * rowSize <= buffer.limit() - start; i++, slot++) {
+                            int position = start + i * rowSize;
+                            if (buffer.getInt(position) != AbstractRow.TOMBSTONE_ROW_ID) {
+                                IndexRow pendingRow = pendingRows.get(slot);
+                                long dataPointer = pendingRow != null
+                                        ? pendingRow.getData().getDataPointer()
+                                        : buffer.getLong(position + AbstractRow.ROW_HEADER_SIZE + 16);
+                                consumer.accept(new UUID(buffer.getLong(position + AbstractRow.ROW_HEADER_SIZE),
+                                        buffer.getLong(position + AbstractRow.ROW_HEADER_SIZE + 8)), dataPointer);
+                            }
+                        }
+                    } finally {
+                        rowWriter.release(buffer);
+                    }
                 }
             } catch (DAOFileWriterException ex) {
                 throw new DAOFileException(ex.getMessage(), ex);
             }
         }
+        for (int i = 0; i < rowIDs.length; i++) {
+            if (rowIDs[i] != 0) {
+                consumer.accept(new UUID(mostSigBits[i], leastSigBits[i]), dataPointers[i]);
+            }
+        }
+    }
+
+    /**
+     * Crée un tuple d'index détaché pour une entrée de l'arbre B+. Le tuple
+     * n'a pas d'identifiant et son pointeur est le pointeur de données.
+     *
+     * @param dataID Identifiant de l'objet indexé.
+     * @param dataPointer Pointeur de données.
+     * @return Tuple d'index.
+     */
+    private IndexRow createTreeRow(UUID dataID, long dataPointer) throws DAOFileException {
+        IndexRow row = new IndexRow(0, new Index(dataID, dataPointer), dataPointer);
+        row.setDirty(false);
+        return row;
     }
 
     /**
-     * Mets à jours les pointeurs de données des index à partir de la position
-     * <code>position</code> en enlevant l'offset <code>offset</code>.
-     *
-     * @param pointer Position du tuple d'index à partir de laquelle la mise à
-     * jour est commencée.
-     * @param offset L'offset à enlever aux pointeurs de données.
-     * @throws DAOFileException s'il y'a une erreur lors de la mis à jour des pointeurs des tuples de données.
-     */
-    private void updateDataRowsPointer(long pointer, long dataPointer, int offset) throws DAOFileException {
-        int position = RowUtilities.getRowPositionFormSortedListByPointer(getRowsSortedByRowPointer(), pointer); 
-        
-        LOGGER.log(Level.FINE, "++ IndexManager.updateDataRowsPointer : " 
-                + "\n\t pointer  : {0}"
-                + "\n\t offset   : {1}" 
-                + "\n\t listSize : {2}" 
-                + "\n\t position : {3}", 
-                new Object[]{pointer, offset, getRowsSortedByRowPointer().size(), position});
-        if (!getRowsSortedByRowPointer().isEmpty()) {
-            LOGGER.log(Level.FINE, print("\t before   : ", getRowsSortedByRowPointer()));
-            
-            IndexRow indexRowAtPosition = getRowsSortedByRowPointer().get(position);
-            if (indexRowAtPosition.getData().getDataPointer() < dataPointer) {
-                position += 1;
-//                System.out.println("\n\t position : " + position);
-            }
-            for (int i = position; i < getRowsSortedByRowPointer().size(); i++) {
-                Index nextIndex = (Index) getRowsSortedByRowPointer().get(i).getData();
-                long oldPointer = nextIndex.getDataPointer();
-                long newPointer = oldPointer - offset;
-                if (newPointer >= FileHeaderRow.FILE_HEADER_ROW_SIZE) {
-                    nextIndex.setDataPointer(newPointer);
-                    LOGGER.log(Level.FINE, "{0}, olPointer : {1} -> newPointer : {2}, offset={3}",
-                            new Object[]{nextIndex, oldPointer, newPointer, offset});
+     * Renvoie le numéro d'emplacement de l'index d'un objet. Les index non
+     * triés sont cherchés dans la table des emplacements puis, en mode
+     * {@link IndexMode#LAZY}, la suite triée est cherchée par dichotomie.
+     *
+     * @param dataID Identifiant de l'objet indexé.
+     * @return Numéro d'emplacement ou {@link UUIDHashIndex#NOT_FOUND}.
+     * @throws DAOFileException s'il y'a une erreur lors de la lecture du
+     * fichier d'index.
+     */
+    private int findSlot(UUID dataID) throws DAOFileException {
+        int slot = slotsByUUID.get(dataID);
+        if (slot != UUIDHashIndex.NOT_FOUND || sortedRowNumber == 0) {
+            return slot;
+        }
+        long mostBits = dataID.getMostSignificantBits();
+        long leastBits = dataID.getLeastSignificantBits();
+        int low = 0;
+        int high = sortedRowNumber - 1;
+        try {
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                ByteBuffer buffer = rowWriter.read(getRowPointer(middle), rowSize);
+                if (buffer == null || buffer.remaining() < rowSize) {
+                    throw new DAOFileException("IndexManager.findSlot -> sorted row " + middle + " not found in " + indexFilePath);
+                }
+                try {
+                    int position = buffer.position();
+                    int comparison = compare(buffer.getLong(position + AbstractRow.ROW_HEADER_SIZE),
+                            buffer.getLong(position + AbstractRow.ROW_HEADER_SIZE + 8), mostBits, leastBits);
+                    if (comparison < 0) {
+                        low = middle + 1;
+                    } else if (comparison > 0) {
+                        high = middle - 1;
+                    } else {
+                        return buffer.getInt(position) == AbstractRow.TOMBSTONE_ROW_ID ? UUIDHashIndex.NOT_FOUND : middle;
+                    }
+                } finally {
+                    rowWriter.release(buffer);
                 }
             }
-            LOGGER.log(Level.FINE, print("\t after    : ", getRowsSortedByRowPointer()));
+        } catch (DAOFileWriterException ex) {
+            throw new DAOFileException(ex.getMessage(), ex);
+        }
+        return UUIDHashIndex.NOT_FOUND;
+    }
+
+    /**
+     * Compare deux identifiants dans l'ordre de {@link UUID#compareTo(UUID)}.
+     *
+     * @return Valeur négative, nulle ou positive si le premier identifiant est
+     * inférieur, égal ou supérieur au second.
+     */
+    private static int compare(long mostBits1, long leastBits1, long mostBits2, long leastBits2) {
+        int comparison = Long.compare(mostBits1, mostBits2);
+        return comparison != 0 ? comparison : Long.compare(leastBits1, leastBits2);
+    }
+
+    /**
+     * Renvoie le pointeur de données d'un emplacement occupé. Pour la suite
+     * triée, le tuple en attente d'écriture est plus récent que le fichier.
+     *
+     * @param slot Numéro d'emplacement occupé.
+     * @return Pointeur de données.
+     */
+    private long getDataPointerAt(int slot) throws DAOFileException {
+        if (slot >= sortedRowNumber) {
+            return dataPointers[slot - sortedRowNumber];
+        }
+        return materialize(slot).getData().getDataPointer();
+    }
+
+    /**
+     * Crée une copie du tuple d'index d'un emplacement. La copie n'est pas
+     * écoutée par le writer.
+     *
+     * @param slot Numéro d'emplacement occupé.
+     * @return Copie du tuple d'index.
+     */
+    private IndexRow materialize(int slot) throws DAOFileException {
+        IndexRow row;
+        if (slot >= sortedRowNumber) {
+            int i = slot - sortedRowNumber;
+            row = new IndexRow(rowIDs[i], new Index(new UUID(mostSigBits[i], leastSigBits[i]), dataPointers[i]), getRowPointer(slot));
+        } else {
+            IndexRow pendingRow = pendingRows.get(slot);
+            if (pendingRow != null) {
+                Index index = pendingRow.getData();
+                row = new IndexRow(pendingRow.geRowID(), new Index(index.getUUID(), index.getDataPointer()), getRowPointer(slot));
+            } else {
+                row = readRow(slot);
+            }
+        }
+        row.setDirty(false);
+        return row;
+    }
+
+    /**
+     * Lit le tuple d'index d'un emplacement dans le fichier.
+     *
+     * @param slot Numéro d'emplacement.
+     * @return Tuple d'index lu.
+     * @throws DAOFileException s'il y'a une erreur lors de la lecture.
+     */
+    private IndexRow readRow(int slot) throws DAOFileException {
+        long rowPointer = getRowPointer(slot);
+        try {
+            ByteBuffer buffer = rowWriter.read(rowPointer, rowSize);
+            if (buffer == null) {
+                throw new DAOFileException("IndexManager.readRow -> no row found at the position " + rowPointer);
+            }
+            try {
+                return createRow(buffer, rowPointer);
+            } finally {
+                rowWriter.release(buffer);
+            }
+        } catch (DAOFileWriterException ex) {
+            throw new DAOFileException(ex.getMessage(), ex);
         }
     }
-    
+
     /**
-     * just for log
-     * @param name
-     * @param list
-     * @return 
+     * Met le tuple d'index d'un emplacement en attente d'écriture. Si un tuple
+     * de cet emplacement est déjà en attente, il est mis à jour ; s'il a déjà
+     * été écrit, la modification le remet dans la liste d'attente du writer.
+     *
+     * @param slot Numéro d'emplacement occupé.
+     * @param dataPointer Pointeur de données à écrire.
+     * @throws DAOFileException s'il y'a une erreur lors de la mise en attente.
+     */
+    private void markDirty(int slot, long dataPointer) throws DAOFileException {
+        synchronized (rowWriter) {
+            IndexRow pendingRow = pendingRows.get(slot);
+            if (pendingRow != null) {
+                pendingRow.getData().setDataPointer(dataPointer);
+                return;
+            }
+            pruneWrittenRows();
+            IndexRow row = materialize(slot);
+            row.getData().setDataPointer(dataPointer);
+            row.setDirty(true);
+            rowWriter.addRowToMultipleWritingList(row);
+            row.addPropertyChangeListener(rowWriter);
+            pendingRows.put(slot, row);
+        }
+    }
+
+    /**
+     * Retire de la table des tuples en attente les tuples déjà écrits. Appelé
+     * sous le verrou du writer : un tuple qui n'est pas modifié a été écrit et
+     * n'est plus dans les listes d'attente.
+     */
+    private void pruneWrittenRows() {
+        if (pendingRows.size() < pruneThreshold) {
+            return;
+        }
+        for (Iterator<IndexRow> iterator = pendingRows.values().iterator(); iterator.hasNext();) {
+            IndexRow row = iterator.next();
+            if (!row.isDirty()) {
+                row.removePropertyChangeListener(rowWriter);
+                iterator.remove();
+            }
+        }
+        pruneThreshold = Math.max(MIN_PRUNE_THRESHOLD, 2 * pendingRows.size());
+    }
+
+    /**
+     * Range un index non trié à son numéro d'emplacement. Les tableaux sont
+     * agrandis si nécessaire.
+     *
+     * @param slot Numéro d'emplacement.
+     * @param rowID Identifiant du tuple d'index.
+     * @param dataID Identifiant de l'objet indexé.
+     * @param dataPointer Pointeur de données.
+     */
+    private void setIndexAt(int slot, int rowID, UUID dataID, long dataPointer) {
+        int i = slot - sortedRowNumber;
+        if (i >= rowIDs.length) {
+            int capacity = Math.max(i + 1, rowIDs.length + (rowIDs.length >> 1));
+            mostSigBits = Arrays.copyOf(mostSigBits, capacity);
+            leastSigBits = Arrays.copyOf(leastSigBits, capacity);
+            dataPointers = Arrays.copyOf(dataPointers, capacity);
+            rowIDs = Arrays.copyOf(rowIDs, capacity);
+        }
+        mostSigBits[i] = dataID.getMostSignificantBits();
+        leastSigBits[i] = dataID.getLeastSignificantBits();
+        dataPointers[i] = dataPointer;
+        rowIDs[i] = rowID;
+        slotsByUUID.put(dataID, slot);
+    }
+
+    /**
+     * Libère un emplacement non trié.
+     *
+     * @param slot Numéro d'emplacement.
      */
-    private String print(String name, List<IndexRow> list) {
-        StringBuilder result = new StringBuilder();
-        result.append(name);
-        list.forEach((ar) -> {
-                result.append(ar.getData().getDataPointer()).append(", ");
-        });
-        result.append("\n");
-        return result.toString();
+    private void clearIndexAt(int slot) {
+        int i = slot - sortedRowNumber;
+        mostSigBits[i] = 0;
+        leastSigBits[i] = 0;
+        dataPointers[i] = 0;
+        rowIDs[i] = 0;
+    }
+
+    /**
+     * Renvoie le numéro d'emplacement d'un tuple dans le fichier.
+     *
+     * @param rowPointer Pointeur du tuple.
+     * @return Numéro d'emplacement du tuple.
+     * @throws DAOFileException si le pointeur ne correspond pas au début d'un
+     * emplacement.
+     */
+    private int getSlot(long rowPointer) throws DAOFileException {
+        long offset = rowPointer - FileHeaderRow.FILE_HEADER_ROW_SIZE;
+        if (offset < 0 || offset % rowSize != 0) {
+            throw new DAOFileException("IndexManager -> rowPointer '" + rowPointer
+                    + "' is not the start of a row slot (rowSize = " + rowSize + ")");
+        }
+        return (int) (offset / rowSize);
+    }
+
+    /**
+     * Renvoie le pointeur du tuple d'un emplacement.
+     *
+     * @param slot Numéro d'emplacement.
+     * @return Pointeur du tuple.
+     */
+    private long getRowPointer(int slot) {
+        return FileHeaderRow.FILE_HEADER_ROW_SIZE + (long) slot * rowSize;
+    }
+
+    /**
+     * @return Mode de chargement du fichier d'index.
+     */
+    public IndexMode getIndexMode() {
+        return indexMode;
+    }
+
+    /**
+     * Renvoie le nombre total de tuples dans un fichier.
+     *
+     * @return Nombre total de tuples dans un fichier.
+     */
+    public int getRowNumber() {
+        if (tree != null) {
+            return tree.size();
+        }
+        return this.fhr.getData().getRowNumber();
+    }
+
+    /**
+     * Renvoie le nombre d'index triés au début du fichier, toujours nul en
+     * mode {@link IndexMode#EAGER}.
+     *
+     * @return Nombre d'emplacements triés.
+     */
+    synchronized public int getSortedRowNumber() {
+        return sortedRowNumber;
+    }
+
+    /**
+     * Renvoie le prochain identifiant de tuple.
+     *
+     * @return Prochain identifiant de tuple.
+     */
+    int getNextRowID() {
+        return this.fhr.getData().getNextRowID();
+    }
+
+    /**
+     * Renvoie le pointeur de fin du fichier, où est écrit un nouveau tuple
+     * lorsqu'il n'y a pas d'emplacement libre. Les emplacements des tuples
+     * supprimés sont comptés.
+     *
+     * @return Prochain pointeur de tuple.
+     */
+    protected long getNextRowPointer() {
+        int nbSlots = indexMode == IndexMode.LAZY ? slotNumber : this.fhr.getData().getSlotNumber();
+        return getRowPointer(nbSlots);
+    }
+
+    /**
+     * Renvoie <code>true</code> s'il y'a des tuples en attente d'écriture sinon
+     * <code>false</code>.
+     *
+     * @return <code>true</code> s'il y'a des tuples en attente d'écriture sinon
+     * <code>false</code>.
+     */
+    public boolean hasPendingRows() {
+        return rowWriter.hasPendingRows();
+    }
+
+    /**
+     * Vérifie en parallèle les sommes de controle de tous les tuples du
+     * fichier d'index. Les tuples en attente d'écriture ne sont pas vérifiés.
+     *
+     * @return Rapport de la vérification.
+     * @throws DAOFileException s'il y'a une erreur lors de la lecture du
+     * fichier.
+     */
+    public FileVerifier.Report verify() throws DAOFileException {
+        try {
+            int verifiedRowSize = tree != null ? BPlusTree.PAGE_SIZE : rowSize;
+            return new FileVerifier(rowWriter.getFilePath(), verifiedRowSize).verify();
+        } catch (DAOFileWriterException ex) {
+            throw new DAOFileException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Renvoie le taux de fragmentation du fichier. En mode
+     * {@link IndexMode#LAZY}, tout emplacement qui ne contient pas un index
+     * est compté comme libre.
+     *
+     * @return Taux de fragmentation du fichier.
+     */
+    public double getFragmentation() {
+        if (tree != null) {
+            return 0;
+        }
+        if (indexMode == IndexMode.LAZY) {
+            synchronized (this) {
+                return slotNumber == 0 ? 0 : (double) (slotNumber - getRowNumber()) / slotNumber;
+            }
+        }
+        return this.fhr.getData().getFragmentation();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>
+     * Le fichier est compacté si son taux de fragmentation atteint le seuil de
+     * compactage ou s'il contient encore les anciens emplacements des tuples
+     * déplacés lors de la passe précédente. Un fichier {@link IndexMode#LAZY}
+     * est aussi trié à nouveau lorsqu'il contient plus de
+     * {@link #MAX_UNSORTED_ROWS} index non triés.
+     */
+    @Override
+    public boolean needsCompaction() {
+        if (tree != null || rowWriter.isClosed()) {
+            return false;
+        }
+        if (indexMode == IndexMode.LAZY) {
+            synchronized (this) {
+                return slotNumber - sortedRowNumber >= MAX_UNSORTED_ROWS
+                        || (slotNumber > getRowNumber() && getFragmentation() >= FileHeader.getFragmentationThreshold());
+            }
+        }
+        return this.fhr.getData().isFragmented() || rowWriter.getFileLenght() > getNextRowPointer();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>
+     * La passe est reportée si des tuples sont en attente d'écriture. Un index
+     * déplacé est recopié dans les tableaux à son nouvel emplacement et son
+     * tuple est écrit par le writer, l'ancien emplacement est retiré du
+     * fichier lors de la passe suivante.
+     * <br>
+     * En mode {@link IndexMode#LAZY}, le fichier est fusionné en une seule
+     * passe {@link #merge()}, <code>maxMoves</code> n'est pas utilisé.
+     */
+    @Override
+    synchronized public int compact(int maxMoves) throws DAOFileException {
+        if (maxMoves <= 0) {
+            throw new IllegalArgumentException("IndexManager.compact -> maxMoves '" + maxMoves + "' must be greater than 0.");
+        }
+        if (tree != null) {
+            return 0;
+        }
+        if (indexMode == IndexMode.LAZY) {
+            return merge();
+        }
+        int nbMovedRows = 0;
+        synchronized (rowWriter) {
+            if (rowWriter.hasPendingRows()) {
+                return 0;
+            }
+            try {
+                long endPointer = getNextRowPointer();
+                if (rowWriter.getFileLenght() > endPointer) {
+                    rowWriter.truncate(endPointer);
+                }
+                while (nbMovedRows < maxMoves && fhr.getData().getTombstoneNumber() > 0) {
+                    long lastPointer = endPointer - rowSize;
+                    if (!fhr.getData().removeFreeSlot(lastPointer)) {
+                        int lastSlot = getSlot(lastPointer);
+                        if (lastSlot >= rowIDs.length || rowIDs[lastSlot] == 0) {
+                            LOGGER.log(Level.WARNING, "compaction stopped -> no index found at the row pointer {0}", lastPointer);
+                            break;
+                        }
+                        int freeSlot = getSlot(fhr.getData().pollFreeSlot());
+                        UUID dataID = new UUID(mostSigBits[lastSlot], leastSigBits[lastSlot]);
+                        setIndexAt(freeSlot, rowIDs[lastSlot], dataID, dataPointers[lastSlot]);
+                        clearIndexAt(lastSlot);
+                        IndexRow pendingRow = pendingRows.remove(lastSlot);
+                        if (pendingRow != null) {
+                            pendingRow.removePropertyChangeListener(rowWriter);
+                        }
+                        markDirty(freeSlot, dataPointers[freeSlot]);
+                        nbMovedRows++;
+                    }
+                    endPointer = lastPointer;
+                }
+                if (nbMovedRows == 0 && rowWriter.getFileLenght() > endPointer) {
+                    rowWriter.truncate(endPointer);
+                }
+            } catch (DAOFileWriterException ex) {
+                throw new DAOFileException(ex.getMessage(), ex);
+            }
+        }
+        LOGGER.log(Level.FINE, "{0} rows moved -> new fragmentation : {1}", new Object[]{nbMovedRows, getFragmentation()});
+        return nbMovedRows;
+    }
+
+    /**
+     * Trie à nouveau un fichier {@link IndexMode#LAZY}. La suite triée, sans
+     * ses tuples supprimés, est fusionnée avec les index non triés dans un
+     * fichier temporaire qui remplace ensuite le fichier d'index. Une
+     * interruption avant le remplacement laisse le fichier d'index intact.
+     * Les tuples de la suite triée sont recopiés tels quels, avec leur somme
+     * de controle.
+     *
+     * @return Nombre d'index non triés rangés dans la suite triée.
+     * @throws DAOFileException s'il y'a une erreur lors de la fusion.
+     */
+    private int merge() throws DAOFileException {
+        DAOFileWriter oldRowWriter = rowWriter;
+        synchronized (oldRowWriter) {
+            if (oldRowWriter.hasPendingRows()) {
+                return 0;
+            }
+            int nbUnsorted = writeMergeFile();
+            for (IndexRow pendingRow : pendingRows.values()) {
+                pendingRow.removePropertyChangeListener(oldRowWriter);
+            }
+            try {
+                oldRowWriter.close();
+                Files.move(getMergeFilePath(), indexFilePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | DAOFileWriterException ex) {
+                throw new DAOFileException("IndexManager.merge -> " + indexFilePath + " couldn't be replaced : " + ex.getMessage(), ex);
+            } finally {
+                pendingRows.clear();
+                slotsByUUID.clear();
+                clearArrays();
+                openWriter();
+                this.sortedRowNumber = this.fhr.getData().getSortedRowNumber();
+                this.slotNumber = (int) Math.max(0, (rowWriter.getFileLenght() - FileHeaderRow.FILE_HEADER_ROW_SIZE) / rowSize);
+                loadRows(getRowPointer(sortedRowNumber));
+            }
+            LOGGER.log(Level.FINE, "{0} merged -> {1} sorted rows, {2} unsorted rows merged",
+                    new Object[]{indexFilePath, sortedRowNumber, nbUnsorted});
+            return nbUnsorted;
+        }
+    }
+
+    /**
+     * @return Chemin d'accès du fichier temporaire de la fusion.
+     */
+    private Path getMergeFilePath() {
+        return indexFilePath.resolveSibling(indexFilePath.getFileName() + ".merge");
+    }
+
+    /**
+     * Ecrit le fichier temporaire de la fusion : la suite triée sans ses
+     * tuples supprimés et les index non triés, rangés suivant l'identifiant,
+     * puis l'en-tete.
+     *
+     * @return Nombre d'index non triés rangés dans la suite triée.
+     * @throws DAOFileException s'il y'a une erreur lors de l'écriture.
+     */
+    private int writeMergeFile() throws DAOFileException {
+        Integer[] unsorted = new Integer[rowIDs.length];
+        int nbUnsorted = 0;
+        for (int i = 0; i < rowIDs.length; i++) {
+            if (rowIDs[i] != 0) {
+                unsorted[nbUnsorted++] = i;
+            }
+        }
+        Arrays.sort(unsorted, 0, nbUnsorted, (i, j) -> compare(mostSigBits[i], leastSigBits[i], mostSigBits[j], leastSigBits[j]));
+        Path mergeFilePath = getMergeFilePath();
+        int nbRows = 0;
+        try (FileChannel mergeChannel = FileChannel.open(mergeFilePath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer output = ByteBuffer.allocate(BLOCK_ROW_NUMBER * rowSize);
+            long outputPointer = FileHeaderRow.FILE_HEADER_ROW_SIZE;
+            int next = 0;
+            for (int slot = 0; slot < sortedRowNumber;) {
+                int nbBlockRows = Math.min(BLOCK_ROW_NUMBER, sortedRowNumber - slot);
+                ByteBuffer buffer = rowWriter.read(getRowPointer(slot), nbBlockRows * rowSize);
+                if (buffer == null || buffer.remaining() < nbBlockRows * rowSize) {
+                    throw new DAOFileException("IndexManager.merge -> sorted rows not found at the slot " + slot + " in " + indexFilePath);
+                }
+                try {
+                    for (int i = 0; i < nbBlockRows; i++, slot++) {
+                        int position = buffer.position();
+                        if (buffer.getInt(position) == AbstractRow.TOMBSTONE_ROW_ID) {
+                            buffer.position(position + rowSize);
+                            continue;
+                        }
+                        long mostBits = buffer.getLong(position + AbstractRow.ROW_HEADER_SIZE);
+                        long leastBits = buffer.getLong(position + AbstractRow.ROW_HEADER_SIZE + 8);
+                        while (next < nbUnsorted && compare(mostSigBits[unsorted[next]], leastSigBits[unsorted[next]], mostBits, leastBits) < 0) {
+                            outputPointer = writeUnsorted(mergeChannel, output, outputPointer, unsorted[next++], nbRows++);
+                        }
+                        if (!output.hasRemaining()) {
+                            outputPointer = flush(mergeChannel, output, outputPointer);
+                        }
+                        ByteBuffer row = buffer.duplicate();
+                        row.limit(position + rowSize);
+                        output.put(row);
+                        buffer.position(position + rowSize);
+                        nbRows++;
+                    }
+                } finally {
+                    rowWriter.release(buffer);
+                }
+            }
+            while (next < nbUnsorted) {
+                outputPointer = writeUnsorted(mergeChannel, output, outputPointer, unsorted[next++], nbRows++);
+            }
+            flush(mergeChannel, output, outputPointer);
+            ByteBuffer header = ByteBuffer.allocate(FileHeaderRow.FILE_HEADER_ROW_SIZE);
+            new FileHeaderRow(new FileHeader(nbRows, fhr.getData().getLastRowID(), nbRows)).write(header);
+            header.clear();
+            while (header.hasRemaining()) {
+                mergeChannel.write(header, header.position());
+            }
+            mergeChannel.force(true);
+        } catch (IOException | DAOFileWriterException ex) {
+            throw new DAOFileException("IndexManager.merge -> " + indexFilePath + " couldn't be merged : " + ex.getMessage(), ex);
+        }
+        return nbUnsorted;
+    }
+
+    /**
+     * Ecrit un index non trié dans le tampon de sortie de la fusion.
+     *
+     * @return Position du fichier où le tampon sera écrit.
+     */
+    private long writeUnsorted(FileChannel mergeChannel, ByteBuffer output, long outputPointer, int i, int slot)
+            throws IOException, DAOFileException {
+        if (!output.hasRemaining()) {
+            outputPointer = flush(mergeChannel, output, outputPointer);
+        }
+        Index index = new Index(new UUID(mostSigBits[i], leastSigBits[i]), dataPointers[i]);
+        new IndexRow(rowIDs[i], index, getRowPointer(slot)).write(output, rowWriter.isRowChecksum());
+        return outputPointer;
+    }
+
+    /**
+     * Ecrit le tampon de sortie de la fusion à la position
+     * <code>outputPointer</code> puis le vide.
+     *
+     * @return Position du fichier qui suit les octets écrits.
+     */
+    private static long flush(FileChannel mergeChannel, ByteBuffer output, long outputPointer) throws IOException {
+        output.flip();
+        while (output.hasRemaining()) {
+            outputPointer += mergeChannel.write(output, outputPointer);
+        }
+        output.clear();
+        return outputPointer;
     }
 }
@@ -0,0 +1,57 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+/**
+ * Enumération des modes de chargement d'un fichier d'index
+ * {@link IndexManager}.
+ *
+ * @author aliyou
+ * @version 1.3
+ */
+public enum IndexMode {
+
+    /**
+     * Tous les index sont chargés en mémoire à l'ouverture du fichier.
+     * L'ouverture est proportionnelle au nombre d'index.
+     */
+    EAGER,
+    /**
+     * Le fichier commence par une suite d'index triés suivant l'identifiant,
+     * recherchés par dichotomie dans une projection en mémoire du fichier.
+     * Seuls les index ajoutés depuis le dernier tri sont chargés à
+     * l'ouverture, elle ne dépend donc pas du nombre d'index.
+     */
+    LAZY,
+    /**
+     * Les index sont rangés dans un arbre B+ paginé {@link BPlusTree}, dans un
+     * fichier <code>.btree</code>. Aucun index n'est chargé, la mémoire
+     * utilisée est bornée par le cache de pages. Les fichiers de liens
+     * {@link LinkManager} ne sont pas concernés, ils restent chargés en
+     * mémoire.
+     */
+    BTREE;
+
+    /**
+     * Nom de la propriété système qui définit le mode de chargement par
+     * défaut.
+     */
+    public static final String INDEX_MODE_PROPERTY = "mahjong.daofile.indexMode";
+
+    /**
+     * Renvoie le mode de chargement défini par la propriété système
+     * {@link #INDEX_MODE_PROPERTY} ou {@link #EAGER} si la propriété n'est
+     * pas définie ou n'est pas valide.
+     *
+     * @return Mode de chargement par défaut.
+     */
+    static IndexMode fromSystemProperty() {
+        String value = System.getProperty(INDEX_MODE_PROPERTY);
+        if (value != null) {
+            for (IndexMode mode : values()) {
+                if (mode.name().equalsIgnoreCase(value.trim())) {
+                    return mode;
+                }
+            }
+        }
+        return EAGER;
+    }
+}
@@ -0,0 +1,150 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import static fr.univubs.inf1603.mahjong.daofile.FileDAOUtilities.checkNotNull;
+import fr.univubs.inf1603.mahjong.daofile.FileDAOUtilities;
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Cette interface définit l'encodage d'une clé d'index secondaire
+ * {@link SecondaryIndex} dans un tuple. Une clé occupe toujours
+ * {@link #getKeySize()} octets dans le tuple.
+ *
+ * @author aliyou
+ * @version 1.3
+ * @param <K> Type de la clé.
+ */
+public interface KeyCodec<K extends Comparable<? super K>> {
+
+    /**
+     * @return Nombre d'octets occupés par une clé dans un tuple.
+     */
+    int getKeySize();
+
+    /**
+     * Ecrit une clé à la position courante d'un tampon d'octets.
+     *
+     * @param buffer Tampon d'octets.
+     * @param key Clé à écrire. NE DOIT PAS ETRE NULLE.
+     * @throws DAOFileException s'il y'a une erreur lors de l'écriture.
+     */
+    void writeKey(ByteBuffer buffer, K key) throws DAOFileException;
+
+    /**
+     * Lis une clé à la position courante d'un tampon d'octets.
+     *
+     * @param buffer Tampon d'octets.
+     * @return Clé lue.
+     * @throws DAOFileException s'il y'a une erreur lors de la lecture.
+     */
+    K readKey(ByteBuffer buffer) throws DAOFileException;
+
+    /**
+     * Renvoie l'encodage d'une chaine de caractères d'au plus
+     * <code>maxLenght</code> octets. Une chaine plus longue est tronquée.
+     *
+     * @param maxLenght Taille maximale d'une chaine. DOIT ETRE SUPERIEUR A 0.
+     * @return Encodage d'une chaine de caractères.
+     */
+    static KeyCodec<String> string(int maxLenght) {
+        if (maxLenght <= 0) {
+            throw new IllegalArgumentException("KeyCodec.string -> maxLenght '" + maxLenght + "' must be greater than 0.");
+        }
+        return new KeyCodec<String>() {
+            @Override
+            public int getKeySize() {
+                return Integer.BYTES + maxLenght;
+            }
+
+            @Override
+            public void writeKey(ByteBuffer buffer, String key) throws DAOFileException {
+                try {
+                    DAOFileWriter.writeString(buffer, FileDAOUtilities.checkNameLenght(key, maxLenght));
+                } catch (DAOFileWriterException ex) {
+                    throw new DAOFileException(ex.getMessage(), ex);
+                }
+            }
+
+            @Override
+            public String readKey(ByteBuffer buffer) throws DAOFileException {
+                try {
+                    int lenght = buffer.getInt();
+                    if (lenght < 0 || lenght > maxLenght) {
+                        throw new DAOFileException("KeyCodec.string -> invalid key lenght '" + lenght + "'");
+                    }
+                    return DAOFileWriter.readString(buffer, lenght);
+                } catch (DAOFileWriterException ex) {
+                    throw new DAOFileException(ex.getMessage(), ex);
+                }
+            }
+        };
+    }
+
+    /**
+     * Renvoie l'encodage d'un identifiant <code>UUID</code>.
+     *
+     * @return Encodage d'un identifiant.
+     */
+    static KeyCodec<UUID> uuid() {
+        return new KeyCodec<UUID>() {
+            @Override
+            public int getKeySize() {
+                return 2 * Long.BYTES;
+            }
+
+            @Override
+            public void writeKey(ByteBuffer buffer, UUID key) throws DAOFileException {
+                try {
+                    DAOFileWriter.writeUUID(buffer, key);
+                } catch (DAOFileWriterException ex) {
+                    throw new DAOFileException(ex.getMessage(), ex);
+                }
+            }
+
+            @Override
+            public UUID readKey(ByteBuffer buffer) throws DAOFileException {
+                return new UUID(buffer.getLong(), buffer.getLong());
+            }
+        };
+    }
+
+    /**
+     * Renvoie l'encodage d'une constante d'une énumération. La constante est
+     * écrite par son nom, l'ordre des clés est celui de l'énumération.
+     *
+     * @param <E> Type de l'énumération.
+     * @param enumClass Classe de l'énumération. NE DOIT PAS ETRE NULLE.
+     * @return Encodage d'une constante.
+     */
+    static <E extends Enum<E>> KeyCodec<E> enumeration(Class<E> enumClass) {
+        checkNotNull("KeyCodec.enumeration -> enumClass", enumClass);
+        int maxLenght = 1;
+        for (E constant : enumClass.getEnumConstants()) {
+            maxLenght = Math.max(maxLenght, constant.name().length());
+        }
+        KeyCodec<String> names = string(maxLenght);
+        return new KeyCodec<E>() {
+            @Override
+            public int getKeySize() {
+                return names.getKeySize();
+            }
+
+            @Override
+            public void writeKey(ByteBuffer buffer, E key) throws DAOFileException {
+                names.writeKey(buffer, key.name());
+            }
+
+            @Override
+            public E readKey(ByteBuffer buffer) throws DAOFileException {
+                String name = names.readKey(buffer);
+                try {
+                    return Enum.valueOf(enumClass, name);
+                } catch (IllegalArgumentException ex) {
+                    throw new DAOFileException("KeyCodec.enumeration -> unknown constant '" + name + "'", ex);
+                }
+            }
+        };
+    }
+}
@@ -6,12 +6,19 @@ import static fr.univubs.inf1603.mahjong.daofile.FileDAOUtilities.checkNotNull;
 import fr.univubs.inf1603.mahjong.engine.persistence.Persistable;
 import fr.univubs.inf1603.mahjong.daofile.filemanagement.LinkRow.Link;
 import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
-import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -21,6 +28,46 @@ import java.util.logging.Logger;
  * enfant <code>T</code> et un objet parent. Un Lien est répresenté par les
  * identifiants <code>UUID</code> des 2 objets qui sont liés. Chaque lien est
  * encapsulé dans un tuple de lien <code>LinkRow</code>.
+ * <br>
+ * Les enfants de chaque parent sont rangés dans une table {@link Adjacency}
+ * où les parents sont triés et les enfants d'un meme parent sont contigus. La
+ * table est écrite à la fermeture du fichier de liens dans un fichier voisin
+ * <code>.csr</code> et relue d'un seul coup à l'ouverture suivante, sinon elle
+ * est construite à partir des tuples de liens. Les parents modifiés depuis
+ * l'ouverture sont gardés à part et fusionnés dans la table à la fermeture.
+ * <br>
+ * Chaque lien garde la position de l'enfant parmi les enfants de son parent
+ * {@link Link#getPosition()}. Un enfant ajouté est placé après le dernier
+ * enfant du parent et la mise à jour des liens {@link #updateLink(UUID, List)}
+ * range les enfants dans l'ordre de la liste reçue. La table relue et la
+ * table construite à partir des tuples donnent donc les enfants dans le meme
+ * ordre, quel que soit l'emplacement des tuples dans le fichier.
+ * <br>
+ * Les positions sont espacées de {@link #POSITION_STEP} : un enfant retiré ne
+ * décale pas les suivants et un enfant déplacé prend une position libre entre
+ * ses nouveaux voisins. Retirer ou déplacer un enfant n'écrit donc que son
+ * propre lien. Les positions d'un parent ne sont renumérotées que lorsqu'il
+ * n'y a plus de place entre deux voisins.
+ * <br>
+ * Un enfant qui change de parent garde son tuple de lien : seuls
+ * l'identifiant du parent et la position sont modifiés dans le tuple. Un enfant retiré d'un parent est
+ * détaché, son parent devient {@link #NO_PARENT}, jusqu'à ce qu'il soit lié à
+ * un autre parent. Les enfants détachés sont gardés dans un ensemble à part
+ * et non dans la liste des enfants de {@link #NO_PARENT} : un enfant lié à
+ * nouveau en est retiré en temps constant.
+ * <br>
+ * Un enfant détaché a jusqu'à la passe de suppression suivante
+ * {@link #purgeDetachedChildren()} pour etre lié à un autre parent, sinon il
+ * est supprimé avec son lien. Le DAO des parents lance une passe après chaque
+ * lot de parents écrit, les enfants ne restent donc pas détachés jusqu'à
+ * l'ouverture suivante du fichier. Les enfants encore détachés à l'ouverture
+ * du fichier sont supprimés lors de la première modification des liens.
+ * <br>
+ * Les tuples de liens sont toujours chargés en mémoire, quel que soit le mode
+ * {@link IndexMode} des index de données : le mode {@link IndexMode#BTREE} ne
+ * concerne que {@link IndexManager}. Un arbre B+ enfant - parent ne suffirait
+ * pas, la table des enfants de chaque parent devrait aussi etre rangée sur
+ * disque.
  *
  * <pre>
  *
@@ -51,16 +98,46 @@ public class LinkManager<T extends Persistable> extends AbstractRowManager<LinkR
      * Logging
      */
     private static final Logger LOGGER = Logger.getLogger(LinkManager.class.getName());
+
+    /**
+     * Identifiant du parent d'un enfant détaché.
+     */
+    public static final UUID NO_PARENT = new UUID(0, 0);
+    /**
+     * Ecart entre les positions de deux enfants consécutifs lorsqu'un enfant
+     * est ajouté à la fin ou que les positions sont renumérotées.
+     */
+    static final int POSITION_STEP = 1 << 10;
     
     /**
-     * Tableau associatif associant l'identifiant d'un objet parent à un
-     * ensemble d'identifiants d'objets enfants.
+     * Table des enfants de chaque parent à l'ouverture du fichier.
      */
-    private final HashMap<UUID, ArrayList<UUID>> mapParentChild;
+    private Adjacency adjacency;
+    /**
+     * Tableau associatif associant l'identifiant d'un objet parent modifié
+     * depuis l'ouverture du fichier à l'ensemble des identifiants de ses
+     * objets enfants. Une liste vide indique un parent sans enfant.
+     */
+    private final HashMap<UUID, ArrayList<UUID>> changedParents;
     /**
      * DAO gérant les objets enfants du lien.
      */
     private final FileDAOMahjong<T> dao;
+    /**
+     * Identifiants des enfants détachés dans l'ordre où ils l'ont été.
+     */
+    private final LinkedHashSet<UUID> detachedChildrenIDs;
+    /**
+     * Identifiants des enfants déjà détachés lors de la passe de suppression
+     * précédente ou à l'ouverture du fichier. Ils sont supprimés à la passe
+     * suivante s'ils sont toujours détachés.
+     */
+    private HashSet<UUID> expiredChildrenIDs;
+    /**
+     * Vaut <code>true</code> lorsque les enfants détachés lors de l'ouverture
+     * précédente ont été supprimés {@link #removeDetachedChildren()}.
+     */
+    private boolean detachedChildrenRemoved;
     
     /**
      * Constructeur avec le chemin d'accès du fichier de lien.
@@ -70,13 +147,88 @@ public class LinkManager<T extends Persistable> extends AbstractRowManager<LinkR
      * @throws DAOFileException s'il y'a une erreur lors de l'instanciation.
      */
     public LinkManager(Path linkFilePath, FileDAOMahjong<T> dao) throws DAOFileException {
-        super(linkFilePath, LinkRow.LINK_ROW_SIZE);
+        super(upgrade(linkFilePath), LinkRow.LINK_ROW_SIZE);
         this.dao = dao;
-        this.mapParentChild = new HashMap<>();
-        getRowsSortedByRowPointer().forEach((row) -> {
-            Link link = (Link) row.getData();
-            putInMap(link);
+        this.changedParents = new HashMap<>();
+        this.adjacency = loadAdjacency(linkFilePath);
+        this.detachedChildrenIDs = new LinkedHashSet<>(adjacency.getChildren(NO_PARENT));
+        this.expiredChildrenIDs = new HashSet<>(detachedChildrenIDs);
+        rowWriter.getPropertyChangeSupport().addPropertyChangeListener(DAOFileWriter.CLOSED_PROPERTY, evt -> writeAdjacency());
+    }
+
+    /**
+     * Convertit le fichier de liens s'il a été écrit dans le format d'origine,
+     * sans position des enfants {@link FileFormatUpgrade#upgradeLinkFile(Path)}.
+     *
+     * @param linkFilePath Chemin d'accès du fichier de lien.
+     * @return Chemin d'accès du fichier de lien.
+     * @throws DAOFileException s'il y'a une erreur lors de la conversion.
+     */
+    private static Path upgrade(Path linkFilePath) throws DAOFileException {
+        FileFormatUpgrade.upgradeLinkFile(linkFilePath);
+        return linkFilePath;
+    }
+
+    /**
+     * Relis la table des enfants écrite à la dernière fermeture du fichier de
+     * liens. Si elle est absente ou ne correspond plus au fichier, elle est
+     * construite à partir des tuples de liens.
+     *
+     * @param linkFilePath Chemin d'accès du fichier de liens.
+     * @return Table des enfants de chaque parent.
+     */
+    private Adjacency loadAdjacency(Path linkFilePath) {
+        FileHeaderRow fhr = getFileHeaderRow();
+        ByteBuffer payload = Snapshot.read(linkFilePath, Adjacency.ADJACENCY_EXTENSION, fhr.getGeneration(), rowWriter.getFileLenght());
+        if (payload != null) {
+            try {
+                Adjacency loaded = Adjacency.read(payload);
+                if (loaded.getLinkNumber() == getRowNumber()) {
+                    LOGGER.log(Level.FINE, "adjacency loaded -> {0}", loaded);
+                    return loaded;
+                }
+                LOGGER.log(Level.WARNING, "adjacency of {0} ignored -> {1} links, {2} rows",
+                        new Object[]{linkFilePath, loaded.getLinkNumber(), getRowNumber()});
+            } catch (DAOFileException ex) {
+                LOGGER.log(Level.WARNING, "adjacency of {0} ignored -> {1}", new Object[]{linkFilePath, ex.getMessage()});
+            }
+        }
+        HashMap<UUID, List<Link>> linksByParent = new HashMap<>();
+        for (LinkRow row : rowsSortedByPointer) {
+            Link link = row.getData();
+            linksByParent.computeIfAbsent(link.getParentID(), parentID -> new ArrayList<>()).add(link);
+        }
+        HashMap<UUID, List<UUID>> childrenByParent = new HashMap<>();
+        linksByParent.forEach((parentID, links) -> {
+            // tri stable : à position égale, l'ordre des pointeurs est gardé
+            links.sort(Comparator.comparingInt(Link::getPosition));
+            List<UUID> childrenIDs = new ArrayList<>(links.size());
+            links.forEach(link -> childrenIDs.add(link.getUUID()));
+            childrenByParent.put(parentID, childrenIDs);
         });
+        return Adjacency.build(childrenByParent);
+    }
+
+    /**
+     * Ecrit la table des enfants à la fermeture du fichier de liens. Rien
+     * n'est écrit si des tuples n'ont pas pu etre écrits, la table ne
+     * correspondrait pas au fichier.
+     */
+    synchronized private void writeAdjacency() {
+        FileHeaderRow fhr = getFileHeaderRow();
+        if (rowWriter.hasPendingRows() || fhr.isDirty()) {
+            LOGGER.log(Level.WARNING, "adjacency of {0} not writed -> pending rows", rowWriter.getFilePath());
+            return;
+        }
+        try {
+            changedParents.put(NO_PARENT, new ArrayList<>(detachedChildrenIDs));
+            adjacency = adjacency.merge(changedParents);
+            changedParents.clear();
+            Snapshot.write(rowWriter.getFilePath(), Adjacency.ADJACENCY_EXTENSION, fhr.getGeneration(),
+                    Files.size(rowWriter.getFilePath()), adjacency.toByteBuffer());
+        } catch (IOException | DAOFileException ex) {
+            LOGGER.log(Level.WARNING, "adjacency of {0} not writed -> {1}", new Object[]{rowWriter.getFilePath(), ex.getMessage()});
+        }
     }
 
     /**
@@ -87,18 +239,87 @@ public class LinkManager<T extends Persistable> extends AbstractRowManager<LinkR
     }
 
     /**
-     * Insere un lien dans le tableau associatif parent - enfant.
+     * Renvoie les identifiants des enfants d'un parent.
+     *
+     * @param parentID Identifiant de l'objet parent.
+     * @return Liste des identifiants des enfants, vide si le parent n'a pas
+     * d'enfant.
+     */
+    synchronized List<UUID> getChildrenIDs(UUID parentID) {
+        if (NO_PARENT.equals(parentID)) {
+            return new ArrayList<>(detachedChildrenIDs);
+        }
+        ArrayList<UUID> changed = changedParents.get(parentID);
+        return changed != null ? new ArrayList<>(changed) : adjacency.getChildren(parentID);
+    }
+
+    /**
+     * Renvoie l'identifiant du parent d'un enfant. Le tuple de lien d'un
+     * enfant est retrouvé en temps constant par l'identifiant de l'enfant
+     * {@link #getRow(UUID)}, il n'y a donc pas de table enfant - parent à
+     * maintenir à part.
+     *
+     * @param childID Identifiant de l'objet enfant. NE DOIT PAS ETRE NULL.
+     * @return Identifiant du parent, ou <code>null</code> si l'enfant n'est
+     * lié à aucun parent ou s'il est détaché.
+     * @throws DAOFileException s'il y'a une erreur lors de la recherche.
+     */
+    public UUID findParent(UUID childID) throws DAOFileException {
+        checkNotNull("LinkManager.findParent -> childID", childID);
+        LinkRow linkRow = getRow(childID);
+        if (linkRow == null) {
+            return null;
+        }
+        UUID parentID = linkRow.getData().getParentID();
+        return NO_PARENT.equals(parentID) ? null : parentID;
+    }
+
+    /**
+     * Renvoie la liste modifiable des enfants d'un parent. Les enfants sont
+     * copiés de la table {@link #adjacency} lors de la première modification
+     * du parent.
+     *
+     * @param parentID Identifiant de l'objet parent.
+     * @return Liste modifiable des identifiants des enfants.
+     */
+    private ArrayList<UUID> getChangedChildrenIDs(UUID parentID) {
+        ArrayList<UUID> changed = changedParents.get(parentID);
+        if (changed == null) {
+            changed = new ArrayList<>(adjacency.getChildren(parentID));
+            changedParents.put(parentID, changed);
+        }
+        return changed;
+    }
+
+    /**
+     * Insere un lien à la fin des enfants de son parent dans le tableau
+     * associatif parent - enfant. La position du lien est celle du dernier
+     * enfant du parent plus {@link #POSITION_STEP}. Un lien détaché est ajouté
+     * à l'ensemble des enfants détachés.
      *
      * @param link Lien à inserer.
+     * @throws DAOFileException s'il y'a une erreur lors de la recherche du
+     * dernier enfant.
      */
-    private void putInMap(Link link) {
-        if (mapParentChild.containsKey(link.getParentID())) {
-            mapParentChild.get(link.getParentID()).add(link.getUUID());
-        } else {
-            ArrayList<UUID> list = new ArrayList<>();
-            list.add(link.getUUID());
-            mapParentChild.put(link.getParentID(), list);
+    synchronized private void putInMap(Link link) throws DAOFileException {
+        if (NO_PARENT.equals(link.getParentID())) {
+            link.setPosition(0);
+            detachedChildrenIDs.add(link.getUUID());
+            return;
+        }
+        ArrayList<UUID> childrenIDs = getChangedChildrenIDs(link.getParentID());
+        long position = 0;
+        if (!childrenIDs.isEmpty()) {
+            LinkRow lastRow = getRow(childrenIDs.get(childrenIDs.size() - 1));
+            if (lastRow != null) {
+                position = (long) lastRow.getData().getPosition() + POSITION_STEP;
+            }
         }
+        if (position > Integer.MAX_VALUE) {
+            position = (long) renumberChildren(childrenIDs) * POSITION_STEP;
+        }
+        link.setPosition((int) position);
+        childrenIDs.add(link.getUUID());
     }
 
     /**
@@ -106,26 +327,14 @@ public class LinkManager<T extends Persistable> extends AbstractRowManager<LinkR
      *
      * @param link lien à retirer.
      */
-    private void removeFromMap(Link link) {
-        if (mapParentChild.containsKey(link.getParentID())) {
-            ArrayList<UUID> list = mapParentChild.get(link.getParentID());
-            list.remove(link.getUUID());
-            if (list.isEmpty()) {
-                mapParentChild.remove(link.getParentID());
-            }
+    synchronized private void removeFromMap(Link link) {
+        if (NO_PARENT.equals(link.getParentID())) {
+            detachedChildrenIDs.remove(link.getUUID());
+            return;
         }
+        getChangedChildrenIDs(link.getParentID()).remove(link.getUUID());
     }
 
-    private void printMap() {
-        System.out.println("");
-        mapParentChild.entrySet().forEach((entry) -> {
-            System.out.println(entry.getKey() + " -> " + entry.getValue());
-        });
-        System.out.println("");
-//////        for(Map.Entry<UUID, ArrayList<UUID>> entry : mapParentChild.entrySet()) {
-//////            System.out.println(entry.getKey() +" -> "+ entry.getValue());
-//////        }
-    }
     /**
      * {@inheritDoc}
      */
@@ -143,7 +352,8 @@ public class LinkManager<T extends Persistable> extends AbstractRowManager<LinkR
     }
 
     /**
-     * Ajoute un nouveau lien.
+     * Ajoute un nouveau lien. Si l'enfant est déjà lié à un autre parent ou
+     * détaché, son tuple de lien est modifié sur place.
      * 
      * @param parentID Identifiant de l'objet parent.
      * @param child Identifiant de l'objet enfant.
@@ -152,11 +362,31 @@ public class LinkManager<T extends Persistable> extends AbstractRowManager<LinkR
     public void addLink(UUID parentID, T child) throws DAOFileException {
         checkNotNull("parentID", parentID);
         checkNotNull("child", child);
+        removeDetachedChildren();
+        linkChild(parentID, child);
+    }
+
+    /**
+     * Lie un enfant à un parent.
+     *
+     * @param parentID Identifiant de l'objet parent.
+     * @param child Objet enfant.
+     * @return <code>true</code> si l'enfant avait déjà un tuple de lien
+     * (déplacement) sinon <code>false</code>.
+     * @throws DAOFileException s'il y'a une erreur lors de l'ajout.
+     */
+    private boolean linkChild(UUID parentID, T child) throws DAOFileException {
         LOGGER.log(Level.FINE, "addChild -> parentID : {0} childID : {1}", new Object[]{parentID, child.getUUID()});
-        Link link = new Link(child.getUUID(), parentID);
-        LinkRow newLinkRow = new LinkRow(getNextRowID(), link, getNextRowPointer());
-        super.addRow(newLinkRow);
-        putInMap(link);
+        synchronized (this) {
+            LinkRow linkRow = getRow(child.getUUID());
+            if (linkRow != null) {
+                setParent(linkRow.getData(), parentID);
+                return true;
+            }
+            Link link = new Link(child.getUUID(), parentID);
+            putInMap(link);
+            super.addRow(new LinkRow(getNextRowID(), link, getNextRowPointer()));
+        }
         try {
             if (dao.find(child.getUUID()) == null) {
                 dao.save(child);
@@ -164,6 +394,23 @@ public class LinkManager<T extends Persistable> extends AbstractRowManager<LinkR
         } catch (DAOException ex) {
             throw new DAOFileException(ex.getMessage(), ex);
         }
+        return false;
+    }
+
+    /**
+     * Modifie sur place le parent d'un lien, l'enfant est placé après le
+     * dernier enfant du nouveau parent.
+     *
+     * @param link Lien à modifier.
+     * @param parentID Identifiant du nouveau parent.
+     * @throws DAOFileException s'il y'a une erreur lors de la modification.
+     */
+    synchronized private void setParent(Link link, UUID parentID) throws DAOFileException {
+        if (!parentID.equals(link.getParentID())) {
+            removeFromMap(link);
+            link.setParentID(parentID);
+            putInMap(link);
+        }
     }
 
     /**
@@ -177,13 +424,20 @@ public class LinkManager<T extends Persistable> extends AbstractRowManager<LinkR
         checkNotNull("parentID", parentID);
         checkNotNull("children", children);
         LOGGER.log(Level.INFO, "parentID : {0}, nbChilds to add : {1}", new Object[]{parentID, children.size()});
+        removeDetachedChildren();
         for (T child : children) {
-            addLink(parentID, child);
+            linkChild(parentID, child);
         }
     }
 
     /**
-     * Mets à jour les liens existant entre un objet parent et ses objets enfants.
+     * Mets à jour les liens existant entre un objet parent et ses objets
+     * enfants. Les enfants ajoutés, déplacés et retirés sont trouvés en une
+     * seule passe : un enfant qui vient d'un autre parent garde son tuple de
+     * lien dont le parent est modifié sur place, un enfant retiré est détaché
+     * sans etre supprimé. Les enfants sont ensuite rangés dans l'ordre de la
+     * liste <code>children</code>, seuls les liens dont la position change
+     * sont écrits à nouveau {@link #orderChildren(UUID, List)}.
      * 
      * @param parentID Identifiant de l'objet parent.
      * @param children Liste des objets <code>T</code> enfants.
@@ -192,46 +446,240 @@ public class LinkManager<T extends Persistable> extends AbstractRowManager<LinkR
     public void updateLink(UUID parentID, List<T> children) throws DAOFileException {
         checkNotNull("parentID", parentID);
         checkNotNull("children", children);
-        ArrayList<UUID> existedChildrenIDs = mapParentChild.get(parentID);
-        if (existedChildrenIDs.size() > children.size()) { // delete 
-            ArrayList<UUID> childrenIDs = new ArrayList<>();
-            children.forEach(child -> {
-                childrenIDs.add(child.getUUID());
-            });
-            ArrayList<UUID> toRemovechildrenIDs = new ArrayList<>();
-            existedChildrenIDs.forEach(childID -> {
-                if (!childrenIDs.contains(childID)) {
-                    toRemovechildrenIDs.add(childID);
+        removeDetachedChildren();
+        Map<UUID, T> childrenByID = new LinkedHashMap<>();
+        children.forEach(child -> childrenByID.put(child.getUUID(), child));
+        Set<UUID> removedChildrenIDs = new HashSet<>(getChildrenIDs(parentID));
+        int nbNewChildren = 0;
+        int nbMovedChildren = 0;
+        for (T child : childrenByID.values()) {
+            if (!removedChildrenIDs.remove(child.getUUID())) {
+                if (linkChild(parentID, child)) {
+                    nbMovedChildren++;
+                } else {
+                    nbNewChildren++;
+                }
+            }
+        }
+        synchronized (this) {
+            for (UUID childID : removedChildrenIDs) {
+                LinkRow linkRow = getRow(childID);
+                // un enfant déjà lié à un autre parent n'est pas détaché
+                if (linkRow != null && parentID.equals(linkRow.getData().getParentID())) {
+                    setParent(linkRow.getData(), NO_PARENT);
                 }
-            });
+            }
+            orderChildren(parentID, new ArrayList<>(childrenByID.keySet()));
+        }
+        LOGGER.log(Level.FINE, " updateChildrenLink : parentID : {0}, new : {1}, moved : {2}, removed : {3}",
+                new Object[]{parentID, nbNewChildren, nbMovedChildren, removedChildrenIDs.size()});
+    }
 
-            LOGGER.log(Level.INFO, " updateChildrenLink : parentID : {0}, nbChilds to remove : {1}", new Object[]{parentID, toRemovechildrenIDs.size()});
-            try {
-                removeChildrenByID(toRemovechildrenIDs);
-            } catch (DAOException ex) {
-                throw new DAOFileException(ex.getMessage(), ex);
+    /**
+     * Range les enfants d'un parent dans l'ordre d'une liste d'identifiants en
+     * changeant le moins de positions possible. Les enfants dont les positions
+     * sont déjà croissantes dans l'ordre voulu (plus longue sous-suite
+     * croissante) les gardent, les autres prennent une position entre leurs
+     * voisins. S'il n'y a plus de place entre deux voisins, toutes les
+     * positions du parent sont renumérotées.
+     *
+     * @param parentID Identifiant de l'objet parent.
+     * @param childrenIDs Identifiants des enfants du parent dans l'ordre
+     * voulu.
+     * @throws DAOFileException s'il y'a une erreur lors de la recherche d'un
+     * lien.
+     */
+    synchronized private void orderChildren(UUID parentID, List<UUID> childrenIDs) throws DAOFileException {
+        ArrayList<UUID> ordered = new ArrayList<>(childrenIDs.size());
+        ArrayList<Link> links = new ArrayList<>(childrenIDs.size());
+        for (UUID childID : childrenIDs) {
+            LinkRow linkRow = getRow(childID);
+            if (linkRow != null && parentID.equals(linkRow.getData().getParentID())) {
+                ordered.add(childID);
+                links.add(linkRow.getData());
+            }
+        }
+        if (!placeChildren(links)) {
+            renumberChildren(ordered);
+        }
+        ArrayList<UUID> changed = getChangedChildrenIDs(parentID);
+        if (!changed.equals(ordered)) {
+            changed.clear();
+            changed.addAll(ordered);
+        }
+    }
+
+    /**
+     * Donne une position croissante à une liste de liens en gardant celles de
+     * la plus longue sous-suite de positions croissantes. Les liens d'une
+     * suite entre deux liens gardés se partagent l'écart entre leurs
+     * positions, une suite en tete ou en queue est espacée de
+     * {@link #POSITION_STEP}.
+     *
+     * @param links Liens dans l'ordre voulu.
+     * @return <code>false</code> si l'écart entre deux liens gardés est trop
+     * petit, aucune position n'est alors modifiée.
+     */
+    private static boolean placeChildren(List<Link> links) {
+        int size = links.size();
+        boolean[] kept = longestIncreasingPositions(links);
+        int[] positions = new int[size];
+        int start = 0;
+        while (start < size) {
+            if (kept[start]) {
+                positions[start] = links.get(start).getPosition();
+                start++;
+                continue;
+            }
+            int end = start;
+            while (end < size && !kept[end]) {
+                end++;
+            }
+            // suite [start, end[ de liens à placer entre leurs voisins gardés
+            int count = end - start;
+            long lower = start > 0 ? positions[start - 1] : Long.MIN_VALUE;
+            long upper = end < size ? links.get(end).getPosition() : Long.MAX_VALUE;
+            if (lower == Long.MIN_VALUE) {
+                lower = Math.max(Integer.MIN_VALUE, upper - (long) (count + 1) * POSITION_STEP);
+            }
+            if (upper == Long.MAX_VALUE) {
+                upper = Math.min(Integer.MAX_VALUE, lower + (long) (count + 1) * POSITION_STEP);
+            }
+            long gap = (upper - lower) / (count + 1);
+            if (gap <= 0) {
+                return false;
             }
-        } else {
-            List<T> toUpdateList = new ArrayList<>();
-            children.forEach(child -> {
-                if (!existedChildrenIDs.contains(child.getUUID())) {
-                    toUpdateList.add(child);
+            for (int i = 0; i < count; i++) {
+                positions[start + i] = (int) (lower + (i + 1) * gap);
+            }
+            start = end;
+        }
+        for (int i = 0; i < size; i++) {
+            links.get(i).setPosition(positions[i]);
+        }
+        return true;
+    }
+
+    /**
+     * Renvoie les liens qui forment la plus longue sous-suite de positions
+     * strictement croissantes d'une liste de liens.
+     *
+     * @param links Liens dans l'ordre voulu.
+     * @return Tableau indiquant pour chaque lien s'il fait partie de la
+     * sous-suite.
+     */
+    private static boolean[] longestIncreasingPositions(List<Link> links) {
+        int size = links.size();
+        // tails[k] : indice du lien qui termine la meilleure sous-suite de longueur k + 1
+        int[] tails = new int[size];
+        int[] previous = new int[size];
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            int position = links.get(i).getPosition();
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (links.get(tails[middle]).getPosition() < position) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
                 }
-            });
-            LOGGER.log(Level.INFO, " updateChildrenLink : parentID : {0}, nbNewChilds to add : {1}", new Object[]{parentID, toUpdateList.size()});
-            LinkManager.this.addLink(parentID, toUpdateList);
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+        boolean[] kept = new boolean[size];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            kept[i] = true;
+        }
+        return kept;
+    }
+
+    /**
+     * Renumérote les positions des enfants d'une liste : la position de
+     * chaque lien devient son rang multiplié par {@link #POSITION_STEP}.
+     *
+     * @param childrenIDs Identifiants des enfants dans l'ordre voulu.
+     * @return Nombre d'enfants renumérotés.
+     * @throws DAOFileException s'il y'a une erreur lors de la recherche d'un
+     * lien.
+     */
+    synchronized private int renumberChildren(List<UUID> childrenIDs) throws DAOFileException {
+        int rank = 0;
+        for (UUID childID : childrenIDs) {
+            LinkRow linkRow = getRow(childID);
+            if (linkRow != null) {
+                linkRow.getData().setPosition(rank * POSITION_STEP);
+                rank++;
+            }
         }
+        LOGGER.log(Level.FINE, "{0} children positions renumbered", rank);
+        return rank;
     }
 
-    private void removeChildrenByID(List<UUID> childIDs) throws DAOException, DAOFileException {
-        List<T> toRemove = new ArrayList<>();
-        for(UUID childID : childIDs) {
-            T child = dao.find(childID);
-            if(child != null) {
-                toRemove.add(child);
+    /**
+     * Supprime, avec leurs liens, les enfants restés détachés lors de
+     * l'ouverture précédente du fichier. La suppression n'est faite qu'une
+     * fois, avant la première modification des liens.
+     *
+     * @throws DAOFileException s'il y'a une erreur lors de la suppression.
+     */
+    private void removeDetachedChildren() throws DAOFileException {
+        synchronized (this) {
+            if (detachedChildrenRemoved) {
+                return;
             }
+            detachedChildrenRemoved = true;
+        }
+        purgeDetachedChildren();
+    }
+
+    /**
+     * Passe de suppression des enfants détachés : les enfants déjà détachés
+     * lors de la passe précédente, ou à l'ouverture du fichier, et qui n'ont
+     * été liés à aucun autre parent depuis sont supprimés avec leurs liens.
+     * Les enfants détachés depuis la passe précédente le seront à la passe
+     * suivante s'ils sont toujours détachés.
+     *
+     * @throws DAOFileException s'il y'a une erreur lors de la suppression.
+     */
+    public void purgeDetachedChildren() throws DAOFileException {
+        List<UUID> expiredIDs = new ArrayList<>();
+        synchronized (this) {
+            for (UUID childID : expiredChildrenIDs) {
+                if (detachedChildrenIDs.contains(childID)) {
+                    expiredIDs.add(childID);
+                }
+            }
+            expiredChildrenIDs = new HashSet<>(detachedChildrenIDs);
+            expiredChildrenIDs.removeAll(expiredIDs);
+        }
+        if (expiredIDs.isEmpty()) {
+            return;
+        }
+        try {
+            // un enfant détaché a pu etre supprimé sans son lien
+            List<T> children = new ArrayList<>(dao.findAll(expiredIDs));
+            HashSet<UUID> removedIDs = new HashSet<>();
+            synchronized (this) {
+                for (UUID childID : expiredIDs) {
+                    // un enfant lié à nouveau depuis la sélection est gardé
+                    if (detachedChildrenIDs.remove(childID)) {
+                        super.removeRow(childID);
+                        removedIDs.add(childID);
+                    }
+                }
+            }
+            children.removeIf(child -> !removedIDs.contains(child.getUUID()));
+            dao.delete(children);
+            LOGGER.log(Level.INFO, "{0} detached children removed", removedIDs.size());
+        } catch (DAOException ex) {
+            throw new DAOFileException(ex.getMessage(), ex);
         }
-        removeChildren(toRemove);
     }
 
     /**
@@ -245,64 +693,38 @@ public class LinkManager<T extends Persistable> extends AbstractRowManager<LinkR
     public void removeChildren(List<T> children) throws DAOFileException {
         checkNotNull("LinkManager -> children", children);
         if (!children.isEmpty()) {
-            List<LinkRow> multipleRemoveList = super.getRowList(children);
-            List<LinkRow> singleRemoveList = super.getSingleRemoveList(multipleRemoveList);
-            if (!singleRemoveList.isEmpty()) {
-                for (LinkRow linkRow : singleRemoveList) {
-                    super.removeRow(linkRow);
+            boolean removed = false;
+            for (LinkRow linkRow : super.getRowList(children)) {
+                if (super.removeRow(linkRow)) {
                     removeFromMap(linkRow.getData());
+                    removed = true;
+                    LOGGER.log(Level.FINE, "[OK] link deleted -> childID = {0} -> parentID = {1}",
+                            new Object[]{linkRow.getData().getUUID(), linkRow.getData().getParentID()});
                 }
             }
-            if (!multipleRemoveList.isEmpty()) {
-                long startPointer = multipleRemoveList.get(0).getRowPointer();
-                multipleRemoveList.forEach(linkRow -> {
-                    super.removeRowFromList(linkRow);
-                    removeFromMap(linkRow.getData());
-                });
-                int offset = multipleRemoveList.size() * rowSize;
-                try {
-                    if (rowWriter.deleteFromFile((int) startPointer, offset)) {
-                        super.updateRowsPointer(startPointer, offset);
-                        LOGGER.log(Level.INFO, " [OK] {0} Link successful deleted -> startPointer : {1} -- offset : {2}",
-                                new Object[]{multipleRemoveList.size(), startPointer, offset});
-                        StringBuilder sb = new StringBuilder();
-                        sb.append("\t{ ");
-                        multipleRemoveList.forEach(linkRow -> {
-                            sb.append("\n\t childID = ").append(linkRow.getData().getUUID()).append(" -> parentID = ").append(linkRow.getData().getParentID());
-                        });
-                        sb.append("\t} ");
-                        LOGGER.log(Level.FINE, sb.toString());
-                        
-                        dao.delete(children);
-                    } 
-                } catch (DAOFileWriterException ex) {
-                    throw new DAOFileException(ex.getMessage(), ex);
-                }
+            if (removed) {
+                dao.delete(children);
             }
         }
     }
 
     /**
      * Charge en mémoire tous les objets enfants <code>T</code> liés à un objet
-     * parent.
+     * parent. Les enfants sont chargés ensemble par le DAO
+     * {@link FileDAOMahjong#findAll(List)}.
      *
      * @param parentID Identifiant de l'objet parent du lien.
      * @return Liste des objets enfants <code>T</code>.
      * @throws DAOException s'il y'a une erreur lors du chargement.
      */
     public ArrayList<T> loadChildren(UUID parentID) throws DAOException {
-        ArrayList<T> children = new ArrayList<>();
-        StringBuilder sb = new StringBuilder();
-        sb.append("\n parentID=").append(parentID).append(", children = { ");
-        if (mapParentChild.containsKey(parentID)) {
-            for (UUID childID : mapParentChild.get(parentID)) {
-                T child = dao.find(childID);
-                sb.append("\n\tchilID=").append(childID).append(", loadedID=").append(child.getUUID());
-                children.add(child);
-            }
+        List<UUID> childrenIDs = getChildrenIDs(parentID);
+        ArrayList<T> children = new ArrayList<>(dao.findAll(childrenIDs));
+        if (children.size() != childrenIDs.size()) {
+            LOGGER.log(Level.WARNING, "parentID={0} : {1} children not found",
+                    new Object[]{parentID, childrenIDs.size() - children.size()});
         }
-        sb.append("\n   }\n");
-        LOGGER.log(Level.FINE, sb.toString());
+        LOGGER.log(Level.FINE, "parentID={0}, children = {1}", new Object[]{parentID, childrenIDs});
         return children;
     }
 }
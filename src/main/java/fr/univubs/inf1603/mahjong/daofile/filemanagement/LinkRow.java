@@ -10,7 +10,16 @@ import java.util.Objects;
 import java.util.UUID;
 
 /**
- * Cette classe répresente un tuple qui encapsule un lien.
+ * Cette classe répresente un tuple qui encapsule un lien. Le lien garde la
+ * position de l'enfant parmi les enfants de son parent : les enfants d'un
+ * parent sont relus dans le meme ordre quel que soit l'emplacement de leurs
+ * tuples dans le fichier. Les liens du format d'origine, sans position, sont
+ * convertis à l'ouverture du fichier {@link FileFormatUpgrade}.
+ *
+ * <pre>
+ * format d'un lien :
+ *   | childID (16 octets) | parentID (16 octets) | position (4 octets) |
+ * </pre>
  *
  * @author aliyou
  * @version 1.3
@@ -18,9 +27,9 @@ import java.util.UUID;
 public class LinkRow extends AbstractRow<Link> {
 
     /**
-     * Taille d'un lien (2 UUID)
+     * Taille d'un lien (2 UUID et une position)
      */
-    static final int LINK_SIZE = 32;
+    static final int LINK_SIZE = 36;
     /**
      * Taille d'un tuple contenant un lien
      */
@@ -88,7 +97,8 @@ public class LinkRow extends AbstractRow<Link> {
         }
         UUID childID = new UUID(buffer.getLong(), buffer.getLong());
         UUID parentID = new UUID(buffer.getLong(), buffer.getLong());
-        Link data = new Link(childID, parentID);
+        int position = buffer.getInt();
+        Link data = new Link(childID, parentID, position);
         return data;
     }
 
@@ -110,6 +120,7 @@ public class LinkRow extends AbstractRow<Link> {
             int startPosition = buffer.position();
             DAOFileWriter.writeUUID(buffer, getData().getUUID());
             DAOFileWriter.writeUUID(buffer, getData().getParentID());
+            buffer.putInt(getData().getPosition());
             return buffer.position() - startPosition;
         } catch (DAOFileWriterException ex) {
             throw new DAOFileException(ex.getMessage(), ex);
@@ -134,17 +145,34 @@ public class LinkRow extends AbstractRow<Link> {
          * Identifiant de l'objet parent
          */
         private UUID parentID;
+        /**
+         * Position de l'objet enfant parmi les enfants de l'objet parent
+         */
+        private int position;
 
         /**
          * Constructeur avec l'identifiant d'un objet enfant et l'identifiant
-         * d'un objet parent.
+         * d'un objet parent. L'enfant est à la position 0.
          *
          * @param childID Identifiant d'un objet enfant
          * @param parentID Identifiant d'un objet parent
          */
         public Link(UUID childID, UUID parentID) {
+            this(childID, parentID, 0);
+        }
+
+        /**
+         * Constructeur avec l'identifiant d'un objet enfant, l'identifiant
+         * d'un objet parent et la position de l'enfant.
+         *
+         * @param childID Identifiant d'un objet enfant
+         * @param parentID Identifiant d'un objet parent
+         * @param position Position de l'enfant parmi les enfants du parent
+         */
+        public Link(UUID childID, UUID parentID, int position) {
             this.childID = childID;
             this.parentID = parentID;
+            this.position = position;
             this.pcs = new PropertyChangeSupport(this);
         }
 
@@ -181,6 +209,30 @@ public class LinkRow extends AbstractRow<Link> {
             }
         }
 
+        /**
+         * Renvoie la position de l'objet enfant parmi les enfants de l'objet
+         * parent.
+         *
+         * @return Position de l'objet enfant
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * Modifie la position de l'objet enfant parmi les enfants de l'objet
+         * parent.
+         *
+         * @param position Nouvelle position de l'objet enfant.
+         */
+        public void setPosition(int position) {
+            if (this.position != position) {
+                int oldValue = this.position;
+                this.position = position;
+                this.pcs.firePropertyChange("position", oldValue, this.position);
+            }
+        }
+
         /**
          * {@inheritDoc}
          */
@@ -196,7 +248,7 @@ public class LinkRow extends AbstractRow<Link> {
          */
         @Override
         public String toString() {
-            return "Link{" + "childID=" + childID + ", parentID=" + parentID + '}';
+            return "Link{" + "childID=" + childID + ", parentID=" + parentID + ", position=" + position + '}';
         }
 
         @Override
@@ -204,6 +256,7 @@ public class LinkRow extends AbstractRow<Link> {
             int hash = 5;
             hash = 43 * hash + Objects.hashCode(this.childID);
             hash = 43 * hash + Objects.hashCode(this.parentID);
+            hash = 43 * hash + this.position;
             return hash;
         }
 
@@ -222,6 +275,9 @@ public class LinkRow extends AbstractRow<Link> {
             if (!Objects.equals(this.childID, other.childID)) {
                 return false;
             }
+            if (this.position != other.position) {
+                return false;
+            }
             return Objects.equals(this.parentID, other.parentID);
         }
 
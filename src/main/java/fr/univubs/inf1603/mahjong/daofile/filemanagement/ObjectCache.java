@@ -0,0 +1,363 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import static fr.univubs.inf1603.mahjong.daofile.FileDAOUtilities.checkNotNull;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Cette classe répresente un cache borné suivant une politique d'éviction
+ * W-TinyLFU. Les entrées sont rangées dans 3 segments gérés en LRU :
+ * <ul>
+ * <li>une fenetre (1% du cache) où entre toute nouvelle entrée ;</li>
+ * <li>un segment d'essai où arrivent les entrées qui sortent de la
+ * fenetre ;</li>
+ * <li>un segment protégé (80% du reste) où sont promues les entrées du segment
+ * d'essai lues à nouveau.</li>
+ * </ul>
+ * Lorsque le cache est plein, une entrée sortie de la fenetre n'est gardée que
+ * si elle a été plus souvent lue que la plus ancienne entrée du segment
+ * d'essai. Les fréquences sont estimées par un sketch <i>count-min</i> de
+ * compteurs de 4 bits divisés par 2 périodiquement. Un parcours de nombreuses
+ * entrées lues une seule fois ne chasse donc pas les entrées fréquentes.
+ * <br>
+ * Les entrées épinglées (tuples modifiés pas encore écrits par exemple) ne
+ * sont jamais évincées, le cache peut alors dépasser temporairement sa taille
+ * maximale.
+ *
+ * @author aliyou
+ * @version 1.3
+ * @param <K> Clé d'une entrée.
+ * @param <V> Valeur d'une entrée.
+ */
+public class ObjectCache<K, V> {
+
+    /**
+     * Valeur maximale d'un compteur de fréquence.
+     */
+    private static final int MAX_FREQUENCY = 15;
+    /**
+     * Graines des fonctions de hachage du sketch.
+     */
+    private static final int[] SEEDS = {0x97CB3127, 0xB492B66F, 0x9AE16A3B, 0x2F90404F};
+
+    /**
+     * Nombre maximal d'entrées.
+     */
+    private final int maximumSize;
+    /**
+     * Nombre maximal d'entrées de la fenetre.
+     */
+    private final int windowMaximumSize;
+    /**
+     * Nombre maximal d'entrées du segment protégé.
+     */
+    private final int protectedMaximumSize;
+    /**
+     * Fenetre, de la plus ancienne à la plus récente entrée.
+     */
+    private final LinkedHashMap<K, V> window;
+    /**
+     * Segment d'essai, de la plus ancienne à la plus récente entrée.
+     */
+    private final LinkedHashMap<K, V> probation;
+    /**
+     * Segment protégé, de la plus ancienne à la plus récente entrée.
+     */
+    private final LinkedHashMap<K, V> protectedSegment;
+    /**
+     * Entrées sorties de la fenetre depuis la dernière éviction, de la plus
+     * ancienne à la plus récente.
+     */
+    private final ArrayDeque<K> candidates;
+    /**
+     * Compteurs de fréquence du sketch.
+     */
+    private final byte[] frequencies;
+    /**
+     * Nombre d'incrémentations au delà duquel les compteurs sont divisés par 2.
+     */
+    private final int sampleSize;
+    /**
+     * Nombre d'incrémentations depuis la dernière division des compteurs.
+     */
+    private int additions;
+
+    /**
+     * Constructeur avec le nombre maximal d'entrées.
+     *
+     * @param maximumSize Nombre maximal d'entrées. DOIT ETRE SUPERIEUR A ZERO
+     * (0).
+     */
+    public ObjectCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("ObjectCache -> maximumSize '" + maximumSize + "' must be greater than zero.");
+        }
+        this.maximumSize = maximumSize;
+        this.windowMaximumSize = Math.max(1, maximumSize / 100);
+        this.protectedMaximumSize = (maximumSize - windowMaximumSize) * 4 / 5;
+        this.window = new LinkedHashMap<>();
+        this.probation = new LinkedHashMap<>();
+        this.protectedSegment = new LinkedHashMap<>();
+        this.candidates = new ArrayDeque<>();
+        int nbCounters = Math.max(16, Math.min(maximumSize, 1 << 24));
+        this.frequencies = new byte[Integer.highestOneBit(nbCounters - 1) << 1];
+        this.sampleSize = 10 * frequencies.length;
+        this.additions = 0;
+    }
+
+    /**
+     * Renvoie la valeur d'une entrée et note sa lecture.
+     *
+     * @param key Clé de l'entrée. NE DOIT PAS ETRE NULL.
+     * @return Valeur de l'entrée ou <code>null</code> si elle n'est pas dans
+     * le cache.
+     */
+    synchronized public V get(K key) {
+        checkNotNull("ObjectCache.get -> key", key);
+        increment(key);
+        V value = window.get(key);
+        if (value != null) {
+            moveToEnd(window, key, value);
+            return value;
+        }
+        value = probation.remove(key);
+        if (value != null) {
+            // promotion, l'entrée la plus ancienne du segment protégé redescend
+            protectedSegment.put(key, value);
+            if (protectedSegment.size() > protectedMaximumSize) {
+                Iterator<Map.Entry<K, V>> it = protectedSegment.entrySet().iterator();
+                Map.Entry<K, V> demoted = it.next();
+                it.remove();
+                probation.put(demoted.getKey(), demoted.getValue());
+            }
+            return value;
+        }
+        value = protectedSegment.get(key);
+        if (value != null) {
+            moveToEnd(protectedSegment, key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Ajoute une entrée dans la fenetre ou remplace la valeur d'une entrée
+     * existante. Les entrées en trop ne sont retirées que par
+     * {@link #evict(Predicate)}.
+     *
+     * @param key Clé de l'entrée. NE DOIT PAS ETRE NULL.
+     * @param value Valeur de l'entrée. NE DOIT PAS ETRE NULL.
+     */
+    synchronized public void put(K key, V value) {
+        checkNotNull("ObjectCache.put -> key", key);
+        checkNotNull("ObjectCache.put -> value", value);
+        if (window.containsKey(key) || probation.containsKey(key) || protectedSegment.containsKey(key)) {
+            get(key);
+            segmentOf(key).put(key, value);
+            return;
+        }
+        increment(key);
+        window.put(key, value);
+        if (window.size() > windowMaximumSize) {
+            Iterator<Map.Entry<K, V>> it = window.entrySet().iterator();
+            Map.Entry<K, V> candidate = it.next();
+            it.remove();
+            probation.put(candidate.getKey(), candidate.getValue());
+            candidates.add(candidate.getKey());
+        }
+    }
+
+    /**
+     * Retire une entrée du cache.
+     *
+     * @param key Clé de l'entrée. NE DOIT PAS ETRE NULL.
+     * @return Valeur de l'entrée retirée ou <code>null</code> si elle n'est pas
+     * dans le cache.
+     */
+    synchronized public V remove(K key) {
+        checkNotNull("ObjectCache.remove -> key", key);
+        LinkedHashMap<K, V> segment = segmentOf(key);
+        return segment != null ? segment.remove(key) : null;
+    }
+
+    /**
+     * Retire les entrées en trop jusqu'à ce que le cache ne dépasse plus sa
+     * taille maximale. Une entrée sortie de la fenetre est retirée à la place
+     * de la plus ancienne entrée du segment d'essai si elle n'a pas été plus
+     * souvent lue. Les entrées épinglées ne sont pas retirées.
+     *
+     * @param pinned Indique si une valeur est épinglée. NE DOIT PAS ETRE NULL.
+     * @return Valeurs des entrées retirées.
+     */
+    synchronized public List<V> evict(Predicate<? super V> pinned) {
+        checkNotNull("ObjectCache.evict -> pinned", pinned);
+        List<V> evicted = new ArrayList<>();
+        while (size() > maximumSize) {
+            K victim = firstUnpinned(probation, pinned);
+            LinkedHashMap<K, V> segment = probation;
+            if (victim == null) {
+                victim = firstUnpinned(protectedSegment, pinned);
+                segment = protectedSegment;
+            }
+            if (victim == null) {
+                victim = firstUnpinned(window, pinned);
+                segment = window;
+            }
+            if (victim == null) {
+                break;
+            }
+            if (segment == probation) {
+                K candidate = lastCandidate(pinned, victim);
+                if (candidate != null && frequency(candidate) <= frequency(victim)) {
+                    victim = candidate;
+                }
+            }
+            evicted.add(segment.remove(victim));
+        }
+        candidates.clear();
+        return evicted;
+    }
+
+    /**
+     * Renvoie la plus récente entrée sortie de la fenetre encore dans le
+     * segment d'essai et non épinglée.
+     */
+    private K lastCandidate(Predicate<? super V> pinned, K victim) {
+        while (!candidates.isEmpty()) {
+            K candidate = candidates.pollLast();
+            V value = probation.get(candidate);
+            if (value != null && !candidate.equals(victim) && !pinned.test(value)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Renvoie la plus ancienne entrée non épinglée d'un segment.
+     */
+    private K firstUnpinned(LinkedHashMap<K, V> segment, Predicate<? super V> pinned) {
+        for (Map.Entry<K, V> entry : segment.entrySet()) {
+            if (!pinned.test(entry.getValue())) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Renvoie le segment d'une entrée ou <code>null</code> si elle n'est pas
+     * dans le cache.
+     */
+    private LinkedHashMap<K, V> segmentOf(K key) {
+        if (window.containsKey(key)) {
+            return window;
+        }
+        if (probation.containsKey(key)) {
+            return probation;
+        }
+        return protectedSegment.containsKey(key) ? protectedSegment : null;
+    }
+
+    /**
+     * Déplace une entrée à la fin de son segment.
+     */
+    private void moveToEnd(LinkedHashMap<K, V> segment, K key, V value) {
+        segment.remove(key);
+        segment.put(key, value);
+    }
+
+    /**
+     * Renvoie la position d'un compteur d'une clé dans le sketch.
+     */
+    private int indexOf(int hash, int i) {
+        int h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 16;
+        return h & (frequencies.length - 1);
+    }
+
+    /**
+     * Mélange les bits du code de hachage d'une clé.
+     */
+    private static int spread(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Incrémente les compteurs d'une clé. Tous les compteurs sont divisés par
+     * 2 toutes les {@link #sampleSize} incrémentations afin que les anciennes
+     * lectures comptent moins que les récentes.
+     */
+    private void increment(K key) {
+        int hash = spread(key);
+        boolean incremented = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = indexOf(hash, i);
+            if (frequencies[index] < MAX_FREQUENCY) {
+                frequencies[index]++;
+                incremented = true;
+            }
+        }
+        if (incremented && ++additions == sampleSize) {
+            for (int i = 0; i < frequencies.length; i++) {
+                frequencies[i] >>= 1;
+            }
+            additions /= 2;
+        }
+    }
+
+    /**
+     * Renvoie la fréquence estimée des lectures d'une clé.
+     *
+     * @param key Clé recherchée.
+     * @return Fréquence estimée, entre 0 et 15.
+     */
+    synchronized int frequency(K key) {
+        int hash = spread(key);
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < SEEDS.length; i++) {
+            frequency = Math.min(frequency, frequencies[indexOf(hash, i)]);
+        }
+        return frequency;
+    }
+
+    /**
+     * @return Nombre maximal d'entrées.
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * @return Nombre d'entrées.
+     */
+    synchronized public int size() {
+        return window.size() + probation.size() + protectedSegment.size();
+    }
+
+    /**
+     * Indique si une entrée est dans le cache, sans noter sa lecture.
+     *
+     * @param key Clé de l'entrée.
+     * @return <code>true</code> si l'entrée est dans le cache sinon
+     * <code>false</code>.
+     */
+    synchronized public boolean contains(K key) {
+        return segmentOf(key) != null;
+    }
+
+    /**
+     * Renvoie une description textuelle du cache.
+     *
+     * @return Description textuelle du cache.
+     */
+    @Override
+    public String toString() {
+        return "ObjectCache{" + "maximumSize=" + maximumSize + ", size=" + size() + '}';
+    }
+}
@@ -0,0 +1,183 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import static fr.univubs.inf1603.mahjong.daofile.FileDAOUtilities.checkNotNull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Cette classe range des tuples suivant leur pointeur de tuple dans un arbre
+ * rouge-noir <code>TreeMap</code>. L'ajout, la suppression et la recherche
+ * d'un tuple par son pointeur se font en temps logarithmique (O(log n)), sans
+ * décaler de tableau comme le faisaient les anciennes listes triées.
+ * <br>
+ * Un pointeur ne désigne qu'un seul tuple : ranger un tuple à un pointeur
+ * déjà occupé remplace l'ancien tuple. Le pointeur d'un tuple rangé ne doit
+ * pas changer, il faut le retirer, modifier son pointeur puis le ranger à
+ * nouveau {@link #move(AbstractRow, long)}.
+ *
+ * @author aliyou
+ * @version 1.3
+ * @param <T> Tuple
+ */
+public class RowsByPointer<T extends AbstractRow> implements Iterable<T> {
+
+    /**
+     * Tuples rangés suivant leur pointeur de tuple.
+     */
+    private final TreeMap<Long, T> rows;
+
+    /**
+     * Constructeur vide.
+     */
+    public RowsByPointer() {
+        this.rows = new TreeMap<>();
+    }
+
+    /**
+     * Range un tuple à son pointeur de tuple.
+     *
+     * @param row Tuple à ranger. NE DOIT PAS ETRE NULL.
+     * @return Tuple remplacé ou <code>null</code> si le pointeur était libre.
+     */
+    public T put(T row) {
+        checkNotNull("RowsByPointer.put -> row", row);
+        return rows.put(row.getRowPointer(), row);
+    }
+
+    /**
+     * Renvoie le tuple rangé à un pointeur.
+     *
+     * @param rowPointer Pointeur de tuple.
+     * @return Tuple rangé à ce pointeur sinon <code>null</code>.
+     */
+    public T get(long rowPointer) {
+        return rows.get(rowPointer);
+    }
+
+    /**
+     * Renvoie <code>true</code> si le tuple (la meme instance) est rangé à son
+     * pointeur.
+     *
+     * @param row Tuple recherché.
+     * @return <code>true</code> si le tuple est rangé sinon
+     * <code>false</code>.
+     */
+    public boolean contains(T row) {
+        return row != null && rows.get(row.getRowPointer()) == row;
+    }
+
+    /**
+     * Retire le tuple rangé à un pointeur.
+     *
+     * @param rowPointer Pointeur de tuple.
+     * @return Tuple retiré sinon <code>null</code>.
+     */
+    public T remove(long rowPointer) {
+        return rows.remove(rowPointer);
+    }
+
+    /**
+     * Retire un tuple. Si son pointeur a changé depuis qu'il a été rangé, le
+     * tuple est recherché parmi tous les tuples.
+     *
+     * @param row Tuple à retirer.
+     * @return <code>true</code> si le tuple a été retiré sinon
+     * <code>false</code>.
+     */
+    public boolean remove(T row) {
+        if (row == null) {
+            return false;
+        }
+        if (rows.get(row.getRowPointer()) == row) {
+            rows.remove(row.getRowPointer());
+            return true;
+        }
+        for (Iterator<T> iterator = rows.values().iterator(); iterator.hasNext();) {
+            if (iterator.next() == row) {
+                iterator.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Déplace un tuple rangé vers un nouveau pointeur. Le pointeur du tuple
+     * est modifié sans le marquer comme modifié.
+     *
+     * @param row Tuple à déplacer. NE DOIT PAS ETRE NULL.
+     * @param newRowPointer Nouveau pointeur du tuple.
+     */
+    public void move(T row, long newRowPointer) {
+        checkNotNull("RowsByPointer.move -> row", row);
+        remove(row);
+        row.setRowPointer(newRowPointer, false);
+        put(row);
+    }
+
+    /**
+     * @return Tuple de plus petit pointeur sinon <code>null</code>.
+     */
+    public T first() {
+        Map.Entry<Long, T> entry = rows.firstEntry();
+        return entry != null ? entry.getValue() : null;
+    }
+
+    /**
+     * @return Tuple de plus grand pointeur sinon <code>null</code>.
+     */
+    public T last() {
+        Map.Entry<Long, T> entry = rows.lastEntry();
+        return entry != null ? entry.getValue() : null;
+    }
+
+    /**
+     * @return Nombre de tuples rangés.
+     */
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * @return <code>true</code> s'il n'y a aucun tuple sinon
+     * <code>false</code>.
+     */
+    public boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    /**
+     * Retire tous les tuples.
+     */
+    public void clear() {
+        rows.clear();
+    }
+
+    /**
+     * @return Vue non modifiable des tuples suivant leur pointeur.
+     */
+    public Collection<T> values() {
+        return Collections.unmodifiableCollection(rows.values());
+    }
+
+    /**
+     * @return Copie de la liste des tuples suivant leur pointeur.
+     */
+    public List<T> toList() {
+        return new ArrayList<>(rows.values());
+    }
+
+    /**
+     * @return Itérateur des tuples suivant leur pointeur. Le tuple courant
+     * peut etre retiré.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return rows.values().iterator();
+    }
+}
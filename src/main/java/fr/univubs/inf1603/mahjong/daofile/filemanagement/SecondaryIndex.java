@@ -0,0 +1,303 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import static fr.univubs.inf1603.mahjong.daofile.FileDAOUtilities.checkNotNull;
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.SecondaryIndexRow.Entry;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cette classe gère un index secondaire : elle associe à chaque objet indexé
+ * une clé <code>K</code> extraite de l'objet (nom d'une partie, identifiant
+ * d'une partie, zone...). Chaque association est encapsulée dans un tuple
+ * {@link SecondaryIndexRow} du fichier <code>.sindex</code>, la clé y est
+ * encodée par un {@link KeyCodec}.
+ * <br>
+ * En mémoire, les identifiants des objets sont rangés suivant leur clé dans
+ * un arbre <code>TreeMap</code>. Les recherches par égalité et par intervalle
+ * de clés se font sans charger ni parcourir le fichier de données.
+ *
+ * <pre>
+ *
+ *  format d'un fichier d'index secondaire :
+ *
+ *        ---------------------------------------
+ *        | ----------------------------------- |
+ *        | | rowID = 0 |     FileHeader      | |  --{@literal >} FileHeaderRow
+ *        | ----------------------------------- |
+ *        | | rowID = 1 | Entry=[dataID | key]| |  --{@literal >} SecondaryIndexRow
+ *        | ----------------------------------- |
+ *        | | rowID = x | Entry=[dataID | key]| |  --{@literal >} SecondaryIndexRow
+ *        | ----------------------------------- |
+ *        ---------------------------------------
+ * </pre>
+ *
+ * @see SecondaryIndexRow
+ * @see AbstractRowManager
+ * @author aliyou
+ * @version 1.3
+ * @param <K> Type de la clé.
+ */
+public class SecondaryIndex<K extends Comparable<? super K>> extends AbstractRowManager<SecondaryIndexRow> {
+
+    /**
+     * Logging
+     */
+    private static final Logger LOGGER = Logger.getLogger(SecondaryIndex.class.getName());
+
+    /**
+     * Extension d'un fichier d'index secondaire.
+     */
+    public static final String SECONDARY_INDEX_EXTENSION = ".sindex";
+
+    /**
+     * Encodage des clés.
+     */
+    private final KeyCodec<K> codec;
+    /**
+     * Identifiants des objets indexés rangés suivant leur clé.
+     */
+    private final TreeMap<K, List<UUID>> dataIDsByKey;
+
+    /**
+     * Constructeur avec le chemin d'accès du fichier d'index secondaire et
+     * l'encodage des clés.
+     *
+     * @param filePath Chemin d'accès du fichier d'index secondaire.
+     * @param codec Encodage des clés. NE DOIT PAS ETRE NULL.
+     * @throws DAOFileException s'il y'a une erreur lors de l'instanciation.
+     */
+    public SecondaryIndex(Path filePath, KeyCodec<K> codec) throws DAOFileException {
+        super(filePath, SecondaryIndexRow.getRowSize(checkedKeySize(codec)));
+        this.codec = codec;
+        this.dataIDsByKey = new TreeMap<>();
+        for (SecondaryIndexRow row : getRowsSortedByRowPointer()) {
+            putInMap(decode(row.getData().getKey()), row.getData().getUUID());
+        }
+    }
+
+    /**
+     * Vérifie l'encodage des clés avant l'appel du constructeur parent.
+     *
+     * @param codec Encodage des clés.
+     * @return Taille d'une clé encodée.
+     */
+    private static int checkedKeySize(KeyCodec<?> codec) {
+        checkNotNull("SecondaryIndex -> codec", codec);
+        return codec.getKeySize();
+    }
+
+    /**
+     * @return Taille d'une clé encodée, déduite de la taille d'un tuple. Le
+     * constructeur parent lit les tuples avant l'affectation de
+     * {@link #codec}.
+     */
+    private int getKeySize() {
+        return rowSize - SecondaryIndexRow.getRowSize(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected SecondaryIndexRow createRow(ByteBuffer buffer, long rowPointer) throws DAOFileException {
+        return new SecondaryIndexRow(buffer, getKeySize(), rowPointer);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected SecondaryIndexRow createRow(long rowPointer) throws DAOFileException {
+        return new SecondaryIndexRow(rowWriter, getKeySize(), rowPointer);
+    }
+
+    /**
+     * Associe une clé à un objet. L'ancienne clé de l'objet est remplacée.
+     *
+     * @param dataID Identifiant de l'objet. NE DOIT PAS ETRE NULL.
+     * @param key Clé de l'objet. NE DOIT PAS ETRE NULLE.
+     * @throws DAOFileException s'il y'a une erreur lors de l'ajout.
+     */
+    synchronized public void put(UUID dataID, K key) throws DAOFileException {
+        checkNotNull("SecondaryIndex.put -> dataID", dataID);
+        checkNotNull("SecondaryIndex.put -> key", key);
+        byte[] encodedKey = encode(key);
+        K storedKey = decode(encodedKey);
+        SecondaryIndexRow row = getRow(dataID);
+        if (row == null) {
+            addRow(new SecondaryIndexRow(getNextRowID(), new Entry(dataID, encodedKey), getNextRowPointer()));
+        } else {
+            K oldKey = decode(row.getData().getKey());
+            if (oldKey.compareTo(storedKey) == 0) {
+                return;
+            }
+            removeFromMap(oldKey, dataID);
+            row.getData().setKey(encodedKey);
+        }
+        putInMap(storedKey, dataID);
+        LOGGER.log(Level.FINE, "[OK] key {0} -> dataID {1}", new Object[]{storedKey, dataID});
+    }
+
+    /**
+     * Retire l'objet dont l'identifiant est <code>dataID</code> de l'index.
+     *
+     * @param dataID Identifiant de l'objet.
+     * @return <code>true</code> si l'objet a été retiré sinon
+     * <code>false</code>.
+     * @throws DAOFileException s'il y'a une erreur lors de la suppression.
+     */
+    synchronized public boolean remove(UUID dataID) throws DAOFileException {
+        SecondaryIndexRow row = removeRow(dataID);
+        if (row != null) {
+            removeFromMap(decode(row.getData().getKey()), dataID);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Renvoie la clé d'un objet.
+     *
+     * @param dataID Identifiant de l'objet.
+     * @return Clé de l'objet sinon <code>null</code>.
+     * @throws DAOFileException s'il y'a une erreur lors de la lecture de la
+     * clé.
+     */
+    synchronized public K getKey(UUID dataID) throws DAOFileException {
+        SecondaryIndexRow row = getRow(dataID);
+        return row != null ? decode(row.getData().getKey()) : null;
+    }
+
+    /**
+     * Renvoie les identifiants des objets dont la clé est égale à
+     * <code>key</code>.
+     *
+     * @param key Clé recherchée. NE DOIT PAS ETRE NULLE.
+     * @return Liste des identifiants, vide s'il n'y en a aucun.
+     * @throws DAOFileException s'il y'a une erreur lors de l'encodage de la
+     * clé.
+     */
+    synchronized public List<UUID> find(K key) throws DAOFileException {
+        checkNotNull("SecondaryIndex.find -> key", key);
+        List<UUID> dataIDs = dataIDsByKey.get(decode(encode(key)));
+        return dataIDs != null ? new ArrayList<>(dataIDs) : Collections.emptyList();
+    }
+
+    /**
+     * Renvoie les identifiants des objets dont la clé est comprise entre
+     * <code>fromKey</code> et <code>toKey</code> inclus, suivant l'ordre des
+     * clés.
+     *
+     * @param fromKey Plus petite clé, <code>null</code> pour ne pas borner.
+     * @param toKey Plus grande clé, <code>null</code> pour ne pas borner.
+     * @return Liste des identifiants, vide s'il n'y en a aucun.
+     * @throws DAOFileException s'il y'a une erreur lors de l'encodage d'une
+     * clé.
+     */
+    synchronized public List<UUID> findRange(K fromKey, K toKey) throws DAOFileException {
+        NavigableMap<K, List<UUID>> range = dataIDsByKey;
+        if (fromKey != null) {
+            range = range.tailMap(decode(encode(fromKey)), true);
+        }
+        if (toKey != null) {
+            range = range.headMap(decode(encode(toKey)), true);
+        }
+        List<UUID> dataIDs = new ArrayList<>();
+        range.values().forEach(dataIDs::addAll);
+        return dataIDs;
+    }
+
+    /**
+     * @return Liste triée de toutes les clés.
+     */
+    synchronized public List<K> getKeys() {
+        return new ArrayList<>(dataIDsByKey.keySet());
+    }
+
+    /**
+     * @return Liste des identifiants de tous les objets indexés suivant
+     * l'ordre des clés.
+     */
+    synchronized public List<UUID> getDataIDs() {
+        List<UUID> dataIDs = new ArrayList<>(getRowNumber());
+        dataIDsByKey.values().forEach(dataIDs::addAll);
+        return dataIDs;
+    }
+
+    /**
+     * Encode une clé.
+     *
+     * @param key Clé à encoder.
+     * @return Clé encodée sur {@link KeyCodec#getKeySize()} octets.
+     */
+    private byte[] encode(K key) throws DAOFileException {
+        ByteBuffer buffer = ByteBuffer.allocate(codec.getKeySize());
+        codec.writeKey(buffer, key);
+        return buffer.array();
+    }
+
+    /**
+     * Décode une clé.
+     *
+     * @param encodedKey Clé encodée.
+     * @return Clé décodée.
+     */
+    private K decode(byte[] encodedKey) throws DAOFileException {
+        return codec.readKey(ByteBuffer.wrap(encodedKey));
+    }
+
+    /**
+     * Range un identifiant suivant sa clé.
+     *
+     * @param key Clé.
+     * @param dataID Identifiant.
+     */
+    private void putInMap(K key, UUID dataID) {
+        List<UUID> dataIDs = dataIDsByKey.get(key);
+        if (dataIDs == null) {
+            dataIDs = new ArrayList<>(1);
+            dataIDsByKey.put(key, dataIDs);
+        }
+        dataIDs.add(dataID);
+    }
+
+    /**
+     * Retire un identifiant rangé suivant sa clé.
+     *
+     * @param key Clé.
+     * @param dataID Identifiant.
+     */
+    private void removeFromMap(K key, UUID dataID) {
+        List<UUID> dataIDs = dataIDsByKey.get(key);
+        if (dataIDs != null) {
+            dataIDs.remove(dataID);
+            if (dataIDs.isEmpty()) {
+                dataIDsByKey.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Renvoie une description textuelle de l'index.
+     *
+     * @return Description textuelle de l'index.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("SecondaryIndex{");
+        for (Map.Entry<K, List<UUID>> entry : dataIDsByKey.entrySet()) {
+            sb.append(entry.getKey()).append("=").append(entry.getValue().size()).append(", ");
+        }
+        return sb.append("}").toString();
+    }
+}
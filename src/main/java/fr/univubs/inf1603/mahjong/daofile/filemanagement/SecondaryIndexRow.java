@@ -0,0 +1,217 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.SecondaryIndexRow.Entry;
+import fr.univubs.inf1603.mahjong.engine.persistence.Persistable;
+import java.beans.PropertyChangeSupport;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Cette classe répresente un tuple qui encapsule une entrée d'index secondaire
+ * {@link SecondaryIndex}. Une entrée associe l'identifiant d'un objet à sa clé
+ * encodée par un {@link KeyCodec}.
+ *
+ * <pre>
+ *
+ *    format d'une entrée dans un tuple :
+ *
+ *          UUID=16  |  key=keySize  |
+ *          dataID   |      key      |
+ * </pre>
+ *
+ * @author aliyou
+ * @version 1.3
+ */
+public class SecondaryIndexRow extends AbstractRow<Entry> {
+
+    /**
+     * Renvoie la taille d'un tuple d'entrée pour une taille de clé.
+     *
+     * @param keySize Taille d'une clé encodée.
+     * @return Taille d'un tuple d'entrée.
+     */
+    static int getRowSize(int keySize) {
+        return AbstractRow.ROW_HEADER_SIZE + 16 + keySize;
+    }
+
+    /**
+     * Constructeur avec un identifiant de tuple <code>rowID</code>, une entrée
+     * <code>data</code> et un pointeur de tuple <code>rowPointer</code>.
+     *
+     * @param rowID Identifiant d'un tuple
+     * @param data Entrée encapsulée dans le tuple.
+     * @param rowPointer Pointeur d'un tuple.
+     */
+    SecondaryIndexRow(int rowID, Entry data, long rowPointer) {
+        super(rowID, data, 16 + data.getKey().length, rowPointer);
+    }
+
+    /**
+     * Constructeur avec un tampon d'octets <code>buffer</code>.
+     *
+     * @param buffer Tampon d'octets à partir duquel l'entrée est lue.
+     * @param keySize Taille d'une clé encodée.
+     * @param rowPointer Pointeur d'un tuple.
+     * @throws DAOFileException s'il y'a une erreur lors de la lecture.
+     */
+    SecondaryIndexRow(ByteBuffer buffer, int keySize, long rowPointer) throws DAOFileException {
+        super(buffer, 16 + keySize, rowPointer);
+    }
+
+    /**
+     * Constructeur avec un processus qui éffectue des opérations
+     * d'entrée/sortie sur un fichier <code>writer</code>.
+     *
+     * @param writer Processus qui éffectue des opérations d'entrée/sortie sur
+     * un fichier
+     * @param keySize Taille d'une clé encodée.
+     * @param rowPointer Pointeur d'un tuple.
+     * @throws DAOFileException s'il y'a une erreur lors de la lecture.
+     */
+    SecondaryIndexRow(DAOFileWriter writer, int keySize, long rowPointer) throws DAOFileException {
+        super(writer, 16 + keySize, rowPointer);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Entry readData(ByteBuffer buffer) throws DAOFileException {
+        if (buffer.remaining() < getDataSize()) {
+            String message = "Remianing bytes '" + buffer.remaining() + "' is less than entry size '"
+                    + getDataSize() + "'";
+            throw new DAOFileException(message);
+        }
+        UUID dataID = new UUID(buffer.getLong(), buffer.getLong());
+        byte[] key = new byte[getDataSize() - 16];
+        buffer.get(key);
+        return new Entry(dataID, key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int writeData(ByteBuffer buffer) throws DAOFileException {
+        if (buffer.remaining() < getDataSize()) {
+            String message = "Remianing bytes '" + buffer.remaining() + "' is less than entry size '"
+                    + getDataSize() + "'";
+            throw new DAOFileException(message);
+        }
+        try {
+            int startPosition = buffer.position();
+            DAOFileWriter.writeUUID(buffer, getData().getUUID());
+            buffer.put(getData().getKey());
+            return buffer.position() - startPosition;
+        } catch (DAOFileWriterException ex) {
+            throw new DAOFileException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Cette classe répresente une entrée d'index secondaire : l'identifiant
+     * d'un objet et sa clé encodée.
+     */
+    static public class Entry implements Persistable {
+
+        /**
+         * Support d'écoute
+         */
+        private final PropertyChangeSupport pcs;
+        /**
+         * Identifiant de l'objet indexé.
+         */
+        private final UUID dataID;
+        /**
+         * Clé encodée.
+         */
+        private byte[] key;
+
+        /**
+         * Constructeur avec l'identifiant d'un objet et sa clé encodée.
+         *
+         * @param dataID Identifiant de l'objet indexé.
+         * @param key Clé encodée.
+         */
+        public Entry(UUID dataID, byte[] key) {
+            this.dataID = dataID;
+            this.key = key;
+            this.pcs = new PropertyChangeSupport(this);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public UUID getUUID() {
+            return dataID;
+        }
+
+        /**
+         * @return Clé encodée.
+         */
+        public byte[] getKey() {
+            return key;
+        }
+
+        /**
+         * Modifie la clé encodée.
+         *
+         * @param key Nouvelle clé encodée, de meme taille.
+         */
+        public void setKey(byte[] key) {
+            if (key.length != this.key.length) {
+                throw new IllegalArgumentException("Entry.setKey -> key lenght '" + key.length
+                        + "' must be equal to '" + this.key.length + "'.");
+            }
+            if (!Arrays.equals(this.key, key)) {
+                byte[] oldValue = this.key;
+                this.key = key;
+                this.pcs.firePropertyChange("key", oldValue, this.key);
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public PropertyChangeSupport getPropertyChangeSupport() {
+            return this.pcs;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" + "dataID=" + dataID + ", key=" + Arrays.toString(key) + '}';
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 7;
+            hash = 31 * hash + Objects.hashCode(this.dataID);
+            hash = 31 * hash + Arrays.hashCode(this.key);
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            final Entry other = (Entry) obj;
+            if (!Objects.equals(this.dataID, other.dataID)) {
+                return false;
+            }
+            return Arrays.equals(this.key, other.key);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Cette classe gère l'image des structures en mémoire d'un gestionnaire de
+ * tuples ({@link IndexManager} ou {@link AbstractRowManager}). L'image est
+ * écrite à la fermeture du fichier de tuples dans un fichier voisin
+ * <code>.snapshot</code>, puis relue d'un seul coup à l'ouverture suivante à
+ * la place du parcours de tous les tuples.
+ * <br>
+ * L'image garde la génération de l'en-tete et la taille du fichier au moment
+ * de son écriture. Elle n'est utilisée que si le fichier de tuples n'a pas
+ * changé depuis, et elle est supprimée dès qu'elle est lue : après un arret
+ * brutal, le fichier est donc toujours parcouru entièrement.
+ *
+ * <pre>
+ * format d'une image :
+ *   | magic | version | generation | fileLenght | payloadLenght | checksum | payload |
+ * </pre>
+ *
+ * @author aliyou
+ * @version 1.3
+ */
+final class Snapshot {
+
+    /**
+     * Logging
+     */
+    private final static Logger LOGGER = Logger.getLogger(Snapshot.class.getName());
+
+    /**
+     * Extension du fichier d'image.
+     */
+    static final String SNAPSHOT_EXTENSION = ".snapshot";
+    /**
+     * Nombre magique d'une image ("MJSN").
+     */
+    private static final int MAGIC = 0x4D4A534E;
+    /**
+     * Version du format de l'image.
+     */
+    private static final int VERSION = 1;
+    /**
+     * Taille de l'en-tete d'une image.
+     */
+    static final int SNAPSHOT_HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4;
+
+    private Snapshot() {
+    }
+
+    /**
+     * Renvoie le chemin d'accès de l'image d'un fichier de tuples.
+     *
+     * @param filePath Chemin d'accès du fichier de tuples.
+     * @return Chemin d'accès de l'image.
+     */
+    static Path getSnapshotPath(Path filePath) {
+        return getSnapshotPath(filePath, SNAPSHOT_EXTENSION);
+    }
+
+    /**
+     * Renvoie le chemin d'accès d'une image d'un fichier de tuples avec une
+     * autre extension que {@link #SNAPSHOT_EXTENSION}. Un meme fichier peut
+     * ainsi avoir plusieurs images (structures en mémoire, filtre...).
+     *
+     * @param filePath Chemin d'accès du fichier de tuples.
+     * @param extension Extension du fichier d'image.
+     * @return Chemin d'accès de l'image.
+     */
+    static Path getSnapshotPath(Path filePath, String extension) {
+        return filePath.resolveSibling(filePath.getFileName() + extension);
+    }
+
+    /**
+     * Ecrit l'image d'un fichier de tuples. L'image est écrite dans un fichier
+     * temporaire puis renommée, une image n'est donc jamais lue à moitié.
+     *
+     * @param filePath Chemin d'accès du fichier de tuples.
+     * @param generation Génération de l'en-tete du fichier de tuples.
+     * @param fileLenght Taille du fichier de tuples.
+     * @param payload Contenu de l'image, entre sa position et sa limite.
+     * @throws DAOFileException s'il y'a une erreur lors de l'écriture.
+     */
+    static void write(Path filePath, long generation, long fileLenght, ByteBuffer payload) throws DAOFileException {
+        write(filePath, SNAPSHOT_EXTENSION, generation, fileLenght, payload);
+    }
+
+    /**
+     * Ecrit une image d'un fichier de tuples avec l'extension
+     * <code>extension</code>.
+     *
+     * @param filePath Chemin d'accès du fichier de tuples.
+     * @param extension Extension du fichier d'image.
+     * @param generation Génération de l'en-tete du fichier de tuples.
+     * @param fileLenght Taille du fichier de tuples.
+     * @param payload Contenu de l'image, entre sa position et sa limite.
+     * @throws DAOFileException s'il y'a une erreur lors de l'écriture.
+     */
+    static void write(Path filePath, String extension, long generation, long fileLenght, ByteBuffer payload) throws DAOFileException {
+        Path snapshotPath = getSnapshotPath(filePath, extension);
+        Path tmpPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putLong(generation);
+        header.putLong(fileLenght);
+        header.putInt(payload.remaining());
+        header.putInt(checksum(payload));
+        header.flip();
+        try {
+            try (FileChannel fileChannel = FileChannel.open(tmpPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer[] buffers = {header, payload.duplicate()};
+                long lenght = header.remaining() + payload.remaining();
+                long nbWritedBytes = 0;
+                while (nbWritedBytes < lenght) {
+                    nbWritedBytes += fileChannel.write(buffers);
+                }
+                fileChannel.force(true);
+            }
+            Files.move(tmpPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.log(Level.FINE, "snapshot writed -> {0} : {1} bytes", new Object[]{snapshotPath, payload.remaining()});
+        } catch (IOException ex) {
+            try {
+                Files.deleteIfExists(tmpPath);
+            } catch (IOException ignored) {
+            }
+            throw new DAOFileException("Snapshot of '" + filePath + "' couldn't be writed"
+                    + "\n\t cause -> IO error occurs : " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Lis l'image d'un fichier de tuples en une seule lecture puis la
+     * supprime. L'image est ignorée si elle est corrompue ou si le fichier de
+     * tuples a changé depuis son écriture.
+     *
+     * @param filePath Chemin d'accès du fichier de tuples.
+     * @param generation Génération de l'en-tete du fichier de tuples.
+     * @param fileLenght Taille du fichier de tuples.
+     * @return Contenu de l'image ou <code>null</code> s'il n'y a pas d'image
+     * utilisable.
+     */
+    static ByteBuffer read(Path filePath, long generation, long fileLenght) {
+        return read(filePath, SNAPSHOT_EXTENSION, generation, fileLenght);
+    }
+
+    /**
+     * Lis puis supprime une image d'un fichier de tuples avec l'extension
+     * <code>extension</code>.
+     *
+     * @param filePath Chemin d'accès du fichier de tuples.
+     * @param extension Extension du fichier d'image.
+     * @param generation Génération de l'en-tete du fichier de tuples.
+     * @param fileLenght Taille du fichier de tuples.
+     * @return Contenu de l'image ou <code>null</code> s'il n'y a pas d'image
+     * utilisable.
+     */
+    static ByteBuffer read(Path filePath, String extension, long generation, long fileLenght) {
+        Path snapshotPath = getSnapshotPath(filePath, extension);
+        if (!Files.exists(snapshotPath)) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer;
+            try (FileChannel fileChannel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+                long size = fileChannel.size();
+                if (size < SNAPSHOT_HEADER_SIZE || size > Integer.MAX_VALUE) {
+                    LOGGER.log(Level.WARNING, "snapshot ignored -> {0} : invalid size {1}", new Object[]{snapshotPath, size});
+                    return null;
+                }
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && fileChannel.read(buffer) != -1) {
+                }
+                buffer.flip();
+            }
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                LOGGER.log(Level.WARNING, "snapshot ignored -> {0} : unknown format", snapshotPath);
+                return null;
+            }
+            long snapshotGeneration = buffer.getLong();
+            long snapshotFileLenght = buffer.getLong();
+            if (snapshotGeneration != generation || snapshotFileLenght != fileLenght) {
+                LOGGER.log(Level.INFO, "snapshot ignored -> {0} : generation {1} (file {2}), lenght {3} (file {4})",
+                        new Object[]{snapshotPath, snapshotGeneration, generation, snapshotFileLenght, fileLenght});
+                return null;
+            }
+            int payloadLenght = buffer.getInt();
+            int payloadChecksum = buffer.getInt();
+            if (payloadLenght != buffer.remaining() || payloadChecksum != checksum(buffer)) {
+                LOGGER.log(Level.WARNING, "snapshot ignored -> {0} : corrupted", snapshotPath);
+                return null;
+            }
+            return buffer.slice();
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "snapshot ignored -> {0} : {1}", new Object[]{snapshotPath, ex.getMessage()});
+            return null;
+        } finally {
+            // une image ne sert qu'une fois
+            delete(filePath, extension);
+        }
+    }
+
+    /**
+     * Supprime l'image d'un fichier de tuples. A appeler à l'ouverture d'un
+     * fichier qui ne lit pas son image, les modifications qui suivent la
+     * rendraient fausse.
+     *
+     * @param filePath Chemin d'accès du fichier de tuples.
+     */
+    static void delete(Path filePath) {
+        delete(filePath, SNAPSHOT_EXTENSION);
+    }
+
+    /**
+     * Supprime une image d'un fichier de tuples avec l'extension
+     * <code>extension</code>.
+     *
+     * @param filePath Chemin d'accès du fichier de tuples.
+     * @param extension Extension du fichier d'image.
+     */
+    static void delete(Path filePath, String extension) {
+        try {
+            Files.deleteIfExists(getSnapshotPath(filePath, extension));
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "snapshot of {0} not deleted -> {1}", new Object[]{filePath, ex.getMessage()});
+        }
+    }
+
+    /**
+     * Calcule la somme de controle du contenu d'un tampon, entre sa position
+     * et sa limite. La position du tampon n'est pas modifiée.
+     *
+     * @param buffer Tampon d'octets.
+     * @return Somme de controle.
+     */
+    private static int checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        return (int) crc.getValue();
+    }
+}
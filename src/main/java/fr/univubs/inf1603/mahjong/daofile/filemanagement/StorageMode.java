@@ -0,0 +1,48 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+/**
+ * Enumération des modes d'accès d'un writer {@link DAOFileWriter} à son
+ * fichier.
+ *
+ * @author aliyou
+ * @version 1.3
+ */
+public enum StorageMode {
+
+    /**
+     * Les lectures sont des lectures positionnelles sur le canal
+     * <code>FileChannel</code> du fichier.
+     */
+    CHANNEL,
+    /**
+     * Les lectures sont servies depuis une projection en mémoire
+     * <code>MappedByteBuffer</code> du fichier. Aucun appel système n'est
+     * fait lors de la lecture d'un tuple, les octets sont copiés dans un
+     * tampon de la réserve du writer.
+     */
+    MAPPED;
+
+    /**
+     * Nom de la propriété système qui définit le mode d'accès par défaut.
+     */
+    public static final String STORAGE_MODE_PROPERTY = "mahjong.daofile.storageMode";
+
+    /**
+     * Renvoie le mode d'accès défini par la propriété système
+     * {@link #STORAGE_MODE_PROPERTY} ou {@link #CHANNEL} si la propriété n'est
+     * pas définie ou n'est pas valide.
+     *
+     * @return Mode d'accès par défaut.
+     */
+    static StorageMode fromSystemProperty() {
+        String value = System.getProperty(STORAGE_MODE_PROPERTY);
+        if (value != null) {
+            for (StorageMode mode : values()) {
+                if (mode.name().equalsIgnoreCase(value.trim())) {
+                    return mode;
+                }
+            }
+        }
+        return CHANNEL;
+    }
+}
@@ -0,0 +1,194 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import static fr.univubs.inf1603.mahjong.daofile.FileDAOUtilities.checkNotNull;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * La classe {@code SyncGroup} regroupe les writers {@link DAOFileWriter} d'un
+ * meme répertoire. Elle porte la politique de durabilité
+ * {@link DurabilityPolicy} du répertoire et les compteurs de synchronisations
+ * (<code>fsync</code>) éffectuées.
+ * <br>
+ * En politique {@link DurabilityPolicy#GROUP}, un writer qui modifie son
+ * fichier se signale au groupe {@link #markUnsynced(DAOFileWriter)}. A la fin
+ * d'un lot d'écriture, le writer demande une validation
+ * {@link #commit()} : tous les fichiers modifiés du répertoire sont forcés sur
+ * le disque. Les writers qui terminent leur lot pendant qu'une validation est
+ * en cours attendent la fin de celle-ci puis sont validés ensemble par la
+ * validation suivante.
+ *
+ * @author aliyou
+ * @version 1.3
+ */
+public class SyncGroup {
+
+    /**
+     * Logging
+     */
+    private static final Logger LOGGER = Logger.getLogger(SyncGroup.class.getName());
+
+    /**
+     * Groupes de synchronisation indexés par répertoire.
+     */
+    private static final Map<Path, SyncGroup> GROUPS = new ConcurrentHashMap<>();
+
+    /**
+     * Répertoire du groupe.
+     */
+    private final Path dirPath;
+    /**
+     * Politique de durabilité des writers du groupe.
+     */
+    private volatile DurabilityPolicy durabilityPolicy;
+    /**
+     * Writers dont les écritures n'ont pas encore été forcées sur le disque.
+     */
+    private final Set<DAOFileWriter> unsyncedWriters;
+    /**
+     * Verrou d'une validation. Une seule validation à la fois par groupe.
+     */
+    private final Object commitLock;
+    /**
+     * Nombre de synchronisations (<code>fsync</code>) éffectuées par les
+     * writers du groupe.
+     */
+    private final AtomicLong syncCount;
+    /**
+     * Nombre de validations de groupe éffectuées.
+     */
+    private final AtomicLong commitCount;
+
+    /**
+     * Constructeur avec le chemin d'un répertoire <code>dirPath</code>.
+     *
+     * @param dirPath Chemin d'accès du répertoire.
+     */
+    private SyncGroup(Path dirPath) {
+        this.dirPath = dirPath;
+        this.durabilityPolicy = DurabilityPolicy.fromSystemProperty();
+        this.unsyncedWriters = new LinkedHashSet<>();
+        this.commitLock = new Object();
+        this.syncCount = new AtomicLong();
+        this.commitCount = new AtomicLong();
+    }
+
+    /**
+     * Renvoie le groupe de synchronisation du répertoire <code>dirPath</code>.
+     * Le groupe est créé au premier appel.
+     *
+     * @param dirPath Chemin d'accès du répertoire. NE DOIT PAS ETRE NULL.
+     * @return Groupe de synchronisation du répertoire.
+     */
+    public static SyncGroup getInstance(Path dirPath) {
+        checkNotNull("SyncGroup.getInstance -> dirPath", dirPath);
+        return GROUPS.computeIfAbsent(dirPath.toAbsolutePath().normalize(), SyncGroup::new);
+    }
+
+    /**
+     * @return Politique de durabilité des writers du groupe.
+     */
+    public DurabilityPolicy getDurabilityPolicy() {
+        return durabilityPolicy;
+    }
+
+    /**
+     * Modifie la politique de durabilité des writers du groupe. La nouvelle
+     * politique s'applique immédiatement à tous les writers du groupe. Les
+     * fichiers modifiés et pas encore synchronisés le sont lors du passage à
+     * une autre politique que {@link DurabilityPolicy#GROUP}.
+     *
+     * @param durabilityPolicy Nouvelle politique. NE DOIT PAS ETRE NULL.
+     */
+    public void setDurabilityPolicy(DurabilityPolicy durabilityPolicy) {
+        checkNotNull("SyncGroup.setDurabilityPolicy -> durabilityPolicy", durabilityPolicy);
+        DurabilityPolicy oldPolicy = this.durabilityPolicy;
+        this.durabilityPolicy = durabilityPolicy;
+        if (oldPolicy == DurabilityPolicy.GROUP && durabilityPolicy != DurabilityPolicy.GROUP) {
+            commit();
+        }
+        LOGGER.log(Level.INFO, "durability policy of {0} : {1} -> {2}", new Object[]{dirPath, oldPolicy, durabilityPolicy});
+    }
+
+    /**
+     * Signale qu'un writer a modifié son fichier sans le forcer sur le disque.
+     *
+     * @param writer Writer dont le fichier a été modifié.
+     */
+    void markUnsynced(DAOFileWriter writer) {
+        synchronized (unsyncedWriters) {
+            unsyncedWriters.add(writer);
+        }
+    }
+
+    /**
+     * Retire un writer du groupe. Cette méthode est appelée lors de la
+     * fermeture du writer.
+     *
+     * @param writer Writer à retirer.
+     */
+    void remove(DAOFileWriter writer) {
+        synchronized (unsyncedWriters) {
+            unsyncedWriters.remove(writer);
+        }
+    }
+
+    /**
+     * Force sur le disque les fichiers de tous les writers du groupe qui ont
+     * été modifiés depuis la dernière validation.
+     *
+     * @return Nombre de fichiers synchronisés.
+     */
+    public int commit() {
+        synchronized (commitLock) {
+            List<DAOFileWriter> writers;
+            synchronized (unsyncedWriters) {
+                if (unsyncedWriters.isEmpty()) {
+                    return 0;
+                }
+                writers = new ArrayList<>(unsyncedWriters);
+                unsyncedWriters.clear();
+            }
+            int nbSyncedFiles = 0;
+            for (DAOFileWriter writer : writers) {
+                if (writer.force()) {
+                    nbSyncedFiles++;
+                }
+            }
+            commitCount.incrementAndGet();
+            LOGGER.log(Level.FINE, "group commit -> {0} : {1} files synced", new Object[]{dirPath, nbSyncedFiles});
+            return nbSyncedFiles;
+        }
+    }
+
+    /**
+     * Incrémente le nombre de synchronisations du groupe. Appelée par un writer
+     * à chaque synchronisation de son fichier.
+     */
+    void incrementSyncCount() {
+        syncCount.incrementAndGet();
+    }
+
+    /**
+     * @return Nombre de synchronisations (<code>fsync</code>) éffectuées par
+     * les writers du groupe.
+     */
+    public long getSyncCount() {
+        return syncCount.get();
+    }
+
+    /**
+     * @return Nombre de validations de groupe éffectuées.
+     */
+    public long getCommitCount() {
+        return commitCount.get();
+    }
+}
@@ -0,0 +1,240 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import static fr.univubs.inf1603.mahjong.daofile.FileDAOUtilities.checkNotNull;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * La classe {@code UUIDHashIndex} associe l'identifiant <code>UUID</code> de
+ * l'objet encapsulé dans un tuple au numéro d'emplacement du tuple dans son
+ * fichier. C'est une table de hachage à adressage ouvert (sondage linéaire)
+ * dont les clés et les valeurs sont rangées dans des tableaux de types
+ * primitifs : les deux moitiés de l'identifiant et le numéro d'emplacement.
+ * <br>
+ * Une entrée occupe 20 octets par case, aucun objet n'est alloué par entrée.
+ * La recherche, l'ajout et la suppression se font en temps constant en
+ * moyenne. La suppression décale les entrées suivantes du meme groupe, la
+ * table ne contient donc jamais d'entrées supprimées.
+ *
+ * @author aliyou
+ * @version 1.3
+ */
+public class UUIDHashIndex {
+
+    /**
+     * Valeur renvoyée lorsqu'un identifiant n'est pas dans la table.
+     */
+    public static final int NOT_FOUND = -1;
+    /**
+     * Capacité initiale de la table, c'est une puissance de 2.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+    /**
+     * Taux de remplissage maximal (en pourcentage) avant l'agrandissement de
+     * la table.
+     */
+    private static final int MAX_LOAD_PERCENT = 70;
+
+    /**
+     * Bits de poids fort des identifiants.
+     */
+    private long[] mostSigBits;
+    /**
+     * Bits de poids faible des identifiants.
+     */
+    private long[] leastSigBits;
+    /**
+     * Numéros d'emplacement associés aux identifiants. Une case vide contient
+     * {@link #NOT_FOUND}.
+     */
+    private int[] slots;
+    /**
+     * Nombre d'entrées de la table.
+     */
+    private int size;
+
+    /**
+     * Constructeur d'une table vide.
+     */
+    public UUIDHashIndex() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Alloue des tableaux vides d'une capacité <code>capacity</code>.
+     *
+     * @param capacity Capacité de la table, une puissance de 2.
+     */
+    private void allocate(int capacity) {
+        this.mostSigBits = new long[capacity];
+        this.leastSigBits = new long[capacity];
+        this.slots = new int[capacity];
+        Arrays.fill(this.slots, NOT_FOUND);
+        this.size = 0;
+    }
+
+    /**
+     * Renvoie la case de départ d'un identifiant.
+     *
+     * @param mostBits Bits de poids fort de l'identifiant.
+     * @param leastBits Bits de poids faible de l'identifiant.
+     * @return Case de départ du sondage.
+     */
+    private int bucket(long mostBits, long leastBits) {
+        // mélange des bits : les identifiants séquentiels ne tombent pas dans les memes cases
+        long hash = mostBits * 0x9E3779B97F4A7C15L ^ leastBits;
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return (int) hash & (slots.length - 1);
+    }
+
+    /**
+     * Renvoie la case qui contient un identifiant ou la case vide où il doit
+     * etre ajouté.
+     *
+     * @param mostBits Bits de poids fort de l'identifiant.
+     * @param leastBits Bits de poids faible de l'identifiant.
+     * @return Case de l'identifiant.
+     */
+    private int find(long mostBits, long leastBits) {
+        int mask = slots.length - 1;
+        int index = bucket(mostBits, leastBits);
+        while (slots[index] != NOT_FOUND
+                && (mostSigBits[index] != mostBits || leastSigBits[index] != leastBits)) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /**
+     * Renvoie le numéro d'emplacement associé à un identifiant.
+     *
+     * @param dataID Identifiant de l'objet encapsulé. NE DOIT PAS ETRE NULL.
+     * @return Numéro d'emplacement ou {@link #NOT_FOUND} si l'identifiant
+     * n'est pas dans la table.
+     */
+    public int get(UUID dataID) {
+        checkNotNull("UUIDHashIndex.get -> dataID", dataID);
+        return slots[find(dataID.getMostSignificantBits(), dataID.getLeastSignificantBits())];
+    }
+
+    /**
+     * Associe un numéro d'emplacement à un identifiant. L'ancien numéro est
+     * remplacé.
+     *
+     * @param dataID Identifiant de l'objet encapsulé. NE DOIT PAS ETRE NULL.
+     * @param slot Numéro d'emplacement. DOIT ETRE POSITIF.
+     * @return Ancien numéro d'emplacement ou {@link #NOT_FOUND} si
+     * l'identifiant n'était pas dans la table.
+     */
+    public int put(UUID dataID, int slot) {
+        checkNotNull("UUIDHashIndex.put -> dataID", dataID);
+        return put(dataID.getMostSignificantBits(), dataID.getLeastSignificantBits(), slot);
+    }
+
+    /**
+     * Associe un numéro d'emplacement à un identifiant donné par ses deux
+     * moitiés, sans créer d'objet <code>UUID</code>.
+     *
+     * @param mostBits Bits de poids fort de l'identifiant.
+     * @param leastBits Bits de poids faible de l'identifiant.
+     * @param slot Numéro d'emplacement. DOIT ETRE POSITIF.
+     * @return Ancien numéro d'emplacement ou {@link #NOT_FOUND} si
+     * l'identifiant n'était pas dans la table.
+     */
+    int put(long mostBits, long leastBits, int slot) {
+        if (slot < 0) {
+            throw new IllegalArgumentException("UUIDHashIndex.put -> slot '" + slot + "' must be greater or equal to 0.");
+        }
+        int index = find(mostBits, leastBits);
+        int oldSlot = slots[index];
+        if (oldSlot == NOT_FOUND) {
+            if ((size + 1) * 100L > (long) slots.length * MAX_LOAD_PERCENT) {
+                resize(slots.length * 2);
+                index = find(mostBits, leastBits);
+            }
+            mostSigBits[index] = mostBits;
+            leastSigBits[index] = leastBits;
+            size++;
+        }
+        slots[index] = slot;
+        return oldSlot;
+    }
+
+    /**
+     * Retire un identifiant de la table.
+     *
+     * @param dataID Identifiant de l'objet encapsulé. NE DOIT PAS ETRE NULL.
+     * @return Numéro d'emplacement retiré ou {@link #NOT_FOUND} si
+     * l'identifiant n'était pas dans la table.
+     */
+    public int remove(UUID dataID) {
+        checkNotNull("UUIDHashIndex.remove -> dataID", dataID);
+        int index = find(dataID.getMostSignificantBits(), dataID.getLeastSignificantBits());
+        int oldSlot = slots[index];
+        if (oldSlot == NOT_FOUND) {
+            return NOT_FOUND;
+        }
+        // décalage des entrées suivantes du groupe vers la case libérée
+        int mask = slots.length - 1;
+        int hole = index;
+        int next = (hole + 1) & mask;
+        while (slots[next] != NOT_FOUND) {
+            int home = bucket(mostSigBits[next], leastSigBits[next]);
+            // l'entrée peut remplir le trou si sa case de départ n'est pas entre le trou et elle
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                mostSigBits[hole] = mostSigBits[next];
+                leastSigBits[hole] = leastSigBits[next];
+                slots[hole] = slots[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        slots[hole] = NOT_FOUND;
+        size--;
+        return oldSlot;
+    }
+
+    /**
+     * Agrandit la table et y range à nouveau toutes les entrées.
+     *
+     * @param capacity Nouvelle capacité, une puissance de 2.
+     */
+    private void resize(int capacity) {
+        long[] oldMostSigBits = mostSigBits;
+        long[] oldLeastSigBits = leastSigBits;
+        int[] oldSlots = slots;
+        allocate(capacity);
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldSlots[i] != NOT_FOUND) {
+                int index = find(oldMostSigBits[i], oldLeastSigBits[i]);
+                mostSigBits[index] = oldMostSigBits[i];
+                leastSigBits[index] = oldLeastSigBits[i];
+                slots[index] = oldSlots[i];
+                size++;
+            }
+        }
+    }
+
+    /**
+     * Vide la table.
+     */
+    public void clear() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @return Nombre d'entrées de la table.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Nombre de cases de la table.
+     */
+    public int getCapacity() {
+        return slots.length;
+    }
+}
@@ -9,6 +9,7 @@ import fr.univubs.inf1603.mahjong.engine.persistence.Persistable;
 import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
@@ -176,6 +177,116 @@ public abstract class FileDAOMahjongTest<T extends Persistable> {
         }
     }
 
+    /**
+     * Test of findAll method, of class FileDAOMahjong. Les objets sont
+     * renvoyés dans l'ordre des identifiants et les identifiants inconnus sont
+     * ignorés.
+     * @param dao
+     * @param list
+     */
+    protected void testFindAll(FileDAOMahjong<T> dao, List<T> list) {
+        System.out.println("findAll");
+        try {
+            for (T obj : list) {
+                dao.writeToPersistence(obj);
+            }
+            // Attendre que l'écriture soit effective
+            synchronized (dao) {
+                dao.wait(10000);
+            }
+            List<UUID> dataIDs = new ArrayList<>();
+            for (int i = list.size() - 1; i >= 0; i--) {
+                dataIDs.add(list.get(i).getUUID());
+            }
+            dataIDs.add(1, UUID.randomUUID());
+            List<T> result = dao.findAll(dataIDs);
+            assertEquals(list.size(), result.size());
+            for (int i = 0; i < list.size(); i++) {
+                assertTest(list.get(list.size() - 1 - i), result.get(i));
+            }
+            dao.delete(list);
+        } catch (DAOException | DAOFileException | InterruptedException ex) {
+            ex.printStackTrace(System.out);
+        }
+    }
+
+    /**
+     * Test of setCacheMaximumSize method, of class FileDAOMahjong. Le nombre
+     * d'objets en mémoire ne dépasse pas la taille du cache et les objets
+     * évincés sont rechargés depuis le fichier.
+     * @param dao
+     * @param list
+     */
+    protected void testCacheMaximumSize(FileDAOMahjong<T> dao, List<T> list) {
+        System.out.println("cacheMaximumSize");
+        try {
+            for (T obj : list) {
+                dao.save(obj);
+            }
+            // Attendre que l'écriture soit effective
+            synchronized (dao) {
+                dao.wait(10000);
+            }
+            int maximumSize = list.size() / 4;
+            dao.setCacheMaximumSize(maximumSize);
+            assertTrue(dao.getCacheSize() <= maximumSize);
+            long evictionCount = dao.getEvictionCount();
+            long missCount = dao.getCacheMissCount();
+            for (T obj : list) {
+                assertTest(obj, dao.find(obj.getUUID()));
+                assertTrue(dao.getCacheSize() <= maximumSize);
+            }
+            assertTrue(dao.getEvictionCount() > evictionCount);
+            assertTrue(dao.getCacheMissCount() > missCount);
+            long hitCount = dao.getCacheHitCount();
+            dao.find(list.get(list.size() - 1).getUUID());
+            assertEquals(hitCount + 1, dao.getCacheHitCount());
+            dao.setCacheMaximumSize(FileDAOMahjong.NO_CACHE_LIMIT);
+            dao.delete(list);
+        } catch (DAOException | DAOFileException | InterruptedException ex) {
+            ex.printStackTrace(System.out);
+        }
+    }
+
+    /**
+     * Test of setCacheMaximumSize method, of class FileDAOMahjong. Un objet
+     * évincé encore utilisé reste suivi : sa modification remet son tuple en
+     * mémoire et une recherche renvoie la meme instance.
+     * @param dao
+     * @param list
+     */
+    protected void testCacheEvictedObject(FileDAOMahjong<T> dao, List<T> list) {
+        System.out.println("cacheEvictedObject");
+        try {
+            for (T obj : list) {
+                dao.save(obj);
+            }
+            // Attendre que l'écriture soit effective
+            synchronized (dao) {
+                dao.wait(10000);
+            }
+            dao.setCacheMaximumSize(1);
+            for (T obj : list) {
+                dao.find(obj.getUUID());
+            }
+            T first = list.get(0);
+            long evictionCount = dao.getEvictionCount();
+            assertTrue(evictionCount > 0);
+            // la modification remet le tuple évincé en mémoire
+            first.getPropertyChangeSupport().firePropertyChange("evicted", false, true);
+            long hitCount = dao.getCacheHitCount();
+            assertSame(first, dao.find(first.getUUID()));
+            assertEquals(hitCount + 1, dao.getCacheHitCount());
+            // un objet évincé non modifié n'est pas dupliqué
+            T second = list.get(1);
+            assertSame(second, dao.find(second.getUUID()));
+            dao.setCacheMaximumSize(FileDAOMahjong.NO_CACHE_LIMIT);
+            dao.delete(list);
+        } catch (DAOException | DAOFileException | InterruptedException ex) {
+            ex.printStackTrace(System.out);
+        }
+    }
+
     /**
      * Test of removeDataRow method, of class FileDAOMahjong.
      * @param dao
@@ -226,7 +337,7 @@ public abstract class FileDAOMahjongTest<T extends Persistable> {
             }
             
             int rowID = 1;
-            long rowPointer = FileHeaderRow.FILE_HEADER_ROW_SIZE; //  = 12
+            long rowPointer = FileHeaderRow.FILE_HEADER_ROW_SIZE;
             
             DataRow<T> expResult = dao.getDataRow(rowID, data, rowPointer);
             DataRow<T> result = dao.getDataRow(rowPointer);
@@ -187,6 +187,34 @@ public class FileSapiGameTest extends FileDAOMahjongTest<SapiGame> {
         dao.deleteFromPersistence(sapiGame);
     }
 
+    /**
+     * Test of find method, of class FileSapiGameDAO. La partie est retrouvée
+     * par son nom à l'aide de l'index secondaire des noms.
+     *
+     * @throws fr.univubs.inf1603.mahjong.dao.DAOException
+     * @throws fr.univubs.inf1603.mahjong.engine.rule.RulesException
+     * @throws fr.univubs.inf1603.mahjong.engine.game.GameException
+     * @throws java.lang.InterruptedException
+     */
+    @Test
+    public void testFind() throws DAOException, RulesException, GameException, InterruptedException {
+        System.out.println("find");
+        FileSapiGameDAO dao = FileSapiGameDAO.getInstance(rootDir);
+
+        String name = "testFindSapiGame";
+        SapiGame sapiGame = new SapiGame(name, Difficulty.EASY, createGame(new UUID(0, 41)));
+        dao.save(sapiGame);
+        synchronized (dao) {
+            dao.wait(10000);
+        }
+
+        Assert.assertEquals(sapiGame, dao.find(name));
+        Assert.assertNull(dao.find("testFindUnknownSapiGame"));
+
+        dao.delete(sapiGame);
+        Assert.assertNull(dao.find(name));
+    }
+
     /**
      * Test of getInstance method, of class FileZoneDAO.
      *
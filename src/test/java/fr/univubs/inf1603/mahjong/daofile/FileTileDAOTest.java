@@ -1,10 +1,14 @@
 package fr.univubs.inf1603.mahjong.daofile;
 
 import fr.univubs.inf1603.mahjong.Wind;
+import fr.univubs.inf1603.mahjong.dao.DAO;
 import fr.univubs.inf1603.mahjong.dao.DAOException;
 import fr.univubs.inf1603.mahjong.daofile.FileTileDAO.TileRow;
 import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
 import fr.univubs.inf1603.mahjong.daofile.filemanagement.DataRow;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.BloomFilter;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.FileHeader;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.FileHeaderRow;
 import fr.univubs.inf1603.mahjong.daofile.filemanagement.LinkManager;
 import fr.univubs.inf1603.mahjong.engine.game.GameTile;
 import fr.univubs.inf1603.mahjong.engine.game.GameTileInterface;
@@ -13,6 +17,11 @@ import fr.univubs.inf1603.mahjong.engine.rule.FlowerTile;
 import fr.univubs.inf1603.mahjong.engine.rule.SeasonTile;
 import fr.univubs.inf1603.mahjong.engine.rule.SimpleHonor;
 import fr.univubs.inf1603.mahjong.engine.rule.SuperiorHonor;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -62,6 +71,185 @@ public class FileTileDAOTest extends FileDAOMahjongTest<GameTileInterface> {
         dao.deleteFromPersistence(tile);
     }
     
+    /**
+     * Test of writeToPersistence method, of class FileTileDAO. Les
+     * emplacements des tuiles supprimées sont retrouvés à la réouverture du
+     * fichier de données et réutilisés par les nouvelles tuiles.
+     *
+     * @throws fr.univubs.inf1603.mahjong.dao.DAOException
+     */
+    @Test
+    public void testWriteToPersistence_FreeSlotsReopened() throws DAOException {
+        System.out.println("writeToPersistence free slots reopened");
+        Path dir = rootDir.resolve("tileFreeSlots");
+        File[] files = dir.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.toFile().mkdirs();
+        // les DAO du répertoire racine des tests sont recréés par le gestionnaire
+        FileTileDAO.resetInstance();
+        double fragmentationThreshold = FileHeader.getFragmentationThreshold();
+        // pas de compactage pendant le test
+        FileHeader.setFragmentationThreshold(1);
+        List<GameTileInterface> tiles = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tiles.add(new GameTile(i, new CommonTile(CommonTile.Family.DOT, CommonTile.Number.SIX), UUID.randomUUID(), false, Wind.EAST));
+        }
+        File dataFile = dir.resolve("tile.data").toFile();
+        try {
+            FileDAOManager manager = FileDAOManager.getInstance(dir);
+            try {
+                DAO<GameTileInterface> dao = manager.getTileDao();
+                for (GameTileInterface tile : tiles) {
+                    dao.save(tile);
+                }
+                for (int i = 0; i < 4; i++) {
+                    dao.delete(tiles.remove(0));
+                }
+            } finally {
+                manager.close();
+            }
+            long fileLenght = dataFile.length();
+            manager = FileDAOManager.getInstance(dir);
+            try {
+                DAO<GameTileInterface> dao = manager.getTileDao();
+                for (int i = 0; i < 4; i++) {
+                    GameTileInterface tile = new GameTile(20 + i, new SimpleHonor(Wind.SOUTH), UUID.randomUUID(), false, Wind.EAST);
+                    tiles.add(tile);
+                    dao.save(tile);
+                }
+            } finally {
+                manager.close();
+            }
+            Assert.assertEquals(fileLenght, dataFile.length());
+            manager = FileDAOManager.getInstance(dir);
+            try {
+                for (GameTileInterface tile : tiles) {
+                    GameTileInterface result = manager.getTileDao().find(tile.getUUID());
+                    Assert.assertNotNull(result);
+                    Assert.assertEquals(tile.getGameID(), result.getGameID());
+                }
+            } finally {
+                manager.close();
+            }
+        } finally {
+            FileHeader.setFragmentationThreshold(fragmentationThreshold);
+        }
+    }
+
+    /**
+     * Test of loadFromPersistence method, of class FileTileDAO. Les fichiers
+     * de données et d'index écrits dans le format d'origine (en-tete sur un
+     * seul tuple, tuples sans somme de controle) sont convertis à l'ouverture
+     * et leurs tuiles sont retrouvées.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.dao.DAOException
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testLoadFromPersistence_BaselineFormat() throws DAOFileException, DAOException, IOException {
+        System.out.println("loadFromPersistence baseline format");
+        Path dir = rootDir.resolve("tileBaseline");
+        File[] files = dir.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.toFile().mkdirs();
+        List<GameTileInterface> tiles = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            tiles.add(new GameTile(40 + i, new CommonTile(CommonTile.Family.BAMBOO, CommonTile.Number.TWO), new UUID(7, i), i % 2 == 0, Wind.NORTH));
+        }
+        // fixture dans le format d'origine : | rowID = 0 | rowNumber | lastRowID | puis | rowID | data |
+        int baselineRowHeaderSize = 4;
+        int baselineTileRowSize = TileRow.TILE_ROW_SIZE - DataRow.ROW_HEADER_SIZE + baselineRowHeaderSize;
+        ByteBuffer data = ByteBuffer.allocate(12 + tiles.size() * baselineTileRowSize);
+        ByteBuffer index = ByteBuffer.allocate(12 + tiles.size() * (baselineRowHeaderSize + 24));
+        data.putInt(0).putInt(tiles.size()).putInt(tiles.size());
+        index.putInt(0).putInt(tiles.size()).putInt(tiles.size());
+        for (int i = 0; i < tiles.size(); i++) {
+            GameTileInterface tile = tiles.get(i);
+            data.putInt(i + 1);
+            new TileRow(i + 1, tile, 0).writeData(data);
+            index.putInt(i + 1).putLong(tile.getUUID().getMostSignificantBits())
+                    .putLong(tile.getUUID().getLeastSignificantBits()).putLong(12 + i * baselineTileRowSize);
+        }
+        Files.write(dir.resolve("tile.data"), data.array());
+        Files.write(dir.resolve("tile.index"), index.array());
+        for (int run = 0; run < 2; run++) {
+            FileDAOManager manager = FileDAOManager.getInstance(dir);
+            try {
+                DAO<GameTileInterface> dao = manager.getTileDao();
+                for (GameTileInterface tile : tiles) {
+                    GameTileInterface result = dao.find(tile.getUUID());
+                    Assert.assertNotNull(result);
+                    Assert.assertEquals(tile.getGameID(), result.getGameID());
+                }
+            } finally {
+                manager.close();
+            }
+        }
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(dir.resolve("tile.data")));
+        Assert.assertEquals(FileHeaderRow.MAGIC, header.getInt(DataRow.ROW_HEADER_SIZE));
+    }
+
+    /**
+     * Test of loadFromPersistence method, of class FileTileDAO. Sans fichier
+     * de filtre à l'ouverture, le filtre de Bloom est reconstruit en arrière
+     * plan : les recherches passent par l'index jusqu'à ce qu'il soit prêt,
+     * puis les tuiles absentes sont arretées par le filtre.
+     *
+     * @throws fr.univubs.inf1603.mahjong.dao.DAOException
+     * @throws java.lang.InterruptedException
+     */
+    @Test
+    public void testLoadFromPersistence_BloomFilterRebuilt() throws DAOException, InterruptedException {
+        System.out.println("loadFromPersistence bloom filter rebuilt");
+        Path dir = rootDir.resolve("tileBloom");
+        File[] files = dir.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.toFile().mkdirs();
+        // les DAO du répertoire racine des tests sont recréés par le gestionnaire
+        FileTileDAO.resetInstance();
+        List<GameTileInterface> tiles = new ArrayList<>();
+        FileDAOManager manager = FileDAOManager.getInstance(dir);
+        try {
+            DAO<GameTileInterface> dao = manager.getTileDao();
+            for (int i = 0; i < 10; i++) {
+                GameTileInterface tile = new GameTile(i, new CommonTile(CommonTile.Family.DOT, CommonTile.Number.SIX), UUID.randomUUID(), false, Wind.EAST);
+                tiles.add(tile);
+                dao.save(tile);
+            }
+        } finally {
+            manager.close();
+        }
+        BloomFilter.delete(dir.resolve("tile.data"));
+        manager = FileDAOManager.getInstance(dir);
+        try {
+            FileTileDAO dao = (FileTileDAO) manager.getTileDao();
+            long deadline = System.currentTimeMillis() + 10000;
+            while (dao.getNegativeLookupCount() == 0 && System.currentTimeMillis() < deadline) {
+                Assert.assertNull(dao.find(UUID.randomUUID()));
+                Thread.sleep(10);
+            }
+            Assert.assertTrue(dao.getNegativeLookupCount() > 0);
+            for (GameTileInterface tile : tiles) {
+                Assert.assertNotNull(dao.find(tile.getUUID()));
+            }
+        } finally {
+            manager.close();
+        }
+    }
+
     /**
      * Test of loadFromPersistence method, of class FileTileDAO.
      * 
@@ -130,6 +318,49 @@ public class FileTileDAOTest extends FileDAOMahjongTest<GameTileInterface> {
         super.testDelete(dao, list);
     }
 
+    /**
+     * Test of findAll method, of class FileTileDAO.
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     */
+    @Test
+    public void testFindAll() throws DAOFileException {
+        List<GameTileInterface> list = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            list.add(new GameTile(i, new CommonTile(CommonTile.Family.DOT, CommonTile.Number.FOUR), new UUID(3, i), true, Wind.NORTH));
+        }
+        FileTileDAO dao = FileTileDAO.getInstance(rootDir);
+        super.testFindAll(dao, list);
+    }
+
+    /**
+     * Test of setCacheMaximumSize method, of class FileTileDAO.
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     */
+    @Test
+    public void testCacheMaximumSize() throws DAOFileException {
+        List<GameTileInterface> list = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            list.add(new GameTile(i, new CommonTile(CommonTile.Family.BAMBOO, CommonTile.Number.TWO), new UUID(4, i), false, Wind.EAST));
+        }
+        FileTileDAO dao = FileTileDAO.getInstance(rootDir);
+        super.testCacheMaximumSize(dao, list);
+    }
+
+    /**
+     * Test of setCacheMaximumSize method, of class FileTileDAO. Les objets
+     * évincés encore utilisés restent suivis.
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     */
+    @Test
+    public void testCacheEvictedObject() throws DAOFileException {
+        List<GameTileInterface> list = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            list.add(new GameTile(i, new CommonTile(CommonTile.Family.DOT, CommonTile.Number.THREE), new UUID(5, i), false, Wind.EAST));
+        }
+        FileTileDAO dao = FileTileDAO.getInstance(rootDir);
+        super.testCacheEvictedObject(dao, list);
+    }
+
     /**
      * Test of removeDataRow method, of class FileTileDAO.
      * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
@@ -1,11 +1,14 @@
 package fr.univubs.inf1603.mahjong.daofile;
 
 import fr.univubs.inf1603.mahjong.Wind;
+import fr.univubs.inf1603.mahjong.dao.DAO;
 import fr.univubs.inf1603.mahjong.dao.DAOException;
 import static fr.univubs.inf1603.mahjong.daofile.FileDAOMahjongTest.rootDir;
 import fr.univubs.inf1603.mahjong.daofile.FileZoneDAO.ZoneRow;
 import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.DAOFileWriter;
 import fr.univubs.inf1603.mahjong.daofile.filemanagement.DataRow;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.FlushPolicy;
 import fr.univubs.inf1603.mahjong.daofile.filemanagement.LinkManager;
 import fr.univubs.inf1603.mahjong.engine.game.GameTile;
 import fr.univubs.inf1603.mahjong.engine.game.GameTileInterface;
@@ -17,6 +20,8 @@ import fr.univubs.inf1603.mahjong.engine.rule.FlowerTile;
 import fr.univubs.inf1603.mahjong.engine.rule.SeasonTile;
 import fr.univubs.inf1603.mahjong.engine.rule.SimpleHonor;
 import fr.univubs.inf1603.mahjong.engine.rule.SuperiorHonor;
+import java.io.File;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -57,6 +62,54 @@ public class FileZoneDAOTest extends FileDAOMahjongTest<TileZone> {
         dao.deleteFromPersistence(zone);
     }
    
+    /**
+     * Test of writeToPersistence method, of class FileZoneDAO. Avec un petit
+     * budget d'octets en attente, l'écriture d'une zone ajoute ses tuiles
+     * depuis le thread d'écriture sans bloquer les sauvegardes.
+     *
+     * @throws fr.univubs.inf1603.mahjong.dao.DAOException
+     */
+    @Test(timeout = 60000)
+    public void testWriteToPersistence_SmallDirtyBytesBudget() throws DAOException {
+        System.out.println("writeToPersistence small dirty bytes budget");
+        Path dir = rootDir.resolve("zoneBudget");
+        File[] files = dir.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.toFile().mkdirs();
+        // les DAO du répertoire racine des tests sont recréés par le gestionnaire
+        FileZoneDAO.resetInstance();
+        FileTileDAO.resetInstance();
+        FlushPolicy flushPolicy = DAOFileWriter.getDefaultFlushPolicy();
+        List<TileZone> zones = new ArrayList<>();
+        FileDAOManager manager = FileDAOManager.getInstance(dir);
+        try {
+            manager.setFlushPolicy(new FlushPolicy(50, 10000, 256, 256, FlushPolicy.Backpressure.BLOCK));
+            DAO<TileZone> dao = manager.getZoneDao();
+            for (int i = 0; i < 10; i++) {
+                TileZone zone = new MahjongTileZone(createRandomTiles(13), UUID.randomUUID(), TileZoneIdentifier.HandEast);
+                zones.add(zone);
+                dao.save(zone);
+            }
+        } finally {
+            manager.setFlushPolicy(flushPolicy);
+            manager.close();
+        }
+        manager = FileDAOManager.getInstance(dir);
+        try {
+            for (TileZone zone : zones) {
+                TileZone result = manager.getZoneDao().find(zone.getUUID());
+                Assert.assertNotNull(result);
+                Assert.assertEquals(13, result.getTiles().size());
+            }
+        } finally {
+            manager.close();
+        }
+    }
+
     /**
      * Test of loadFromPersistence method, of class FileZoneDAO.
      * 
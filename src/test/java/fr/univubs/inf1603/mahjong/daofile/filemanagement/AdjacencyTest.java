@@ -0,0 +1,111 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author aliyou
+ */
+public class AdjacencyTest {
+
+    public AdjacencyTest() {
+    }
+
+    /**
+     * Test of build and getChildren methods, of class Adjacency.
+     */
+    @Test
+    public void testGetChildren() {
+        System.out.println("getChildren");
+        Map<UUID, List<UUID>> childrenByParent = new HashMap<>();
+        for (int parent = 0; parent < 50; parent++) {
+            List<UUID> children = new ArrayList<>();
+            for (int child = 0; child < parent % 7; child++) {
+                children.add(new UUID(parent, child));
+            }
+            childrenByParent.put(new UUID(-parent, parent), children);
+        }
+        Adjacency instance = Adjacency.build(childrenByParent);
+        // les parents sans enfant ne sont pas gardés
+        assertEquals(50 - 8, instance.getParentNumber());
+        int nbLinks = 0;
+        for (Map.Entry<UUID, List<UUID>> entry : childrenByParent.entrySet()) {
+            assertEquals(entry.getValue(), instance.getChildren(entry.getKey()));
+            nbLinks += entry.getValue().size();
+        }
+        assertEquals(nbLinks, instance.getLinkNumber());
+        assertTrue(instance.getChildren(UUID.randomUUID()).isEmpty());
+        List<UUID> parentIDs = new ArrayList<>();
+        instance.forEach((parentID, children) -> parentIDs.add(parentID));
+        List<UUID> sorted = new ArrayList<>(parentIDs);
+        Collections.sort(sorted);
+        assertEquals(sorted, parentIDs);
+    }
+
+    /**
+     * Test of toByteBuffer and read methods, of class Adjacency.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     */
+    @Test
+    public void testRead() throws DAOFileException {
+        System.out.println("read");
+        Map<UUID, List<UUID>> childrenByParent = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            UUID parentID = UUID.randomUUID();
+            childrenByParent.put(parentID, Arrays.asList(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()));
+        }
+        Adjacency instance = Adjacency.build(childrenByParent);
+        Adjacency result = Adjacency.read(instance.toByteBuffer());
+        assertEquals(100, result.getParentNumber());
+        assertEquals(300, result.getLinkNumber());
+        for (Map.Entry<UUID, List<UUID>> entry : childrenByParent.entrySet()) {
+            assertEquals(entry.getValue(), result.getChildren(entry.getKey()));
+        }
+        ByteBuffer truncated = instance.toByteBuffer();
+        truncated.limit(truncated.limit() - 16);
+        try {
+            Adjacency.read(truncated);
+            fail("truncated adjacency must be rejected");
+        } catch (DAOFileException ex) {
+        }
+    }
+
+    /**
+     * Test of merge method, of class Adjacency.
+     */
+    @Test
+    public void testMerge() {
+        System.out.println("merge");
+        UUID p1 = new UUID(1, 0);
+        UUID p2 = new UUID(2, 0);
+        UUID p3 = new UUID(3, 0);
+        Map<UUID, List<UUID>> childrenByParent = new HashMap<>();
+        childrenByParent.put(p1, Arrays.asList(new UUID(1, 1), new UUID(1, 2)));
+        childrenByParent.put(p2, Arrays.asList(new UUID(2, 1)));
+        Adjacency instance = Adjacency.build(childrenByParent);
+        assertSame(instance, instance.merge(Collections.emptyMap()));
+
+        Map<UUID, List<UUID>> changedParents = new HashMap<>();
+        changedParents.put(p1, Collections.emptyList());
+        changedParents.put(p3, Arrays.asList(new UUID(3, 1), new UUID(1, 2)));
+        Adjacency result = instance.merge(changedParents);
+        assertEquals(2, result.getParentNumber());
+        assertEquals(3, result.getLinkNumber());
+        assertTrue(result.getChildren(p1).isEmpty());
+        assertEquals(Arrays.asList(new UUID(2, 1)), result.getChildren(p2));
+        assertEquals(Arrays.asList(new UUID(3, 1), new UUID(1, 2)), result.getChildren(p3));
+        // la table d'origine n'est pas modifiée
+        assertEquals(2, instance.getChildren(p1).size());
+    }
+}
@@ -0,0 +1,198 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author aliyou
+ */
+public class BPlusTreeTest {
+
+    /**
+     * Chemin du repertoire racine.
+     */
+    static Path rootDir;
+
+    public BPlusTreeTest() {
+        rootDir = Paths.get("/tmp/mahjong/dao");
+        if (!rootDir.toFile().exists()) {
+            rootDir.toFile().mkdirs();
+        }
+    }
+
+    /**
+     * Test of put and get methods, of class BPlusTree. L'arbre grandit de
+     * plusieurs niveaux et est retrouvé à la réouverture.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     */
+    @Test
+    public void testPut() throws DAOFileException, DAOFileWriterException {
+        System.out.println("put");
+        Path filePath = rootDir.resolve("bplustree_put.btree");
+        filePath.toFile().delete();
+        // assez d'entrées pour trois niveaux
+        int nbEntries = BPlusTree.LEAF_CAPACITY * BPlusTree.INNER_CAPACITY;
+        List<UUID> keys = new ArrayList<>(nbEntries);
+        DAOFileWriter writer = new DAOFileWriter(filePath);
+        BPlusTree instance = new BPlusTree(writer);
+        for (int i = 0; i < nbEntries; i++) {
+            UUID key = UUID.randomUUID();
+            keys.add(key);
+            assertEquals(BPlusTree.NOT_FOUND, instance.put(key, i));
+        }
+        assertEquals(nbEntries, instance.size());
+        assertEquals(7, instance.put(keys.get(7), 70));
+        assertEquals(nbEntries, instance.size());
+        assertTrue(instance.getPageNumber() > BPlusTree.INNER_CAPACITY);
+        for (int i = 0; i < nbEntries; i++) {
+            assertEquals(i == 7 ? 70 : i, instance.get(keys.get(i)));
+        }
+        assertEquals(BPlusTree.NOT_FOUND, instance.get(UUID.randomUUID()));
+        try {
+            instance.put(UUID.randomUUID(), -1);
+            fail("put should throw IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+        }
+        writer.close();
+        assertEquals(instance.getPageNumber() * (long) BPlusTree.PAGE_SIZE + FileHeaderRow.FILE_HEADER_ROW_SIZE,
+                filePath.toFile().length());
+
+        writer = new DAOFileWriter(filePath);
+        BPlusTree reloaded = new BPlusTree(writer);
+        assertEquals(nbEntries, reloaded.size());
+        assertEquals(instance.getPageNumber(), reloaded.getPageNumber());
+        for (int i = 0; i < nbEntries; i += 7) {
+            assertEquals(i == 7 ? 70 : i, reloaded.get(keys.get(i)));
+        }
+        writer.close();
+        assertTrue(new FileVerifier(filePath, FileVerifier.getRowSize(filePath)).verify().isValid());
+        filePath.toFile().delete();
+    }
+
+    /**
+     * Test of remove method, of class BPlusTree. Les entrées restantes sont
+     * parcourues dans l'ordre des identifiants.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     */
+    @Test
+    public void testRemove() throws DAOFileException, DAOFileWriterException {
+        System.out.println("remove");
+        Path filePath = rootDir.resolve("bplustree_remove.btree");
+        filePath.toFile().delete();
+        int nbEntries = 5000;
+        DAOFileWriter writer = new DAOFileWriter(filePath);
+        BPlusTree instance = new BPlusTree(writer);
+        for (int i = nbEntries - 1; i >= 0; i--) {
+            instance.put(new UUID(i % 2 == 0 ? -i : i, i), i);
+        }
+        for (int i = 0; i < nbEntries; i += 3) {
+            assertEquals(i, instance.remove(new UUID(i % 2 == 0 ? -i : i, i)));
+        }
+        assertEquals(BPlusTree.NOT_FOUND, instance.remove(new UUID(0, 0)));
+        assertEquals(nbEntries - (nbEntries + 2) / 3, instance.size());
+        for (int i = 0; i < nbEntries; i++) {
+            long expResult = i % 3 == 0 ? BPlusTree.NOT_FOUND : i;
+            assertEquals(expResult, instance.get(new UUID(i % 2 == 0 ? -i : i, i)));
+        }
+
+        List<UUID> keys = new ArrayList<>();
+        instance.forEach((key, value) -> keys.add(key));
+        assertEquals(instance.size(), keys.size());
+        for (int i = 1; i < keys.size(); i++) {
+            assertTrue(keys.get(i - 1).compareTo(keys.get(i)) < 0);
+        }
+
+        // toutes les entrées retirées puis ajoutées à nouveau
+        for (UUID key : keys) {
+            instance.remove(key);
+        }
+        assertEquals(0, instance.size());
+        int nbPages = instance.getPageNumber();
+        for (UUID key : keys) {
+            instance.put(key, 1);
+        }
+        assertEquals(keys.size(), instance.size());
+        assertEquals(nbPages, instance.getPageNumber());
+        writer.close();
+        filePath.toFile().delete();
+    }
+
+    /**
+     * Test du cache de pages de la classe BPlusTree. Le nombre de pages en
+     * mémoire ne dépasse pas la taille du cache.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     */
+    @Test
+    public void testCache() throws DAOFileException, DAOFileWriterException {
+        System.out.println("cache");
+        Path filePath = rootDir.resolve("bplustree_cache.btree");
+        filePath.toFile().delete();
+        int nbEntries = 20000;
+        DAOFileWriter writer = new DAOFileWriter(filePath);
+        BPlusTree instance = new BPlusTree(writer, 4);
+        List<UUID> keys = new ArrayList<>(nbEntries);
+        for (int i = 0; i < nbEntries; i++) {
+            UUID key = UUID.randomUUID();
+            keys.add(key);
+            instance.put(key, i);
+            assertTrue(instance.getCachedPageNumber() <= 4);
+        }
+        long pageReadCount = instance.getPageReadCount();
+        for (int i = 0; i < nbEntries; i += 11) {
+            assertEquals(i, instance.get(keys.get(i)));
+        }
+        assertTrue(instance.getPageReadCount() > pageReadCount);
+        assertTrue(instance.getCachedPageNumber() <= 4);
+        writer.close();
+        filePath.toFile().delete();
+    }
+
+    /**
+     * Test de lecture d'une page corrompue de la classe BPlusTree.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testCorruptedPage() throws DAOFileException, DAOFileWriterException, IOException {
+        System.out.println("corrupted page");
+        Path filePath = rootDir.resolve("bplustree_corrupted.btree");
+        filePath.toFile().delete();
+        DAOFileWriter writer = new DAOFileWriter(filePath);
+        BPlusTree instance = new BPlusTree(writer);
+        instance.put(new UUID(1, 1), 24);
+        writer.close();
+        try (FileChannel fileChannel = FileChannel.open(filePath, StandardOpenOption.WRITE)) {
+            fileChannel.write(ByteBuffer.wrap(new byte[]{1}), FileHeaderRow.FILE_HEADER_ROW_SIZE + 100);
+        }
+        writer = new DAOFileWriter(filePath);
+        try {
+            new BPlusTree(writer).get(new UUID(1, 1));
+            fail("get should throw DAOFileException");
+        } catch (DAOFileException ex) {
+        } finally {
+            writer.close();
+        }
+        assertFalse(new FileVerifier(filePath, BPlusTree.PAGE_SIZE).verify().isValid());
+        filePath.toFile().delete();
+    }
+}
@@ -0,0 +1,101 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author aliyou
+ */
+public class BloomFilterTest {
+
+    /**
+     * Chemin du repertoire racine.
+     */
+    static Path rootDir;
+
+    public BloomFilterTest() {
+        rootDir = Paths.get("/tmp/mahjong/dao");
+        if (!rootDir.toFile().exists()) {
+            rootDir.toFile().mkdirs();
+        }
+    }
+
+    /**
+     * Test of mightContain method, of class BloomFilter. Aucun identifiant
+     * ajouté n'est manqué et le taux de faux positifs reste proche de 1%.
+     */
+    @Test
+    public void testMightContain() {
+        System.out.println("mightContain");
+        int capacity = 10000;
+        BloomFilter instance = new BloomFilter(capacity);
+        List<UUID> dataIDs = new ArrayList<>(capacity);
+        for (int i = 0; i < capacity; i++) {
+            UUID dataID = UUID.randomUUID();
+            dataIDs.add(dataID);
+            instance.add(dataID);
+        }
+        for (UUID dataID : dataIDs) {
+            assertTrue(instance.mightContain(dataID));
+        }
+        assertTrue(instance.isFull());
+        int nbFalsePositives = 0;
+        int nbLookups = 100000;
+        for (int i = 0; i < nbLookups; i++) {
+            if (instance.mightContain(UUID.randomUUID())) {
+                nbFalsePositives++;
+            }
+        }
+        double rate = (double) nbFalsePositives / nbLookups;
+        System.out.printf("\tfalse positive rate : %.4f%n", rate);
+        assertTrue("false positive rate too high : " + rate, rate < 0.02);
+        // identifiants séquentiels
+        BloomFilter sequential = new BloomFilter(0);
+        assertEquals(BloomFilter.MIN_CAPACITY, sequential.getCapacity());
+        for (int i = 0; i < 500; i++) {
+            sequential.add(new UUID(0, i));
+        }
+        for (int i = 0; i < 500; i++) {
+            assertTrue(sequential.mightContain(new UUID(0, i)));
+        }
+        assertFalse(sequential.isFull());
+    }
+
+    /**
+     * Test of save and load methods, of class BloomFilter. Le filtre n'est
+     * relu que si le fichier de données n'a pas changé, puis il est supprimé.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     */
+    @Test
+    public void testSave() throws DAOFileException {
+        System.out.println("save");
+        Path filePath = rootDir.resolve("bloom_save.data");
+        BloomFilter instance = new BloomFilter(2000);
+        for (int i = 0; i < 1500; i++) {
+            instance.add(new UUID(i, i));
+        }
+        instance.save(filePath, 3, 1024);
+        assertNull(BloomFilter.load(filePath, 4, 1024));
+        // un filtre ne sert qu'une fois
+        instance.save(filePath, 3, 1024);
+        assertNotNull(BloomFilter.load(filePath, 3, 1024));
+        assertNull(BloomFilter.load(filePath, 3, 1024));
+
+        instance.save(filePath, 3, 1024);
+        BloomFilter loaded = BloomFilter.load(filePath, 3, 1024);
+        assertEquals(instance.getCapacity(), loaded.getCapacity());
+        assertEquals(instance.getCount(), loaded.getCount());
+        for (int i = 0; i < 1500; i++) {
+            assertTrue(loaded.mightContain(new UUID(i, i)));
+        }
+        BloomFilter.delete(filePath);
+    }
+}
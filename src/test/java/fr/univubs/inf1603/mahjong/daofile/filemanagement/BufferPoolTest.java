@@ -0,0 +1,82 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author aliyou
+ */
+public class BufferPoolTest {
+
+    /**
+     * Chemin du repertoire racine.
+     */
+    static Path rootDir;
+
+    public BufferPoolTest() {
+        rootDir = Paths.get("/tmp/mahjong/dao");
+        if (!rootDir.toFile().exists()) {
+            rootDir.toFile().mkdirs();
+        }
+    }
+
+    /**
+     * Test of acquire method, of class BufferPool.
+     */
+    @Test
+    public void testAcquire() {
+        System.out.println("acquire");
+        BufferPool instance = new BufferPool();
+        ByteBuffer buffer = instance.acquire(IndexRow.INDEX_ROW_SIZE);
+        assertTrue(buffer.isDirect());
+        assertEquals(0, buffer.position());
+        assertEquals(IndexRow.INDEX_ROW_SIZE, buffer.limit());
+        assertEquals(BufferPool.MIN_CLASS_SIZE, buffer.capacity());
+
+        buffer = instance.acquire(100 * IndexRow.INDEX_ROW_SIZE);
+        assertEquals(4096, buffer.capacity());
+        assertEquals(2, instance.getAllocationCount());
+
+        buffer = instance.acquire(BufferPool.MAX_CLASS_SIZE + 1);
+        assertEquals(BufferPool.MAX_CLASS_SIZE + 1, buffer.capacity());
+        assertFalse(instance.release(buffer));
+        try {
+            instance.acquire(-1);
+            fail("acquire should throw IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    /**
+     * Test of release method, of class BufferPool.
+     */
+    @Test
+    public void testRelease() {
+        System.out.println("release");
+        BufferPool instance = new BufferPool();
+        ByteBuffer buffer = instance.acquire(IndexRow.INDEX_ROW_SIZE);
+        buffer.putLong(Long.MAX_VALUE);
+        assertTrue(instance.release(buffer));
+        assertFalse(instance.release(buffer));
+        assertEquals(1, instance.getFreeBufferNumber());
+
+        // le tampon est réutilisé et remis à zéro
+        ByteBuffer reused = instance.acquire(LinkRow.LINK_ROW_SIZE);
+        assertSame(buffer, reused);
+        assertEquals(0, reused.getLong(0));
+        assertEquals(LinkRow.LINK_ROW_SIZE, reused.limit());
+        assertEquals(1, instance.getAllocationCount());
+        assertEquals(2, instance.getAcquireCount());
+        assertEquals(0, instance.getFreeBufferNumber());
+
+        // les tampons étrangers à la réserve sont ignorés
+        assertFalse(instance.release(null));
+        assertFalse(instance.release(ByteBuffer.allocate(BufferPool.MIN_CLASS_SIZE)));
+        assertFalse(instance.release(ByteBuffer.allocateDirect(BufferPool.MIN_CLASS_SIZE)));
+        assertEquals(0, instance.getFreeBufferNumber());
+    }
+}
@@ -57,6 +57,120 @@ public class DAOFileWriterTest {
         filePath.toFile().delete();
     }
 
+    /**
+     * Test of read method, of class DAOFileWriter. Plusieurs lectures
+     * positionnelles sont éffectuées en parallèle sur le meme writer.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     * @throws java.lang.InterruptedException
+     */
+    @Test
+    public void testRead_Concurrent() throws DAOFileWriterException, InterruptedException {
+        System.out.println("read concurrent");
+        Path filePath = rootDir.resolve("fileWriter_readConcurrent.test");
+        try (DAOFileWriter instance = new DAOFileWriter(filePath)) {
+            int nbBlocks = 64;
+            ByteBuffer content = ByteBuffer.allocate(nbBlocks * Long.BYTES);
+            for (long i = 0; i < nbBlocks; i++) {
+                content.putLong(i);
+            }
+            instance.write(0, content);
+
+            final boolean[] errors = new boolean[1];
+            Thread[] readers = new Thread[4];
+            for (int t = 0; t < readers.length; t++) {
+                readers[t] = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < 1000; i++) {
+                            int block = i % nbBlocks;
+                            ByteBuffer buffer = instance.read(block * Long.BYTES, Long.BYTES);
+                            if (buffer.getLong() != block) {
+                                errors[0] = true;
+                            }
+                        }
+                    } catch (DAOFileWriterException ex) {
+                        errors[0] = true;
+                    }
+                });
+                readers[t].start();
+            }
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            assertFalse(errors[0]);
+        }
+        filePath.toFile().delete();
+    }
+
+    /**
+     * Test of close method, of class DAOFileWriter.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     */
+    @Test
+    public void testClose() throws DAOFileException, DAOFileWriterException {
+        System.out.println("close");
+        Path filePath = rootDir.resolve("fileWriter_close.test");
+        DAOFileWriter instance = new DAOFileWriter(filePath);
+        IndexRow row = new IndexRow(1, new Index(UUID.randomUUID(), 250), FileHeaderRow.FILE_HEADER_ROW_SIZE);
+        instance.addRowToMultipleWritingList(row);
+        instance.close();
+        // les tuples en attente sont écrits lors de la fermeture
+        assertEquals(FileHeaderRow.FILE_HEADER_ROW_SIZE + IndexRow.INDEX_ROW_SIZE, filePath.toFile().length());
+        try {
+            instance.read(0, 4);
+            fail("read must fail once the writer is closed");
+        } catch (DAOFileWriterException ex) {
+            // le canal est fermé
+        }
+        filePath.toFile().delete();
+    }
+
+    /**
+     * Test of read method, of class DAOFileWriter, en mode
+     * {@link StorageMode#MAPPED}. Les tuples écrits avant l'ouverture sont lus
+     * depuis la projection, ceux écrits après depuis le canal.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     */
+    @Test
+    public void testRead_Mapped() throws DAOFileException, DAOFileWriterException {
+        System.out.println("read mapped");
+        Path filePath = rootDir.resolve("fileWriter_readMapped.test");
+        filePath.toFile().delete();
+        IndexRow row1 = new IndexRow(1, new Index(UUID.randomUUID(), 250), FileHeaderRow.FILE_HEADER_ROW_SIZE);
+        IndexRow row2 = new IndexRow(2, new Index(UUID.randomUUID(), 500), FileHeaderRow.FILE_HEADER_ROW_SIZE + IndexRow.INDEX_ROW_SIZE);
+        try (DAOFileWriter writer = new DAOFileWriter(filePath, StorageMode.CHANNEL)) {
+            writer.addRowToMultipleWritingList(row1);
+        }
+        try (DAOFileWriter instance = new DAOFileWriter(filePath, StorageMode.MAPPED)) {
+            assertEquals(StorageMode.MAPPED, instance.getStorageMode());
+            // les octets lus sont copiés, le tampon ne dépend pas de la projection
+            ByteBuffer copy = instance.read(row1.getRowPointer(), IndexRow.INDEX_ROW_SIZE);
+            assertFalse(copy.isReadOnly());
+            assertEquals(row1.getData(), new IndexRow(instance, row1.getRowPointer()).getData());
+
+            ByteBuffer buffer = ByteBuffer.allocate(IndexRow.INDEX_ROW_SIZE);
+            row2.write(buffer);
+            instance.write(row2.getRowPointer(), buffer);
+            assertEquals(row2.getData(), new IndexRow(instance, row2.getRowPointer()).getData());
+            assertNull(instance.read(instance.getFileLenght(), IndexRow.INDEX_ROW_SIZE));
+
+            instance.deleteFromFile((int) row1.getRowPointer(), IndexRow.INDEX_ROW_SIZE);
+            assertEquals(row2.getData(), new IndexRow(instance, row1.getRowPointer()).getData());
+            assertNull(instance.read(row2.getRowPointer(), IndexRow.INDEX_ROW_SIZE));
+            // le tampon lu avant la troncature est toujours lisible
+            ByteBuffer expected = ByteBuffer.allocate(IndexRow.INDEX_ROW_SIZE);
+            row1.write(expected);
+            expected.flip();
+            assertEquals(expected, copy);
+            instance.release(copy);
+        }
+        filePath.toFile().delete();
+    }
+
     /**
      * Test of write method, of class DAOFileWriter.
      * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
@@ -76,6 +190,39 @@ public class DAOFileWriterTest {
         filePath.toFile().delete();
     }
 
+    /**
+     * Test of write method, of class DAOFileWriter, avec les différentes
+     * politiques de durabilité. Chaque écriture est synchronisée en politique
+     * {@link DurabilityPolicy#ALWAYS}, aucune en politique
+     * {@link DurabilityPolicy#NONE}.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     */
+    @Test
+    public void testWrite_DurabilityPolicy() throws DAOFileWriterException {
+        System.out.println("write durability policy");
+        Path dirPath = rootDir.resolve("fileWriter_durability");
+        Path filePath = dirPath.resolve("fileWriter_durability.test");
+        SyncGroup syncGroup = SyncGroup.getInstance(dirPath);
+        try (DAOFileWriter instance = new DAOFileWriter(filePath)) {
+            assertSame(syncGroup, instance.getSyncGroup());
+            syncGroup.setDurabilityPolicy(DurabilityPolicy.NONE);
+            instance.write(0, ByteBuffer.allocate(8).putLong(1));
+            assertEquals(0, instance.getSyncCount());
+
+            syncGroup.setDurabilityPolicy(DurabilityPolicy.ALWAYS);
+            assertEquals(DurabilityPolicy.ALWAYS, instance.getDurabilityPolicy());
+            instance.write(8, ByteBuffer.allocate(8).putLong(2));
+            instance.write(16, ByteBuffer.allocate(8).putLong(3));
+            instance.truncate(16);
+            assertEquals(3, instance.getSyncCount());
+            assertEquals(3, syncGroup.getSyncCount());
+        } finally {
+            syncGroup.setDurabilityPolicy(DurabilityPolicy.NONE);
+        }
+        filePath.toFile().delete();
+    }
+
     /**
      * Test of addRowToMultipleWritingList method, of class DAOFileWriter.
      * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
@@ -94,6 +241,133 @@ public class DAOFileWriterTest {
         filePath.toFile().delete();
     }
 
+    /**
+     * Test of addRowToMultipleWritingList method, of class DAOFileWriter. Les
+     * listes d'attente sont écrites dès qu'elles atteignent la taille maximale
+     * d'un lot et au plus tard après le délai maximal, meme si des tuples
+     * continuent d'etre ajoutés.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     * @throws java.lang.InterruptedException
+     */
+    @Test
+    public void testAddRowToMultipleWritingList_FlushPolicy() throws DAOFileException, DAOFileWriterException, InterruptedException {
+        System.out.println("addRowToMultipleWritingList flush policy");
+        Path filePath = rootDir.resolve("fileWriter_flushPolicy.test");
+        filePath.toFile().delete();
+        try (DAOFileWriter instance = new DAOFileWriter(filePath)) {
+            instance.setFlushPolicy(new FlushPolicy(300, 2, 1 << 20, 1 << 20, FlushPolicy.Backpressure.BLOCK));
+            // lot complet : écriture immédiate
+            instance.addRowToMultipleWritingList(newIndexRow(0));
+            instance.addRowToMultipleWritingList(newIndexRow(1));
+            Thread.sleep(200);
+            assertEquals(0, instance.getPendingBytes());
+            assertEquals(1, instance.getWriteCount());
+
+            // flux continu d'ajouts : écriture au plus tard après le délai maximal
+            instance.setFlushPolicy(new FlushPolicy(300, 100, 1 << 20, 1 << 20, FlushPolicy.Backpressure.BLOCK));
+            for (int i = 0; i < 8; i++) {
+                instance.addRowToMultipleWritingList(newIndexRow(2 + i));
+                Thread.sleep(100);
+            }
+            assertTrue(instance.getWriteCount() >= 3);
+        }
+        filePath.toFile().delete();
+    }
+
+    /**
+     * Test of addRowToMultipleWritingList method, of class DAOFileWriter.
+     * Lorsque le budget d'octets en attente est épuisé, l'ajout échoue en mode
+     * {@link FlushPolicy.Backpressure#FAIL_FAST} et l'appelant écrit les
+     * listes d'attente en mode {@link FlushPolicy.Backpressure#BLOCK}.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     * @throws java.lang.InterruptedException
+     */
+    @Test
+    public void testAddRowToMultipleWritingList_Backpressure() throws DAOFileException, DAOFileWriterException, InterruptedException {
+        System.out.println("addRowToMultipleWritingList backpressure");
+        Path filePath = rootDir.resolve("fileWriter_backpressure.test");
+        filePath.toFile().delete();
+        int budget = 2 * IndexRow.INDEX_ROW_SIZE + 4;
+        try (DAOFileWriter instance = new DAOFileWriter(filePath)) {
+            instance.setFlushPolicy(new FlushPolicy(60000, 100, budget, budget, FlushPolicy.Backpressure.FAIL_FAST));
+            instance.addRowToMultipleWritingList(newIndexRow(0));
+            instance.addRowToMultipleWritingList(newIndexRow(1));
+            try {
+                instance.addRowToMultipleWritingList(newIndexRow(2));
+                fail("the dirty bytes budget is exhausted");
+            } catch (DAOFileException ex) {
+                // les listes d'attente sont écrites immédiatement
+            }
+            Thread.sleep(200);
+            assertEquals(0, instance.getPendingBytes());
+
+            instance.setFlushPolicy(new FlushPolicy(60000, 100, budget, budget, FlushPolicy.Backpressure.BLOCK));
+            instance.addRowToMultipleWritingList(newIndexRow(2));
+            instance.addRowToMultipleWritingList(newIndexRow(3));
+            // les tuples 2 et 3 sont écrits par l'appelant
+            instance.addRowToMultipleWritingList(newIndexRow(4));
+            assertEquals(FileHeaderRow.FILE_HEADER_ROW_SIZE + 4 * IndexRow.INDEX_ROW_SIZE, instance.getFileLenght());
+            assertEquals(IndexRow.INDEX_ROW_SIZE, instance.getPendingBytes());
+        }
+        filePath.toFile().delete();
+    }
+
+    /**
+     * Test of addRowToMultipleWritingList method, of class DAOFileWriter. En
+     * mode {@link FlushPolicy.Backpressure#BLOCK}, l'appelant qui dépasse le
+     * budget n'attend pas l'unique thread d'écriture, occupé à notifier un
+     * DAO dont l'appelant tient le verrou.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     * @throws java.lang.InterruptedException
+     */
+    @Test(timeout = 10000)
+    public void testAddRowToMultipleWritingList_BackpressureOnBusyExecutor() throws DAOFileException, DAOFileWriterException, InterruptedException {
+        System.out.println("addRowToMultipleWritingList backpressure on busy executor");
+        FlushExecutor defaultExecutor = DAOFileWriter.getDefaultFlushExecutor();
+        FlushExecutor executor = new FlushExecutor("fileWriter-busyExecutor", 1);
+        DAOFileWriter.setDefaultFlushExecutor(executor);
+        Path dataPath = rootDir.resolve("fileWriter_busyExecutor.data");
+        Path indexPath = rootDir.resolve("fileWriter_busyExecutor.index");
+        dataPath.toFile().delete();
+        indexPath.toFile().delete();
+        Object dao = new Object(); // verrou du DAO
+        int budget = 2 * IndexRow.INDEX_ROW_SIZE + 4;
+        try (DAOFileWriter dataWriter = new DAOFileWriter(dataPath);
+                DAOFileWriter indexWriter = new DAOFileWriter(indexPath)) {
+            dataWriter.setFlushPolicy(new FlushPolicy(1, 1, 1 << 20, 1 << 20, FlushPolicy.Backpressure.BLOCK));
+            indexWriter.setFlushPolicy(new FlushPolicy(60000, 100, budget, budget, FlushPolicy.Backpressure.BLOCK));
+            dataWriter.addPropertyChangeListener(evt -> {
+                synchronized (dao) {
+                    // notification reçue par le DAO
+                }
+            });
+            synchronized (dao) {
+                dataWriter.addRowToMultipleWritingList(newIndexRow(0));
+                Thread.sleep(300); // le thread d'écriture attend le verrou du DAO
+                for (int i = 0; i < 5; i++) {
+                    indexWriter.addRowToMultipleWritingList(newIndexRow(i));
+                }
+                assertTrue(indexWriter.getFileLenght() >= FileHeaderRow.FILE_HEADER_ROW_SIZE + 4 * IndexRow.INDEX_ROW_SIZE);
+            }
+        } finally {
+            DAOFileWriter.setDefaultFlushExecutor(defaultExecutor);
+            executor.close();
+        }
+        dataPath.toFile().delete();
+        indexPath.toFile().delete();
+    }
+
+    private static IndexRow newIndexRow(int position) throws DAOFileException {
+        long pointer = FileHeaderRow.FILE_HEADER_ROW_SIZE + position * IndexRow.INDEX_ROW_SIZE;
+        return new IndexRow(position + 1, new Index(UUID.randomUUID(), 250), pointer);
+    }
+
     /**
      * Test of addRowToSingleWritingList method, of class DAOFileWriter.
      *
@@ -191,6 +465,179 @@ public class DAOFileWriterTest {
         assertEquals(expResult, result);
     }
  
+    /**
+     * Test of writeTombstone method, of class DAOFileWriter.
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     */
+    @Test
+    public void testWriteTombstone() throws DAOFileException, DAOFileWriterException {
+        System.out.println("writeTombstone");
+        Path filePath = rootDir.resolve("fileWriter_writeTombstone.test");
+        filePath.toFile().delete();
+        long pointer1 = FileHeaderRow.FILE_HEADER_ROW_SIZE;
+        long pointer2 = pointer1 + IndexRow.INDEX_ROW_SIZE;
+        long pointer3 = pointer2 + IndexRow.INDEX_ROW_SIZE;
+        IndexRow row1 = new IndexRow(1, new Index(UUID.randomUUID(), 250), pointer1);
+        IndexRow row2 = new IndexRow(2, new Index(UUID.randomUUID(), 500), pointer2);
+        IndexRow row3 = new IndexRow(3, new Index(UUID.randomUUID(), 750), pointer3);
+        try (DAOFileWriter instance = new DAOFileWriter(filePath)) {
+            instance.addRowToMultipleWritingList(row1);
+            instance.addRowToMultipleWritingList(row2);
+            instance.addRowToMultipleWritingList(row3);
+            // le tuple 2 n'est pas encore écrit, il est retiré des listes d'attente
+            assertTrue(instance.writeTombstone(pointer2, IndexRow.INDEX_ROW_SIZE));
+            assertTrue(instance.hasPendingRows());
+        }
+        try (DAOFileWriter instance = new DAOFileWriter(filePath)) {
+            assertEquals(pointer3 + IndexRow.INDEX_ROW_SIZE, instance.getFileLenght());
+            assertTrue(AbstractRow.isTombstone(instance.read(pointer2, IndexRow.INDEX_ROW_SIZE)));
+            assertEquals(row1.getData(), new IndexRow(instance, pointer1).getData());
+            assertEquals(row3.getData(), new IndexRow(instance, pointer3).getData());
+            assertFalse(instance.hasPendingRows());
+        }
+        filePath.toFile().delete();
+    }
+
+    /**
+     * Test of writeTombstone method, of class DAOFileWriter. Un tuple supprimé
+     * chainé garde le pointeur de l'emplacement libre suivant.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     */
+    @Test
+    public void testWriteTombstone_FreeSlotLink() throws DAOFileException, DAOFileWriterException {
+        System.out.println("writeTombstone free slot link");
+        Path filePath = rootDir.resolve("fileWriter_freeSlotLink.test");
+        filePath.toFile().delete();
+        long pointer1 = FileHeaderRow.FILE_HEADER_ROW_SIZE;
+        long pointer2 = pointer1 + IndexRow.INDEX_ROW_SIZE;
+        long pointer3 = pointer2 + IndexRow.INDEX_ROW_SIZE;
+        try (DAOFileWriter instance = new DAOFileWriter(filePath)) {
+            instance.addRowToMultipleWritingList(new IndexRow(1, new Index(UUID.randomUUID(), 250), pointer1));
+            instance.addRowToMultipleWritingList(new IndexRow(2, new Index(UUID.randomUUID(), 500), pointer2));
+            instance.addRowToMultipleWritingList(new IndexRow(3, new Index(UUID.randomUUID(), 750), pointer3));
+        }
+        try (DAOFileWriter instance = new DAOFileWriter(filePath)) {
+            assertTrue(instance.writeTombstone(pointer3, IndexRow.INDEX_ROW_SIZE, FileHeader.NO_FREE_SLOT));
+            assertTrue(instance.writeTombstone(pointer1, IndexRow.INDEX_ROW_SIZE, pointer3));
+            assertEquals(Long.valueOf(pointer3), instance.readFreeSlotLink(pointer1));
+            assertEquals(Long.valueOf(FileHeader.NO_FREE_SLOT), instance.readFreeSlotLink(pointer3));
+            // un tuple qui n'est pas supprimé n'a pas de suivant
+            assertNull(instance.readFreeSlotLink(pointer2));
+            assertTrue(instance.writeFreeSlotLink(pointer1, FileHeader.NO_FREE_SLOT));
+            assertEquals(Long.valueOf(FileHeader.NO_FREE_SLOT), instance.readFreeSlotLink(pointer1));
+            assertTrue(AbstractRow.isTombstone(instance.read(pointer1, IndexRow.INDEX_ROW_SIZE)));
+            try {
+                instance.writeTombstone(pointer2, AbstractRow.ROW_HEADER_SIZE, FileHeader.NO_FREE_SLOT);
+                fail("writeTombstone should throw IllegalArgumentException when the row can't hold the link");
+            } catch (IllegalArgumentException ex) {
+            }
+        }
+        filePath.toFile().delete();
+    }
+
+    /**
+     * Test of writeToDisk, of class DAOFileWriter. Les tuples contigus sont
+     * écrits par une seule écriture, les tuples non modifiés ne sont pas
+     * écrasés.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     */
+    @Test
+    public void testWriteToDisk_Extents() throws DAOFileException, DAOFileWriterException {
+        System.out.println("writeToDisk extents");
+        Path filePath = rootDir.resolve("fileWriter_writeToDisk.test");
+        filePath.toFile().delete();
+        IndexRow[] rows = new IndexRow[5];
+        try (DAOFileWriter instance = new DAOFileWriter(filePath)) {
+            instance.loadFileHeader();
+            for (int i = 0; i < rows.length; i++) {
+                long pointer = FileHeaderRow.FILE_HEADER_ROW_SIZE + i * IndexRow.INDEX_ROW_SIZE;
+                rows[i] = new IndexRow(i + 1, new Index(UUID.randomUUID(), 250 * (i + 1)), pointer);
+                rows[i].addPropertyChangeListener(instance);
+                instance.addRowToMultipleWritingList(rows[i]);
+            }
+            // les tuples forment une seule étendue, l'en-tete est écrite après
+            instance.writeToDisk.run();
+            assertEquals(2, instance.getWriteCount());
+            assertFalse(instance.hasPendingRows());
+
+            // 3 tuples dispersés et un tuple non modifié dans la liste d'attente
+            rows[0].getData().setDataPointer(1000);
+            rows[2].getData().setDataPointer(3000);
+            rows[3].getData().setDataPointer(4000);
+            instance.addRowToMultipleWritingList(rows[1]);
+            instance.writeToDisk.run();
+            assertEquals(4, instance.getWriteCount());
+        }
+        try (DAOFileWriter instance = new DAOFileWriter(filePath)) {
+            for (IndexRow row : rows) {
+                assertEquals(row.getData(), new IndexRow(instance, row.getRowPointer()).getData());
+            }
+        }
+        filePath.toFile().delete();
+    }
+
+    /**
+     * Test of writeToDisk and read methods, of class DAOFileWriter. Une fois
+     * la réserve de tampons remplie, les écritures des listes d'attente, les
+     * lectures par blocs et le décodage des tuples n'allouent plus de tampon.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     */
+    @Test
+    public void testWriteToDisk_BufferPool() throws DAOFileException, DAOFileWriterException {
+        System.out.println("writeToDisk buffer pool");
+        Path filePath = rootDir.resolve("fileWriter_bufferPool.test");
+        filePath.toFile().delete();
+        BufferPool defaultPool = DAOFileWriter.getDefaultBufferPool();
+        BufferPool pool = new BufferPool();
+        DAOFileWriter.setDefaultBufferPool(pool);
+        try {
+            IndexRow[] rows = new IndexRow[50];
+            long allocationCount = -1;
+            try (DAOFileWriter instance = new DAOFileWriter(filePath, StorageMode.CHANNEL)) {
+                assertSame(pool, instance.getBufferPool());
+                instance.loadFileHeader();
+                for (int i = 0; i < rows.length; i++) {
+                    rows[i] = newIndexRow(i);
+                    rows[i].addPropertyChangeListener(instance);
+                    instance.addRowToMultipleWritingList(rows[i]);
+                }
+                instance.writeToDisk.run();
+                for (int round = 0; round < 10; round++) {
+                    // écriture d'un lot de tuples modifiés
+                    for (int i = round % 2; i < rows.length; i += 2) {
+                        rows[i].getData().setDataPointer(1000 * round + i);
+                    }
+                    instance.writeToDisk.run();
+                    // chargement à froid par blocs puis décodage tuple par tuple
+                    try (DAOFileWriter reader = new DAOFileWriter(filePath, StorageMode.CHANNEL)) {
+                        ByteBuffer buffer = reader.read(FileHeaderRow.FILE_HEADER_ROW_SIZE, rows.length * IndexRow.INDEX_ROW_SIZE);
+                        assertEquals(rows.length * IndexRow.INDEX_ROW_SIZE, buffer.remaining());
+                        reader.release(buffer);
+                        for (IndexRow row : rows) {
+                            assertEquals(row.getData(), new IndexRow(reader, row.getRowPointer()).getData());
+                        }
+                    }
+                    if (round == 0) {
+                        allocationCount = pool.getAllocationCount();
+                    }
+                }
+            }
+            assertTrue(allocationCount > 0);
+            assertEquals(allocationCount, pool.getAllocationCount());
+            assertTrue(pool.getAcquireCount() > 10 * rows.length);
+        } finally {
+            DAOFileWriter.setDefaultBufferPool(defaultPool);
+        }
+        filePath.toFile().delete();
+    }
+
     /**
      * Test of writeUUID method, of class DAOFileWriter.
      * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
@@ -57,4 +57,27 @@ public class DataRowTest {
 //        }
 //    }
     
+
+    /**
+     * Test of readDataID method, of class DataRow.
+     */
+    @Test
+    public void testReadDataID() {
+        System.out.println("readDataID");
+        UUID dataID = new UUID(7, 42);
+        ByteBuffer buffer = ByteBuffer.allocate(DataRow.DATA_ID_PREFIX_SIZE + 4);
+        buffer.putInt(3);
+        buffer.putInt(AbstractRow.NO_CHECKSUM);
+        buffer.putLong(dataID.getMostSignificantBits());
+        buffer.putLong(dataID.getLeastSignificantBits());
+        buffer.flip();
+        assertEquals(dataID, DataRow.readDataID(buffer));
+        assertEquals(0, buffer.position());
+        // tuple supprimé
+        buffer.putInt(0, AbstractRow.TOMBSTONE_ROW_ID);
+        assertNull(DataRow.readDataID(buffer));
+        // tampon trop court
+        buffer.limit(DataRow.DATA_ID_PREFIX_SIZE - 1);
+        assertNull(DataRow.readDataID(buffer));
+    }
 }
@@ -0,0 +1,175 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author aliyou
+ */
+public class FileFormatUpgradeTest {
+
+    /**
+     * Chemin du repertoire racine.
+     */
+    static Path rootDir;
+
+    public FileFormatUpgradeTest() {
+        rootDir = Paths.get("/tmp/mahjong/dao");
+        if (!rootDir.toFile().exists()) {
+            rootDir.toFile().mkdirs();
+        }
+    }
+
+    /**
+     * Taille des données d'un tuple de données des tests.
+     */
+    private static final int DATA_SIZE = 30;
+    /**
+     * Taille d'un tuple de données des tests dans le format courant.
+     */
+    private static final int DATA_ROW_SIZE = AbstractRow.ROW_HEADER_SIZE + DATA_SIZE;
+    /**
+     * Taille d'un tuple de données des tests dans le format d'origine.
+     */
+    private static final int BASELINE_DATA_ROW_SIZE = FileFormatUpgrade.BASELINE_ROW_HEADER_SIZE + DATA_SIZE;
+
+    /**
+     * Ecrit un fichier dans le format d'origine : une en-tete
+     * <code>| rowID = 0 | rowNumber | lastRowID |</code> suivie des tuples
+     * contigus <code>| rowID | data |</code>.
+     */
+    static void writeBaselineFile(Path filePath, int lastRowID, int[] rowIDs, byte[][] datas) throws IOException {
+        int lenght = FileFormatUpgrade.BASELINE_FILE_HEADER_ROW_SIZE;
+        for (byte[] data : datas) {
+            lenght += FileFormatUpgrade.BASELINE_ROW_HEADER_SIZE + data.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(lenght);
+        buffer.putInt(0).putInt(rowIDs.length).putInt(lastRowID);
+        for (int i = 0; i < rowIDs.length; i++) {
+            buffer.putInt(rowIDs[i]).put(datas[i]);
+        }
+        Files.write(filePath, buffer.array());
+    }
+
+    /**
+     * Test of upgradeDataFile and upgradeIndexFile methods, of class
+     * FileFormatUpgrade. Les fichiers d'origine sont convertis, les index
+     * pointent sur les tuples de données convertis et le gestionnaire d'index
+     * les relit.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testUpgrade() throws DAOFileException, DAOFileWriterException, IOException {
+        System.out.println("upgrade");
+        Path dataFilePath = rootDir.resolve("fileFormatUpgrade.data");
+        Path indexFilePath = rootDir.resolve("fileFormatUpgrade.index");
+        Files.deleteIfExists(dataFilePath);
+        Files.deleteIfExists(indexFilePath);
+        Files.deleteIfExists(Snapshot.getSnapshotPath(indexFilePath));
+        int nbRows = 5;
+        int[] rowIDs = new int[nbRows];
+        byte[][] datas = new byte[nbRows][];
+        byte[][] indexes = new byte[nbRows][];
+        UUID[] uuids = new UUID[nbRows];
+        for (int i = 0; i < nbRows; i++) {
+            rowIDs[i] = 2 * i + 1;
+            datas[i] = new byte[DATA_SIZE];
+            for (int j = 0; j < DATA_SIZE; j++) {
+                datas[i][j] = (byte) (i * DATA_SIZE + j);
+            }
+            uuids[i] = UUID.randomUUID();
+            // les index ne sont pas dans l'ordre des tuples de données
+            int dataRank = nbRows - 1 - i;
+            indexes[i] = ByteBuffer.allocate(IndexRow.INDEX_SIZE).putLong(uuids[i].getMostSignificantBits())
+                    .putLong(uuids[i].getLeastSignificantBits())
+                    .putLong(FileFormatUpgrade.BASELINE_FILE_HEADER_ROW_SIZE + dataRank * BASELINE_DATA_ROW_SIZE).array();
+        }
+        writeBaselineFile(dataFilePath, 2 * nbRows, rowIDs, datas);
+        writeBaselineFile(indexFilePath, 2 * nbRows, rowIDs, indexes);
+
+        assertTrue(FileFormatUpgrade.upgradeDataFile(dataFilePath, DATA_ROW_SIZE));
+        assertEquals(FileHeaderRow.FILE_HEADER_ROW_SIZE + nbRows * DATA_ROW_SIZE, Files.size(dataFilePath));
+        assertFalse(Files.exists(dataFilePath.resolveSibling(dataFilePath.getFileName() + FileFormatUpgrade.UPGRADE_EXTENSION)));
+        // un fichier déjà converti n'est pas modifié
+        assertFalse(FileFormatUpgrade.upgradeDataFile(dataFilePath, DATA_ROW_SIZE));
+
+        IndexManager indexManager = new IndexManager(indexFilePath, DATA_ROW_SIZE);
+        try (DAOFileWriter dataWriter = new DAOFileWriter(dataFilePath)) {
+            FileHeaderRow fhr = dataWriter.loadFileHeader();
+            assertEquals(1, fhr.getGeneration());
+            assertEquals(nbRows, fhr.getData().getRowNumber());
+            assertEquals(2 * nbRows, fhr.getData().getLastRowID());
+            assertEquals(nbRows, indexManager.getRowNumber());
+            for (int i = 0; i < nbRows; i++) {
+                Index index = indexManager.getRow(uuids[i]).getData();
+                int dataRank = nbRows - 1 - i;
+                assertEquals(FileHeaderRow.FILE_HEADER_ROW_SIZE + dataRank * DATA_ROW_SIZE, index.getDataPointer());
+                ByteBuffer buffer = dataWriter.read(index.getDataPointer(), DATA_ROW_SIZE);
+                try {
+                    assertEquals(rowIDs[dataRank], buffer.getInt(buffer.position()));
+                    buffer.position(buffer.position() + AbstractRow.ROW_HEADER_SIZE);
+                    byte[] data = new byte[DATA_SIZE];
+                    buffer.get(data);
+                    assertArrayEquals(datas[dataRank], data);
+                } finally {
+                    dataWriter.release(buffer);
+                }
+            }
+        }
+        FileVerifier.Report report = new FileVerifier(dataFilePath, DATA_ROW_SIZE).verify();
+        assertTrue(report.isValid());
+        assertEquals(nbRows, report.getCheckedRowNumber() + report.getUncheckedRowNumber());
+        Files.deleteIfExists(dataFilePath);
+        Files.deleteIfExists(indexFilePath);
+        Files.deleteIfExists(Snapshot.getSnapshotPath(indexFilePath));
+    }
+
+    /**
+     * Test of upgrade method, of class FileFormatUpgrade. Un fichier qui
+     * n'est pas dans le format d'origine n'est pas modifié, une conversion
+     * qui échoue laisse le fichier d'origine intact.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testUpgrade_NotBaseline() throws DAOFileException, IOException {
+        System.out.println("upgrade not baseline");
+        Path filePath = rootDir.resolve("fileFormatUpgrade_notBaseline.data");
+        Files.deleteIfExists(filePath);
+        // fichier absent puis vide
+        assertFalse(FileFormatUpgrade.upgradeDataFile(filePath, DATA_ROW_SIZE));
+        Files.write(filePath, new byte[0]);
+        assertFalse(FileFormatUpgrade.upgradeDataFile(filePath, DATA_ROW_SIZE));
+
+        // taille qui ne correspond pas à un nombre entier de tuples
+        writeBaselineFile(filePath, 1, new int[]{1}, new byte[][]{new byte[DATA_SIZE + 1]});
+        byte[] content = Files.readAllBytes(filePath);
+        assertFalse(FileFormatUpgrade.upgradeDataFile(filePath, DATA_ROW_SIZE));
+        assertArrayEquals(content, Files.readAllBytes(filePath));
+
+        // identifiant de tuple invalide
+        writeBaselineFile(filePath, 1, new int[]{1, 0}, new byte[][]{new byte[DATA_SIZE], new byte[DATA_SIZE]});
+        content = Files.readAllBytes(filePath);
+        try {
+            FileFormatUpgrade.upgradeDataFile(filePath, DATA_ROW_SIZE);
+            fail("upgradeDataFile should throw DAOFileException on an invalid rowID");
+        } catch (DAOFileException ex) {
+        }
+        assertArrayEquals(content, Files.readAllBytes(filePath));
+        assertFalse(Files.exists(filePath.resolveSibling(filePath.getFileName() + FileFormatUpgrade.UPGRADE_EXTENSION)));
+        Files.deleteIfExists(filePath);
+    }
+}
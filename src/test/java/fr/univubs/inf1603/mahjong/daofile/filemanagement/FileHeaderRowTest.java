@@ -2,7 +2,12 @@
 package fr.univubs.inf1603.mahjong.daofile.filemanagement;
 
 import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import org.junit.Test;
+import static org.junit.Assert.*;
 
 /**
  *
@@ -10,7 +15,16 @@ import org.junit.Test;
  */
 public class FileHeaderRowTest extends AbstractRowTest {
     
+    /**
+     * Chemin du repertoire racine.
+     */
+    static Path rootDir;
+
     public FileHeaderRowTest() {
+        rootDir = Paths.get("/tmp/mahjong/dao");
+        if (!rootDir.toFile().exists()) {
+            rootDir.toFile().mkdirs();
+        }
     }
     
     /**
@@ -21,7 +35,7 @@ public class FileHeaderRowTest extends AbstractRowTest {
     public void testWrite() throws DAOFileException {
         FileHeader data = new FileHeader(12, 15);
         FileHeaderRow instance = new FileHeaderRow(data);
-        super.testWrite(instance, FileHeaderRow.FILE_HEADER_ROW_SIZE);
+        super.testWrite(instance, FileHeaderRow.HEADER_SLOT_SIZE);
     }
 
     /**
@@ -30,7 +44,7 @@ public class FileHeaderRowTest extends AbstractRowTest {
      */
     @Test
     public void testReadData() throws DAOFileException {
-        FileHeader data = new FileHeader(12, 15);
+        FileHeader data = new FileHeader(12, 15, 7);
         FileHeaderRow instance = new FileHeaderRow(data);
         super.testReadData(instance);
     }
@@ -41,7 +55,7 @@ public class FileHeaderRowTest extends AbstractRowTest {
      */
     @Test
     public void testWriteData() throws DAOFileException {
-        FileHeader data = new FileHeader(12, 15);
+        FileHeader data = new FileHeader(12, 15, 7);
         FileHeaderRow instance = new FileHeaderRow(data);
         super.testWriteData(instance);
     }   
@@ -54,7 +68,7 @@ public class FileHeaderRowTest extends AbstractRowTest {
     public void testGetRowSize() throws DAOFileException {
         FileHeader data = new FileHeader(12, 15);
         FileHeaderRow instance = new FileHeaderRow(data);
-        super.testGetRowSize(instance, FileHeaderRow.FILE_HEADER_ROW_SIZE);
+        super.testGetRowSize(instance, FileHeaderRow.HEADER_SLOT_SIZE);
     }
 
     /**
@@ -134,7 +148,7 @@ public class FileHeaderRowTest extends AbstractRowTest {
     public void testGetDataSize() throws DAOFileException {
         FileHeader data = new FileHeader(12, 15);
         FileHeaderRow instance = new FileHeaderRow(data);
-        super.testGetDataSize(instance, FileHeaderRow.FILE_HEADER_ROW_SIZE - AbstractRow.ROW_HEADER_SIZE);
+        super.testGetDataSize(instance, FileHeaderRow.HEADER_SLOT_SIZE - AbstractRow.ROW_HEADER_SIZE);
     }
 
     /**
@@ -147,4 +161,153 @@ public class FileHeaderRowTest extends AbstractRowTest {
         FileHeaderRow instance = new FileHeaderRow(data);
         super.testGetPropertyChangeSupport(instance);
     }
+
+    /**
+     * Test of propertyChange method, of class FileHeaderRow. Une modification
+     * de l'en-tete déjà écrite donne une nouvelle génération dans l'autre
+     * emplacement.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     */
+    @Test
+    public void testPropertyChange_Generation() throws DAOFileException {
+        System.out.println("propertyChange generation");
+        FileHeaderRow instance = new FileHeaderRow(new FileHeader(12, 15));
+        assertEquals(1, instance.getGeneration());
+        assertEquals(0, instance.getRowPointer());
+        // pas encore écrite : meme génération
+        instance.getData().incrementRowNumber();
+        assertEquals(1, instance.getGeneration());
+
+        instance.write(ByteBuffer.allocate(FileHeaderRow.HEADER_SLOT_SIZE));
+        instance.getData().incrementRowNumber();
+        assertEquals(2, instance.getGeneration());
+        assertEquals(FileHeaderRow.HEADER_SLOT_SIZE, instance.getRowPointer());
+        assertTrue(instance.isDirty());
+
+        instance.write(ByteBuffer.allocate(FileHeaderRow.HEADER_SLOT_SIZE));
+        instance.getData().getNextRowID();
+        assertEquals(3, instance.getGeneration());
+        assertEquals(0, instance.getRowPointer());
+    }
+
+    /**
+     * Test of load method, of class FileHeaderRow. L'en-tete valide la plus
+     * récente est chargée, un emplacement corrompu est ignoré.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     */
+    @Test
+    public void testLoad() throws DAOFileException, DAOFileWriterException {
+        System.out.println("load");
+        Path filePath = rootDir.resolve("fileHeaderRow_load.test");
+        filePath.toFile().delete();
+        try (DAOFileWriter writer = new DAOFileWriter(filePath)) {
+            assertNull(FileHeaderRow.load(writer));
+            FileHeaderRow row = new FileHeaderRow(new FileHeader(12, 15));
+            writeSlot(writer, row);
+            row.getData().setRowNumber(13);
+            writeSlot(writer, row);
+            FileHeaderRow result = FileHeaderRow.load(writer);
+            assertEquals(2, result.getGeneration());
+            assertEquals(FileHeaderRow.HEADER_SLOT_SIZE, result.getRowPointer());
+            assertEquals(row.getData(), result.getData());
+            assertFalse(result.isDirty());
+
+            // génération 3 écrite à moitié dans le premier emplacement
+            row.getData().setRowNumber(14);
+            ByteBuffer buffer = ByteBuffer.allocate(FileHeaderRow.HEADER_SLOT_SIZE);
+            row.write(buffer);
+            buffer.position(FileHeaderRow.HEADER_SLOT_SIZE / 2);
+            writer.write(row.getRowPointer(), buffer);
+            result = FileHeaderRow.load(writer);
+            assertEquals(2, result.getGeneration());
+            assertEquals(13, result.getData().getRowNumber());
+            assertEquals(15, result.getData().getLastRowID());
+        }
+        filePath.toFile().delete();
+    }
+
+    /**
+     * Test of load method, of class FileHeaderRow. Le nombre d'emplacements
+     * libres et le premier d'entre eux sont écrits dans l'en-tete.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     */
+    @Test
+    public void testLoad_FreeSlots() throws DAOFileException, DAOFileWriterException {
+        System.out.println("load free slots");
+        Path filePath = rootDir.resolve("fileHeaderRow_freeSlots.test");
+        filePath.toFile().delete();
+        try (DAOFileWriter writer = new DAOFileWriter(filePath)) {
+            FileHeaderRow row = new FileHeaderRow(new FileHeader(12, 15));
+            assertEquals(0, row.getLoadedFreeSlotNumber());
+            assertEquals(FileHeader.NO_FREE_SLOT, row.getLoadedFirstFreeSlot());
+            writeSlot(writer, row);
+            long pointer1 = FileHeaderRow.FILE_HEADER_ROW_SIZE + 40;
+            long pointer2 = FileHeaderRow.FILE_HEADER_ROW_SIZE + 120;
+            row.getData().addFreeSlot(pointer2);
+            row.getData().addFreeSlot(pointer1);
+            // l'ajout d'un emplacement libre donne une nouvelle génération
+            assertEquals(2, row.getGeneration());
+            writeSlot(writer, row);
+            FileHeaderRow result = FileHeaderRow.load(writer);
+            assertEquals(2, result.getGeneration());
+            assertEquals(2, result.getLoadedFreeSlotNumber());
+            assertEquals(pointer1, result.getLoadedFirstFreeSlot());
+            // les emplacements sont ajoutés par le propriétaire du fichier
+            assertEquals(0, result.getData().getTombstoneNumber());
+        }
+        filePath.toFile().delete();
+    }
+
+    /**
+     * Test of load method, of class FileHeaderRow. Un fichier écrit dans un
+     * autre format est refusé et n'est pas écrasé par une nouvelle en-tete.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     */
+    @Test
+    public void testLoad_FormatVersion() throws DAOFileException, DAOFileWriterException {
+        System.out.println("load format version");
+        Path filePath = rootDir.resolve("fileHeaderRow_formatVersion.test");
+        filePath.toFile().delete();
+        try (DAOFileWriter writer = new DAOFileWriter(filePath)) {
+            // en-tete de la version 1 : | rowID = 0 | rowNumber | lastRowID | suivie des tuples
+            ByteBuffer buffer = ByteBuffer.allocate(FileHeaderRow.FILE_HEADER_ROW_SIZE);
+            buffer.putInt(0).putInt(2).putInt(2);
+            buffer.putInt(1).putLong(250).putInt(2).putLong(500);
+            buffer.position(buffer.limit());
+            writer.write(0, buffer);
+            try {
+                writer.loadFileHeader();
+                fail("loadFileHeader should throw DAOFileException on a previous format");
+            } catch (DAOFileException ex) {
+            }
+            assertFalse(writer.hasPendingRows());
+
+            // version inconnue
+            FileHeaderRow row = new FileHeaderRow(new FileHeader(12, 15));
+            buffer = ByteBuffer.allocate(FileHeaderRow.HEADER_SLOT_SIZE);
+            row.write(buffer);
+            buffer.putInt(AbstractRow.ROW_HEADER_SIZE + 4, FileHeaderRow.FORMAT_VERSION + 1);
+            writer.write(0, buffer);
+            try {
+                FileHeaderRow.load(writer);
+                fail("load should throw DAOFileException on an unknown format version");
+            } catch (DAOFileException ex) {
+            }
+        }
+        filePath.toFile().delete();
+    }
+
+    private static void writeSlot(DAOFileWriter writer, FileHeaderRow row) throws DAOFileException, DAOFileWriterException {
+        ByteBuffer buffer = ByteBuffer.allocate(FileHeaderRow.HEADER_SLOT_SIZE);
+        long pointer = row.getRowPointer();
+        row.write(buffer);
+        writer.write(pointer, buffer);
+    }
 }
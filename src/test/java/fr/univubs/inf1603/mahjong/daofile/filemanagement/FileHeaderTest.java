@@ -55,6 +55,24 @@ public class FileHeaderTest {
         assertEquals(expResult, result);
     }
 
+    /**
+     * Test of getSortedRowNumber method, of class FileHeader.
+     */
+    @Test
+    public void testGetSortedRowNumber() {
+        System.out.println("getSortedRowNumber");
+        assertEquals(0, new FileHeader(10, 11).getSortedRowNumber());
+        FileHeader instance = new FileHeader(10, 11, 8);
+        assertEquals(8, instance.getSortedRowNumber());
+        instance.setSortedRowNumber(0);
+        assertEquals(0, instance.getSortedRowNumber());
+        try {
+            instance.setSortedRowNumber(-1);
+            fail("setSortedRowNumber should throw IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
     /**
      * Test of incrementRowNumber method, of class FileHeader.
      */
@@ -78,4 +96,88 @@ public class FileHeaderTest {
         instance.decrementRowNumber();
         assertEquals(rowNumber - 1, instance.getRowNumber());
     }
+
+    /**
+     * Test of getFragmentation method, of class FileHeader.
+     */
+    @Test
+    public void testGetFragmentation() {
+        System.out.println("getFragmentation");
+        FileHeader instance = new FileHeader(3, 4);
+        assertEquals(0, instance.getFragmentation(), 0);
+        assertFalse(instance.isFragmented());
+        instance.decrementRowNumber();
+        instance.addFreeSlot(FileHeaderRow.FILE_HEADER_ROW_SIZE);
+        assertEquals(1, instance.getTombstoneNumber());
+        assertEquals(3, instance.getSlotNumber());
+        assertEquals(1.0 / 3, instance.getFragmentation(), 0.0001);
+        assertTrue(instance.isFragmented());
+        assertTrue(instance.removeFreeSlot(FileHeaderRow.FILE_HEADER_ROW_SIZE));
+        assertFalse(instance.removeFreeSlot(FileHeaderRow.FILE_HEADER_ROW_SIZE));
+        assertEquals(0, instance.getTombstoneNumber());
+        assertFalse(instance.isFragmented());
+    }
+
+    /**
+     * Test of pollFreeSlot method, of class FileHeader.
+     */
+    @Test
+    public void testPollFreeSlot() {
+        System.out.println("pollFreeSlot");
+        FileHeader instance = new FileHeader(1, 3);
+        assertEquals(FileHeader.NO_FREE_SLOT, instance.pollFreeSlot());
+        long pointer1 = FileHeaderRow.FILE_HEADER_ROW_SIZE;
+        long pointer2 = pointer1 + 28;
+        assertFalse(instance.addFreeSlot(0));
+        assertTrue(instance.addFreeSlot(pointer2));
+        assertTrue(instance.addFreeSlot(pointer1));
+        assertFalse(instance.addFreeSlot(pointer2));
+        assertTrue(instance.isFreeSlot(pointer2));
+        assertEquals(pointer1, instance.pollFreeSlot());
+        assertEquals(pointer2, instance.pollFreeSlot());
+        assertEquals(FileHeader.NO_FREE_SLOT, instance.pollFreeSlot());
+        assertEquals(0, instance.getTombstoneNumber());
+    }
+
+    /**
+     * Test of getFirstFreeSlot method, of class FileHeader. Les emplacements
+     * libres sont parcourus dans l'ordre croissant des pointeurs.
+     */
+    @Test
+    public void testGetFirstFreeSlot() {
+        System.out.println("getFirstFreeSlot");
+        FileHeader instance = new FileHeader(2, 5);
+        assertEquals(FileHeader.NO_FREE_SLOT, instance.getFirstFreeSlot());
+        long pointer1 = FileHeaderRow.FILE_HEADER_ROW_SIZE;
+        long pointer2 = pointer1 + 28;
+        long pointer3 = pointer2 + 28;
+        assertTrue(instance.addFreeSlot(pointer3));
+        assertTrue(instance.addFreeSlot(pointer1));
+        assertEquals(pointer1, instance.getFirstFreeSlot());
+        assertEquals(pointer3, instance.getNextFreeSlot(pointer1));
+        assertEquals(pointer3, instance.getNextFreeSlot(pointer2));
+        assertEquals(FileHeader.NO_FREE_SLOT, instance.getNextFreeSlot(pointer3));
+        assertEquals(pointer1, instance.getPreviousFreeSlot(pointer3));
+        assertEquals(FileHeader.NO_FREE_SLOT, instance.getPreviousFreeSlot(pointer1));
+    }
+
+    /**
+     * Test of loadFreeSlot method, of class FileHeader. Un emplacement
+     * retrouvé au chargement ne modifie pas l'en-tete.
+     */
+    @Test
+    public void testLoadFreeSlot() {
+        System.out.println("loadFreeSlot");
+        FileHeader instance = new FileHeader(2, 5);
+        int[] nbEvents = new int[1];
+        instance.addPropertyChangeListener(evt -> nbEvents[0]++);
+        long pointer = FileHeaderRow.FILE_HEADER_ROW_SIZE;
+        assertFalse(instance.loadFreeSlot(0));
+        assertTrue(instance.loadFreeSlot(pointer));
+        assertFalse(instance.loadFreeSlot(pointer));
+        assertEquals(0, nbEvents[0]);
+        assertEquals(1, instance.getTombstoneNumber());
+        assertEquals(pointer, instance.pollFreeSlot());
+        assertEquals(1, nbEvents[0]);
+    }
 }
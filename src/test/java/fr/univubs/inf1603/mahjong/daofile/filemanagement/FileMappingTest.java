@@ -0,0 +1,119 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author aliyou
+ */
+public class FileMappingTest {
+
+    /**
+     * Chemin du repertoire racine.
+     */
+    static Path rootDir;
+
+    public FileMappingTest() {
+        rootDir = Paths.get("/tmp/mahjong/dao");
+        if (!rootDir.toFile().exists()) {
+            rootDir.toFile().mkdirs();
+        }
+    }
+
+    private static FileChannel openWithContent(Path filePath, String content) throws IOException {
+        filePath.toFile().delete();
+        FileChannel fileChannel = FileChannel.open(filePath, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        fileChannel.write(ByteBuffer.wrap(content.getBytes()), 0);
+        return fileChannel;
+    }
+
+    /**
+     * Copie <code>lenght</code> octets de la projection et les renvoie sous
+     * forme de chaine, ou <code>null</code> si la zone n'est pas projetée.
+     */
+    private static String read(FileMapping instance, long position, int lenght) {
+        ByteBuffer buffer = ByteBuffer.allocate(lenght);
+        if (!instance.read(position, buffer)) {
+            assertEquals(0, buffer.position());
+            return null;
+        }
+        buffer.flip();
+        byte b[] = new byte[buffer.remaining()];
+        buffer.get(b);
+        return new String(b);
+    }
+
+    /**
+     * Test of read method, of class FileMapping.
+     *
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testRead() throws IOException {
+        System.out.println("read");
+        Path filePath = rootDir.resolve("fileMapping_slice.test");
+        try (FileChannel fileChannel = openWithContent(filePath, "This is the file content")) {
+            FileMapping instance = new FileMapping(fileChannel, 8);
+            assertEquals(24, instance.getMappedSize());
+            // dans une seule région
+            assertEquals("This", read(instance, 0, 4));
+            // à cheval sur plusieurs régions
+            assertEquals(" is the file ", read(instance, 4, 13));
+            // hors de la projection
+            assertNull(read(instance, 20, 5));
+        }
+        filePath.toFile().delete();
+    }
+
+    /**
+     * Test of remap method, of class FileMapping.
+     *
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testRemap() throws IOException {
+        System.out.println("remap");
+        Path filePath = rootDir.resolve("fileMapping_remap.test");
+        try (FileChannel fileChannel = openWithContent(filePath, "This is")) {
+            FileMapping instance = new FileMapping(fileChannel, 8);
+            fileChannel.write(ByteBuffer.wrap(" the file content".getBytes()), 7);
+            assertNull(read(instance, 7, 4));
+            instance.remap(fileChannel.size());
+            assertEquals(" the", read(instance, 7, 4));
+            // les écritures sur le canal sont visibles dans la projection
+            fileChannel.write(ByteBuffer.wrap("THIS".getBytes()), 0);
+            assertEquals("THIS", read(instance, 0, 4));
+        }
+        filePath.toFile().delete();
+    }
+
+    /**
+     * Test of truncate method, of class FileMapping.
+     *
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testTruncate() throws IOException {
+        System.out.println("truncate");
+        Path filePath = rootDir.resolve("fileMapping_truncate.test");
+        try (FileChannel fileChannel = openWithContent(filePath, "This is the file content")) {
+            FileMapping instance = new FileMapping(fileChannel, 8);
+            instance.truncate(11);
+            assertEquals(11, fileChannel.size());
+            assertEquals(11, instance.getMappedSize());
+            assertEquals("the", read(instance, 8, 3));
+            assertNull(read(instance, 8, 4));
+            instance.close();
+            assertNull(read(instance, 0, 1));
+        }
+        filePath.toFile().delete();
+    }
+}
@@ -0,0 +1,146 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author aliyou
+ */
+public class FileVerifierTest {
+
+    /**
+     * Chemin du repertoire racine.
+     */
+    static Path rootDir;
+
+    public FileVerifierTest() {
+        rootDir = Paths.get("/tmp/mahjong/dao");
+        if (!rootDir.toFile().exists()) {
+            rootDir.toFile().mkdirs();
+        }
+    }
+
+    /**
+     * Test of verify method, of class FileVerifier. Le fichier est vérifié en
+     * plusieurs blocs, les tuples corrompus sont signalés par leur pointeur.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testVerify() throws DAOFileException, DAOFileWriterException, IOException {
+        System.out.println("verify");
+        Path filePath = rootDir.resolve("fileVerifier_verify.index");
+        filePath.toFile().delete();
+        // assez de tuples pour plusieurs blocs
+        int nbRows = 3 * FileVerifier.CHUNK_SIZE / IndexRow.INDEX_ROW_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocate(FileHeaderRow.FILE_HEADER_ROW_SIZE + nbRows * IndexRow.INDEX_ROW_SIZE);
+        new FileHeaderRow(new FileHeader(nbRows, nbRows)).write(buffer);
+        buffer.position(FileHeaderRow.FILE_HEADER_ROW_SIZE);
+        for (int i = 1; i <= nbRows; i++) {
+            long pointer = buffer.position();
+            new IndexRow(i, new Index(UUID.randomUUID(), 1000 + i), pointer).write(buffer, i % 10 != 0);
+        }
+        buffer.flip();
+        try (FileChannel fileChannel = FileChannel.open(filePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            fileChannel.write(buffer);
+        }
+        FileVerifier instance = new FileVerifier(filePath, FileVerifier.getRowSize(filePath), 4);
+        FileVerifier.Report report = instance.verify();
+        assertTrue(report.isValid());
+        assertEquals(nbRows / 10, report.getUncheckedRowNumber());
+        assertEquals(nbRows - nbRows / 10, report.getCheckedRowNumber());
+
+        // identifiant nbRows - 3, écrit avec sa somme de controle
+        long corruptedPointer = FileHeaderRow.FILE_HEADER_ROW_SIZE + (nbRows - 4) * IndexRow.INDEX_ROW_SIZE;
+        long tombstonePointer = FileHeaderRow.FILE_HEADER_ROW_SIZE + 7 * IndexRow.INDEX_ROW_SIZE;
+        try (FileChannel fileChannel = FileChannel.open(filePath, StandardOpenOption.WRITE)) {
+            fileChannel.write(ByteBuffer.wrap(new byte[]{1}), corruptedPointer + IndexRow.INDEX_ROW_SIZE - 1);
+            ByteBuffer tombstone = ByteBuffer.allocate(4);
+            tombstone.putInt(0, AbstractRow.TOMBSTONE_ROW_ID);
+            fileChannel.write(tombstone, tombstonePointer);
+            // dernier tuple tronqué
+            fileChannel.write(ByteBuffer.allocate(3), fileChannel.size());
+        }
+        report = instance.verify();
+        assertFalse(report.isValid());
+        assertTrue(report.isHeaderValid());
+        assertEquals(1, report.getTombstoneNumber());
+        assertEquals(2, report.getCorruptedRowPointers().size());
+        assertEquals(corruptedPointer, (long) report.getCorruptedRowPointers().first());
+        assertEquals(FileHeaderRow.FILE_HEADER_ROW_SIZE + nbRows * IndexRow.INDEX_ROW_SIZE,
+                (long) report.getCorruptedRowPointers().last());
+
+        try (FileChannel fileChannel = FileChannel.open(filePath, StandardOpenOption.WRITE)) {
+            fileChannel.write(ByteBuffer.wrap(new byte[]{1}), 10);
+        }
+        assertFalse(instance.verify().isHeaderValid());
+        filePath.toFile().delete();
+    }
+
+    /**
+     * Test of getRowSize method, of class FileVerifier.
+     */
+    @Test
+    public void testGetRowSize() {
+        System.out.println("getRowSize");
+        assertEquals(IndexRow.INDEX_ROW_SIZE, FileVerifier.getRowSize(rootDir.resolve("tile.index")));
+        assertEquals(LinkRow.LINK_ROW_SIZE, FileVerifier.getRowSize(rootDir.resolve("tileToZone.link")));
+        assertEquals(BPlusTree.PAGE_SIZE, FileVerifier.getRowSize(rootDir.resolve("tile.btree")));
+        try {
+            FileVerifier.getRowSize(rootDir.resolve("tile.data"));
+            fail("getRowSize should throw IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    /**
+     * Test of verify method, of class FileVerifier. Un fichier encore dans le
+     * format d'origine est vérifié dans ce format.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testVerify_BaselineFormat() throws DAOFileWriterException, IOException {
+        System.out.println("verify baseline format");
+        Path filePath = rootDir.resolve("fileVerifier_baseline.index");
+        filePath.toFile().delete();
+        int nbRows = 2 * FileVerifier.CHUNK_SIZE / IndexRow.INDEX_ROW_SIZE;
+        int[] rowIDs = new int[nbRows];
+        byte[][] datas = new byte[nbRows][];
+        for (int i = 0; i < nbRows; i++) {
+            rowIDs[i] = i + 1;
+            datas[i] = new byte[IndexRow.INDEX_SIZE];
+        }
+        FileFormatUpgradeTest.writeBaselineFile(filePath, nbRows, rowIDs, datas);
+        FileVerifier instance = new FileVerifier(filePath, FileVerifier.getRowSize(filePath), 4);
+        FileVerifier.Report report = instance.verify();
+        assertTrue(report.isValid());
+        assertTrue(report.isBaselineFormat());
+        assertEquals(nbRows, report.getUncheckedRowNumber());
+        assertEquals(0, report.getCheckedRowNumber());
+
+        int baselineRowSize = FileFormatUpgrade.BASELINE_ROW_HEADER_SIZE + IndexRow.INDEX_SIZE;
+        long corruptedPointer = FileFormatUpgrade.BASELINE_FILE_HEADER_ROW_SIZE + (nbRows - 2) * baselineRowSize;
+        try (FileChannel fileChannel = FileChannel.open(filePath, StandardOpenOption.WRITE)) {
+            fileChannel.write(ByteBuffer.allocate(4), corruptedPointer);
+        }
+        report = instance.verify();
+        assertFalse(report.isValid());
+        assertTrue(report.isBaselineFormat());
+        assertEquals(corruptedPointer, (long) report.getCorruptedRowPointers().first());
+        filePath.toFile().delete();
+    }
+}
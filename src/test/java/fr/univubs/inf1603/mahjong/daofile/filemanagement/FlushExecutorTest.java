@@ -0,0 +1,114 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author aliyou
+ */
+public class FlushExecutorTest {
+
+    /**
+     * Chemin du repertoire racine.
+     */
+    static Path rootDir;
+
+    public FlushExecutorTest() {
+        rootDir = Paths.get("/tmp/mahjong/dao");
+        if (!rootDir.toFile().exists()) {
+            rootDir.toFile().mkdirs();
+        }
+    }
+
+    /**
+     * Test of schedule method, of class FlushExecutor. Les writers partagent
+     * un seul thread d'écriture.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     * @throws java.lang.InterruptedException
+     */
+    @Test
+    public void testSchedule() throws DAOFileException, DAOFileWriterException, InterruptedException {
+        System.out.println("schedule");
+        FlushExecutor defaultExecutor = DAOFileWriter.getDefaultFlushExecutor();
+        FlushExecutor instance = new FlushExecutor("flushExecutor-schedule", 1);
+        DAOFileWriter.setDefaultFlushExecutor(instance);
+        DAOFileWriter[] writers = new DAOFileWriter[4];
+        try {
+            for (int i = 0; i < writers.length; i++) {
+                Path filePath = rootDir.resolve("flushExecutor_schedule" + i + ".test");
+                filePath.toFile().delete();
+                writers[i] = new DAOFileWriter(filePath);
+                assertSame(instance, writers[i].getFlushExecutor());
+                writers[i].addRowToMultipleWritingList(new IndexRow(1, new Index(UUID.randomUUID(), 250), FileHeaderRow.FILE_HEADER_ROW_SIZE));
+            }
+            assertEquals(writers.length, instance.getWriterNumber());
+            Thread.sleep(1500);
+            for (DAOFileWriter writer : writers) {
+                assertFalse(writer.hasPendingRows());
+            }
+            assertEquals(1, instance.getStartedThreadNumber());
+
+            instance.setThreadNumber(2);
+            assertEquals(2, instance.getThreadNumber());
+            try {
+                instance.setThreadNumber(0);
+                fail("setThreadNumber should throw IllegalArgumentException");
+            } catch (IllegalArgumentException ex) {
+            }
+        } finally {
+            DAOFileWriter.setDefaultFlushExecutor(defaultExecutor);
+            instance.close();
+        }
+        for (int i = 0; i < writers.length; i++) {
+            rootDir.resolve("flushExecutor_schedule" + i + ".test").toFile().delete();
+        }
+    }
+
+    /**
+     * Test of close method, of class FlushExecutor. Les listes d'attente sont
+     * écrites, les writers sont fermés et les threads sont arretés.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     */
+    @Test
+    public void testClose() throws DAOFileException, DAOFileWriterException {
+        System.out.println("close");
+        FlushExecutor defaultExecutor = DAOFileWriter.getDefaultFlushExecutor();
+        FlushExecutor instance = new FlushExecutor("flushExecutor-close", 1);
+        DAOFileWriter.setDefaultFlushExecutor(instance);
+        DAOFileWriter[] writers = new DAOFileWriter[3];
+        Path[] filePaths = new Path[writers.length];
+        try {
+            for (int i = 0; i < writers.length; i++) {
+                filePaths[i] = rootDir.resolve("flushExecutor_close" + i + ".test");
+                filePaths[i].toFile().delete();
+                writers[i] = new DAOFileWriter(filePaths[i]);
+                writers[i].addRowToMultipleWritingList(new IndexRow(1, new Index(UUID.randomUUID(), 250), FileHeaderRow.FILE_HEADER_ROW_SIZE));
+            }
+        } finally {
+            DAOFileWriter.setDefaultFlushExecutor(defaultExecutor);
+        }
+        long syncCount = writers[0].getSyncGroup().getSyncCount();
+        instance.close();
+        assertTrue(instance.isShutdown());
+        assertEquals(0, instance.getWriterNumber());
+        // les fichiers sont forcés sur le disque quelle que soit la politique de durabilité
+        assertEquals(syncCount + writers.length, writers[0].getSyncGroup().getSyncCount());
+        for (int i = 0; i < writers.length; i++) {
+            assertTrue(writers[i].isClosed());
+            assertEquals(FileHeaderRow.FILE_HEADER_ROW_SIZE + IndexRow.INDEX_ROW_SIZE, filePaths[i].toFile().length());
+            filePaths[i].toFile().delete();
+        }
+        // fermer un writer déjà fermé est sans effet
+        writers[0].close();
+    }
+}
@@ -0,0 +1,103 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import java.beans.PropertyChangeListener;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Mesure de l'empreinte mémoire des index d'un {@link IndexManager}, comparée
+ * à celle des tuples d'index gardés en objets (tuple, index, identifiant et
+ * supports d'écoute, avec une table des emplacements).
+ * <br>
+ * Ce n'est pas un test unitaire : la mémoire utilisée mesurée autour du
+ * ramasse-miettes dépend de la JVM et du collecteur. Les résultats sont
+ * seulement affichés.
+ *
+ * <pre>
+ * usage : java fr.univubs.inf1603.mahjong.daofile.filemanagement.IndexManagerFootprintBenchmark [nbRows]
+ * </pre>
+ *
+ * @author aliyou
+ * @version 1.3
+ */
+public class IndexManagerFootprintBenchmark {
+
+    /**
+     * Nombre d'index mesurés par défaut.
+     */
+    private static final int DEFAULT_ROW_NUMBER = 50000;
+
+    public static void main(String[] args) throws DAOFileException, IOException, InterruptedException {
+        int nbRows = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROW_NUMBER;
+        Path indexFilePath = Paths.get(System.getProperty("java.io.tmpdir"), "index_footprint.benchmark");
+        indexFilePath.toFile().delete();
+        Snapshot.getSnapshotPath(indexFilePath).toFile().delete();
+        ByteBuffer buffer = ByteBuffer.allocate(FileHeaderRow.FILE_HEADER_ROW_SIZE + nbRows * IndexRow.INDEX_ROW_SIZE);
+        new FileHeaderRow(new FileHeader(nbRows, nbRows)).write(buffer);
+        buffer.position(FileHeaderRow.FILE_HEADER_ROW_SIZE);
+        for (int i = 1; i <= nbRows; i++) {
+            new IndexRow(i, new Index(UUID.randomUUID(), 24L * i), buffer.position()).write(buffer);
+        }
+        buffer.flip();
+        try (FileChannel fileChannel = FileChannel.open(indexFilePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            fileChannel.write(buffer);
+        }
+
+        // les représentations restent référencées jusqu'après la mesure
+        long before = usedHeap();
+        IndexManager instance = new IndexManager(indexFilePath, 24, IndexMode.EAGER);
+        long footprint = usedHeap() - before;
+        if (instance.getRowNumber() != nbRows) {
+            throw new IllegalStateException(instance.getRowNumber() + " index loaded instead of " + nbRows);
+        }
+        instance = null;
+
+        // représentation objet : un tuple écouté par le writer par index
+        PropertyChangeListener writer = evt -> {
+        };
+        before = usedHeap();
+        List<IndexRow> rows = new ArrayList<>(nbRows);
+        UUIDHashIndex slotsByUUID = new UUIDHashIndex();
+        buffer.position(FileHeaderRow.FILE_HEADER_ROW_SIZE);
+        for (int i = 0; i < nbRows; i++) {
+            IndexRow row = new IndexRow(buffer, buffer.position());
+            row.addPropertyChangeListener(writer);
+            rows.add(row);
+            slotsByUUID.put(row.getData().getUUID(), i);
+        }
+        long objectFootprint = usedHeap() - before;
+        if (rows.size() != nbRows || slotsByUUID.size() != nbRows) {
+            throw new IllegalStateException("object representation incomplete");
+        }
+
+        System.out.println(nbRows + " index -> objects : " + objectFootprint / nbRows + " bytes/index, arrays : "
+                + footprint / nbRows + " bytes/index");
+        indexFilePath.toFile().delete();
+        Snapshot.getSnapshotPath(indexFilePath).toFile().delete();
+        System.exit(0);
+    }
+
+    /**
+     * Renvoie la mémoire utilisée par le tas, mesurée après plusieurs passages
+     * du ramasse-miettes et des finaliseurs.
+     *
+     * @return Mémoire utilisée en octets.
+     */
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            System.runFinalization();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
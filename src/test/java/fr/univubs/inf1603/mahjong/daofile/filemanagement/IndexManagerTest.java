@@ -1,12 +1,18 @@
 package fr.univubs.inf1603.mahjong.daofile.filemanagement;
 
 import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException;
 import java.io.File;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import org.junit.AfterClass;
 import org.junit.Test;
@@ -184,4 +190,435 @@ public class IndexManagerTest {
         
         indexFilePath.toFile().delete();
     }
+
+    /**
+     * Test of removeIndex method, of class IndexManager. Le tuple d'index
+     * supprimé est marqué comme supprimé, les autres tuples ne bougent pas.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws java.lang.InterruptedException
+     */
+    @Test
+    public void testRemoveIndex_Tombstone() throws DAOFileException, InterruptedException {
+        System.out.println("removeIndex tombstone");
+        Path indexFilePath = rootDir.resolve("index_tombstone.test");
+        indexFilePath.toFile().delete();
+        int dataRowSize = 24;
+        // pas de compactage en arrière plan pendant le test
+        FileHeader.setFragmentationThreshold(1);
+        try {
+            IndexManager instance = new IndexManager(indexFilePath, dataRowSize);
+            UUID dataID1 = new UUID(0, 1);
+            UUID dataID2 = new UUID(0, 2);
+            UUID dataID3 = new UUID(0, 3);
+            instance.addIndex(new Index(dataID1, dataRowSize));
+            instance.addIndex(new Index(dataID2, dataRowSize * 2));
+            instance.addIndex(new Index(dataID3, dataRowSize * 3));
+            Thread.sleep(2000);
+            long pointer3 = instance.getRow(dataID3).getRowPointer();
+
+            instance.removeIndex(dataID2);
+            assertEquals(pointer3, instance.getRow(dataID3).getRowPointer());
+            assertEquals(dataRowSize * 3, instance.getRow(dataID3).getData().getDataPointer());
+            assertEquals(2, instance.getRowNumber());
+            assertEquals(1.0 / 3, instance.getFragmentation(), 0.0001);
+
+            IndexManager reloaded = new IndexManager(indexFilePath, dataRowSize);
+            assertEquals(2, reloaded.getRowNumber());
+            assertEquals(1.0 / 3, reloaded.getFragmentation(), 0.0001);
+            assertNull(reloaded.getRow(dataID2));
+            assertEquals(pointer3, reloaded.getRow(dataID3).getRowPointer());
+        } finally {
+            FileHeader.setFragmentationThreshold(FileHeader.DEFAULT_FRAGMENTATION_THRESHOLD);
+        }
+        indexFilePath.toFile().delete();
+    }
+
+    /**
+     * Test of addIndex method, of class IndexManager. Un nouvel index est
+     * écrit dans l'emplacement libéré par un index supprimé, y compris après
+     * un rechargement du fichier.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws java.lang.InterruptedException
+     */
+    @Test
+    public void testAddIndex_FreeSlot() throws DAOFileException, InterruptedException {
+        System.out.println("addIndex free slot");
+        Path indexFilePath = rootDir.resolve("index_freeSlot.test");
+        indexFilePath.toFile().delete();
+        int dataRowSize = 24;
+        // pas de compactage en arrière plan pendant le test
+        FileHeader.setFragmentationThreshold(1);
+        try {
+            IndexManager instance = new IndexManager(indexFilePath, dataRowSize);
+            for (int i = 1; i <= 4; i++) {
+                instance.addIndex(new Index(new UUID(0, i), dataRowSize * i));
+            }
+            Thread.sleep(2000);
+            long pointer1 = instance.getRow(new UUID(0, 1)).getRowPointer();
+            long pointer3 = instance.getRow(new UUID(0, 3)).getRowPointer();
+            instance.removeIndex(new UUID(0, 3));
+            instance.removeIndex(new UUID(0, 1));
+
+            // le premier emplacement libre est réutilisé en premier
+            instance.addIndex(new Index(new UUID(0, 5), dataRowSize * 5));
+            assertEquals(pointer1, instance.getRow(new UUID(0, 5)).getRowPointer());
+            assertEquals(0.25, instance.getFragmentation(), 0.0001);
+            Thread.sleep(2000);
+
+            // l'emplacement libre restant est retrouvé au rechargement
+            IndexManager reloaded = new IndexManager(indexFilePath, dataRowSize);
+            assertEquals(3, reloaded.getRowNumber());
+            reloaded.addIndex(new Index(new UUID(0, 6), dataRowSize * 6));
+            assertEquals(pointer3, reloaded.getRow(new UUID(0, 6)).getRowPointer());
+            assertEquals(0, reloaded.getFragmentation(), 0);
+            Thread.sleep(2000);
+            assertEquals(FileHeaderRow.FILE_HEADER_ROW_SIZE + 4 * IndexRow.INDEX_ROW_SIZE, indexFilePath.toFile().length());
+            assertEquals(dataRowSize * 5, new IndexManager(indexFilePath, dataRowSize).getRow(new UUID(0, 5)).getData().getDataPointer());
+        } finally {
+            FileHeader.setFragmentationThreshold(FileHeader.DEFAULT_FRAGMENTATION_THRESHOLD);
+        }
+        indexFilePath.toFile().delete();
+    }
+
+    /**
+     * Test of compact method, of class IndexManager.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws java.lang.InterruptedException
+     */
+    @Test
+    public void testCompact() throws DAOFileException, InterruptedException {
+        System.out.println("compact");
+        Path indexFilePath = rootDir.resolve("index_compact.test");
+        indexFilePath.toFile().delete();
+        int dataRowSize = 24;
+        IndexManager instance = new IndexManager(indexFilePath, dataRowSize);
+        for (int i = 1; i <= 6; i++) {
+            instance.addIndex(new Index(new UUID(0, i), dataRowSize * i));
+        }
+        Thread.sleep(2000);
+        instance.removeIndex(new UUID(0, 1));
+        instance.removeIndex(new UUID(0, 3));
+        instance.removeIndex(new UUID(0, 6));
+        assertTrue(instance.needsCompaction());
+
+        // une passe déplace au plus un tuple, les tuples déplacés sont écrits
+        // par le writer avant que la fin du fichier soit tronquée
+        int nbPasses = 0;
+        while (instance.needsCompaction() && nbPasses++ < 10) {
+            assertTrue(instance.compact(1) <= 1);
+            Thread.sleep(1500);
+        }
+        assertFalse(instance.needsCompaction());
+        assertEquals(0, instance.getFragmentation(), 0);
+        assertEquals(FileHeaderRow.FILE_HEADER_ROW_SIZE + 3 * IndexRow.INDEX_ROW_SIZE, indexFilePath.toFile().length());
+
+        IndexManager reloaded = new IndexManager(indexFilePath, dataRowSize);
+        assertEquals(3, reloaded.getRowNumber());
+        assertEquals(0, reloaded.getFragmentation(), 0);
+        for (int i : new int[]{2, 4, 5}) {
+            assertEquals(dataRowSize * i, reloaded.getRow(new UUID(0, i)).getData().getDataPointer());
+        }
+        indexFilePath.toFile().delete();
+    }
+
+    /**
+     * Test du mode LAZY de la classe IndexManager. Les index triés par la
+     * fusion sont retrouvés par dichotomie, les index ajoutés ensuite sont
+     * gardés en mémoire jusqu'à la fusion suivante.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws java.lang.InterruptedException
+     */
+    @Test
+    public void testLazyIndex() throws DAOFileException, InterruptedException {
+        System.out.println("lazy index");
+        Path indexFilePath = rootDir.resolve("index_lazy.test");
+        indexFilePath.toFile().delete();
+        int dataRowSize = 24;
+        // pas de compactage en arrière plan pendant le test
+        FileHeader.setFragmentationThreshold(1);
+        try {
+            IndexManager instance = new IndexManager(indexFilePath, dataRowSize, IndexMode.LAZY);
+            assertEquals(IndexMode.LAZY, instance.getIndexMode());
+            // identifiants ajoutés dans le désordre
+            for (int i = 10; i >= 1; i--) {
+                instance.addIndex(new Index(new UUID(i % 2 == 0 ? -i : i, i), dataRowSize * i));
+            }
+            Thread.sleep(2000);
+            assertEquals(10, instance.compact(1));
+            assertEquals(10, instance.getSortedRowNumber());
+            assertEquals(dataRowSize * 4, instance.getDataPointer(new UUID(-4, 4)));
+
+            IndexManager reloaded = new IndexManager(indexFilePath, dataRowSize, IndexMode.LAZY);
+            assertEquals(10, reloaded.getSortedRowNumber());
+            assertEquals(10, reloaded.getRowNumber());
+            for (int i = 1; i <= 10; i++) {
+                assertEquals(dataRowSize * i, reloaded.getDataPointer(new UUID(i % 2 == 0 ? -i : i, i)));
+            }
+            assertEquals(IndexManager.NO_DATA_POINTER, reloaded.getDataPointer(new UUID(0, 11)));
+
+            // un index trié supprimé garde sa place, un nouvel index va à la fin
+            assertNotNull(reloaded.removeIndex(new UUID(3, 3)));
+            assertNull(reloaded.removeIndex(new UUID(3, 3)));
+            assertTrue(reloaded.setDataPointer(new UUID(-8, 8), 1000));
+            reloaded.addIndex(new Index(new UUID(0, 11), dataRowSize * 11));
+            reloaded.addIndex(new Index(new UUID(0, 12), dataRowSize * 12));
+            assertNotNull(reloaded.removeIndex(new UUID(0, 12)));
+            assertEquals(FileHeaderRow.FILE_HEADER_ROW_SIZE + 10 * IndexRow.INDEX_ROW_SIZE,
+                    reloaded.getRow(new UUID(0, 11)).getRowPointer());
+            assertEquals(10, reloaded.getRowNumber());
+            assertEquals(10, reloaded.getIndexes().size());
+            Thread.sleep(2000);
+
+            reloaded = new IndexManager(indexFilePath, dataRowSize, IndexMode.LAZY);
+            assertEquals(10, reloaded.getRowNumber());
+            assertEquals(IndexManager.NO_DATA_POINTER, reloaded.getDataPointer(new UUID(3, 3)));
+            assertEquals(1000, reloaded.getDataPointer(new UUID(-8, 8)));
+            assertEquals(dataRowSize * 11, reloaded.getDataPointer(new UUID(0, 11)));
+            assertEquals(2.0 / 12, reloaded.getFragmentation(), 0.0001);
+
+            // la fusion retire les tuples supprimés
+            assertEquals(1, reloaded.compact(1));
+            assertEquals(10, reloaded.getSortedRowNumber());
+            assertEquals(0, reloaded.getFragmentation(), 0);
+            assertEquals(FileHeaderRow.FILE_HEADER_ROW_SIZE + 10 * IndexRow.INDEX_ROW_SIZE, indexFilePath.toFile().length());
+            assertTrue(reloaded.verify().isValid());
+            assertEquals(dataRowSize * 11, reloaded.getDataPointer(new UUID(0, 11)));
+            assertEquals(1000, reloaded.getDataPointer(new UUID(-8, 8)));
+
+            // un fichier ouvert en mode EAGER n'est plus trié
+            IndexManager eager = new IndexManager(indexFilePath, dataRowSize, IndexMode.EAGER);
+            assertEquals(0, eager.getSortedRowNumber());
+            assertEquals(10, eager.getRowNumber());
+            Thread.sleep(2000);
+            reloaded = new IndexManager(indexFilePath, dataRowSize, IndexMode.LAZY);
+            assertEquals(0, reloaded.getSortedRowNumber());
+            assertEquals(1000, reloaded.getDataPointer(new UUID(-8, 8)));
+        } finally {
+            FileHeader.setFragmentationThreshold(FileHeader.DEFAULT_FRAGMENTATION_THRESHOLD);
+        }
+        indexFilePath.toFile().delete();
+    }
+
+    /**
+     * Test d'ouverture en mode LAZY d'un grand fichier trié : aucun index
+     * trié n'est chargé, ils sont retrouvés dans le fichier.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testLazyOpen() throws DAOFileException, IOException {
+        System.out.println("lazy open");
+        Path indexFilePath = rootDir.resolve("index_lazyOpen.test");
+        indexFilePath.toFile().delete();
+        int nbRows = 50000;
+        List<UUID> dataIDs = new ArrayList<>(nbRows);
+        for (int i = 0; i < nbRows; i++) {
+            dataIDs.add(UUID.randomUUID());
+        }
+        dataIDs.sort(null);
+        ByteBuffer buffer = ByteBuffer.allocate(FileHeaderRow.FILE_HEADER_ROW_SIZE + nbRows * IndexRow.INDEX_ROW_SIZE);
+        new FileHeaderRow(new FileHeader(nbRows, nbRows, nbRows)).write(buffer);
+        buffer.position(FileHeaderRow.FILE_HEADER_ROW_SIZE);
+        for (int i = 0; i < nbRows; i++) {
+            new IndexRow(i + 1, new Index(dataIDs.get(i), 24L * i), buffer.position()).write(buffer);
+        }
+        buffer.flip();
+        try (FileChannel fileChannel = FileChannel.open(indexFilePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            fileChannel.write(buffer);
+        }
+
+        IndexManager instance = new IndexManager(indexFilePath, 24, IndexMode.LAZY);
+        assertEquals(nbRows, instance.getRowNumber());
+        assertEquals(nbRows, instance.getSortedRowNumber());
+        assertFalse(instance.needsCompaction());
+        for (int i = 0; i < nbRows; i += 997) {
+            assertEquals(24L * i, instance.getDataPointer(dataIDs.get(i)));
+        }
+        assertEquals(24L * (nbRows - 1), instance.getDataPointer(dataIDs.get(nbRows - 1)));
+        assertEquals(IndexManager.NO_DATA_POINTER, instance.getDataPointer(UUID.randomUUID()));
+        assertEquals(nbRows, instance.getIndexes().size());
+        indexFilePath.toFile().delete();
+    }
+
+    /**
+     * Test of forEachIndex method, of class IndexManager. En mode LAZY, les
+     * index triés et les index ajoutés ensuite sont parcourus, les index
+     * supprimés ne le sont pas et un pointeur modifié non écrit est renvoyé.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testForEachIndex() throws DAOFileException, IOException {
+        System.out.println("forEachIndex");
+        Path indexFilePath = rootDir.resolve("index_forEach.test");
+        indexFilePath.toFile().delete();
+        int nbRows = 1000;
+        List<UUID> dataIDs = new ArrayList<>(nbRows);
+        for (int i = 0; i < nbRows; i++) {
+            dataIDs.add(UUID.randomUUID());
+        }
+        dataIDs.sort(null);
+        ByteBuffer buffer = ByteBuffer.allocate(FileHeaderRow.FILE_HEADER_ROW_SIZE + nbRows * IndexRow.INDEX_ROW_SIZE);
+        new FileHeaderRow(new FileHeader(nbRows, nbRows, nbRows)).write(buffer);
+        buffer.position(FileHeaderRow.FILE_HEADER_ROW_SIZE);
+        for (int i = 0; i < nbRows; i++) {
+            new IndexRow(i + 1, new Index(dataIDs.get(i), 24L * i), buffer.position()).write(buffer);
+        }
+        buffer.flip();
+        try (FileChannel fileChannel = FileChannel.open(indexFilePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            fileChannel.write(buffer);
+        }
+        // pas de compactage en arrière plan pendant le test
+        FileHeader.setFragmentationThreshold(1);
+        try {
+            IndexManager instance = new IndexManager(indexFilePath, 24, IndexMode.LAZY);
+            assertNotNull(instance.removeIndex(dataIDs.get(10)));
+            assertTrue(instance.setDataPointer(dataIDs.get(20), 1000000));
+            UUID addedID = UUID.randomUUID();
+            instance.addIndex(new Index(addedID, 24L * nbRows));
+
+            Map<UUID, Long> visited = new HashMap<>();
+            instance.forEachIndex((dataID, dataPointer) -> assertNull(visited.put(dataID, dataPointer)));
+            assertEquals(nbRows, visited.size());
+            assertFalse(visited.containsKey(dataIDs.get(10)));
+            assertEquals(Long.valueOf(1000000), visited.get(dataIDs.get(20)));
+            assertEquals(Long.valueOf(24L * 999), visited.get(dataIDs.get(999)));
+            assertEquals(Long.valueOf(24L * nbRows), visited.get(addedID));
+        } finally {
+            FileHeader.setFragmentationThreshold(FileHeader.DEFAULT_FRAGMENTATION_THRESHOLD);
+        }
+        indexFilePath.toFile().delete();
+    }
+
+    /**
+     * Test de l'image des index : écrite à la fermeture du fichier, elle
+     * remplace la lecture des tuples à l'ouverture suivante.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     */
+    @Test
+    public void testSnapshot() throws DAOFileException, DAOFileWriterException {
+        System.out.println("snapshot");
+        Path indexFilePath = rootDir.resolve("index_snapshot.test");
+        indexFilePath.toFile().delete();
+        Path snapshotPath = Snapshot.getSnapshotPath(indexFilePath);
+        int dataRowSize = 24;
+        // pas de compactage en arrière plan pendant le test
+        FileHeader.setFragmentationThreshold(1);
+        FlushExecutor defaultExecutor = DAOFileWriter.getDefaultFlushExecutor();
+        try {
+            FlushExecutor executor = new FlushExecutor("index-snapshot", 1);
+            DAOFileWriter.setDefaultFlushExecutor(executor);
+            try {
+                IndexManager instance = new IndexManager(indexFilePath, dataRowSize, IndexMode.EAGER);
+                for (int i = 1; i <= 10; i++) {
+                    instance.addIndex(new Index(new UUID(0, i), dataRowSize * i));
+                }
+                assertNotNull(instance.removeIndex(new UUID(0, 3)));
+            } finally {
+                executor.close();
+            }
+            assertTrue(snapshotPath.toFile().exists());
+
+            executor = new FlushExecutor("index-snapshot", 1);
+            DAOFileWriter.setDefaultFlushExecutor(executor);
+            try {
+                IndexManager reloaded = new IndexManager(indexFilePath, dataRowSize, IndexMode.EAGER);
+                assertFalse(snapshotPath.toFile().exists());
+                assertEquals(9, reloaded.getRowNumber());
+                assertEquals(0.1, reloaded.getFragmentation(), 0.0001);
+                assertEquals(IndexManager.NO_DATA_POINTER, reloaded.getDataPointer(new UUID(0, 3)));
+                for (int i = 1; i <= 10; i++) {
+                    if (i != 3) {
+                        assertEquals(dataRowSize * i, reloaded.getDataPointer(new UUID(0, i)));
+                    }
+                }
+                // l'emplacement libéré est réutilisé
+                reloaded.addIndex(new Index(new UUID(0, 11), dataRowSize * 11));
+                assertEquals(FileHeaderRow.FILE_HEADER_ROW_SIZE + 2 * IndexRow.INDEX_ROW_SIZE,
+                        reloaded.getRow(new UUID(0, 11)).getRowPointer());
+            } finally {
+                executor.close();
+            }
+            assertTrue(snapshotPath.toFile().exists());
+
+            // le fichier modifié sans image est relu entièrement
+            executor = new FlushExecutor("index-snapshot", 1);
+            DAOFileWriter.setDefaultFlushExecutor(executor);
+            try {
+                IndexManager lazy = new IndexManager(indexFilePath, dataRowSize, IndexMode.LAZY);
+                assertFalse(snapshotPath.toFile().exists());
+                assertTrue(lazy.setDataPointer(new UUID(0, 5), 1000));
+            } finally {
+                executor.close();
+            }
+            assertFalse(snapshotPath.toFile().exists());
+            IndexManager reloaded = new IndexManager(indexFilePath, dataRowSize, IndexMode.EAGER);
+            assertEquals(10, reloaded.getRowNumber());
+            assertEquals(1000, reloaded.getDataPointer(new UUID(0, 5)));
+        } finally {
+            DAOFileWriter.setDefaultFlushExecutor(defaultExecutor);
+            FileHeader.setFragmentationThreshold(FileHeader.DEFAULT_FRAGMENTATION_THRESHOLD);
+        }
+        indexFilePath.toFile().delete();
+    }
+
+    /**
+     * Test du mode BTREE : les index d'un fichier existant sont importés dans
+     * l'arbre B+ à la première ouverture.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws java.lang.InterruptedException
+     */
+    @Test
+    public void testBTreeIndex() throws DAOFileException, InterruptedException {
+        System.out.println("btree index");
+        Path indexFilePath = rootDir.resolve("index_btree.index");
+        Path treeFilePath = IndexManager.getTreeFilePath(indexFilePath);
+        assertEquals(rootDir.resolve("index_btree.btree"), treeFilePath);
+        indexFilePath.toFile().delete();
+        treeFilePath.toFile().delete();
+        int dataRowSize = 24;
+        IndexManager eager = new IndexManager(indexFilePath, dataRowSize, IndexMode.EAGER);
+        for (int i = 1; i <= 10; i++) {
+            eager.addIndex(new Index(new UUID(0, i), dataRowSize * i));
+        }
+        Thread.sleep(2000);
+
+        IndexManager instance = new IndexManager(indexFilePath, dataRowSize, IndexMode.BTREE);
+        assertEquals(IndexMode.BTREE, instance.getIndexMode());
+        assertEquals(10, instance.getRowNumber());
+        for (int i = 1; i <= 10; i++) {
+            assertEquals(dataRowSize * i, instance.getDataPointer(new UUID(0, i)));
+        }
+        instance.addIndex(new Index(new UUID(0, 11), dataRowSize * 11));
+        assertNotNull(instance.removeIndex(new UUID(0, 3)));
+        assertNull(instance.removeIndex(new UUID(0, 3)));
+        assertTrue(instance.setDataPointer(new UUID(0, 8), 1000));
+        assertFalse(instance.setDataPointer(new UUID(0, 3), 1000));
+        assertEquals(1000, instance.getRow(new UUID(0, 8)).getData().getDataPointer());
+        assertNull(instance.getRow(new UUID(0, 3)));
+        assertEquals(10, instance.getRowNumber());
+        assertEquals(10, instance.getIndexes().size());
+        assertFalse(instance.needsCompaction());
+        // l'en-tete est écrit par le writer
+        Thread.sleep(2000);
+        assertTrue(instance.verify().isValid());
+
+        // l'arbre existant n'est pas réimporté
+        IndexManager reloaded = new IndexManager(indexFilePath, dataRowSize, IndexMode.BTREE);
+        assertEquals(10, reloaded.getRowNumber());
+        assertEquals(IndexManager.NO_DATA_POINTER, reloaded.getDataPointer(new UUID(0, 3)));
+        assertEquals(1000, reloaded.getDataPointer(new UUID(0, 8)));
+        assertEquals(dataRowSize * 11, reloaded.getDataPointer(new UUID(0, 11)));
+        indexFilePath.toFile().delete();
+        treeFilePath.toFile().delete();
+    }
 }
@@ -2,8 +2,10 @@
 package fr.univubs.inf1603.mahjong.daofile.filemanagement;
 
 import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import java.nio.ByteBuffer;
 import java.util.UUID;
 import org.junit.Test;
+import static org.junit.Assert.*;
 
 /**
  * Completed 
@@ -148,4 +150,37 @@ public class IndexRowTest extends AbstractRowTest {
         IndexRow instance = new IndexRow(29, data, 100);
         super.testGetPropertyChangeSupport(instance);
     }
+
+    /**
+     * Test of read method, of class AbstractRow. Un tuple dont un octet a
+     * changé est rejeté, un tuple écrit sans somme de controle est lu sans
+     * vérification.
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     */
+    @Test
+    public void testRead_Checksum() throws DAOFileException {
+        System.out.println("read checksum");
+        Index data = new Index(new UUID(0, 1), 45);
+        IndexRow instance = new IndexRow(29, data, 100);
+        ByteBuffer buffer = ByteBuffer.allocate(IndexRow.INDEX_ROW_SIZE);
+        instance.write(buffer);
+        assertNotEquals(AbstractRow.NO_CHECKSUM, buffer.getInt(4));
+        buffer.flip();
+        assertEquals(data, new IndexRow(buffer, 100).getData());
+
+        buffer.put(IndexRow.INDEX_ROW_SIZE - 1, (byte) 1);
+        buffer.rewind();
+        try {
+            new IndexRow(buffer, 100);
+            fail("IndexRow should throw DAOFileException on a corrupted row");
+        } catch (DAOFileException ex) {
+            assertEquals(0, buffer.position());
+        }
+
+        buffer.clear();
+        instance.write(buffer, false);
+        assertEquals(AbstractRow.NO_CHECKSUM, buffer.getInt(4));
+        buffer.flip();
+        assertEquals(data, new IndexRow(buffer, 100).getData());
+    }
 }
@@ -6,9 +6,22 @@ import fr.univubs.inf1603.mahjong.dao.DAOManager;
 import fr.univubs.inf1603.mahjong.daofile.FileDAOMahjong;
 import fr.univubs.inf1603.mahjong.daofile.FileDAOManager;
 import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException;
+import fr.univubs.inf1603.mahjong.daofile.filemanagement.LinkRow.Link;
+import fr.univubs.inf1603.mahjong.engine.game.GameTile;
+import fr.univubs.inf1603.mahjong.engine.game.GameTileInterface;
 import fr.univubs.inf1603.mahjong.engine.game.TileZone;
+import fr.univubs.inf1603.mahjong.engine.rule.CommonTile;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
 import org.junit.AfterClass;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -33,4 +46,512 @@ public class LinkManagerTest {
     public static void tearDownClass() {
     }
 
+    /**
+     * Test du chargement d'un fichier de liens découpé en plusieurs blocs. Les
+     * tuples supprimés et les doublons deviennent des emplacements libres.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testLoadAllRow() throws DAOFileException, IOException {
+        System.out.println("loadAllRow");
+        Path linkFilePath = rootDir.resolve("link_load.test");
+        linkFilePath.toFile().delete();
+        int nbRows = 4 * AbstractRowManager.LOAD_CHUNK_SIZE / LinkRow.LINK_ROW_SIZE + 7;
+        int tombstoneSlot = AbstractRowManager.LOAD_CHUNK_SIZE / LinkRow.LINK_ROW_SIZE;
+        int duplicateSlot = nbRows - 1;
+        ByteBuffer buffer = ByteBuffer.allocate(FileHeaderRow.FILE_HEADER_ROW_SIZE + nbRows * LinkRow.LINK_ROW_SIZE);
+        new FileHeaderRow(new FileHeader(nbRows, nbRows)).write(buffer);
+        buffer.position(FileHeaderRow.FILE_HEADER_ROW_SIZE);
+        for (int i = 0; i < nbRows; i++) {
+            int childNumber = i == duplicateSlot ? 0 : i;
+            Link link = new Link(new UUID(1, childNumber), new UUID(2, childNumber % 10));
+            new LinkRow(i + 1, link, buffer.position()).write(buffer);
+        }
+        buffer.putInt(FileHeaderRow.FILE_HEADER_ROW_SIZE + tombstoneSlot * LinkRow.LINK_ROW_SIZE, AbstractRow.TOMBSTONE_ROW_ID);
+        buffer.flip();
+        try (FileChannel fileChannel = FileChannel.open(linkFilePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            fileChannel.write(buffer);
+        }
+
+        LinkManager<TileZone> instance = new LinkManager<>(linkFilePath, null);
+        assertEquals(nbRows - 2, instance.getRowNumber());
+        assertEquals(2.0 / nbRows, instance.getFragmentation(), 0.000001);
+        assertNull(instance.getRow(new UUID(1, tombstoneSlot)));
+        for (int i = 0; i < nbRows - 1; i += 101) {
+            if (i != tombstoneSlot) {
+                LinkRow row = instance.getRow(new UUID(1, i));
+                assertEquals(FileHeaderRow.FILE_HEADER_ROW_SIZE + (long) i * LinkRow.LINK_ROW_SIZE, row.getRowPointer());
+            }
+        }
+        List<LinkRow> rows = instance.getRowsSortedByRowPointer();
+        assertEquals(nbRows - 2, rows.size());
+        for (int i = 1; i < rows.size(); i++) {
+            assertTrue(rows.get(i - 1).getRowPointer() < rows.get(i).getRowPointer());
+        }
+        linkFilePath.toFile().delete();
+    }
+
+    /**
+     * Test de l'image des liens : écrite à la fermeture du fichier, elle
+     * remplace la lecture des tuples à l'ouverture suivante.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testSnapshot() throws DAOFileException, DAOFileWriterException, IOException {
+        System.out.println("snapshot");
+        Path linkFilePath = rootDir.resolve("link_snapshot.test");
+        linkFilePath.toFile().delete();
+        Path snapshotPath = Snapshot.getSnapshotPath(linkFilePath);
+        int nbRows = 100;
+        ByteBuffer buffer = ByteBuffer.allocate(FileHeaderRow.FILE_HEADER_ROW_SIZE + nbRows * LinkRow.LINK_ROW_SIZE);
+        new FileHeaderRow(new FileHeader(nbRows, nbRows)).write(buffer);
+        buffer.position(FileHeaderRow.FILE_HEADER_ROW_SIZE);
+        for (int i = 0; i < nbRows; i++) {
+            new LinkRow(i + 1, new Link(new UUID(1, i), new UUID(2, i % 10)), buffer.position()).write(buffer);
+        }
+        buffer.putInt(FileHeaderRow.FILE_HEADER_ROW_SIZE + 17 * LinkRow.LINK_ROW_SIZE, AbstractRow.TOMBSTONE_ROW_ID);
+        buffer.flip();
+        try (FileChannel fileChannel = FileChannel.open(linkFilePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            fileChannel.write(buffer);
+        }
+
+        FlushExecutor defaultExecutor = DAOFileWriter.getDefaultFlushExecutor();
+        FlushExecutor executor = new FlushExecutor("link-snapshot", 1);
+        DAOFileWriter.setDefaultFlushExecutor(executor);
+        try {
+            new LinkManager<TileZone>(linkFilePath, null);
+        } finally {
+            DAOFileWriter.setDefaultFlushExecutor(defaultExecutor);
+            executor.close();
+        }
+        assertTrue(snapshotPath.toFile().exists());
+
+        LinkManager<TileZone> instance = new LinkManager<>(linkFilePath, null);
+        assertFalse(snapshotPath.toFile().exists());
+        assertEquals(nbRows - 1, instance.getRowNumber());
+        assertEquals(1.0 / nbRows, instance.getFragmentation(), 0.000001);
+        assertNull(instance.getRow(new UUID(1, 17)));
+        for (int i = 0; i < nbRows; i++) {
+            if (i != 17) {
+                LinkRow row = instance.getRow(new UUID(1, i));
+                assertEquals(FileHeaderRow.FILE_HEADER_ROW_SIZE + (long) i * LinkRow.LINK_ROW_SIZE, row.getRowPointer());
+                assertEquals(new UUID(2, i % 10), row.getData().getParentID());
+                assertEquals(i + 1, row.geRowID());
+            }
+        }
+        assertEquals(nbRows - 1, instance.getRowsSortedByRowPointer().size());
+        linkFilePath.toFile().delete();
+    }
+
+    /**
+     * Test de la table des enfants : écrite à la fermeture du fichier, elle
+     * est relue à l'ouverture suivante à la place des tuples de liens.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testAdjacency() throws DAOFileException, DAOFileWriterException, IOException {
+        System.out.println("adjacency");
+        Path linkFilePath = rootDir.resolve("link_adjacency.test");
+        linkFilePath.toFile().delete();
+        Path adjacencyPath = Snapshot.getSnapshotPath(linkFilePath, Adjacency.ADJACENCY_EXTENSION);
+        int nbRows = 100;
+        ByteBuffer buffer = ByteBuffer.allocate(FileHeaderRow.FILE_HEADER_ROW_SIZE + nbRows * LinkRow.LINK_ROW_SIZE);
+        new FileHeaderRow(new FileHeader(nbRows, nbRows)).write(buffer);
+        buffer.position(FileHeaderRow.FILE_HEADER_ROW_SIZE);
+        for (int i = 0; i < nbRows; i++) {
+            new LinkRow(i + 1, new Link(new UUID(1, i), new UUID(2, i % 10)), buffer.position()).write(buffer);
+        }
+        buffer.flip();
+        try (FileChannel fileChannel = FileChannel.open(linkFilePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            fileChannel.write(buffer);
+        }
+
+        FlushExecutor defaultExecutor = DAOFileWriter.getDefaultFlushExecutor();
+        FlushExecutor executor = new FlushExecutor("link-adjacency", 1);
+        DAOFileWriter.setDefaultFlushExecutor(executor);
+        try {
+            LinkManager<TileZone> instance = new LinkManager<>(linkFilePath, null);
+            assertEquals(10, instance.getChildrenIDs(new UUID(2, 3)).size());
+        } finally {
+            DAOFileWriter.setDefaultFlushExecutor(defaultExecutor);
+            executor.close();
+        }
+        assertTrue(adjacencyPath.toFile().exists());
+
+        LinkManager<TileZone> instance = new LinkManager<>(linkFilePath, null);
+        assertFalse(adjacencyPath.toFile().exists());
+        for (int parent = 0; parent < 10; parent++) {
+            List<UUID> childrenIDs = instance.getChildrenIDs(new UUID(2, parent));
+            assertEquals(10, childrenIDs.size());
+            for (int i = 0; i < childrenIDs.size(); i++) {
+                assertEquals(new UUID(1, parent + 10 * i), childrenIDs.get(i));
+            }
+        }
+        assertTrue(instance.getChildrenIDs(new UUID(2, 10)).isEmpty());
+        linkFilePath.toFile().delete();
+    }
+
+    /**
+     * Test of updateLink method, of class LinkManager. Un enfant qui change
+     * de parent garde son tuple de lien, un enfant retiré est détaché puis
+     * peut etre lié à un autre parent.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testUpdateLink() throws DAOFileException, IOException {
+        System.out.println("updateLink");
+        Path linkFilePath = rootDir.resolve("link_update.test");
+        linkFilePath.toFile().delete();
+        int nbRows = 30;
+        ByteBuffer buffer = ByteBuffer.allocate(FileHeaderRow.FILE_HEADER_ROW_SIZE + nbRows * LinkRow.LINK_ROW_SIZE);
+        new FileHeaderRow(new FileHeader(nbRows, nbRows)).write(buffer);
+        buffer.position(FileHeaderRow.FILE_HEADER_ROW_SIZE);
+        for (int i = 0; i < nbRows; i++) {
+            new LinkRow(i + 1, new Link(new UUID(1, i), new UUID(2, i % 3)), buffer.position()).write(buffer);
+        }
+        buffer.flip();
+        try (FileChannel fileChannel = FileChannel.open(linkFilePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            fileChannel.write(buffer);
+        }
+        // les enfants déplacés ne passent pas par le DAO
+        LinkManager<Link> instance = new LinkManager<>(linkFilePath, null);
+        UUID parent0 = new UUID(2, 0);
+        UUID parent1 = new UUID(2, 1);
+        UUID parent2 = new UUID(2, 2);
+        List<Link> children = new ArrayList<>();
+        for (UUID childID : instance.getChildrenIDs(parent0)) {
+            children.add(new Link(childID, parent0));
+        }
+        assertEquals(10, children.size());
+        Link removed = children.remove(0);
+        Link moved = new Link(new UUID(1, 1), parent1);
+        children.add(moved);
+        long movedPointer = instance.getRow(moved.getUUID()).getRowPointer();
+
+        instance.updateLink(parent0, children);
+        assertEquals(10, instance.getChildrenIDs(parent0).size());
+        assertTrue(instance.getChildrenIDs(parent0).contains(moved.getUUID()));
+        assertEquals(9, instance.getChildrenIDs(parent1).size());
+        assertFalse(instance.getChildrenIDs(parent1).contains(moved.getUUID()));
+        assertEquals(Collections.singletonList(removed.getUUID()), instance.getChildrenIDs(LinkManager.NO_PARENT));
+        // aucun tuple n'est ajouté ou supprimé
+        assertEquals(nbRows, instance.getRowNumber());
+        LinkRow movedRow = instance.getRow(moved.getUUID());
+        assertEquals(movedPointer, movedRow.getRowPointer());
+        assertEquals(parent0, movedRow.getData().getParentID());
+        assertEquals(LinkManager.NO_PARENT, instance.getRow(removed.getUUID()).getData().getParentID());
+
+        // l'enfant détaché est lié à un autre parent
+        children.clear();
+        for (UUID childID : instance.getChildrenIDs(parent2)) {
+            children.add(new Link(childID, parent2));
+        }
+        children.add(removed);
+        instance.updateLink(parent2, children);
+        assertEquals(11, instance.getChildrenIDs(parent2).size());
+        assertTrue(instance.getChildrenIDs(LinkManager.NO_PARENT).isEmpty());
+        assertEquals(parent2, instance.getRow(removed.getUUID()).getData().getParentID());
+        assertEquals(nbRows, instance.getRowNumber());
+        linkFilePath.toFile().delete();
+    }
+    /**
+     * Test of updateLink method, of class LinkManager. L'ordre des enfants
+     * est celui de leur position, il est conservé à la réouverture qu'elle
+     * passe par la table d'adjacence ou par la relecture des tuples.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testChildrenOrder() throws DAOFileException, DAOFileWriterException, IOException {
+        System.out.println("childrenOrder");
+        Path linkFilePath = rootDir.resolve("link_order.test");
+        linkFilePath.toFile().delete();
+        Path adjacencyPath = Snapshot.getSnapshotPath(linkFilePath, Adjacency.ADJACENCY_EXTENSION);
+        int nbRows = 10;
+        UUID parentID = new UUID(2, 0);
+        ByteBuffer buffer = ByteBuffer.allocate(FileHeaderRow.FILE_HEADER_ROW_SIZE + nbRows * LinkRow.LINK_ROW_SIZE);
+        new FileHeaderRow(new FileHeader(nbRows, nbRows)).write(buffer);
+        buffer.position(FileHeaderRow.FILE_HEADER_ROW_SIZE);
+        // les positions sont inverses de l'ordre des tuples
+        for (int i = 0; i < nbRows; i++) {
+            new LinkRow(i + 1, new Link(new UUID(1, i), parentID, nbRows - 1 - i), buffer.position()).write(buffer);
+        }
+        buffer.flip();
+        try (FileChannel fileChannel = FileChannel.open(linkFilePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            fileChannel.write(buffer);
+        }
+
+        List<UUID> expected = new ArrayList<>();
+        FlushExecutor defaultExecutor = DAOFileWriter.getDefaultFlushExecutor();
+        FlushExecutor executor = new FlushExecutor("link-order", 1);
+        DAOFileWriter.setDefaultFlushExecutor(executor);
+        try {
+            LinkManager<Link> instance = new LinkManager<>(linkFilePath, null);
+            List<UUID> childrenIDs = instance.getChildrenIDs(parentID);
+            for (int i = 0; i < nbRows; i++) {
+                assertEquals(new UUID(1, nbRows - 1 - i), childrenIDs.get(i));
+            }
+            // nouvel ordre : les enfants pairs puis les impairs
+            List<Link> children = new ArrayList<>();
+            for (int i = 0; i < nbRows; i++) {
+                if (i % 2 == 0) {
+                    expected.add(new UUID(1, i));
+                }
+            }
+            for (int i = 0; i < nbRows; i++) {
+                if (i % 2 == 1) {
+                    expected.add(new UUID(1, i));
+                }
+            }
+            for (UUID childID : expected) {
+                children.add(new Link(childID, parentID));
+            }
+            instance.updateLink(parentID, children);
+            assertEquals(expected, instance.getChildrenIDs(parentID));
+            assertEquals(nbRows, instance.getRowNumber());
+        } finally {
+            DAOFileWriter.setDefaultFlushExecutor(defaultExecutor);
+            executor.close();
+        }
+        assertTrue(adjacencyPath.toFile().exists());
+        LinkManager<Link> instance = new LinkManager<>(linkFilePath, null);
+        assertEquals(expected, instance.getChildrenIDs(parentID));
+
+        // sans table d'adjacence, l'ordre est reconstruit à partir des positions
+        adjacencyPath.toFile().delete();
+        instance = new LinkManager<>(linkFilePath, null);
+        assertEquals(expected, instance.getChildrenIDs(parentID));
+        linkFilePath.toFile().delete();
+    }
+
+    /**
+     * Test of purgeDetachedChildren method, of class LinkManager. Un enfant
+     * détaché est supprimé à la deuxième passe s'il n'a pas été lié à un
+     * autre parent entre temps.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.dao.DAOException
+     */
+    @Test
+    public void testPurgeDetachedChildren() throws DAOFileException, DAOException {
+        System.out.println("purgeDetachedChildren");
+        Path dir = rootDir.resolve("linkPurge");
+        dir.toFile().mkdirs();
+        Path linkFilePath = dir.resolve("link_purge.test");
+        linkFilePath.toFile().delete();
+        FileDAOManager manager = FileDAOManager.getInstance(dir);
+        try {
+            FileDAOMahjong<GameTileInterface> tileDAO = (FileDAOMahjong<GameTileInterface>) manager.getTileDao();
+            LinkManager<GameTileInterface> instance = new LinkManager<>(linkFilePath, tileDAO);
+            UUID parent0 = new UUID(2, 0);
+            UUID parent1 = new UUID(2, 1);
+            List<GameTileInterface> tiles = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                tiles.add(new GameTile(i, new CommonTile(CommonTile.Family.DOT, CommonTile.Number.ONE)));
+            }
+            instance.addLink(parent0, tiles);
+            GameTileInterface removed = tiles.get(0);
+            GameTileInterface moved = tiles.get(1);
+            instance.updateLink(parent0, tiles.subList(2, 4));
+            assertEquals(2, instance.getChildrenIDs(LinkManager.NO_PARENT).size());
+
+            // première passe : les enfants détachés sont gardés
+            instance.purgeDetachedChildren();
+            assertEquals(4, instance.getRowNumber());
+            assertNotNull(tileDAO.find(removed.getUUID()));
+            instance.addLink(parent1, moved);
+
+            // deuxième passe : seul l'enfant toujours détaché est supprimé
+            instance.purgeDetachedChildren();
+            assertEquals(3, instance.getRowNumber());
+            assertTrue(instance.getChildrenIDs(LinkManager.NO_PARENT).isEmpty());
+            assertNull(instance.getRow(removed.getUUID()));
+            assertNull(tileDAO.find(removed.getUUID()));
+            assertEquals(parent1, instance.findParent(moved.getUUID()));
+            assertNotNull(tileDAO.find(moved.getUUID()));
+        } finally {
+            manager.close();
+        }
+    }
+
+    /**
+     * Test of findParent method, of class LinkManager.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testFindParent() throws DAOFileException, IOException {
+        System.out.println("findParent");
+        Path linkFilePath = rootDir.resolve("link_parent.test");
+        linkFilePath.toFile().delete();
+        int nbRows = 12;
+        ByteBuffer buffer = ByteBuffer.allocate(FileHeaderRow.FILE_HEADER_ROW_SIZE + nbRows * LinkRow.LINK_ROW_SIZE);
+        new FileHeaderRow(new FileHeader(nbRows, nbRows)).write(buffer);
+        buffer.position(FileHeaderRow.FILE_HEADER_ROW_SIZE);
+        for (int i = 0; i < nbRows; i++) {
+            new LinkRow(i + 1, new Link(new UUID(1, i), new UUID(2, i % 2)), buffer.position()).write(buffer);
+        }
+        buffer.flip();
+        try (FileChannel fileChannel = FileChannel.open(linkFilePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            fileChannel.write(buffer);
+        }
+        LinkManager<Link> instance = new LinkManager<>(linkFilePath, null);
+        UUID parent0 = new UUID(2, 0);
+        UUID parent1 = new UUID(2, 1);
+        for (int i = 0; i < nbRows; i++) {
+            assertEquals(i % 2 == 0 ? parent0 : parent1, instance.findParent(new UUID(1, i)));
+        }
+        assertNull(instance.findParent(new UUID(1, nbRows)));
+        // l'enfant déplacé change de parent, l'enfant retiré n'en a plus
+        List<Link> children = new ArrayList<>();
+        for (UUID childID : instance.getChildrenIDs(parent0)) {
+            children.add(new Link(childID, parent0));
+        }
+        Link removed = children.remove(0);
+        children.add(new Link(new UUID(1, 1), parent1));
+        instance.updateLink(parent0, children);
+        assertEquals(parent0, instance.findParent(new UUID(1, 1)));
+        assertNull(instance.findParent(removed.getUUID()));
+        linkFilePath.toFile().delete();
+    }
+
+    /**
+     * Test de l'ouverture d'un fichier de liens écrit dans le format d'origine,
+     * sans position des enfants. Chaque lien reçoit son rang parmi les liens de
+     * son parent dans l'ordre du fichier.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testUpgradeBaselineFormat() throws DAOFileException, IOException {
+        System.out.println("upgrade baseline format");
+        Path linkFilePath = rootDir.resolve("link_baseline.link");
+        linkFilePath.toFile().delete();
+        Snapshot.getSnapshotPath(linkFilePath, Adjacency.ADJACENCY_EXTENSION).toFile().delete();
+        int nbRows = 9;
+        int[] rowIDs = new int[nbRows];
+        byte[][] datas = new byte[nbRows][];
+        for (int i = 0; i < nbRows; i++) {
+            rowIDs[i] = i + 1;
+            // les enfants des deux parents sont entrelacés, le dernier est détaché
+            UUID parentID = i == nbRows - 1 ? LinkManager.NO_PARENT : new UUID(2, i % 2);
+            datas[i] = ByteBuffer.allocate(FileFormatUpgrade.BASELINE_LINK_SIZE)
+                    .putLong(1).putLong(nbRows - i)
+                    .putLong(parentID.getMostSignificantBits()).putLong(parentID.getLeastSignificantBits()).array();
+        }
+        FileFormatUpgradeTest.writeBaselineFile(linkFilePath, nbRows, rowIDs, datas);
+
+        LinkManager<TileZone> instance = new LinkManager<>(linkFilePath, null);
+        assertEquals(nbRows, instance.getRowNumber());
+        for (int parent = 0; parent < 2; parent++) {
+            List<UUID> childrenIDs = instance.getChildrenIDs(new UUID(2, parent));
+            for (int rank = 0; rank < childrenIDs.size(); rank++) {
+                int i = 2 * rank + parent;
+                assertEquals(new UUID(1, nbRows - i), childrenIDs.get(rank));
+                assertEquals(rank * LinkManager.POSITION_STEP, instance.getRow(childrenIDs.get(rank)).getData().getPosition());
+            }
+        }
+        assertEquals(4, instance.getChildrenIDs(new UUID(2, 0)).size());
+        assertEquals(4, instance.getChildrenIDs(new UUID(2, 1)).size());
+        assertEquals(Collections.singletonList(new UUID(1, 1)), instance.getChildrenIDs(LinkManager.NO_PARENT));
+        linkFilePath.toFile().delete();
+    }
+
+    /**
+     * Test du nombre de liens écrits à nouveau lorsqu'un enfant est retiré ou
+     * déplacé : les positions des autres enfants ne changent pas, seul le lien
+     * de l'enfant est marqué à écrire.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testMoveChild_DirtyRows() throws DAOFileException, DAOFileWriterException, IOException {
+        System.out.println("moveChild dirty rows");
+        Path linkFilePath = rootDir.resolve("link_move.test");
+        linkFilePath.toFile().delete();
+        Path adjacencyPath = Snapshot.getSnapshotPath(linkFilePath, Adjacency.ADJACENCY_EXTENSION);
+        adjacencyPath.toFile().delete();
+        // une main de 14 tuiles
+        int nbRows = 14;
+        UUID parentID = new UUID(2, 0);
+        ByteBuffer buffer = ByteBuffer.allocate(FileHeaderRow.FILE_HEADER_ROW_SIZE + nbRows * LinkRow.LINK_ROW_SIZE);
+        new FileHeaderRow(new FileHeader(nbRows, nbRows)).write(buffer);
+        buffer.position(FileHeaderRow.FILE_HEADER_ROW_SIZE);
+        for (int i = 0; i < nbRows; i++) {
+            new LinkRow(i + 1, new Link(new UUID(1, i), parentID, i * LinkManager.POSITION_STEP), buffer.position()).write(buffer);
+        }
+        buffer.flip();
+        try (FileChannel fileChannel = FileChannel.open(linkFilePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            fileChannel.write(buffer);
+        }
+
+        LinkManager<Link> instance = new LinkManager<>(linkFilePath, null);
+        List<UUID> dirtyChildrenIDs = new ArrayList<>();
+        for (int i = 0; i < nbRows; i++) {
+            LinkRow linkRow = instance.getRow(new UUID(1, i));
+            linkRow.getPropertyChangeSupport().addPropertyChangeListener(AbstractRow.DIRTY_PROPERTY, evt -> {
+                if (Boolean.TRUE.equals(evt.getNewValue()) && !dirtyChildrenIDs.contains(linkRow.getData().getUUID())) {
+                    dirtyChildrenIDs.add(linkRow.getData().getUUID());
+                }
+            });
+        }
+        List<UUID> expected = new ArrayList<>();
+        for (int i = 0; i < nbRows; i++) {
+            expected.add(new UUID(1, i));
+        }
+
+        // retrait de la tuile en position 0
+        expected.remove(0);
+        instance.updateLink(parentID, toLinks(expected, parentID));
+        assertEquals(expected, instance.getChildrenIDs(parentID));
+        assertEquals(Collections.singletonList(new UUID(1, 0)), dirtyChildrenIDs);
+
+        // la dernière tuile passe en tete
+        dirtyChildrenIDs.clear();
+        expected.add(0, expected.remove(expected.size() - 1));
+        instance.updateLink(parentID, toLinks(expected, parentID));
+        assertEquals(expected, instance.getChildrenIDs(parentID));
+        assertEquals(Collections.singletonList(new UUID(1, nbRows - 1)), dirtyChildrenIDs);
+
+        // une tuile du milieu est déplacée plusieurs fois au meme endroit
+        for (int move = 0; move < 5; move++) {
+            dirtyChildrenIDs.clear();
+            UUID movedID = expected.remove(3);
+            expected.add(8, movedID);
+            instance.updateLink(parentID, toLinks(expected, parentID));
+            assertEquals(expected, instance.getChildrenIDs(parentID));
+            assertEquals(Collections.singletonList(movedID), dirtyChildrenIDs);
+        }
+
+        // l'ordre est reconstruit à partir des positions écrites
+        instance.rowWriter.close();
+        adjacencyPath.toFile().delete();
+        instance = new LinkManager<>(linkFilePath, null);
+        assertEquals(expected, instance.getChildrenIDs(parentID));
+        linkFilePath.toFile().delete();
+    }
+
+    private static List<Link> toLinks(List<UUID> childrenIDs, UUID parentID) {
+        List<Link> children = new ArrayList<>();
+        for (UUID childID : childrenIDs) {
+            children.add(new Link(childID, parentID));
+        }
+        return children;
+    }
 }
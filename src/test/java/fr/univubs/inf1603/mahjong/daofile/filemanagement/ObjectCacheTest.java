@@ -0,0 +1,102 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author aliyou
+ */
+public class ObjectCacheTest {
+
+    public ObjectCacheTest() {
+    }
+
+    /**
+     * Test of evict method, of class ObjectCache. Le cache ne dépasse pas sa
+     * taille maximale et un parcours d'entrées lues une seule fois ne chasse
+     * pas les entrées fréquentes.
+     */
+    @Test
+    public void testEvict() {
+        System.out.println("evict");
+        int maximumSize = 100;
+        ObjectCache<Integer, String> instance = new ObjectCache<>(maximumSize);
+        for (int i = 0; i < maximumSize; i++) {
+            instance.put(i, "hot" + i);
+            assertTrue(instance.evict(value -> false).isEmpty());
+        }
+        for (int n = 0; n < 5; n++) {
+            for (int i = 0; i < maximumSize; i++) {
+                assertEquals("hot" + i, instance.get(i));
+            }
+        }
+        // parcours
+        int nbEvicted = 0;
+        for (int i = 1000; i < 11000; i++) {
+            instance.put(i, "cold" + i);
+            nbEvicted += instance.evict(value -> false).size();
+            assertEquals(maximumSize, instance.size());
+        }
+        assertEquals(10000, nbEvicted);
+        int nbHot = 0;
+        for (int i = 0; i < maximumSize; i++) {
+            if (instance.contains(i)) {
+                nbHot++;
+            }
+        }
+        assertTrue("hot entries evicted by the scan : " + nbHot, nbHot >= 95);
+        assertEquals("hot0", instance.remove(0));
+        assertNull(instance.remove(0));
+        assertEquals(maximumSize - 1, instance.size());
+    }
+
+    /**
+     * Test of evict method, of class ObjectCache. Les entrées épinglées ne
+     * sont pas évincées.
+     */
+    @Test
+    public void testEvictPinned() {
+        System.out.println("evictPinned");
+        ObjectCache<Integer, String> instance = new ObjectCache<>(10);
+        Set<String> pinned = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            instance.put(i, "value" + i);
+            pinned.add("value" + i);
+        }
+        assertTrue(instance.evict(pinned::contains).isEmpty());
+        assertEquals(20, instance.size());
+        // les entrées écrites ne sont plus épinglées
+        for (int i = 0; i < 15; i++) {
+            pinned.remove("value" + i);
+        }
+        List<String> evicted = instance.evict(pinned::contains);
+        assertEquals(10, evicted.size());
+        assertEquals(10, instance.size());
+        for (int i = 15; i < 20; i++) {
+            assertTrue(instance.contains(i));
+            assertFalse(evicted.contains("value" + i));
+        }
+    }
+
+    /**
+     * Test of put method, of class ObjectCache. Une entrée existante est
+     * remplacée sans etre dupliquée.
+     */
+    @Test
+    public void testPut() {
+        System.out.println("put");
+        ObjectCache<Integer, String> instance = new ObjectCache<>(1);
+        instance.put(1, "a");
+        instance.put(1, "b");
+        assertEquals(1, instance.size());
+        assertEquals("b", instance.get(1));
+        instance.put(2, "c");
+        assertEquals(1, instance.evict(value -> false).size());
+        assertEquals(1, instance.size());
+        assertNull(instance.get(3));
+    }
+}
@@ -0,0 +1,78 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Mesure la durée moyenne d'un retrait, d'une recherche et d'un rangement
+ * d'un tuple dans un {@link RowsByPointer} suivant le nombre de tuples
+ * rangés, lorsque le nombre de tuples est multiplié par 100.
+ * <br>
+ * Ce n'est pas un test unitaire : les durées dépendent trop de la machine
+ * pour etre vérifiées, elles sont seulement affichées.
+ *
+ * <pre>
+ * usage : java fr.univubs.inf1603.mahjong.daofile.filemanagement.RowsByPointerBenchmark [nbOperations]
+ * </pre>
+ *
+ * @author aliyou
+ * @version 1.3
+ */
+public class RowsByPointerBenchmark {
+
+    /**
+     * Nombre d'opérations mesurées par défaut.
+     */
+    private static final int DEFAULT_OPERATION_NUMBER = 50000;
+
+    public static void main(String[] args) throws DAOFileException {
+        int nbOperations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_OPERATION_NUMBER;
+        // préchauffage
+        measure(10000, nbOperations);
+        double smallLatency = Double.MAX_VALUE;
+        double largeLatency = Double.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            smallLatency = Math.min(smallLatency, measure(1000, nbOperations));
+            largeLatency = Math.min(largeLatency, measure(100000, nbOperations));
+        }
+        System.out.printf("1000 rows : %.1f ns/op, 100000 rows : %.1f ns/op%n", smallLatency, largeLatency);
+    }
+
+    /**
+     * Range <code>nbRows</code> tuples puis retire, recherche et range à
+     * nouveau des tuples pris au hasard.
+     *
+     * @param nbRows Nombre de tuples rangés.
+     * @param nbOperations Nombre de tuples retirés puis rangés.
+     * @return Durée moyenne d'une opération en nanosecondes.
+     */
+    private static double measure(int nbRows, int nbOperations) throws DAOFileException {
+        int rowSize = IndexRow.INDEX_ROW_SIZE;
+        List<AbstractRow> rows = new ArrayList<>(nbRows);
+        for (int i = 0; i < nbRows; i++) {
+            rows.add(new IndexRow(i + 1, new Index(new UUID(0, i), i), FileHeaderRow.FILE_HEADER_ROW_SIZE + (long) i * rowSize));
+        }
+        Random random = new Random(nbRows);
+        Collections.shuffle(rows, random);
+        RowsByPointer<AbstractRow> instance = new RowsByPointer<>();
+        rows.forEach(instance::put);
+        long start = System.nanoTime();
+        for (int i = 0; i < nbOperations; i++) {
+            AbstractRow row = rows.get(random.nextInt(nbRows));
+            instance.remove(row.getRowPointer());
+            if (instance.get(row.getRowPointer()) != null) {
+                throw new IllegalStateException("row not removed");
+            }
+            instance.put(row);
+        }
+        long elapsed = System.nanoTime() - start;
+        if (instance.size() != nbRows) {
+            throw new IllegalStateException(instance.size() + " rows instead of " + nbRows);
+        }
+        return (double) elapsed / nbOperations;
+    }
+}
@@ -0,0 +1,89 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test pour la classe RowsByPointer
+ *
+ * @author aliyou
+ */
+public class RowsByPointerTest {
+
+    public RowsByPointerTest() {
+    }
+
+    /**
+     * Test of put and get methods, of class RowsByPointer.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     */
+    @Test
+    public void testPut() throws DAOFileException {
+        System.out.println("put");
+        int rowSize = IndexRow.INDEX_ROW_SIZE;
+        RowsByPointer<AbstractRow> instance = new RowsByPointer<>();
+        AbstractRow r1 = new IndexRow(1, new Index(UUID.randomUUID(), 15), rowSize * 7);
+        AbstractRow r2 = new IndexRow(2, new Index(UUID.randomUUID(), 16), rowSize * 1);
+        AbstractRow r3 = new IndexRow(3, new Index(UUID.randomUUID(), 36), rowSize * 6);
+        assertNull(instance.put(r1));
+        assertNull(instance.put(r2));
+        assertNull(instance.put(r3));
+        assertEquals(3, instance.size());
+        assertSame(r2, instance.first());
+        assertSame(r1, instance.last());
+        assertSame(r3, instance.get(rowSize * 6));
+        assertNull(instance.get(rowSize * 2));
+        List<AbstractRow> expResult = new ArrayList<>();
+        expResult.add(r2);
+        expResult.add(r3);
+        expResult.add(r1);
+        assertEquals(expResult, instance.toList());
+
+        // un tuple plus récent remplace l'ancien tuple au meme pointeur
+        AbstractRow r4 = new IndexRow(4, new Index(UUID.randomUUID(), 46), rowSize * 6);
+        assertSame(r3, instance.put(r4));
+        assertEquals(3, instance.size());
+        assertTrue(instance.contains(r4));
+        assertFalse(instance.contains(r3));
+    }
+
+    /**
+     * Test of remove and move methods, of class RowsByPointer.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     */
+    @Test
+    public void testRemove() throws DAOFileException {
+        System.out.println("remove");
+        int rowSize = IndexRow.INDEX_ROW_SIZE;
+        RowsByPointer<AbstractRow> instance = new RowsByPointer<>();
+        AbstractRow r1 = new IndexRow(1, new Index(UUID.randomUUID(), 15), rowSize * 1);
+        AbstractRow r2 = new IndexRow(2, new Index(UUID.randomUUID(), 16), rowSize * 2);
+        AbstractRow r3 = new IndexRow(3, new Index(UUID.randomUUID(), 36), rowSize * 3);
+        instance.put(r1);
+        instance.put(r2);
+        instance.put(r3);
+
+        instance.move(r3, 0);
+        assertSame(r3, instance.first());
+        assertSame(r2, instance.last());
+        assertEquals(0, r3.getRowPointer());
+
+        assertSame(r1, instance.remove(rowSize * 1));
+        assertNull(instance.remove(rowSize * 1));
+        // tuple dont le pointeur a changé depuis son ajout
+        r2.setRowPointer(rowSize * 9, false);
+        assertTrue(instance.remove(r2));
+        assertFalse(instance.remove(r2));
+        assertEquals(1, instance.size());
+        instance.clear();
+        assertTrue(instance.isEmpty());
+        assertNull(instance.first());
+        assertNull(instance.last());
+    }
+}
@@ -0,0 +1,132 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException;
+import fr.univubs.inf1603.mahjong.engine.game.TileZoneIdentifier;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author aliyou
+ */
+public class SecondaryIndexTest {
+
+    /**
+     * Chemin du repertoire racine.
+     */
+    static Path rootDir;
+
+    public SecondaryIndexTest() {
+        rootDir = Paths.get("/tmp/mahjong/dao");
+        if (!rootDir.toFile().exists()) {
+            rootDir.toFile().mkdirs();
+        }
+    }
+
+    /**
+     * Test of put and find methods, of class SecondaryIndex. Les clés sont
+     * retrouvées à la réouverture du fichier.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     */
+    @Test
+    public void testFind() throws DAOFileException, DAOFileWriterException {
+        System.out.println("find");
+        Path filePath = rootDir.resolve("secondary_find.sindex");
+        filePath.toFile().delete();
+        SecondaryIndex<String> instance = new SecondaryIndex<>(filePath, KeyCodec.string(10));
+        UUID id1 = new UUID(0, 1);
+        UUID id2 = new UUID(0, 2);
+        UUID id3 = new UUID(0, 3);
+        instance.put(id1, "east");
+        instance.put(id2, "west");
+        instance.put(id3, "east");
+        assertEquals(Arrays.asList(id1, id3), instance.find("east"));
+        assertEquals(Collections.singletonList(id2), instance.find("west"));
+        assertTrue(instance.find("north").isEmpty());
+        assertEquals("west", instance.getKey(id2));
+
+        // changement de clé et clé tronquée
+        instance.put(id3, "south-south-east");
+        assertEquals(Collections.singletonList(id1), instance.find("east"));
+        assertEquals(Collections.singletonList(id3), instance.find("south-south"));
+        assertEquals(Arrays.asList("east", "south-sout", "west"), instance.getKeys());
+        assertEquals(3, instance.getRowNumber());
+        instance.rowWriter.close();
+
+        SecondaryIndex<String> reloaded = new SecondaryIndex<>(filePath, KeyCodec.string(10));
+        assertEquals(3, reloaded.getRowNumber());
+        assertEquals(Collections.singletonList(id1), reloaded.find("east"));
+        assertEquals(Collections.singletonList(id3), reloaded.find("south-south-east"));
+        assertEquals("west", reloaded.getKey(id2));
+        reloaded.rowWriter.close();
+        filePath.toFile().delete();
+    }
+
+    /**
+     * Test of findRange method, of class SecondaryIndex.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     */
+    @Test
+    public void testFindRange() throws DAOFileException, DAOFileWriterException {
+        System.out.println("findRange");
+        Path filePath = rootDir.resolve("secondary_range.sindex");
+        filePath.toFile().delete();
+        SecondaryIndex<UUID> instance = new SecondaryIndex<>(filePath, KeyCodec.uuid());
+        List<UUID> dataIDs = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            UUID dataID = UUID.randomUUID();
+            dataIDs.add(dataID);
+            instance.put(dataID, new UUID(1, i % 10));
+        }
+        assertEquals(30, instance.findRange(new UUID(1, 3), new UUID(1, 5)).size());
+        assertEquals(20, instance.findRange(null, new UUID(1, 1)).size());
+        assertEquals(10, instance.findRange(new UUID(1, 9), null).size());
+        assertEquals(100, instance.findRange(null, null).size());
+        assertTrue(instance.findRange(new UUID(2, 0), null).isEmpty());
+        List<UUID> result = instance.findRange(new UUID(1, 8), new UUID(1, 9));
+        assertEquals(dataIDs.get(8), result.get(0));
+        assertEquals(dataIDs.get(9), result.get(10));
+        instance.rowWriter.close();
+        filePath.toFile().delete();
+    }
+
+    /**
+     * Test of remove method, of class SecondaryIndex, avec des clés d'une
+     * énumération.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     */
+    @Test
+    public void testRemove() throws DAOFileException, DAOFileWriterException {
+        System.out.println("remove");
+        Path filePath = rootDir.resolve("secondary_remove.sindex");
+        filePath.toFile().delete();
+        TileZoneIdentifier[] zones = TileZoneIdentifier.values();
+        SecondaryIndex<TileZoneIdentifier> instance = new SecondaryIndex<>(filePath, KeyCodec.enumeration(TileZoneIdentifier.class));
+        for (int i = 0; i < zones.length; i++) {
+            instance.put(new UUID(0, i), zones[i]);
+        }
+        assertEquals(Collections.singletonList(new UUID(0, 0)), instance.find(zones[0]));
+        assertTrue(instance.remove(new UUID(0, 0)));
+        assertFalse(instance.remove(new UUID(0, 0)));
+        assertTrue(instance.find(zones[0]).isEmpty());
+        assertNull(instance.getKey(new UUID(0, 0)));
+        assertEquals(zones.length - 1, instance.getRowNumber());
+        assertEquals(zones.length - 1, instance.getDataIDs().size());
+        instance.rowWriter.close();
+        filePath.toFile().delete();
+    }
+}
@@ -0,0 +1,107 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author aliyou
+ */
+public class SnapshotTest {
+
+    /**
+     * Chemin du repertoire racine.
+     */
+    static Path rootDir;
+
+    public SnapshotTest() {
+        rootDir = Paths.get("/tmp/mahjong/dao");
+        if (!rootDir.toFile().exists()) {
+            rootDir.toFile().mkdirs();
+        }
+    }
+
+    /**
+     * Test of getSnapshotPath method, of class Snapshot.
+     */
+    @Test
+    public void testGetSnapshotPath() {
+        System.out.println("getSnapshotPath");
+        assertEquals(rootDir.resolve("tile.index.snapshot"), Snapshot.getSnapshotPath(rootDir.resolve("tile.index")));
+    }
+
+    /**
+     * Test of write and read methods, of class Snapshot. Une image n'est lue
+     * qu'une fois.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     */
+    @Test
+    public void testRead() throws DAOFileException {
+        System.out.println("read");
+        Path filePath = rootDir.resolve("snapshot_read.test");
+        Snapshot.write(filePath, 7, 1024, payload());
+        assertTrue(Snapshot.getSnapshotPath(filePath).toFile().exists());
+
+        ByteBuffer result = Snapshot.read(filePath, 7, 1024);
+        assertEquals(payload(), result);
+        assertFalse(Snapshot.getSnapshotPath(filePath).toFile().exists());
+        assertNull(Snapshot.read(filePath, 7, 1024));
+    }
+
+    /**
+     * Test of read method, of class Snapshot. Une image est ignorée si le
+     * fichier a changé depuis son écriture.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     */
+    @Test
+    public void testReadStale() throws DAOFileException {
+        System.out.println("read stale");
+        Path filePath = rootDir.resolve("snapshot_stale.test");
+        Snapshot.write(filePath, 7, 1024, payload());
+        assertNull(Snapshot.read(filePath, 8, 1024));
+        assertFalse(Snapshot.getSnapshotPath(filePath).toFile().exists());
+
+        Snapshot.write(filePath, 7, 1024, payload());
+        assertNull(Snapshot.read(filePath, 7, 1056));
+    }
+
+    /**
+     * Test of read method, of class Snapshot. Une image corrompue est
+     * ignorée.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testReadCorrupted() throws DAOFileException, IOException {
+        System.out.println("read corrupted");
+        Path filePath = rootDir.resolve("snapshot_corrupted.test");
+        Snapshot.write(filePath, 7, 1024, payload());
+        try (FileChannel fileChannel = FileChannel.open(Snapshot.getSnapshotPath(filePath), StandardOpenOption.WRITE)) {
+            fileChannel.write(ByteBuffer.wrap(new byte[]{42}), Snapshot.SNAPSHOT_HEADER_SIZE + 3);
+        }
+        assertNull(Snapshot.read(filePath, 7, 1024));
+        assertFalse(Snapshot.getSnapshotPath(filePath).toFile().exists());
+    }
+
+    /**
+     * @return Contenu d'une image de test.
+     */
+    private static ByteBuffer payload() {
+        ByteBuffer payload = ByteBuffer.allocate(64);
+        for (int i = 0; i < 16; i++) {
+            payload.putInt(i * 31);
+        }
+        payload.flip();
+        return payload;
+    }
+}
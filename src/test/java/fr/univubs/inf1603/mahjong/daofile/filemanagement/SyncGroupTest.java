@@ -0,0 +1,110 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException;
+import fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author aliyou
+ */
+public class SyncGroupTest {
+
+    /**
+     * Chemin du repertoire racine.
+     */
+    static Path rootDir;
+
+    public SyncGroupTest() {
+        rootDir = Paths.get("/tmp/mahjong/dao");
+        if (!rootDir.toFile().exists()) {
+            rootDir.toFile().mkdirs();
+        }
+    }
+
+    /**
+     * Test of getInstance method, of class SyncGroup.
+     */
+    @Test
+    public void testGetInstance() {
+        System.out.println("getInstance");
+        SyncGroup instance = SyncGroup.getInstance(rootDir);
+        assertSame(instance, SyncGroup.getInstance(rootDir.resolve("sub").resolve("..")));
+        assertNotSame(instance, SyncGroup.getInstance(rootDir.resolve("sub")));
+    }
+
+    /**
+     * Test of commit method, of class SyncGroup. Les fichiers modifiés par les
+     * writers d'un meme répertoire sont synchronisés par une seule validation.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     */
+    @Test
+    public void testCommit() throws DAOFileWriterException {
+        System.out.println("commit");
+        Path dirPath = rootDir.resolve("syncGroup_commit");
+        SyncGroup instance = SyncGroup.getInstance(dirPath);
+        instance.setDurabilityPolicy(DurabilityPolicy.GROUP);
+        try (DAOFileWriter writer1 = new DAOFileWriter(dirPath.resolve("writer1.test"));
+                DAOFileWriter writer2 = new DAOFileWriter(dirPath.resolve("writer2.test"))) {
+            long syncCount = instance.getSyncCount();
+            long commitCount = instance.getCommitCount();
+            writer1.write(0, ByteBuffer.allocate(8).putLong(1));
+            writer1.write(8, ByteBuffer.allocate(8).putLong(2));
+            writer2.write(0, ByteBuffer.allocate(8).putLong(3));
+            assertEquals(0, writer1.getSyncCount());
+
+            assertEquals(2, instance.commit());
+            assertEquals(1, writer1.getSyncCount());
+            assertEquals(1, writer2.getSyncCount());
+            assertEquals(syncCount + 2, instance.getSyncCount());
+            assertEquals(commitCount + 1, instance.getCommitCount());
+            // rien à valider
+            assertEquals(0, instance.commit());
+            assertEquals(commitCount + 1, instance.getCommitCount());
+        } finally {
+            instance.setDurabilityPolicy(DurabilityPolicy.NONE);
+        }
+        dirPath.resolve("writer1.test").toFile().delete();
+        dirPath.resolve("writer2.test").toFile().delete();
+    }
+
+    /**
+     * Test of commit method, of class SyncGroup. Un lot d'écriture du writer
+     * est validé avant la notification de fin d'écriture.
+     *
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileException
+     * @throws fr.univubs.inf1603.mahjong.daofile.exception.DAOFileWriterException
+     * @throws java.lang.InterruptedException
+     */
+    @Test
+    public void testCommit_WritingBatch() throws DAOFileException, DAOFileWriterException, InterruptedException {
+        System.out.println("commit writing batch");
+        Path dirPath = rootDir.resolve("syncGroup_batch");
+        Path filePath = dirPath.resolve("writer.test");
+        filePath.toFile().delete();
+        SyncGroup instance = SyncGroup.getInstance(dirPath);
+        instance.setDurabilityPolicy(DurabilityPolicy.GROUP);
+        try (DAOFileWriter writer = new DAOFileWriter(filePath)) {
+            final long[] syncCountAtDone = {-1};
+            writer.addPropertyChangeListener(evt -> syncCountAtDone[0] = writer.getSyncCount());
+            writer.loadFileHeader();
+            for (int i = 0; i < 3; i++) {
+                long pointer = FileHeaderRow.FILE_HEADER_ROW_SIZE + i * IndexRow.INDEX_ROW_SIZE;
+                writer.addRowToMultipleWritingList(new IndexRow(i + 1, new Index(UUID.randomUUID(), 250), pointer));
+            }
+            Thread.sleep(2000);
+            // un seul fsync pour le lot (tuples et en-tete)
+            assertEquals(1, writer.getSyncCount());
+            assertEquals(1, syncCountAtDone[0]);
+        } finally {
+            instance.setDurabilityPolicy(DurabilityPolicy.NONE);
+        }
+        filePath.toFile().delete();
+    }
+}
@@ -0,0 +1,85 @@
+package fr.univubs.inf1603.mahjong.daofile.filemanagement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author aliyou
+ */
+public class UUIDHashIndexTest {
+
+    public UUIDHashIndexTest() {
+    }
+
+    /**
+     * Test of put method, of class UUIDHashIndex.
+     */
+    @Test
+    public void testPut() {
+        System.out.println("put");
+        UUIDHashIndex instance = new UUIDHashIndex();
+        UUID dataID = new UUID(0, 1);
+        assertEquals(UUIDHashIndex.NOT_FOUND, instance.put(dataID, 3));
+        assertEquals(3, instance.put(dataID, 7));
+        assertEquals(1, instance.size());
+        assertEquals(7, instance.get(dataID));
+        try {
+            instance.put(dataID, -1);
+            fail("put should throw IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    /**
+     * Test of get method, of class UUIDHashIndex. La table s'agrandit sans
+     * perdre d'entrée.
+     */
+    @Test
+    public void testGet() {
+        System.out.println("get");
+        UUIDHashIndex instance = new UUIDHashIndex();
+        List<UUID> dataIDs = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            // identifiants séquentiels et aléatoires
+            UUID dataID = i % 2 == 0 ? new UUID(0, i) : UUID.randomUUID();
+            dataIDs.add(dataID);
+            instance.put(dataID, i);
+        }
+        assertEquals(dataIDs.size(), instance.size());
+        assertTrue(instance.getCapacity() * 7 >= instance.size() * 10);
+        for (int i = 0; i < dataIDs.size(); i++) {
+            assertEquals(i, instance.get(dataIDs.get(i)));
+        }
+        assertEquals(UUIDHashIndex.NOT_FOUND, instance.get(new UUID(1, 1)));
+    }
+
+    /**
+     * Test of remove method, of class UUIDHashIndex. Les entrées restantes
+     * sont toujours retrouvées après les suppressions.
+     */
+    @Test
+    public void testRemove() {
+        System.out.println("remove");
+        UUIDHashIndex instance = new UUIDHashIndex();
+        int nbEntries = 5000;
+        for (int i = 0; i < nbEntries; i++) {
+            instance.put(new UUID(i, i), i);
+        }
+        for (int i = 0; i < nbEntries; i += 3) {
+            assertEquals(i, instance.remove(new UUID(i, i)));
+        }
+        assertEquals(UUIDHashIndex.NOT_FOUND, instance.remove(new UUID(0, 0)));
+        for (int i = 0; i < nbEntries; i++) {
+            int expResult = i % 3 == 0 ? UUIDHashIndex.NOT_FOUND : i;
+            assertEquals(expResult, instance.get(new UUID(i, i)));
+        }
+        assertEquals(nbEntries - (nbEntries + 2) / 3, instance.size());
+        instance.clear();
+        assertEquals(0, instance.size());
+        assertEquals(UUIDHashIndex.NOT_FOUND, instance.get(new UUID(1, 1)));
+    }
+}